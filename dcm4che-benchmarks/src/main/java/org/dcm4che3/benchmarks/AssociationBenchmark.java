@@ -0,0 +1,195 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.benchmarks;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.net.ApplicationEntity;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.Connection;
+import org.dcm4che3.net.DataWriterAdapter;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.DimseRSP;
+import org.dcm4che3.net.PDVInputStream;
+import org.dcm4che3.net.Priority;
+import org.dcm4che3.net.TransferCapability;
+import org.dcm4che3.net.pdu.AAssociateRQ;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.service.BasicCEchoSCP;
+import org.dcm4che3.net.service.BasicCStoreSCP;
+import org.dcm4che3.net.service.DicomServiceRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the round trip of DIMSE messages - and therefore the PDU encoding
+ * and decoding - over an Association on the loopback interface.
+ * <p>
+ * The Association uses a real TCP socket, so the results include the
+ * latency of the loopback network stack and of the thread hand-off between
+ * the reading and the writing threads of both peers. They are only
+ * comparable between runs on the same host and OS, and differences in the
+ * codec itself may be hidden by the socket overhead; use the codec
+ * benchmarks to measure encoding and decoding in isolation.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssociationBenchmark {
+
+    private static final String CUID = UID.CTImageStorage;
+
+    @Param({ "false", "true" })
+    public boolean nonBlockingIO;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private Device scp;
+    private Device scu;
+    private Association as;
+    private Attributes ct;
+    private String iuid;
+
+    @Setup
+    public void setup() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        scp = createDevice("scp", "STORESCP", freePort());
+        DicomServiceRegistry serviceRegistry = new DicomServiceRegistry();
+        serviceRegistry.addDicomService(new BasicCEchoSCP());
+        serviceRegistry.addDicomService(new BasicCStoreSCP() {
+
+            @Override
+            protected void store(Association as, PresentationContext pc,
+                    Attributes rq, PDVInputStream data, Attributes rsp)
+                    throws IOException {
+                data.skipAll();
+            }
+        });
+        scp.setDimseRQHandler(serviceRegistry);
+        scp.getApplicationEntity("STORESCP").addTransferCapability(
+                new TransferCapability(null, "*",
+                        TransferCapability.Role.SCP, "*"));
+        scp.bindConnections();
+        scu = createDevice("scu", "STORESCU", Connection.NOT_LISTENING);
+        Connection remote = new Connection("dicom", "localhost",
+                scp.listConnections().get(0).getPort());
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET("STORESCP");
+        rq.addPresentationContext(new PresentationContext(1,
+                UID.VerificationSOPClass, UID.ImplicitVRLittleEndian));
+        rq.addPresentationContext(new PresentationContext(3,
+                CUID, UID.ExplicitVRLittleEndian));
+        as = scu.getApplicationEntity("STORESCU").connect(remote, rq);
+        ct = SampleDatasets.createCT();
+        iuid = ct.getString(Tag.SOPInstanceUID);
+    }
+
+    private Device createDevice(String name, String aet, int port) {
+        Device device = new Device(name);
+        Connection conn = new Connection("dicom", "localhost", port);
+        conn.setNonBlockingIO(nonBlockingIO);
+        device.addConnection(conn);
+        ApplicationEntity ae = new ApplicationEntity(aet);
+        device.addApplicationEntity(ae);
+        ae.addConnection(conn);
+        device.setExecutor(executor);
+        device.setScheduledExecutor(scheduledExecutor);
+        return device;
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket ss = new ServerSocket(0);
+        try {
+            return ss.getLocalPort();
+        } finally {
+            ss.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try {
+            as.release();
+            as.waitForSocketClose();
+        } finally {
+            scp.unbindConnections();
+            executor.shutdown();
+            scheduledExecutor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Attributes echo() throws Exception {
+        DimseRSP rsp = as.cecho();
+        rsp.next();
+        return rsp.getCommand();
+    }
+
+    @Benchmark
+    public Attributes store() throws Exception {
+        DimseRSP rsp = as.cstore(CUID, iuid, Priority.NORMAL,
+                new DataWriterAdapter(ct), UID.ExplicitVRLittleEndian);
+        rsp.next();
+        return rsp.getCommand();
+    }
+}
@@ -0,0 +1,113 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.AttributesMatcher;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.VR;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AttributesBenchmark {
+
+    private Attributes attrs;
+    private Attributes keys;
+    private AttributesMatcher matcher;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        attrs = SampleDatasets.createCT();
+        keys = new Attributes();
+        keys.setString(Tag.StudyDate, VR.DA, "20140718");
+        keys.setString(Tag.PatientName, VR.PN, "DOE^*");
+        keys.setString(Tag.PatientID, VR.LO, "PID-0815");
+        keys.setString(Tag.Modality, VR.CS, "CT");
+        keys.setNull(Tag.StudyInstanceUID, VR.UI);
+        matcher = new AttributesMatcher(keys, true, true);
+    }
+
+    @Benchmark
+    public String getString() {
+        return attrs.getString(Tag.PatientName);
+    }
+
+    @Benchmark
+    public Object setString() {
+        return attrs.setString(Tag.AccessionNumber, VR.SH,
+                (++counter & 1) == 0 ? "A123456789" : "B987654321");
+    }
+
+    @Benchmark
+    public Attributes addAll() {
+        Attributes copy = new Attributes(attrs.size());
+        copy.addAll(attrs);
+        return copy;
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return attrs.matches(keys, true, true);
+    }
+
+    @Benchmark
+    public boolean compiledMatcher() {
+        return matcher.matches(attrs);
+    }
+}
@@ -0,0 +1,123 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che3.conf.api.DicomConfiguration;
+import org.dcm4che3.conf.core.storage.SingleJsonFileConfigurationStorage;
+import org.dcm4che3.conf.dicom.CommonDicomConfiguration;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.net.ApplicationEntity;
+import org.dcm4che3.net.Connection;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.TransferCapability;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading of a Device with a large number of Application Entities
+ * from a memory resident JSON configuration, which is dominated by the
+ * reflective vitalization of the configuration objects.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigurationBenchmark {
+
+    private static final String DEVICE_NAME = "archive";
+
+    @Param({ "5000" })
+    public int numberOfAEs;
+
+    private File file;
+    private DicomConfiguration config;
+
+    @Setup
+    public void setup() throws Exception {
+        file = File.createTempFile("dicom-config", ".json");
+        file.delete();
+        config = new CommonDicomConfiguration(
+                new SingleJsonFileConfigurationStorage(file.getPath(), true));
+        config.persist(createDevice());
+    }
+
+    @TearDown
+    public void tearDown() {
+        config.close();
+        file.delete();
+    }
+
+    private Device createDevice() {
+        Device device = new Device(DEVICE_NAME);
+        Connection conn = new Connection("dicom", "localhost", 11112);
+        device.addConnection(conn);
+        for (int i = 0; i < numberOfAEs; i++) {
+            ApplicationEntity ae = new ApplicationEntity("AE" + i);
+            ae.addConnection(conn);
+            ae.addTransferCapability(new TransferCapability(null,
+                    UID.VerificationSOPClass, TransferCapability.Role.SCP,
+                    UID.ImplicitVRLittleEndian));
+            ae.addTransferCapability(new TransferCapability(null,
+                    "*", TransferCapability.Role.SCP, "*"));
+            device.addApplicationEntity(ae);
+        }
+        return device;
+    }
+
+    @Benchmark
+    public Device findDevice() throws Exception {
+        return config.findDevice(DEVICE_NAME);
+    }
+}
@@ -0,0 +1,121 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che3.benchmarks.SampleDatasets.Sample;
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.io.DicomInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DicomInputStreamBenchmark {
+
+    @Param({ "CT", "ENHANCED_MR", "SR" })
+    public String sample;
+
+    @Param({ UID.ExplicitVRLittleEndian, UID.ImplicitVRLittleEndian })
+    public String tsuid;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        encoded = SampleDatasets.encode(
+                SampleDatasets.create(Sample.valueOf(sample)), tsuid);
+    }
+
+    private DicomInputStream open() throws IOException {
+        return new DicomInputStream(new ByteArrayInputStream(encoded), tsuid);
+    }
+
+    @Benchmark
+    public Attributes readDataset() throws IOException {
+        DicomInputStream in = open();
+        try {
+            return in.readDataset(-1, -1);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public Attributes readDatasetUntilPixelData() throws IOException {
+        DicomInputStream in = open();
+        try {
+            return in.readDataset(-1, Tag.PixelData);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public Attributes readSelectedDataset() throws IOException {
+        DicomInputStream in = open();
+        try {
+            return in.readSelectedDataset(-1, Tag.StudyInstanceUID,
+                    Tag.SeriesInstanceUID, Tag.SOPInstanceUID);
+        } finally {
+            in.close();
+        }
+    }
+}
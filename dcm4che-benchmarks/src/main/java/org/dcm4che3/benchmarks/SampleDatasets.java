@@ -0,0 +1,244 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Sequence;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+
+/**
+ * Generates representative Data Sets used by the benchmarks, so no sample
+ * files have to be distributed with the benchmarks.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class SampleDatasets {
+
+    public enum Sample {
+        /** CT image header with 512x512 16 bit pixel data */
+        CT,
+        /** Enhanced MR image with 500 frames of 64x64 pixels */
+        ENHANCED_MR,
+        /** Structured report with 5 levels of nested content items */
+        SR
+    }
+
+    private static final String STUDY_IUID = "1.2.40.0.13.1.1.99.1";
+    private static final String SERIES_IUID = "1.2.40.0.13.1.1.99.1.1";
+    private static final String SOP_IUID = "1.2.40.0.13.1.1.99.1.1.1";
+
+    public static Attributes create(Sample sample) {
+        switch (sample) {
+        case CT:
+            return createCT();
+        case ENHANCED_MR:
+            return createEnhancedMR(500);
+        case SR:
+            return createSR(5, 4);
+        }
+        throw new AssertionError(sample);
+    }
+
+    public static byte[] encode(Attributes attrs, String tsuid)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DicomOutputStream dos = new DicomOutputStream(out, tsuid);
+        try {
+            dos.writeDataset(null, attrs);
+        } finally {
+            dos.close();
+        }
+        return out.toByteArray();
+    }
+
+    public static Attributes createPatientStudy() {
+        Attributes attrs = new Attributes();
+        attrs.setString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+        attrs.setString(Tag.StudyDate, VR.DA, "20140718");
+        attrs.setString(Tag.StudyTime, VR.TM, "103015.123");
+        attrs.setString(Tag.AccessionNumber, VR.SH, "A123456789");
+        attrs.setString(Tag.ReferringPhysicianName, VR.PN, "M\u00fcller^Hans");
+        attrs.setString(Tag.StudyDescription, VR.LO, "CT Thorax/Abdomen");
+        attrs.setString(Tag.PatientName, VR.PN, "Doe^John^^Dr.");
+        attrs.setString(Tag.PatientID, VR.LO, "PID-0815");
+        attrs.setString(Tag.IssuerOfPatientID, VR.LO, "DCM4CHE");
+        attrs.setString(Tag.PatientBirthDate, VR.DA, "19620704");
+        attrs.setString(Tag.PatientSex, VR.CS, "M");
+        attrs.setString(Tag.PatientAge, VR.AS, "052Y");
+        attrs.setString(Tag.StudyInstanceUID, VR.UI, STUDY_IUID);
+        attrs.setString(Tag.StudyID, VR.SH, "S1");
+        return attrs;
+    }
+
+    private static void addSeriesInstance(Attributes attrs, String cuid,
+            String modality) {
+        attrs.setString(Tag.SOPClassUID, VR.UI, cuid);
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, SOP_IUID);
+        attrs.setString(Tag.Modality, VR.CS, modality);
+        attrs.setString(Tag.Manufacturer, VR.LO, "dcm4che");
+        attrs.setString(Tag.InstitutionName, VR.LO, "General Hospital");
+        attrs.setString(Tag.SeriesInstanceUID, VR.UI, SERIES_IUID);
+        attrs.setInt(Tag.SeriesNumber, VR.IS, 1);
+        attrs.setInt(Tag.InstanceNumber, VR.IS, 1);
+        attrs.setString(Tag.ContentDate, VR.DA, "20140718");
+        attrs.setString(Tag.ContentTime, VR.TM, "103512.456");
+    }
+
+    private static void addImagePixel(Attributes attrs, int rows, int columns,
+            int frames) {
+        attrs.setInt(Tag.SamplesPerPixel, VR.US, 1);
+        attrs.setString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+        if (frames > 1)
+            attrs.setInt(Tag.NumberOfFrames, VR.IS, frames);
+        attrs.setInt(Tag.Rows, VR.US, rows);
+        attrs.setInt(Tag.Columns, VR.US, columns);
+        attrs.setInt(Tag.BitsAllocated, VR.US, 16);
+        attrs.setInt(Tag.BitsStored, VR.US, 12);
+        attrs.setInt(Tag.HighBit, VR.US, 11);
+        attrs.setInt(Tag.PixelRepresentation, VR.US, 0);
+        attrs.setBytes(Tag.PixelData, VR.OW, new byte[rows * columns * 2 * frames]);
+    }
+
+    public static Attributes createCT() {
+        Attributes attrs = createPatientStudy();
+        addSeriesInstance(attrs, UID.CTImageStorage, "CT");
+        attrs.setString(Tag.ImageType, VR.CS, "ORIGINAL", "PRIMARY", "AXIAL");
+        attrs.setString(Tag.ScanOptions, VR.CS, "HELICAL MODE");
+        attrs.setDouble(Tag.SliceThickness, VR.DS, 1.25);
+        attrs.setDouble(Tag.KVP, VR.DS, 120.0);
+        attrs.setDouble(Tag.DataCollectionDiameter, VR.DS, 500.0);
+        attrs.setDouble(Tag.ReconstructionDiameter, VR.DS, 360.0);
+        attrs.setString(Tag.ConvolutionKernel, VR.SH, "STANDARD");
+        attrs.setDouble(Tag.ImagePositionPatient, VR.DS, -180.0, -180.0, 42.5);
+        attrs.setDouble(Tag.ImageOrientationPatient, VR.DS, 1, 0, 0, 0, 1, 0);
+        attrs.setString(Tag.FrameOfReferenceUID, VR.UI, STUDY_IUID + ".9");
+        attrs.setDouble(Tag.SliceLocation, VR.DS, 42.5);
+        attrs.setDouble(Tag.PixelSpacing, VR.DS, 0.703125, 0.703125);
+        attrs.setDouble(Tag.WindowCenter, VR.DS, 40.0);
+        attrs.setDouble(Tag.WindowWidth, VR.DS, 400.0);
+        attrs.setDouble(Tag.RescaleIntercept, VR.DS, -1024.0);
+        attrs.setDouble(Tag.RescaleSlope, VR.DS, 1.0);
+        addImagePixel(attrs, 512, 512, 1);
+        return attrs;
+    }
+
+    public static Attributes createEnhancedMR(int frames) {
+        Attributes attrs = createPatientStudy();
+        addSeriesInstance(attrs, UID.EnhancedMRImageStorage, "MR");
+        attrs.setString(Tag.ImageType, VR.CS, "ORIGINAL", "PRIMARY", "M", "NONE");
+        Attributes shared = new Attributes(2);
+        attrs.newSequence(Tag.SharedFunctionalGroupsSequence, 1).add(shared);
+        Attributes pixelMeasures = new Attributes(2);
+        pixelMeasures.setDouble(Tag.PixelSpacing, VR.DS, 0.9375, 0.9375);
+        pixelMeasures.setDouble(Tag.SliceThickness, VR.DS, 3.0);
+        shared.newSequence(Tag.PixelMeasuresSequence, 1).add(pixelMeasures);
+        Sequence perFrame = attrs.newSequence(
+                Tag.PerFrameFunctionalGroupsSequence, frames);
+        for (int i = 0; i < frames; i++) {
+            Attributes frame = new Attributes(3);
+            Attributes content = new Attributes(3);
+            content.setString(Tag.StackID, VR.SH, "1");
+            content.setInt(Tag.InStackPositionNumber, VR.UL, i + 1);
+            content.setInt(Tag.DimensionIndexValues, VR.UL, 1, i + 1);
+            frame.newSequence(Tag.FrameContentSequence, 1).add(content);
+            Attributes position = new Attributes(1);
+            position.setDouble(Tag.ImagePositionPatient, VR.DS,
+                    -120.0, -120.0, i * 3.0);
+            frame.newSequence(Tag.PlanePositionSequence, 1).add(position);
+            Attributes voi = new Attributes(2);
+            voi.setDouble(Tag.WindowCenter, VR.DS, 600.0);
+            voi.setDouble(Tag.WindowWidth, VR.DS, 1200.0);
+            frame.newSequence(Tag.FrameVOILUTSequence, 1).add(voi);
+            perFrame.add(frame);
+        }
+        addImagePixel(attrs, 64, 64, frames);
+        return attrs;
+    }
+
+    public static Attributes createSR(int depth, int itemsPerLevel) {
+        Attributes attrs = createPatientStudy();
+        addSeriesInstance(attrs, UID.ComprehensiveSRStorage, "SR");
+        attrs.setString(Tag.ValueType, VR.CS, "CONTAINER");
+        attrs.newSequence(Tag.ConceptNameCodeSequence, 1).add(
+                code("126000", "DCM", "Imaging Measurement Report"));
+        attrs.setString(Tag.ContinuityOfContent, VR.CS, "SEPARATE");
+        attrs.setString(Tag.CompletionFlag, VR.CS, "COMPLETE");
+        attrs.setString(Tag.VerificationFlag, VR.CS, "UNVERIFIED");
+        addContent(attrs, depth, itemsPerLevel);
+        return attrs;
+    }
+
+    private static void addContent(Attributes parent, int depth,
+            int itemsPerLevel) {
+        Sequence seq = parent.newSequence(Tag.ContentSequence, itemsPerLevel);
+        for (int i = 0; i < itemsPerLevel; i++) {
+            Attributes item = new Attributes(5);
+            item.setString(Tag.RelationshipType, VR.CS, "CONTAINS");
+            if (depth > 1) {
+                item.setString(Tag.ValueType, VR.CS, "CONTAINER");
+                item.newSequence(Tag.ConceptNameCodeSequence, 1).add(
+                        code("125007", "DCM", "Measurement Group"));
+                item.setString(Tag.ContinuityOfContent, VR.CS, "SEPARATE");
+                addContent(item, depth - 1, itemsPerLevel);
+            } else {
+                item.setString(Tag.ValueType, VR.CS, "TEXT");
+                item.newSequence(Tag.ConceptNameCodeSequence, 1).add(
+                        code("121071", "DCM", "Finding"));
+                item.setString(Tag.TextValue, VR.UT,
+                        "No evidence of focal lesion in item " + i);
+            }
+            seq.add(item);
+        }
+    }
+
+    private static Attributes code(String value, String scheme,
+            String meaning) {
+        Attributes code = new Attributes(3);
+        code.setString(Tag.CodeValue, VR.SH, value);
+        code.setString(Tag.CodingSchemeDesignator, VR.SH, scheme);
+        code.setString(Tag.CodeMeaning, VR.LO, meaning);
+        return code;
+    }
+}
@@ -0,0 +1,105 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che3.data.SpecificCharacterSet;
+import org.dcm4che3.util.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpecificCharacterSetBenchmark {
+
+    private static final String PN_DELIMS = "^=";
+    private static final String LATIN1_PN = "M\u00fcller^Hans^^Dr.";
+    private static final String JAPANESE_PN =
+            "Yamada^Tarou=\u5c71\u7530^\u592a\u90ce=\u3084\u307e\u3060^\u305f\u308d\u3046";
+
+    @Param({ "ISO_IR 100", "ISO_IR 192", "\\ISO 2022 IR 87" })
+    public String specificCharacterSet;
+
+    private SpecificCharacterSet cs;
+    private String value;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        cs = SpecificCharacterSet.valueOf(
+                StringUtils.split(specificCharacterSet, '\\'));
+        value = specificCharacterSet.equals("ISO_IR 100")
+                ? LATIN1_PN
+                : JAPANESE_PN;
+        encoded = cs.encode(value, PN_DELIMS);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return cs.encode(value, PN_DELIMS);
+    }
+
+    @Benchmark
+    public String decode() {
+        return cs.decode(encoded);
+    }
+
+    @Benchmark
+    public SpecificCharacterSet valueOf() {
+        return SpecificCharacterSet.valueOf(
+                StringUtils.split(specificCharacterSet, '\\'));
+    }
+}
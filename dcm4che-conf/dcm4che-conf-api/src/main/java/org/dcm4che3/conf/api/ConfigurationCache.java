@@ -38,26 +38,80 @@
 
 package org.dcm4che3.conf.api;
 
-import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Thread-safe cache of configuration objects. Concurrent requests for the
+ * same missing or stale key are served by one invocation of
+ * {@link #find(Object, String)}. Not found keys are cached as {@code null}
+ * values. A {@code null} key is passed to {@link #find(Object, String)} and
+ * cached like any other key. If an {@link Executor} is set, stale entries are returned
+ * immediately and refreshed in the background. If the number of entries is
+ * limited, entries are evicted by the CLOCK algorithm, which approximates
+ * LRU at constant costs per eviction.
+ * 
  * @author Gunter Zeilinger <gunterze@gmail.com>
  */
 public abstract class ConfigurationCache<C,T> {
 
+    /** Stands in for the {@code null} key, which ConcurrentHashMap rejects */
+    private static final Object NULL_KEY = new Object();
+
     private static final class CacheEntry<T> {
         final T value;
         final long fetchTime;
+        volatile boolean referenced;
         CacheEntry(T value, long fetchTime) {
             this.value = value;
             this.fetchTime = fetchTime;
         }
     }
 
-    private final HashMap<String, CacheEntry<T>> cache =
-            new HashMap<String, CacheEntry<T>>();
+    private final class LoadTask extends FutureTask<CacheEntry<T>> {
+        final Object key;
+
+        LoadTask(final Object key) {
+            this(key, generation.get());
+        }
+
+        private LoadTask(final Object key, final int generation) {
+            super(new Callable<CacheEntry<T>>() {
+                @Override
+                public CacheEntry<T> call() throws Exception {
+                    return fetch(key, generation);
+                }
+            });
+            this.key = key;
+        }
+
+        @Override
+        protected void done() {
+            loading.remove(key, this);
+        }
+    }
+
+    private final ConcurrentHashMap<Object, CacheEntry<T>> cache =
+            new ConcurrentHashMap<Object, CacheEntry<T>>();
+    private final ConcurrentHashMap<Object, LoadTask> loading =
+            new ConcurrentHashMap<Object, LoadTask>();
+    private final ConcurrentLinkedQueue<Object> clock =
+            new ConcurrentLinkedQueue<Object>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
     private final C conf;
-    private long staleTimeout;
+    private volatile long staleTimeout;
+    private volatile int maxSize;
+    private volatile Executor executor;
 
     public ConfigurationCache(C conf) {
         if (conf == null)
@@ -73,25 +127,178 @@ public abstract class ConfigurationCache<C,T> {
         this.staleTimeout = staleTimeout * 1000L;
     }
 
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Limit the number of cached entries. If the limit is exceeded, an
+     * entry, which was not accessed since the clock hand passed it the last
+     * time, is evicted.
+     * 
+     * @param maxSize maximal number of cached entries or 0 for no limit
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set executor used to refresh stale entries in the background. If no
+     * executor is set, stale entries are refreshed synchronously by
+     * {@link #get(String)}.
+     * 
+     * @param executor executor for refresh-ahead or {@code null}
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes all entries. Values of loads already in progress are not
+     * cached.
+     */
     public void clear() {
+        generation.incrementAndGet();
+        loading.clear();
         cache.clear();
+        clock.clear();
     }
 
+    /**
+     * Returns the current time in milliseconds used to detect stale
+     * entries. May be overridden to use a different time source.
+     * 
+     * @return current time in milliseconds
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
 
     public T get(String key) throws ConfigurationException {
-        long now = System.currentTimeMillis();
+        return get(key != null ? key : NULL_KEY);
+    }
+
+    private T get(Object key) throws ConfigurationException {
+        long now = currentTimeMillis();
         CacheEntry<T> entry = cache.get(key);
-        if (entry == null 
-                || (staleTimeout != 0 && now > entry.fetchTime + staleTimeout)) {
-            T value = null;
+        if (entry != null) {
+            entry.referenced = true;
+            if (!isStale(entry, now)) {
+                hitCount.incrementAndGet();
+                return entry.value;
+            }
+            Executor executor = this.executor;
+            if (executor != null && refreshAhead(key, executor)) {
+                hitCount.incrementAndGet();
+                return entry.value;
+            }
+        }
+        missCount.incrementAndGet();
+        return load(key).value;
+    }
+
+    private boolean isStale(CacheEntry<T> entry, long now) {
+        long staleTimeout = this.staleTimeout;
+        return staleTimeout != 0 && now > entry.fetchTime + staleTimeout;
+    }
+
+    private boolean refreshAhead(Object key, Executor executor) {
+        LoadTask task = new LoadTask(key);
+        if (loading.putIfAbsent(key, task) == null)
             try {
-                value = find(conf, key);
-            } catch (ConfigurationNotFoundException e) {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                loading.remove(key, task);
+                return false;
             }
-            entry = new CacheEntry<T>(value, now);
-            cache.put(key, entry);
+        return true;
+    }
+
+    private CacheEntry<T> load(Object key) throws ConfigurationException {
+        LoadTask task = new LoadTask(key);
+        LoadTask prev = loading.putIfAbsent(key, task);
+        if (prev == null)
+            task.run();
+        else
+            task = prev;
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConfigurationException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConfigurationException)
+                throw (ConfigurationException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new ConfigurationException(cause);
+        }
+    }
+
+    private CacheEntry<T> fetch(Object key, int generation)
+            throws ConfigurationException {
+        T value = null;
+        try {
+            value = find(conf, key != NULL_KEY ? (String) key : null);
+        } catch (ConfigurationNotFoundException e) {
+        }
+        CacheEntry<T> entry = new CacheEntry<T>(value, currentTimeMillis());
+        if (this.generation.get() != generation)
+            return entry;
+
+        if (cache.put(key, entry) == null)
+            clock.offer(key);
+        // loaded before concurrent clear()
+        if (this.generation.get() != generation)
+            cache.remove(key, entry);
+        evict();
+        return entry;
+    }
+
+    private void evict() {
+        int maxSize = this.maxSize;
+        while (maxSize != 0 && cache.size() > maxSize) {
+            Object key = clock.poll();
+            if (key == null)
+                break;
+            CacheEntry<T> entry = cache.get(key);
+            if (entry == null)
+                continue;
+            if (entry.referenced) {
+                // second chance
+                entry.referenced = false;
+                clock.offer(key);
+            } else if (cache.remove(key, entry))
+                evictionCount.incrementAndGet();
+            else
+                clock.offer(key);
         }
-        return entry.value;
     }
 
     protected abstract T find(C conf, String key)
@@ -0,0 +1,223 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.conf.api;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class ConfigurationCacheTest {
+
+    private static class Cache extends ConfigurationCache<Object, String> {
+
+        final AtomicInteger finds = new AtomicInteger();
+        volatile CountDownLatch latch;
+        volatile long now;
+
+        Cache() {
+            super(new Object());
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        protected String find(Object conf, String key)
+                throws ConfigurationException {
+            finds.incrementAndGet();
+            CountDownLatch latch = this.latch;
+            if (latch != null)
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new ConfigurationException(e);
+                }
+            if (key == null || key.startsWith("unknown"))
+                throw new ConfigurationNotFoundException(key);
+            return key.toLowerCase();
+        }
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        Cache cache = new Cache();
+        assertEquals("aet", cache.get("AET"));
+        assertEquals("aet", cache.get("AET"));
+        assertEquals(1, cache.finds.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        Cache cache = new Cache();
+        assertNull(cache.get("unknown"));
+        assertNull(cache.get("unknown"));
+        assertEquals(1, cache.finds.get());
+    }
+
+    @Test
+    public void testNullKey() throws Exception {
+        Cache cache = new Cache();
+        assertNull(cache.get(null));
+        assertNull(cache.get(null));
+        assertEquals(1, cache.finds.get());
+        assertEquals("aet", cache.get("AET"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        final Cache cache = new Cache();
+        cache.latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            @SuppressWarnings("unchecked")
+            Future<String>[] results = new Future[4];
+            for (int i = 0; i < results.length; i++)
+                results[i] = executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return cache.get("AET");
+                    }
+                });
+            Thread.sleep(100);
+            cache.latch.countDown();
+            for (Future<String> result : results)
+                assertEquals("aet", result.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, cache.finds.get());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        Cache cache = new Cache();
+        cache.setMaxSize(2);
+        cache.get("A");
+        cache.get("B");
+        cache.get("A");
+        cache.get("C");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("A");
+        assertEquals(3, cache.finds.get());
+        cache.get("B");
+        assertEquals(4, cache.finds.get());
+    }
+
+    @Test
+    public void testMaxSizeManyEntries() throws Exception {
+        Cache cache = new Cache();
+        cache.setMaxSize(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("HOT");
+            cache.get("K" + i);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(901, cache.getEvictionCount());
+        cache.get("HOT");
+        assertEquals(1001, cache.finds.get());
+    }
+
+    @Test
+    public void testClearDuringLoad() throws Exception {
+        final Cache cache = new Cache();
+        cache.latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> result = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return cache.get("AET");
+                }
+            });
+            while (cache.finds.get() == 0)
+                Thread.yield();
+            cache.clear();
+            cache.latch.countDown();
+            assertEquals("aet", result.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, cache.size());
+        cache.latch = null;
+        assertEquals("aet", cache.get("AET"));
+        assertEquals(2, cache.finds.get());
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        Cache cache = new Cache();
+        cache.setStaleTimeout(1);
+        final AtomicInteger refreshs = new AtomicInteger();
+        cache.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                refreshs.incrementAndGet();
+                command.run();
+            }
+        });
+        assertEquals("aet", cache.get("AET"));
+        cache.now += 1000;
+        assertEquals("aet", cache.get("AET"));
+        assertEquals(1, cache.finds.get());
+        cache.now += 1;
+        assertEquals("aet", cache.get("AET"));
+        assertEquals(1, refreshs.get());
+        assertEquals(2, cache.finds.get());
+        assertEquals("aet", cache.get("AET"));
+        assertEquals(1, refreshs.get());
+    }
+}
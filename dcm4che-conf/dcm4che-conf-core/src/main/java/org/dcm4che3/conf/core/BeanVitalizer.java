@@ -52,6 +52,7 @@ import org.dcm4che3.conf.core.api.ConfigurableClass;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Main class that is used to initialize annotated Java objects with settings fetched from a configuration backend.
@@ -60,7 +61,8 @@ import java.util.Map;
 public class BeanVitalizer {
 
     private Map<Class, Object> contextMap = new HashMap<Class, Object>();
-    private Map<Class, ConfigTypeAdapter> customConfigTypeAdapters = new HashMap<Class, ConfigTypeAdapter>();
+    private Map<Class, ConfigTypeAdapter> customConfigTypeAdapters = new ConcurrentHashMap<Class, ConfigTypeAdapter>();
+    private final Map<Class, ConfigTypeAdapter> defaultConfigTypeAdapters = new ConcurrentHashMap<Class, ConfigTypeAdapter>();
     private ConfigTypeAdapter referenceTypeAdapter;
 
     public void setReferenceTypeAdapter(ConfigTypeAdapter referenceTypeAdapter) {
@@ -150,7 +152,9 @@ public class BeanVitalizer {
     @SuppressWarnings("unchecked")
     public ConfigTypeAdapter lookupDefaultTypeAdapter(Class clazz) throws ConfigurationException {
 
-        ConfigTypeAdapter adapter = null;
+        // adapters are stateless, so they can be reused
+        ConfigTypeAdapter adapter = defaultConfigTypeAdapters.get(clazz);
+        if (adapter != null) return adapter;
 
         // if it is a config class, use reflective adapter
         if (clazz.getAnnotation(ConfigurableClass.class) != null)
@@ -165,6 +169,7 @@ public class BeanVitalizer {
         if (adapter == null)
             throw new ConfigurationException("TypeAdapter not found for class " + clazz.getName());
 
+        defaultConfigTypeAdapters.put(clazz, adapter);
         return adapter;
     }
 
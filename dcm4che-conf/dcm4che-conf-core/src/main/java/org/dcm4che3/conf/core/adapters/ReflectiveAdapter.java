@@ -39,7 +39,6 @@
  */
 package org.dcm4che3.conf.core.adapters;
 
-import org.apache.commons.beanutils.PropertyUtils;
 import org.dcm4che3.conf.api.ConfigurationException;
 import org.dcm4che3.conf.api.ConfigurationUnserializableException;
 import org.dcm4che3.conf.core.AnnotatedConfigurableProperty;
@@ -97,7 +96,7 @@ public class ReflectiveAdapter<T> implements ConfigTypeAdapter<T, Map<String, Ob
         for (AnnotatedConfigurableProperty fieldProperty : ConfigIterators.getAllConfigurableFields(clazz))
             try {
                 Object fieldValue = DefaultConfigTypeAdapters.delegateGetChildFromConfigNode(configNode, fieldProperty, vitalizer);
-                PropertyUtils.setSimpleProperty(confObj, fieldProperty.getName(), fieldValue);
+                ConfigIterators.setProperty(confObj, fieldProperty.getName(), fieldValue);
             } catch (Exception e) {
                 throw new ConfigurationException("Error while reading configuration field '" + fieldProperty.getName() + "' in class " + clazz.getSimpleName(), e);
             }
@@ -134,7 +133,7 @@ public class ReflectiveAdapter<T> implements ConfigTypeAdapter<T, Map<String, Ob
         // get data from all the configurable fields
         for (AnnotatedConfigurableProperty fieldProperty : ConfigIterators.getAllConfigurableFields(clazz)) {
             try {
-                Object value = PropertyUtils.getSimpleProperty(object, fieldProperty.getName());
+                Object value = ConfigIterators.getProperty(object, fieldProperty.getName());
                 DefaultConfigTypeAdapters.delegateChildToConfigNode(value, configNode, fieldProperty, vitalizer);
             } catch (Exception e) {
                 throw new ConfigurationException("Error while serializing configuration field '" + fieldProperty.getName() + "' in class " + clazz.getSimpleName(), e);
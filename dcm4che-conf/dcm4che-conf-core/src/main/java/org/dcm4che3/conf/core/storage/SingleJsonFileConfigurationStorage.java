@@ -48,19 +48,69 @@ import org.dcm4che3.conf.core.util.ConfigNodeUtil;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Stores the whole configuration in a single JSON file.
+ * <p/>
+ * In memory-resident mode, the parsed configuration tree is kept in memory and only re-read, if the last
+ * modification time or the length of the file changed. The returned nodes are shared and must not be modified;
+ * updates are applied on a copy of the tree, which replaces the cached tree after it was written.
+ * <p/>
+ * The file is always written to a temporary file first, which is then renamed to the target file, so readers never
+ * see a partially written configuration. On platforms, where the target file has to be deleted before the rename,
+ * readers, which do not find the file, wait until it was replaced.
+ *
  * @author Roman K
  */
 public class SingleJsonFileConfigurationStorage implements Configuration {
 
+    private static final class Snapshot {
+        final Map<String, Object> root;
+        final long lastModified;
+        final long length;
+
+        Snapshot(Map<String, Object> root, long lastModified, long length) {
+            this.root = root;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean isUpToDate(File file) {
+            return lastModified == file.lastModified() && length == file.length();
+        }
+    }
+
+    /**
+     * Locks held while a file is replaced, shared by all instances in the JVM accessing the same file.
+     */
+    private static final ConcurrentHashMap<String, Object> fileLocks = new ConcurrentHashMap<String, Object>();
+
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
     String fileName;
+    private final boolean memoryResident;
+    private volatile Snapshot snapshot;
 
     public SingleJsonFileConfigurationStorage(String fileName) {
+        this(fileName, false);
+    }
+
+    public SingleJsonFileConfigurationStorage(String fileName, boolean memoryResident) {
         this.fileName = fileName;
+        this.memoryResident = memoryResident;
+    }
+
+    public boolean isMemoryResident() {
+        return memoryResident;
     }
 
     @Override
@@ -70,9 +120,60 @@ public class SingleJsonFileConfigurationStorage implements Configuration {
 
     @Override
     public Map<String, Object> getConfigurationRoot() throws ConfigurationException {
+        if (!memoryResident)
+            return readConfigurationRoot();
+
+        File file = new File(fileName);
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null || !snapshot.isUpToDate(file)) {
+            synchronized (this) {
+                snapshot = this.snapshot;
+                if (snapshot == null || !snapshot.isUpToDate(file))
+                    this.snapshot = snapshot = readSnapshot(file);
+            }
+        }
+        return snapshot.root;
+    }
+
+    /**
+     * Reads the configuration together with the modification time and length of the file taken before reading,
+     * so a concurrent modification during reading is detected by the next {@link Snapshot#isUpToDate}. If the
+     * file was modified while it was read, it is read again.
+     */
+    private Snapshot readSnapshot(File file) throws ConfigurationException {
+        for (int attempt = 1; ; attempt++) {
+            long lastModified = file.lastModified();
+            long length = file.length();
+            Map<String, Object> root = readConfigurationRoot();
+            if (attempt == MAX_READ_ATTEMPTS
+                    || lastModified == file.lastModified() && length == file.length())
+                return new Snapshot(root, lastModified, length);
+        }
+    }
+
+    private static Object fileLock(File file) {
+        String path = file.getAbsolutePath();
+        Object lock = fileLocks.get(path);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = fileLocks.putIfAbsent(path, newLock);
+            if (lock == null)
+                lock = newLock;
+        }
+        return lock;
+    }
+
+    private Map<String, Object> readConfigurationRoot() throws ConfigurationException {
+        File file = new File(fileName);
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(new File(fileName), Map.class);
+            try {
+                return objectMapper.readValue(file, Map.class);
+            } catch (FileNotFoundException e) {
+                // the file may be missing only while it is replaced by write()
+                synchronized (fileLock(file)) {
+                    return objectMapper.readValue(file, Map.class);
+                }
+            }
         } catch (FileNotFoundException e) {
             return new HashMap<String, Object>();
         } catch (Exception e) {
@@ -80,6 +181,33 @@ public class SingleJsonFileConfigurationStorage implements Configuration {
         }
     }
 
+    /**
+     * @return modifiable configuration tree, not shared with readers
+     */
+    private Map<String, Object> getConfigurationRootForUpdate() throws ConfigurationException {
+        return memoryResident
+                ? (Map<String, Object>) copyOf(getConfigurationRoot())
+                : readConfigurationRoot();
+    }
+
+    private static Object copyOf(Object node) {
+        if (node instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) node;
+            Map<String, Object> copy = new LinkedHashMap<String, Object>(map.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Object> entry : map.entrySet())
+                copy.put(entry.getKey(), copyOf(entry.getValue()));
+            return copy;
+        }
+        if (node instanceof Collection) {
+            Collection<Object> collection = (Collection<Object>) node;
+            List<Object> copy = new ArrayList<Object>(collection.size());
+            for (Object item : collection)
+                copy.add(copyOf(item));
+            return copy;
+        }
+        return node;
+    }
+
     @Override
     public Object getConfigurationNode(String path, Class configurableClass) throws ConfigurationException {
         Object node = ConfigNodeUtil.getNode(getConfigurationRoot(), path);
@@ -93,13 +221,16 @@ public class SingleJsonFileConfigurationStorage implements Configuration {
 
 
     @Override
-    public void persistNode(String path, Map<String, Object> configNode, Class configurableClass) throws ConfigurationException {
-        Map<String, Object> configurationRoot = getConfigurationRoot();
+    public synchronized void persistNode(String path, Map<String, Object> configNode, Class configurableClass) throws ConfigurationException {
+        Map<String, Object> configurationRoot;
+        if (memoryResident)
+            configNode = (Map<String, Object>) copyOf(configNode);
 
 //        if (configurableClass != null)
 //            configNode.put("#class", configurableClass.getName());
 
         if (!path.equals("/")) {
+            configurationRoot = getConfigurationRootForUpdate();
             if (ConfigNodeUtil.nodeExists(configurationRoot, path)) {
                 for (String key : configNode.keySet())
                     ConfigNodeUtil.replaceNode(configurationRoot, ConfigNodeUtil.concat(path, key), configNode.get(key));
@@ -110,27 +241,50 @@ public class SingleJsonFileConfigurationStorage implements Configuration {
         } else
             configurationRoot = configNode;
 
-        ObjectMapper objectMapper = new ObjectMapper();
+        write(configurationRoot);
+    }
+
+    private void write(Map<String, Object> configurationRoot) throws ConfigurationException {
+        File resultFile = new File(fileName).getAbsoluteFile();
+        File tmpFile = null;
+        long lastModified;
+        long length;
         try {
-            File resultFile = new File(fileName);
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(resultFile, (Object) configurationRoot);
+            tmpFile = File.createTempFile(resultFile.getName(), ".tmp", resultFile.getParentFile());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmpFile, (Object) configurationRoot);
+            // renaming keeps modification time and length, taken before another process may replace the file
+            lastModified = tmpFile.lastModified();
+            length = tmpFile.length();
+            synchronized (fileLock(resultFile)) {
+                if (!tmpFile.renameTo(resultFile)) {
+                    // File.renameTo does not replace existing files on all platforms
+                    resultFile.delete();
+                    if (!tmpFile.renameTo(resultFile))
+                        throw new IOException("Failed to rename " + tmpFile + " to " + resultFile);
+                }
+            }
+            tmpFile = null;
         } catch (IOException e) {
             throw new ConfigurationException(e);
+        } finally {
+            if (tmpFile != null)
+                tmpFile.delete();
         }
-
+        if (memoryResident)
+            snapshot = new Snapshot(configurationRoot, lastModified, length);
     }
 
     @Override
     public void refreshNode(String path) {
-
+        snapshot = null;
     }
 
     @Override
-    public void removeNode(String path) throws ConfigurationException {
+    public synchronized void removeNode(String path) throws ConfigurationException {
 
-        Map<String, Object> configurationRoot = getConfigurationRoot();
+        Map<String, Object> configurationRoot = getConfigurationRootForUpdate();
         ConfigNodeUtil.removeNode(configurationRoot, path);
-        persistNode("/", configurationRoot, null);
+        write(configurationRoot);
     }
 
     @Override
@@ -40,20 +40,25 @@
 package org.dcm4che3.conf.core.util;
 
 
-import org.apache.commons.beanutils.PropertyUtils;
 import org.dcm4che3.conf.core.AnnotatedConfigurableProperty;
 import org.dcm4che3.conf.core.api.ConfigurableProperty;
 
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ConfigIterators {
 
-    private static final Map<Class, List<AnnotatedConfigurableProperty>> configurableFieldsCache = Collections.synchronizedMap(new HashMap<Class, List<AnnotatedConfigurableProperty>>());
-    private static final Map<Class, List<AnnotatedSetter>> configurableSettersCache = Collections.synchronizedMap(new HashMap<Class, List<AnnotatedSetter>>());
+    private static final Map<Class, List<AnnotatedConfigurableProperty>> configurableFieldsCache = new ConcurrentHashMap<Class, List<AnnotatedConfigurableProperty>>();
+    private static final Map<Class, List<AnnotatedSetter>> configurableSettersCache = new ConcurrentHashMap<Class, List<AnnotatedSetter>>();
+    private static final Map<Class, Map<String, PropertyDescriptor>> propertyDescriptorsCache = new ConcurrentHashMap<Class, Map<String, PropertyDescriptor>>();
 
     public static class AnnotatedSetter {
         private Map<Type, Annotation> annotations;
@@ -91,7 +96,8 @@ public class ConfigIterators {
 
 
     public static List<AnnotatedConfigurableProperty> getAllConfigurableFieldsAndSetterParameters(Class clazz) {
-        List<AnnotatedConfigurableProperty> fields = getAllConfigurableFields(clazz);
+        // copy, the cached list must not be modified
+        List<AnnotatedConfigurableProperty> fields = new ArrayList<AnnotatedConfigurableProperty>(getAllConfigurableFields(clazz));
         for (AnnotatedSetter s : getAllConfigurableSetters(clazz)) fields.addAll(s.getParameters());
         return fields;
     }
@@ -198,10 +204,64 @@ public class ConfigIterators {
         return currentClassFields;
     }
 
+    /**
+     * Returns the value of a property of the bean using its getter method. Property descriptors are introspected
+     * once per class and cached, so this is a cheaper replacement for PropertyUtils.getSimpleProperty.
+     */
+    public static Object getProperty(Object bean, String name)
+            throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        Method getter = getPropertyDescriptor(bean.getClass(), name).getReadMethod();
+        if (getter == null)
+            throw new NoSuchMethodException("Property '" + name + "' has no getter method in class '" + bean.getClass() + "'");
+        return getter.invoke(bean);
+    }
+
+    /**
+     * Sets the value of a property of the bean using its setter method. Property descriptors are introspected
+     * once per class and cached, so this is a cheaper replacement for PropertyUtils.setSimpleProperty.
+     */
+    public static void setProperty(Object bean, String name, Object value)
+            throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        Method setter = getPropertyDescriptor(bean.getClass(), name).getWriteMethod();
+        if (setter == null)
+            throw new NoSuchMethodException("Property '" + name + "' has no setter method in class '" + bean.getClass() + "'");
+        setter.invoke(bean, value);
+    }
+
+    private static PropertyDescriptor getPropertyDescriptor(Class clazz, String name) throws NoSuchMethodException {
+        Map<String, PropertyDescriptor> descriptors = propertyDescriptorsCache.get(clazz);
+        if (descriptors == null) {
+            descriptors = new HashMap<String, PropertyDescriptor>();
+            try {
+                for (PropertyDescriptor descriptor : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+                    makeAccessible(descriptor.getReadMethod());
+                    makeAccessible(descriptor.getWriteMethod());
+                    descriptors.put(descriptor.getName(), descriptor);
+                }
+            } catch (IntrospectionException e) {
+                throw new IllegalArgumentException("Failed to introspect class " + clazz.getName(), e);
+            }
+            propertyDescriptorsCache.put(clazz, descriptors);
+        }
+        PropertyDescriptor descriptor = descriptors.get(name);
+        if (descriptor == null)
+            throw new NoSuchMethodException("Unknown property '" + name + "' on class '" + clazz + "'");
+        return descriptor;
+    }
+
+    private static void makeAccessible(Method method) {
+        // public methods of non-public classes are otherwise not invokable
+        if (method != null && !method.isAccessible())
+            try {
+                method.setAccessible(true);
+            } catch (SecurityException ignore) {
+            }
+    }
+
     public static void reconfigure(Object source, Object target, Class configurableClass) {
         for (AnnotatedConfigurableProperty property : getAllConfigurableFields(configurableClass)) {
             try {
-                PropertyUtils.setSimpleProperty(target, property.getName(), PropertyUtils.getSimpleProperty(source, property.getName()));
+                setProperty(target, property.getName(), getProperty(source, property.getName()));
             } catch (Exception e) {
                 throw new RuntimeException("Unable to reconfigure instance of class " + property.getRawClass(), e);
             }
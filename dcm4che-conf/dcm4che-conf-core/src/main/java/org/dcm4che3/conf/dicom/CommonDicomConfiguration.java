@@ -86,6 +86,25 @@ public class CommonDicomConfiguration implements DicomConfiguration {
      */
     private ThreadLocal<Map<String, Device>> currentlyLoadedDevicesLocal = new ThreadLocal<Map<String, Device>>();
 
+    /**
+     * AE title and HL7 application name -> device name indexes, built from the configuration tree on first use,
+     * maintained by merge/removeDevice and dropped by sync. A lookup miss does not rebuild them, so it does not
+     * cost a scan of the configuration: changes of the configuration by someone else only become visible after
+     * sync(). Built indexes are published by a single swap, so lookups never see a partially built index. Also
+     * provides the list of device names.
+     */
+    private volatile Indexes indexes;
+
+    /**
+     * Serializes building and dropping the indexes against the updates by merge/removeDevice
+     */
+    private final Object indexLock = new Object();
+
+    static class Indexes {
+        final DeviceNameIndex aets = new DeviceNameIndex();
+        final DeviceNameIndex hl7Apps = new DeviceNameIndex();
+    }
+
 
     public CommonDicomConfiguration(Configuration config) {
         this.config = config;
@@ -245,24 +264,95 @@ public class CommonDicomConfiguration implements DicomConfiguration {
 
     @Override
     public ApplicationEntity findApplicationEntity(String aet) throws ConfigurationException {
+        ApplicationEntity ae = findIndexedApplicationEntity(ensureIndexed(), aet);
+        if (ae == null)
+            throw new ConfigurationNotFoundException("AE '" + aet + "' not found");
+        return ae;
+    }
 
-        Iterator search = config.search("dicomConfigurationRoot/dicomDevicesRoot/*[dicomNetworkAE[@name='" + aet + "']]/dicomDeviceName");
+    /**
+     * Looks up the AE in the device the index points to.
+     *
+     * @return the AE, or null if the AE title is not indexed or the index points to a device that does not
+     * contain it
+     */
+    private ApplicationEntity findIndexedApplicationEntity(Indexes idx, String aet) throws ConfigurationException {
+        String deviceName = idx.aets.deviceNameOf(aet);
+        if (deviceName == null)
+            return null;
 
-        try {
-            String deviceNameNode = (String) search.next();
-            if (search.hasNext())
-                LOG.warn("Application entity title '{}' is not unique. Check the configuration!", aet);
-            Device device = findDevice(deviceNameNode);
+        Device device = findDevice(deviceName);
+        return device != null ? device.getApplicationEntitiesMap().get(aet) : null;
+    }
 
-            ApplicationEntity ae = device.getApplicationEntitiesMap().get(aet);
-            if (ae == null) throw new NoSuchElementException("Unexpected error");
-            return ae;
+    /**
+     * @return the current indexes, built from the configuration if there are none
+     */
+    Indexes ensureIndexed() throws ConfigurationException {
+        Indexes idx = indexes;
+        return idx != null ? idx : buildIndexes();
+    }
 
-        } catch (NoSuchElementException e) {
-            throw new ConfigurationNotFoundException("AE '" + aet + "' not found", e);
+    /**
+     * Builds the indexes from the configuration and publishes them, unless they were already built by another
+     * thread in the meantime.
+     *
+     * @return the current indexes
+     */
+    private Indexes buildIndexes() throws ConfigurationException {
+        synchronized (indexLock) {
+            Indexes idx = indexes;
+            if (idx != null)
+                return idx;
+
+            idx = new Indexes();
+            Object devicesNode = config.getConfigurationNode("/dicomConfigurationRoot/dicomDevicesRoot", null);
+            if (devicesNode instanceof Map)
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) devicesNode).entrySet())
+                    if (entry.getValue() instanceof Map)
+                        indexDevice(idx, entry.getKey(), (Map<String, Object>) entry.getValue());
+            indexes = idx;
+            return idx;
         }
     }
 
+    /**
+     * Indexes a device read from the configuration tree
+     */
+    void indexDevice(Indexes idx, String deviceName, Map<String, Object> deviceNode) {
+        warnIfNotUnique("Application entity title",
+                idx.aets.put(deviceName, childNames(deviceNode, "dicomNetworkAE")));
+    }
+
+    /**
+     * Indexes a device that was merged into the configuration
+     */
+    void indexDevice(Indexes idx, Device device) {
+        warnIfNotUnique("Application entity title",
+                idx.aets.put(device.getDeviceName(), device.getApplicationEntitiesMap().keySet()));
+    }
+
+    void unindexDevice(Indexes idx, String deviceName) {
+        idx.aets.remove(deviceName);
+    }
+
+    protected static void warnIfNotUnique(String what, Collection<String> names) {
+        for (String name : names)
+            LOG.warn("{} '{}' is not unique. Check the configuration!", what, name);
+    }
+
+    protected static Collection<String> childNames(Map<String, Object> node, String... path) {
+        Object child = node;
+        for (String name : path) {
+            if (!(child instanceof Map))
+                return Collections.emptySet();
+            child = ((Map<String, Object>) child).get(name);
+        }
+        return child instanceof Map
+                ? ((Map<String, Object>) child).keySet()
+                : Collections.<String>emptySet();
+    }
+
     @Override
     public Device findDevice(String name) throws ConfigurationException {
 
@@ -338,23 +428,14 @@ public class CommonDicomConfiguration implements DicomConfiguration {
 
     @Override
     public String[] listDeviceNames() throws ConfigurationException {
-        Iterator search = config.search("dicomConfigurationRoot/dicomDeviceRoot/*/dicomDeviceName");
-        List<String> deviceNames = null;
-        try {
-            deviceNames = new ArrayList<String>();
-            while (search.hasNext())
-                deviceNames.add((String) search.next());
-        } catch (Exception e) {
-            throw new ConfigurationException("Error while getting list of device names", e);
-        }
-        return deviceNames.toArray(new String[deviceNames.size()]);
+        return ensureIndexed().aets.deviceNames();
     }
 
     @Override
     public String[] listRegisteredAETitles() throws ConfigurationException {
         List<String> aeNames = new ArrayList<String>();
         try {
-            Iterator search = config.search("dicomConfigurationRoot/dicomDeviceRoot/*/dicomNetworkAE/dicomAETitle");
+            Iterator search = config.search("dicomConfigurationRoot/dicomUniqueAETitlesRegistryRoot/*/dicomAETitle");
             while (search.hasNext())
                 aeNames.add((String) search.next());
         } catch (Exception e) {
@@ -404,11 +485,22 @@ public class CommonDicomConfiguration implements DicomConfiguration {
             else
                 config.persistNode(extensionPath, vitalizer.createConfigNodeFromInstance(deviceExtension, deviceExtensionClass), deviceExtensionClass);
         }
+
+        synchronized (indexLock) {
+            Indexes idx = indexes;
+            if (idx != null)
+                indexDevice(idx, device);
+        }
     }
 
     @Override
     public void removeDevice(String name) throws ConfigurationException {
         config.removeNode(deviceRef(name));
+        synchronized (indexLock) {
+            Indexes idx = indexes;
+            if (idx != null)
+                unindexDevice(idx, name);
+        }
     }
 
     @Override
@@ -439,6 +531,9 @@ public class CommonDicomConfiguration implements DicomConfiguration {
     @Override
     public void sync() throws ConfigurationException {
         config.refreshNode("/dicomConfigurationRoot");
+        synchronized (indexLock) {
+            indexes = null;
+        }
     }
 
 
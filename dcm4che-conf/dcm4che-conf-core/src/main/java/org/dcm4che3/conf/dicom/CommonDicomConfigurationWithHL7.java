@@ -40,6 +40,7 @@
 package org.dcm4che3.conf.dicom;
 
 import org.dcm4che3.conf.api.ConfigurationException;
+import org.dcm4che3.conf.api.ConfigurationNotFoundException;
 import org.dcm4che3.conf.api.hl7.HL7Configuration;
 import org.dcm4che3.conf.core.BeanVitalizer;
 import org.dcm4che3.conf.core.Configuration;
@@ -95,33 +96,56 @@ public class CommonDicomConfigurationWithHL7 extends CommonDicomConfiguration im
 
     @Override
     public HL7Application findHL7Application(String name) throws ConfigurationException {
-        String pathForDeviceName = "/dicomConfigurationRoot/dicomDevicesRoot/*[deviceExtensions/HL7DeviceExtension/hl7Apps/*[hl7ApplicationName='" + ConfigNodeUtil.escapeApos(name) + "']]/dicomDeviceName";
-        try {
-            Iterator search = config.search(pathForDeviceName);
-            String deviceName = (String) search.next();
-
-            Device device = findDevice(deviceName);
-
-            return device.getDeviceExtension(HL7DeviceExtension.class).getHL7Application(name);
-        } catch (NoSuchElementException e) {
-            throw new ConfigurationException("HL7 app with name '" + name + "' not found", e);
-        } catch (Exception e) {
-            throw new ConfigurationException("Error while searching for HL7 app with name '" + name + "'", e);
-        }
+        HL7Application hl7App = findIndexedHL7Application(ensureIndexed(), name);
+        if (hl7App == null)
+            throw new ConfigurationNotFoundException("HL7 app with name '" + name + "' not found");
+        return hl7App;
+    }
+
+    /**
+     * @return the HL7 application, or null if the name is not indexed or the index points to a device that does
+     * not contain it
+     */
+    private HL7Application findIndexedHL7Application(Indexes idx, String name) throws ConfigurationException {
+        String deviceName = idx.hl7Apps.deviceNameOf(name);
+        if (deviceName == null)
+            return null;
+
+        return getHL7Application(findDevice(deviceName), name);
+    }
+
+    private static HL7Application getHL7Application(Device device, String name) {
+        if (device == null) return null;
+        HL7DeviceExtension hl7DeviceExtension = device.getDeviceExtension(HL7DeviceExtension.class);
+        return hl7DeviceExtension != null ? hl7DeviceExtension.getHL7Application(name) : null;
     }
 
     @Override
     public String[] listRegisteredHL7ApplicationNames() throws ConfigurationException {
-        String hl7NamesPath = "dicomConfigurationRoot/dicomDevicesRoot/*/deviceExtensions/HL7DeviceExtension/hl7Apps/*/hl7ApplicationName";
-        List<String> list = new ArrayList<String>();
-        try {
-            Iterator search = config.search(hl7NamesPath);
-            while (search.hasNext())
-                list.add((String) search.next());
-        } catch (Exception e) {
-            throw new ConfigurationException("Error while getting a list of HL7 app names", e);
-        }
-        return list.toArray(new String[list.size()]);
+        return ensureIndexed().hl7Apps.names();
+    }
+
+    @Override
+    void indexDevice(Indexes idx, String deviceName, Map<String, Object> deviceNode) {
+        super.indexDevice(idx, deviceName, deviceNode);
+        warnIfNotUnique("HL7 application name", idx.hl7Apps.put(deviceName,
+                childNames(deviceNode, "deviceExtensions", "HL7DeviceExtension", "hl7Apps")));
+    }
+
+    @Override
+    void indexDevice(Indexes idx, Device device) {
+        super.indexDevice(idx, device);
+        HL7DeviceExtension hl7DeviceExtension = device.getDeviceExtension(HL7DeviceExtension.class);
+        Collection<String> hl7AppNames = hl7DeviceExtension != null
+                ? hl7DeviceExtension.getHl7apps().keySet()
+                : Collections.<String>emptySet();
+        warnIfNotUnique("HL7 application name", idx.hl7Apps.put(device.getDeviceName(), hl7AppNames));
+    }
+
+    @Override
+    void unindexDevice(Indexes idx, String deviceName) {
+        super.unindexDevice(idx, deviceName);
+        idx.hl7Apps.remove(deviceName);
     }
 
     @Override
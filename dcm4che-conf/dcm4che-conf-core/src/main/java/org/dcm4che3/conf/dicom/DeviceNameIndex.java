@@ -0,0 +1,98 @@
+/*
+ * **** BEGIN LICENSE BLOCK *****
+ *  Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ *  The contents of this file are subject to the Mozilla Public License Version
+ *  1.1 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *  http://www.mozilla.org/MPL/
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ *  for the specific language governing rights and limitations under the
+ *  License.
+ *
+ *  The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ *  Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ *  The Initial Developer of the Original Code is
+ *  Agfa Healthcare.
+ *  Portions created by the Initial Developer are Copyright (C) 2014
+ *  the Initial Developer. All Rights Reserved.
+ *
+ *  Contributor(s):
+ *  See @authors listed below
+ *
+ *  Alternatively, the contents of this file may be used under the terms of
+ *  either the GNU General Public License Version 2 or later (the "GPL"), or
+ *  the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ *  in which case the provisions of the GPL or the LGPL are applicable instead
+ *  of those above. If you wish to allow use of your version of this file only
+ *  under the terms of either the GPL or the LGPL, and not to allow others to
+ *  use your version of this file under the terms of the MPL, indicate your
+ *  decision by deleting the provisions above and replace them with the notice
+ *  and other provisions required by the GPL or the LGPL. If you do not delete
+ *  the provisions above, a recipient may use your version of this file under
+ *  the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ *  ***** END LICENSE BLOCK *****
+ */
+package org.dcm4che3.conf.dicom;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of names which are unique over the configuration
+ * (e.g. AE titles, HL7 application names) to the name of the device which
+ * contains them. Lookups are lock-free; updates are serialized.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+class DeviceNameIndex {
+
+    private final ConcurrentHashMap<String, String> deviceNameByName =
+            new ConcurrentHashMap<String, String>();
+    private final Map<String, Collection<String>> namesByDeviceName =
+            new HashMap<String, Collection<String>>();
+
+    public String deviceNameOf(String name) {
+        return deviceNameByName.get(name);
+    }
+
+    /**
+     * Replaces the names indexed for the specified device.
+     *
+     * @return names which were indexed for another device before
+     */
+    public synchronized List<String> put(String deviceName, Collection<String> names) {
+        remove(deviceName);
+        List<String> conflicts = new ArrayList<String>(0);
+        for (String name : names) {
+            String prev = deviceNameByName.put(name, deviceName);
+            if (prev != null && !prev.equals(deviceName))
+                conflicts.add(name);
+        }
+        namesByDeviceName.put(deviceName, new ArrayList<String>(names));
+        return conflicts;
+    }
+
+    public synchronized void remove(String deviceName) {
+        Collection<String> names = namesByDeviceName.remove(deviceName);
+        if (names != null)
+            for (String name : names)
+                deviceNameByName.remove(name, deviceName);
+    }
+
+    public String[] names() {
+        return deviceNameByName.keySet().toArray(new String[0]);
+    }
+
+    public synchronized String[] deviceNames() {
+        return namesByDeviceName.keySet().toArray(new String[namesByDeviceName.size()]);
+    }
+}
@@ -96,6 +96,57 @@ public class SimpleStorageTest {
 
 
 
+    @Test
+    public void testWriteThenRead() throws ConfigurationException {
+        for (boolean memoryResident : new boolean[]{false, true}) {
+            Configuration writer = new SingleJsonFileConfigurationStorage("target/tst-rw.json", memoryResident);
+            Configuration reader = new SingleJsonFileConfigurationStorage("target/tst-rw.json", memoryResident);
+            for (int i = 0; i < 3; i++) {
+                Map<String, Object> root = new HashMap<String, Object>();
+                root.put("counter", i);
+                writer.persistNode("/", root, null);
+                DeepEqualsDiffer.assertDeepEquals("Written config must be read back", root, writer.getConfigurationRoot());
+                DeepEqualsDiffer.assertDeepEquals("Written config must be read by other instance", root, reader.getConfigurationRoot());
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentReadDuringWrite() throws Exception {
+        final Configuration writer = new SingleJsonFileConfigurationStorage("target/tst-concurrent.json");
+        Configuration reader = new SingleJsonFileConfigurationStorage("target/tst-concurrent.json");
+        Map<String, Object> root = new HashMap<String, Object>();
+        root.put("counter", -1);
+        writer.persistNode("/", root, null);
+
+        final Exception[] writeException = new Exception[1];
+        Thread writerThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        Map<String, Object> root = new HashMap<String, Object>();
+                        root.put("counter", i);
+                        writer.persistNode("/", root, null);
+                    }
+                } catch (Exception e) {
+                    writeException[0] = e;
+                }
+            }
+        };
+        writerThread.start();
+        try {
+            while (writerThread.isAlive())
+                Assert.assertTrue("Configuration must never appear empty during a write",
+                        reader.getConfigurationRoot().containsKey("counter"));
+        } finally {
+            writerThread.join();
+        }
+        if (writeException[0] != null)
+            throw writeException[0];
+        Assert.assertEquals(199, reader.getConfigurationRoot().get("counter"));
+    }
+
     @Test
     public void nodeExists() throws ConfigurationException {
         Configuration configurationStorage = getConfigurationStorage();
@@ -45,6 +45,8 @@ import org.dcm4che3.conf.core.api.ConfigurableClass;
 import org.dcm4che3.conf.core.api.ConfigurableProperty;
 import org.dcm4che3.conf.api.ConfigurationException;
 import org.dcm4che3.conf.core.misc.DeepEqualsDiffer;
+import org.dcm4che3.conf.core.util.ConfigIterators;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -259,6 +261,60 @@ public class VitalizerTest {
         }
     }
 
+    /**
+     * Not public on purpose - its accessors are only invokable through the public subclass
+     */
+    static class TestConfigBaseClass {
+
+        @ConfigurableProperty(name = "baseStr")
+        String baseStr;
+
+        @ConfigurableProperty(name = "baseEnabled")
+        boolean baseEnabled;
+
+        public String getBaseStr() {
+            return baseStr;
+        }
+
+        public void setBaseStr(String baseStr) {
+            this.baseStr = baseStr;
+        }
+
+        public boolean isBaseEnabled() {
+            return baseEnabled;
+        }
+
+        public void setBaseEnabled(boolean baseEnabled) {
+            this.baseEnabled = baseEnabled;
+        }
+    }
+
+    @ConfigurableClass
+    public static class TestConfigInheritingClass extends TestConfigBaseClass {
+
+        @ConfigurableProperty(name = "installed")
+        boolean installed;
+
+        @ConfigurableProperty(name = "number")
+        int number;
+
+        public boolean isInstalled() {
+            return installed;
+        }
+
+        public void setInstalled(boolean installed) {
+            this.installed = installed;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+    }
+
     public static class ConfClassWithSetters {
 
     }
@@ -338,6 +394,46 @@ public class VitalizerTest {
 
     }
 
+    @Test
+    public void testBackAndForthInheritingConfigClass() throws ConfigurationException {
+        HashMap<String, Object> node = new HashMap<String, Object>();
+        node.put("baseStr", "from base");
+        node.put("baseEnabled", true);
+        node.put("installed", true);
+        node.put("number", 42);
+
+        BeanVitalizer beanVitalizer = new BeanVitalizer();
+        TestConfigInheritingClass configuredInstance = beanVitalizer.newConfiguredInstance(node, TestConfigInheritingClass.class);
+
+        Assert.assertEquals("from base", configuredInstance.getBaseStr());
+        Assert.assertTrue(configuredInstance.isBaseEnabled());
+        Assert.assertTrue(configuredInstance.isInstalled());
+        Assert.assertEquals(42, configuredInstance.getNumber());
+
+        Object generatedNode = beanVitalizer.createConfigNodeFromInstance(configuredInstance);
+        DeepEqualsDiffer.assertDeepEquals("Config node before deserialization must be the same as after serializing back", node, generatedNode);
+    }
+
+    @Test
+    public void testReconfigureInheritingConfigClass() throws Exception {
+        TestConfigInheritingClass source = new TestConfigInheritingClass();
+        source.setBaseStr("from source");
+        source.setBaseEnabled(true);
+        source.setInstalled(true);
+        source.setNumber(7);
+
+        TestConfigInheritingClass target = new TestConfigInheritingClass();
+        ConfigIterators.reconfigure(source, target, TestConfigInheritingClass.class);
+
+        Assert.assertEquals("from source", ConfigIterators.getProperty(target, "baseStr"));
+        Assert.assertEquals(Boolean.TRUE, ConfigIterators.getProperty(target, "baseEnabled"));
+        Assert.assertEquals(Boolean.TRUE, ConfigIterators.getProperty(target, "installed"));
+        Assert.assertEquals(7, ConfigIterators.getProperty(target, "number"));
+
+        ConfigIterators.setProperty(target, "baseEnabled", false);
+        Assert.assertFalse(target.isBaseEnabled());
+    }
+
     @Test
     public void testPerformance() throws ConfigurationException {
         HashMap<String, Object> testConfigClassNode = getTestConfigClassMap();
@@ -0,0 +1,210 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.conf.dicom;
+
+import org.dcm4che3.conf.api.ConfigurationException;
+import org.dcm4che3.conf.api.ConfigurationNotFoundException;
+import org.dcm4che3.conf.core.Configuration;
+import org.dcm4che3.conf.core.DelegatingConfiguration;
+import org.dcm4che3.conf.core.storage.SingleJsonFileConfigurationStorage;
+import org.dcm4che3.net.AEExtension;
+import org.dcm4che3.net.ApplicationEntity;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.DeviceExtension;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Roman K
+ */
+@RunWith(JUnit4.class)
+public class CommonDicomConfigurationTest {
+
+    private static final String CONFIG_FILE = "target/dicom-config-test.json";
+
+    private Configuration storage;
+    private int searches;
+    private int devicesRootReads;
+
+    @Before
+    public void setUp() {
+        new File(CONFIG_FILE).delete();
+        searches = 0;
+        devicesRootReads = 0;
+        storage = new DelegatingConfiguration(new SingleJsonFileConfigurationStorage(CONFIG_FILE)) {
+            @Override
+            public Iterator search(String liteXPathExpression) throws IllegalArgumentException, ConfigurationException {
+                searches++;
+                return super.search(liteXPathExpression);
+            }
+
+            @Override
+            public Object getConfigurationNode(String path, Class configurableClass) throws ConfigurationException {
+                if (path.equals("/dicomConfigurationRoot/dicomDevicesRoot"))
+                    devicesRootReads++;
+                return super.getConfigurationNode(path, configurableClass);
+            }
+        };
+    }
+
+    private CommonDicomConfiguration createDicomConfiguration() {
+        return new CommonDicomConfiguration(storage,
+                new ArrayList<Class<? extends DeviceExtension>>(),
+                new ArrayList<Class<? extends AEExtension>>());
+    }
+
+    private static Device createDevice(String name, String... aets) {
+        Device device = new Device(name);
+        for (String aet : aets)
+            device.addApplicationEntity(new ApplicationEntity(aet));
+        return device;
+    }
+
+    @Test
+    public void testListRegisteredAETitles() throws ConfigurationException {
+        CommonDicomConfiguration dicomConfig = createDicomConfiguration();
+        assertTrue(dicomConfig.registerAETitle("REGISTERED1"));
+        assertTrue(dicomConfig.registerAETitle("REGISTERED2"));
+        assertFalse(dicomConfig.registerAETitle("REGISTERED2"));
+        dicomConfig.persist(createDevice("device1", "DEVICE_AE"));
+
+        assertEquals(new HashSet<String>(Arrays.asList("REGISTERED1", "REGISTERED2")),
+                new HashSet<String>(Arrays.asList(dicomConfig.listRegisteredAETitles())));
+
+        dicomConfig.unregisterAETitle("REGISTERED1");
+        assertArrayEquals(new String[]{"REGISTERED2"}, dicomConfig.listRegisteredAETitles());
+    }
+
+    @Test
+    public void testFindApplicationEntity() throws ConfigurationException {
+        CommonDicomConfiguration dicomConfig = createDicomConfiguration();
+        dicomConfig.persist(createDevice("device1", "AE1", "AE2"));
+        dicomConfig.persist(createDevice("device2", "AE3"));
+
+        assertEquals("device1", dicomConfig.findApplicationEntity("AE2").getDevice().getDeviceName());
+        assertEquals("device2", dicomConfig.findApplicationEntity("AE3").getDevice().getDeviceName());
+        try {
+            dicomConfig.findApplicationEntity("UNKNOWN");
+            fail("UNKNOWN must not be found");
+        } catch (ConfigurationNotFoundException expected) {
+        }
+        assertEquals("Lookups must not search the configuration", 0, searches);
+    }
+
+    @Test
+    public void testFindApplicationEntityAfterRemoteChange() throws ConfigurationException {
+        CommonDicomConfiguration dicomConfig = createDicomConfiguration();
+        CommonDicomConfiguration otherDicomConfig = createDicomConfiguration();
+        dicomConfig.persist(createDevice("device1", "AE1"));
+        assertEquals("device1", dicomConfig.findApplicationEntity("AE1").getDevice().getDeviceName());
+
+        // moved to another device by someone else: visible after sync()
+        otherDicomConfig.removeDevice("device1");
+        otherDicomConfig.persist(createDevice("device2", "AE1"));
+        try {
+            dicomConfig.findApplicationEntity("AE1");
+            fail("the index is only rebuilt by sync()");
+        } catch (ConfigurationNotFoundException expected) {
+        }
+        dicomConfig.sync();
+        assertEquals("device2", dicomConfig.findApplicationEntity("AE1").getDevice().getDeviceName());
+
+        // added by someone else: a miss does not scan the configuration
+        otherDicomConfig.persist(createDevice("device3", "AE3"));
+        int devicesRootReadsBefore = devicesRootReads;
+        try {
+            dicomConfig.findApplicationEntity("AE3");
+            fail("the index is only rebuilt by sync()");
+        } catch (ConfigurationNotFoundException expected) {
+        }
+        assertEquals(devicesRootReadsBefore, devicesRootReads);
+        dicomConfig.sync();
+        assertEquals("device3", dicomConfig.findApplicationEntity("AE3").getDevice().getDeviceName());
+        assertEquals(new HashSet<String>(Arrays.asList("device2", "device3")),
+                new HashSet<String>(Arrays.asList(dicomConfig.listDeviceNames())));
+
+        // removed by someone else
+        otherDicomConfig.removeDevice("device2");
+        try {
+            dicomConfig.findApplicationEntity("AE1");
+            fail("AE1 must not be found after its device was removed");
+        } catch (ConfigurationNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testFindApplicationEntityDuringRebuild() throws Exception {
+        final CommonDicomConfiguration dicomConfig = createDicomConfiguration();
+        dicomConfig.persist(createDevice("device1", "AE1"));
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread syncer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        dicomConfig.sync();
+                        dicomConfig.merge(createDevice("merged" + i, "MERGED" + i));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+        syncer.start();
+        while (syncer.isAlive())
+            assertEquals("device1", dicomConfig.findApplicationEntity("AE1").getDevice().getDeviceName());
+        syncer.join();
+        if (failure.get() != null)
+            throw new AssertionError(failure.get());
+
+        for (int i = 0; i < 200; i++)
+            assertEquals("merged" + i,
+                    dicomConfig.findApplicationEntity("MERGED" + i).getDevice().getDeviceName());
+    }
+}
@@ -47,7 +47,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.regex.Pattern;
 
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
@@ -89,6 +88,7 @@ public class Attributes implements Serializable {
     private transient int length = -1;
     private transient int[] groupLengths;
     private transient int groupLengthIndex0;
+    private transient boolean resolved;
 
     private final boolean bigEndian;
     private long itemPosition = -1;
@@ -256,7 +256,7 @@ public class Attributes implements Serializable {
         SpecificCharacterSet cs = getSpecificCharacterSet();
         for (int i = 0; i < values.length; i++) {
             VR vr = vrs[i];
-            Object value = values[i];
+            Object value = decode ? valueOf(i) : values[i];
             if (vr.isStringType()) {
                 if (value instanceof byte[]) {
                     if (!decode)
@@ -276,19 +276,47 @@ public class Attributes implements Serializable {
         }
     }
 
+    /**
+     * Decodes all values of this Data Set and of its nested Data Sets,
+     * which are otherwise decoded on first access, and disables the
+     * replacement of values by their decoded form on subsequent accesses.
+     * After that, getters do not modify this Data Set, so it may be read
+     * by concurrent threads, as long as it is not modified by a setter.
+     */
+    public void resolveValues() {
+        for (int i = 0; i < size; i++) {
+            VR vr = vrs[i];
+            if (vr == VR.SQ) {
+                Object value = valueOf(i);
+                if (value == Value.NULL)
+                    values[i] = new Sequence(this, 0);
+                else if (value instanceof Sequence)
+                    for (Attributes item : (Sequence) value)
+                        item.resolveValues();
+            } else if (vr.isStringType() && values[i] instanceof byte[])
+                decodeStringValue(i);
+        }
+        resolved = true;
+    }
+
     private void decodeStringValuesUsingSpecificCharacterSet() {
         Object value;
         VR vr;
         SpecificCharacterSet cs = getSpecificCharacterSet();
         for (int i = 0; i < size; i++) {
             value = values[i];
+            if (value instanceof LazySequence)
+                value = valueOf(i);
             if (value instanceof Sequence) {
                 for (Attributes item : (Sequence) value)
                     item.decodeStringValuesUsingSpecificCharacterSet();
-            } else if ((vr = vrs[i]).useSpecificCharacterSet())
+            } else if ((vr = vrs[i]).useSpecificCharacterSet()) {
+                if (value instanceof MappedValue)
+                    value = ((MappedValue) value).toBytes(vr, bigEndian);
                 if (value instanceof byte[])
                     values[i] =
                         vr.toStrings((byte[]) value, bigEndian, cs);
+            }
         }
     }
 
@@ -393,17 +421,54 @@ public class Attributes implements Serializable {
     }
 
     private Object decodeStringValue(int index) {
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value instanceof byte[]) {
             value = vrs[index].toStrings((byte[]) value, bigEndian,
                     getSpecificCharacterSet(vrs[index]));
             if (value instanceof String && ((String) value).isEmpty())
                 value = Value.NULL;
-            values[index] = value;
+            cacheDecodedValue(index, value);
         }
         return value;
     }
 
+    /**
+     * Replaces the value by its decoded form, unless it is a
+     * {@link MappedValue} or the values were resolved by
+     * {@link #resolveValues()}: such values are decoded on each access, so
+     * reading them does not modify this data set.
+     */
+    private void cacheDecodedValue(int index, Object decoded) {
+        if (!resolved && !(values[index] instanceof MappedValue))
+            values[index] = decoded;
+    }
+
+    private Object valueOf(int index) {
+        Object value = values[index];
+        if (value instanceof MappedValue)
+            value = ((MappedValue) value).toBytes(vrs[index], bigEndian);
+        else if (value instanceof LazySequence)
+            value = readLazySequence(index, (LazySequence) value);
+        return value;
+    }
+
+    private Object sequenceValueOf(int index) {
+        return vrs[index] == VR.SQ ? valueOf(index) : values[index];
+    }
+
+    private Object readLazySequence(int index, LazySequence lazy) {
+        int tag = tags[index];
+        values[index] = Value.NULL;
+        try {
+            lazy.readItemsInto(this, tag);
+        } catch (IOException e) {
+            values[index] = lazy;
+            throw new IllegalStateException(
+                    "Failed to read items of " + lazy, e);
+        }
+        return values[index];
+    }
+
     public SpecificCharacterSet getSpecificCharacterSet(VR vr) {
         return vr.useSpecificCharacterSet()
                 ? getSpecificCharacterSet()
@@ -411,7 +476,7 @@ public class Attributes implements Serializable {
     }
 
     private double[] decodeDSValue(int index) {
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return ByteUtils.EMPTY_DOUBLES;
 
@@ -425,7 +490,7 @@ public class Attributes implements Serializable {
         if (value instanceof String) {
             String s = (String) value;
             if (s.isEmpty()) {
-                values[index] = Value.NULL;
+                cacheDecodedValue(index, Value.NULL);
                 return ByteUtils.EMPTY_DOUBLES;
             }
             ds = new double[] { StringUtils.parseDS(s) };
@@ -439,12 +504,12 @@ public class Attributes implements Serializable {
                         : Double.NaN;
             }
         }
-        values[index] = ds;
+        cacheDecodedValue(index, ds);
         return ds;
     }
 
     private int[] decodeISValue(int index) {
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return ByteUtils.EMPTY_INTS;
 
@@ -458,7 +523,7 @@ public class Attributes implements Serializable {
         if (value instanceof String) {
             String s = (String) value;
             if (s.isEmpty()) {
-                values[index] = Value.NULL;
+                cacheDecodedValue(index, Value.NULL);
                 return ByteUtils.EMPTY_INTS;
             }
             is = new int[] { StringUtils.parseIS(s) };
@@ -472,7 +537,7 @@ public class Attributes implements Serializable {
                             : Integer.MIN_VALUE;
             }
         }
-        values[index] = is;
+        cacheDecodedValue(index, is);
         return is;
     }
 
@@ -481,7 +546,7 @@ public class Attributes implements Serializable {
         if (vr == prev)
             return;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (!(value == Value.NULL
                 || value instanceof byte[]
                 || vr.isStringType() 
@@ -551,7 +616,7 @@ public class Attributes implements Serializable {
         
         if (vr != null)
             vr.vr = vrs[index];
-        return values[index];
+        return valueOf(index);
     }
 
     public VR getVR(int tag) {
@@ -575,7 +640,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return null;
         
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return (Sequence) (values[index] = new Sequence(this, 0));
         return value instanceof Sequence ? (Sequence) value : null;
@@ -590,7 +655,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return null;
         
-        Object value = values[index];
+        Object value = valueOf(index);
         VR vr = vrs[index];
         
         try {
@@ -667,7 +732,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return defVal;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return defVal;
 
@@ -702,7 +767,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return null;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return StringUtils.EMPTY_STRING;
 
@@ -724,6 +789,28 @@ public class Attributes implements Serializable {
         }
     }
 
+    /**
+     * Returns the decoded value of a string attribute as {@code String} or
+     * {@code String[]} without copying, or {@code null} if the attribute is
+     * not contained or empty. Used by {@link AttributesMatcher}.
+     */
+    Object decodedStringValueOf(String privateCreator, int tag) {
+        int index = indexOf(privateCreator, tag);
+        if (index < 0)
+            return null;
+
+        Object value = valueOf(index);
+        if (value == Value.NULL)
+            return null;
+
+        if (!vrs[index].isStringType()) {
+            String[] ss = getStrings(privateCreator, tag, null);
+            return ss == null || ss.length == 0 ? null : ss;
+        }
+        value = decodeStringValue(index);
+        return value == Value.NULL ? null : value;
+    }
+
     private static String[] toStrings(Object val) {
         return (val instanceof String) 
                 ? new String[] { (String) val } 
@@ -755,7 +842,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return defVal;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return defVal;
 
@@ -790,7 +877,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return null;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return ByteUtils.EMPTY_INTS;
 
@@ -837,7 +924,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return defVal;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return defVal;
 
@@ -872,7 +959,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return null;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return ByteUtils.EMPTY_FLOATS;
 
@@ -919,7 +1006,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return defVal;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return defVal;
 
@@ -954,7 +1041,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return null;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return ByteUtils.EMPTY_DOUBLES;
 
@@ -1082,7 +1169,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return defVal;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return defVal;
 
@@ -1184,7 +1271,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return null;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return DateUtils.EMPTY_DATES;
 
@@ -1278,7 +1365,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return defVal;
 
-        Object value = values[index];
+        Object value = valueOf(index);
         if (value == Value.NULL)
             return defVal;
 
@@ -1304,7 +1391,7 @@ public class Attributes implements Serializable {
     }
 
     private DateRange toDateRange(String s, VR vr) {
-        String[] range = splitRange(s);
+        String[] range = splitRange(s, indexOfRangeDelimiter(s, vr));
         TimeZone tz = getTimeZone();
         DatePrecision precision = new DatePrecision();
         Date start = range[0] == null ? null
@@ -1315,8 +1402,11 @@ public class Attributes implements Serializable {
     }
 
     private static String[] splitRange(String s) {
+        return splitRange(s, s.indexOf('-'));
+    }
+
+    private static String[] splitRange(String s, int delim) {
         String[] range = new String[2];
-        int delim = s.indexOf('-');
         if (delim == -1)
             range[0] = range[1] = s;
         else {
@@ -1328,6 +1418,38 @@ public class Attributes implements Serializable {
         return range;
     }
 
+    /**
+     * Returns the index of the hyphen separating the start and the end of
+     * a range matching key value, ignoring signs of negative UTC offsets of
+     * DT values.
+     * 
+     * @param s key value
+     * @param vr VR of the key
+     * @return index of the range delimiter or -1, if {@code s} is no range
+     */
+    static int indexOfRangeDelimiter(String s, VR vr) {
+        int index = s.indexOf('-');
+        if (vr == VR.DT)
+            while (index > 0 && isNegativeUTCOffset(s, index))
+                index = s.indexOf('-', index + 1);
+        return index;
+    }
+
+    private static boolean isNegativeUTCOffset(String s, int index) {
+        int end = index + 5;
+        int len = s.length();
+        if (end > len || end < len && s.charAt(end) != '-')
+            return false;
+
+        for (int i = index + 1; i < end; i++)
+            if (!Character.isDigit(s.charAt(i)))
+                return false;
+
+        int hh = Integer.parseInt(s.substring(index + 1, index + 3));
+        int mm = Integer.parseInt(s.substring(index + 3, end));
+        return hh <= 14 && mm < 60;
+    }
+
     public DateRange getDateRange(long tag) {
         return getDateRange(null, tag, null);
     }
@@ -1476,7 +1598,7 @@ public class Attributes implements Serializable {
 
     private void updateTimezone(TimeZone from, TimeZone to) {
         for (int i = 0; i < size; i++) {
-            Object val = values[i];
+            Object val = sequenceValueOf(i);
             if (val instanceof Sequence) {
                 Sequence new_name = (Sequence) val;
                 for (Attributes item : new_name) {
@@ -1642,7 +1764,7 @@ public class Attributes implements Serializable {
         if (index < 0)
             return null;
 
-        Object value = values[index];
+        Object value = valueOf(index);
 //        if (value instanceof Sequence)
 //            ((Sequence) value).clear();
 
@@ -1826,7 +1948,7 @@ public class Attributes implements Serializable {
         Sequence seq;
         int index = indexOf(tag);
         if (index >= 0) {
-            Object oldValue = values[index];
+            Object oldValue = valueOf(index);
             if (oldValue instanceof Sequence)
                 seq = (Sequence) oldValue;
             else
@@ -1922,7 +2044,7 @@ public class Attributes implements Serializable {
         int index = other.indexOf(privateCreator, tag);
         if (index < 0)
             return false;
-        Object value = other.values[index];
+        Object value = other.valueOf(index);
         if (value instanceof Sequence) {
             set(privateCreator, tag, (Sequence) value, null);
         } else if (value instanceof Fragments) {
@@ -2035,7 +2157,7 @@ public class Attributes implements Serializable {
         for (int i = 0; i < otherSize; i++) {
             int tag = tags[i];
             VR vr = srcVRs[i];
-            Object value = srcValues[i];
+            Object value = vr == VR.SQ ? other.valueOf(i) : srcValues[i];
             if (TagUtils.isPrivateCreator(tag)) {
                 if (contains(tag))
                     continue; // do not overwrite private creator IDs
@@ -2069,7 +2191,7 @@ public class Attributes implements Serializable {
                     }
                     Object origValue = vrs[j].isStringType()
                             ? decodeStringValue(j)
-                            : values[j];
+                            : sequenceValueOf(j);
                     if (!isEmpty(origValue)) {
                         if (merge) {
                             continue;
@@ -2202,8 +2324,8 @@ public class Attributes implements Serializable {
                 return equalDSValues(other, index, otherIndex);
             else
                 return equalStringValues(other, index, otherIndex);
-        Object v1 = values[index];
-        Object v2 = other.values[otherIndex];
+        Object v1 = valueOf(index);
+        Object v2 = other.valueOf(otherIndex);
         if (v1 instanceof byte[]) {
             if (v2 instanceof byte[] && ((byte[]) v1).length == ((byte[]) v2).length) {
                 if (bigEndian != other.bigEndian)
@@ -2308,7 +2430,7 @@ public class Attributes implements Serializable {
                 creatorTag = 0;
                 privateCreator = null;
             }
-            Object value = values[i];
+            Object value = valueOf(i);
             appendAttribute(privateCreator, tag, vrs[i], value,
                     sb.length() + maxWidth, sb, prefix);
             if (value instanceof Sequence)
@@ -2364,7 +2486,7 @@ public class Attributes implements Serializable {
         Object val;
         for (int i = 0; i < size; i++) {
             vr = vrs[i];
-            val = values[i];
+            val = sequenceValueOf(i);
             len = explicitVR ? vr.headerLength() : 8;
             if (val instanceof Value)
                 len += ((Value) val).calcLength(encOpts, explicitVR, vr);
@@ -2458,7 +2580,7 @@ public class Attributes implements Serializable {
                             groupLengths[groupLengthIndex++]);
                 }
             }
-            out.writeAttribute(tag, vrs[i], values[i], cs);
+            out.writeAttribute(tag, vrs[i], sequenceValueOf(i), cs);
         }
     }
 
@@ -2488,7 +2610,7 @@ public class Attributes implements Serializable {
     private boolean accept(Visitor visitor, boolean visitNestedDatasets,
             int start, int end) throws Exception {
         for (int i = start; i < end; i++) {
-            if (!visitor.visit(this, tags[i], vrs[i], values[i]))
+            if (!visitor.visit(this, tags[i], vrs[i], valueOf(i)))
                 return false;
             if (visitNestedDatasets && (values[i] instanceof Sequence)) {
                 for (Attributes item : (Sequence) values[i]) {
@@ -2552,112 +2674,8 @@ public class Attributes implements Serializable {
 
     public boolean matches(Attributes keys, boolean ignorePNCase,
             boolean matchNoValue) {
-        int[] keyTags = keys.tags;
-        VR[] keyVrs = keys.vrs;
-        Object[] keyValues = keys.values;
-        int keysSize = keys.size;
-        String privateCreator = null;
-        int creatorTag = 0;
-        for (int i = 0; i < keysSize; i++) {
-            int tag = keyTags[i];
-            if (TagUtils.isPrivateCreator(tag))
-                continue;
-
-            if (TagUtils.isPrivateGroup(tag)) {
-                int tmp = TagUtils.creatorTagOf(tag);
-                if (creatorTag != tmp) {
-                    creatorTag = tmp;
-                    privateCreator = keys.getString(creatorTag, null);
-                }
-            } else {
-                creatorTag = 0;
-                privateCreator = null;
-            }
-
-            Object keyValue = keyValues[i];
-            if (isEmpty(keyValue))
-                continue;
-
-            if (keyVrs[i].isStringType()) {
-                if (!matches(privateCreator, tag, keyVrs[i], ignorePNCase,
-                        matchNoValue, keys.getStrings(privateCreator, tag, null)))
-                    return false;
-            } else if (keyValue instanceof Sequence) {
-                if (!matches(privateCreator, tag, ignorePNCase, matchNoValue,
-                        (Sequence) keyValue))
-                    return false;
-            } else {
-                throw new UnsupportedOperationException("Keys with VR: "
-                        + keyVrs[i] + " not supported");
-            }
-        }
-        return true;
-    }
-
-    private boolean matches(String privateCreator, int tag, VR vr,
-            boolean ignorePNCase, boolean matchNoValue, String[] keyVals) {
-        String[] vals = getStrings(privateCreator, tag, null);
-        if (vals == null || vals.length == 0)
-            return matchNoValue;
-
-        boolean ignoreCase = ignorePNCase && vr == VR.PN;
-        for (String keyVal : keyVals) {
-            if (vr == VR.PN)
-                keyVal = new PersonName(keyVals[0]).toString();
-    
-            if (StringUtils.containsWildCard(keyVal)) {
-                Pattern pattern = StringUtils.compilePattern(keyVal, ignoreCase);
-                for (String val : vals) {
-                    if (val == null)
-                        if (matchNoValue)
-                            return true;
-                        else
-                            continue;
-                    if (vr == VR.PN)
-                        val = new PersonName(val).toString();
-                    if (pattern.matcher(val).matches())
-                        return true;
-                }
-            } else {
-                for (String val : vals) {
-                    if (val == null)
-                        if (matchNoValue)
-                            return true;
-                        else
-                            continue;
-                    if (vr == VR.PN)
-                        val = new PersonName(val).toString();
-                    if (ignoreCase ? keyVal.equalsIgnoreCase(val)
-                                   : keyVal.equals(val))
-                        return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean matches(String privateCreator, int tag, boolean ignorePNCase, 
-            boolean matchNoValue, Sequence keySeq) {
-        int n = keySeq.size();
-        if (n > 1)
-            throw new IllegalArgumentException("Keys contain Sequence "
-                    + TagUtils.toString(tag) + " with " + n + " Items");
-
-        Attributes keys = keySeq.get(0);
-        if (keys.isEmpty())
-            return true;
-
-        Object value = getValue(privateCreator, tag);
-        if (value == null || isEmpty(value))
-            return matchNoValue;
-
-        if (value instanceof Sequence) {
-            Sequence sq = (Sequence) value;
-            for (Attributes item : sq)
-                if (item.matches(keys, ignorePNCase, matchNoValue))
-                    return true;
-        }
-        return false;
+        return new AttributesMatcher(keys, ignorePNCase, matchNoValue)
+                .matches(this);
     }
 
     private static final long serialVersionUID = 7868714416968825241L;
@@ -2719,7 +2737,7 @@ public class Attributes implements Serializable {
             }
             return;
         }
-        Object value = values[index];
+        Object value = valueOf(index);
         if (isEmpty(value)) {
             if (el.type == IOD.DataElementType.TYPE_1) {
                 result.addMissingAttributeValue(el);
@@ -2944,7 +2962,7 @@ public class Attributes implements Serializable {
             if (j < 0)
                 continue;
 
-            Object origValue = values[j];
+            Object origValue = sequenceValueOf(j);
             if (origValue instanceof Value && ((Value) origValue).isEmpty())
                 continue;
 
@@ -3007,7 +3025,7 @@ public class Attributes implements Serializable {
                 privateCreator = null;
             }
 
-            Object origValue = values[i];
+            Object origValue = sequenceValueOf(i);
             if (origValue instanceof Value && ((Value) origValue).isEmpty())
                 continue;
 
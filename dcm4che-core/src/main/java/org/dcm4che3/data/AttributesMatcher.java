@@ -0,0 +1,314 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.data;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.dcm4che3.util.StringUtils;
+import org.dcm4che3.util.TagUtils;
+
+/**
+ * Matcher of {@link Attributes} against Matching Keys, compiled once from the
+ * keys and applicable to any number of candidate data sets. Supports Single
+ * Value, List of UID, Wild Card, Range and Sequence Matching. Specific
+ * Character Set and Query/Retrieve Level are not treated as Matching Keys.
+ * Instances are immutable and may be shared between threads.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class AttributesMatcher {
+
+    private final boolean matchNoValue;
+    private final KeyMatcher[] matchers;
+
+    public AttributesMatcher(Attributes keys, boolean ignorePNCase,
+            boolean matchNoValue) {
+        this.matchNoValue = matchNoValue;
+        ArrayList<KeyMatcher> list = new ArrayList<KeyMatcher>(keys.size());
+        String privateCreator = null;
+        int creatorTag = 0;
+        for (int tag : keys.tags()) {
+            if (TagUtils.isPrivateCreator(tag)
+                    || tag == Tag.SpecificCharacterSet
+                    || tag == Tag.QueryRetrieveLevel)
+                continue;
+
+            if (TagUtils.isPrivateGroup(tag)) {
+                int tmp = TagUtils.creatorTagOf(tag);
+                if (creatorTag != tmp) {
+                    creatorTag = tmp;
+                    privateCreator = keys.getString(creatorTag, null);
+                }
+            } else {
+                creatorTag = 0;
+                privateCreator = null;
+            }
+
+            Object keyValue = keys.getValue(tag);
+            if (keyValue instanceof Value && ((Value) keyValue).isEmpty())
+                continue;
+
+            VR vr = keys.getVR(tag);
+            if (vr.isStringType()) {
+                String[] keyVals = keys.getStrings(tag);
+                if (vr.isTemporalType() && keyVals.length == 1
+                        && Attributes.indexOfRangeDelimiter(keyVals[0], vr) >= 0)
+                    list.add(new RangeMatcher(privateCreator, tag,
+                            keys.getDateRange(tag)));
+                else
+                    list.add(new StringMatcher(privateCreator, tag, vr,
+                            ignorePNCase && vr == VR.PN, keyVals));
+            } else if (keyValue instanceof Sequence) {
+                Sequence keySeq = (Sequence) keyValue;
+                int n = keySeq.size();
+                if (n > 1)
+                    throw new IllegalArgumentException("Keys contain Sequence "
+                            + TagUtils.toString(tag) + " with " + n + " Items");
+                Attributes item = keySeq.get(0);
+                if (!item.isEmpty())
+                    list.add(new SequenceMatcher(privateCreator, tag,
+                            new AttributesMatcher(item, ignorePNCase, matchNoValue)));
+            } else {
+                throw new UnsupportedOperationException("Keys with VR: "
+                        + vr + " not supported");
+            }
+        }
+        this.matchers = list.toArray(new KeyMatcher[list.size()]);
+    }
+
+    public boolean matches(Attributes attrs) {
+        for (KeyMatcher matcher : matchers)
+            if (!matcher.matches(attrs))
+                return false;
+        return true;
+    }
+
+    private abstract class KeyMatcher {
+        final String privateCreator;
+        final int tag;
+
+        KeyMatcher(String privateCreator, int tag) {
+            this.privateCreator = privateCreator;
+            this.tag = tag;
+        }
+
+        abstract boolean matches(Attributes attrs);
+    }
+
+    private class StringMatcher extends KeyMatcher {
+        final boolean pn;
+        final boolean ignoreCase;
+        final String[] keyVals;
+        final boolean[] wildcard;
+
+        StringMatcher(String privateCreator, int tag, VR vr,
+                boolean ignoreCase, String[] keyVals) {
+            super(privateCreator, tag);
+            this.pn = vr == VR.PN;
+            this.ignoreCase = ignoreCase;
+            ArrayList<String> list = new ArrayList<String>(keyVals.length);
+            for (String keyVal : keyVals)
+                if (keyVal != null)
+                    list.add(pn ? new PersonName(keyVal).toString() : keyVal);
+            this.keyVals = list.toArray(new String[list.size()]);
+            this.wildcard = new boolean[this.keyVals.length];
+            for (int i = 0; i < wildcard.length; i++)
+                wildcard[i] = StringUtils.containsWildCard(this.keyVals[i]);
+        }
+
+        @Override
+        boolean matches(Attributes attrs) {
+            Object value = attrs.decodedStringValueOf(privateCreator, tag);
+            if (value == null)
+                return matchNoValue;
+
+            if (value instanceof String)
+                return matches((String) value);
+
+            for (String val : (String[]) value) {
+                if (val == null) {
+                    if (matchNoValue)
+                        return true;
+                } else if (matches(val))
+                    return true;
+            }
+            return false;
+        }
+
+        private boolean matches(String val) {
+            if (pn && !isNormalizedPN(val))
+                val = new PersonName(val).toString();
+            for (int i = 0; i < keyVals.length; i++)
+                if (wildcard[i]
+                        ? matchesWildCard(keyVals[i], val, ignoreCase)
+                        : ignoreCase ? keyVals[i].equalsIgnoreCase(val)
+                                     : keyVals[i].equals(val))
+                    return true;
+            return false;
+        }
+    }
+
+    private class RangeMatcher extends KeyMatcher {
+        final DateRange range;
+
+        RangeMatcher(String privateCreator, int tag, DateRange range) {
+            super(privateCreator, tag);
+            this.range = range;
+        }
+
+        @Override
+        boolean matches(Attributes attrs) {
+            Date[] dates = attrs.getDates(privateCreator, tag);
+            if (dates == null || dates.length == 0)
+                return matchNoValue;
+
+            if (range == null)
+                return false;
+
+            for (Date date : dates)
+                if (date == null ? matchNoValue : range.contains(date))
+                    return true;
+            return false;
+        }
+    }
+
+    private class SequenceMatcher extends KeyMatcher {
+        final AttributesMatcher itemMatcher;
+
+        SequenceMatcher(String privateCreator, int tag,
+                AttributesMatcher itemMatcher) {
+            super(privateCreator, tag);
+            this.itemMatcher = itemMatcher;
+        }
+
+        @Override
+        boolean matches(Attributes attrs) {
+            Object value = attrs.getValue(privateCreator, tag);
+            if (value == null
+                    || value instanceof Value && ((Value) value).isEmpty())
+                return matchNoValue;
+
+            if (value instanceof Sequence)
+                for (Attributes item : (Sequence) value)
+                    if (itemMatcher.matches(item))
+                        return true;
+            return false;
+        }
+    }
+
+    /**
+     * Matches value against key with wild cards '*' and '?', equivalent to
+     * the regular expression returned by
+     * {@link StringUtils#compilePattern(String, boolean)}, but without
+     * compiling a {@link java.util.regex.Pattern} or allocating a
+     * {@link java.util.regex.Matcher}.
+     */
+    static boolean matchesWildCard(String key, String val, boolean ignoreCase) {
+        int klen = key.length();
+        int vlen = val.length();
+        int k = 0;
+        int v = 0;
+        int star = -1;
+        int mark = 0;
+        while (v < vlen) {
+            if (k < klen) {
+                char kc = key.charAt(k);
+                if (kc == '*') {
+                    star = k++;
+                    mark = v;
+                    continue;
+                }
+                if (kc == '?' || equals(kc, val.charAt(v), ignoreCase)) {
+                    k++;
+                    v++;
+                    continue;
+                }
+            }
+            if (star < 0)
+                return false;
+            k = star + 1;
+            v = ++mark;
+        }
+        while (k < klen && key.charAt(k) == '*')
+            k++;
+        return k == klen;
+    }
+
+    private static boolean equals(char c1, char c2, boolean ignoreCase) {
+        return c1 == c2 || ignoreCase
+                && (Character.toUpperCase(c1) == Character.toUpperCase(c2)
+                 || Character.toLowerCase(c1) == Character.toLowerCase(c2));
+    }
+
+    /**
+     * Returns {@code true} if {@link PersonName#toString()} of the parsed
+     * value would return the value unchanged: no leading or trailing spaces
+     * in components, no trailing empty components or component groups, and
+     * not more than 3 component groups of 5 components.
+     */
+    static boolean isNormalizedPN(String s) {
+        int len = s.length();
+        if (len == 0)
+            return false;
+
+        int groups = 1;
+        int comps = 1;
+        char prev = '=';
+        for (int i = 0; i < len; i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+            case '=':
+                if (++groups > 3 || prev == '^' || prev <= ' ')
+                    return false;
+                comps = 1;
+                break;
+            case '^':
+                if (++comps > 5 || prev <= ' ')
+                    return false;
+                break;
+            default:
+                if (ch <= ' ' && (prev == '^' || prev == '='))
+                    return false;
+            }
+            prev = ch;
+        }
+        return prev != '^' && prev != '=' && prev > ' ';
+    }
+}
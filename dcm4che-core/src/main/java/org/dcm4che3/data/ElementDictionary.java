@@ -38,6 +38,9 @@
 
 package org.dcm4che3.data;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ServiceLoader;
 
 import org.dcm4che3.data.StandardElementDictionary;
@@ -45,6 +48,7 @@ import org.dcm4che3.data.StandardElementDictionary;
 public abstract class ElementDictionary {
     private static final ServiceLoader<ElementDictionary> loader =
             ServiceLoader.load(ElementDictionary.class);
+    private static volatile Map<String, ElementDictionary> privateDictionaries;
     private final String privateCreator;
     private final Class<?> tagClass;
 
@@ -59,18 +63,40 @@ public abstract class ElementDictionary {
 
     public static ElementDictionary getElementDictionary(
             String privateCreator) {
-        if (privateCreator != null)
+        if (privateCreator != null) {
+            ElementDictionary dict = privateDictionaries().get(privateCreator);
+            if (dict != null)
+                return dict;
+        }
+        return getStandardElementDictionary();
+    }
+
+    private static Map<String, ElementDictionary> privateDictionaries() {
+        Map<String, ElementDictionary> map = privateDictionaries;
+        if (map == null)
             synchronized (loader) {
-                for (ElementDictionary dict : loader)
-                    if (privateCreator.equals(dict.getPrivateCreator()))
-                        return dict;
+                map = privateDictionaries;
+                if (map == null)
+                    privateDictionaries = map = loadPrivateDictionaries();
             }
-        return getStandardElementDictionary();
+        return map;
+    }
+
+    private static Map<String, ElementDictionary> loadPrivateDictionaries() {
+        HashMap<String, ElementDictionary> map =
+                new HashMap<String, ElementDictionary>();
+        for (ElementDictionary dict : loader) {
+            String privateCreator = dict.getPrivateCreator();
+            if (privateCreator != null && !map.containsKey(privateCreator))
+                map.put(privateCreator, dict);
+        }
+        return Collections.unmodifiableMap(map);
     }
 
     public static void reload() {
         synchronized (loader) {
             loader.reload();
+            privateDictionaries = loadPrivateDictionaries();
         }
     }
 
@@ -0,0 +1,135 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.data;
+
+import java.io.IOException;
+
+import org.dcm4che3.io.DicomEncodingOptions;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.util.TagUtils;
+
+/**
+ * Value of a Sequence attribute, which items are not yet parsed. The items
+ * are read on first access of the attribute by {@link Attributes}, which
+ * replaces the value by the parsed {@link Sequence}.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public abstract class LazySequence implements Value {
+
+    public final int tag;
+    public final long offset;
+    public final int length;
+    private Value items;
+
+    protected LazySequence(int tag, long offset, int length) {
+        this.tag = tag;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Reads the items of the sequence into the specified Data Set.
+     * 
+     * @param attrs Data Set containing the Sequence attribute
+     * @param sqtag tag of the Sequence attribute
+     * @throws IOException if an I/O error occurs
+     */
+    public abstract void readItemsInto(Attributes attrs, int sqtag)
+            throws IOException;
+
+    /**
+     * Returns the items read into a detached Data Set, if this value is
+     * encoded or its length is calculated outside of the containing
+     * {@link Attributes}, which otherwise replaces it by the parsed
+     * {@link Sequence}.
+     */
+    private synchronized Value items(boolean bigEndian) throws IOException {
+        if (items == null) {
+            Attributes attrs = new Attributes(bigEndian, 1);
+            readItemsInto(attrs, tag);
+            Object value = attrs.getValue(tag);
+            items = value instanceof Value ? (Value) value : Value.NULL;
+        }
+        return items;
+    }
+
+    private Value items() {
+        try {
+            return items(false);
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Failed to read items of " + this, e);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "LazySequence[tag=" + TagUtils.toString(tag)
+                + ", offset=" + offset
+                + ", length=" + length
+                + "]";
+    }
+
+    @Override
+    public byte[] toBytes(VR vr, boolean bigEndian) throws IOException {
+        return items(bigEndian).toBytes(vr, bigEndian);
+    }
+
+    @Override
+    public void writeTo(DicomOutputStream out, VR vr) throws IOException {
+        items(out.isBigEndian()).writeTo(out, vr);
+    }
+
+    @Override
+    public int calcLength(DicomEncodingOptions encOpts, boolean explicitVR, VR vr) {
+        return items().calcLength(encOpts, explicitVR, vr);
+    }
+
+    @Override
+    public int getEncodedLength(DicomEncodingOptions encOpts, boolean explicitVR, VR vr) {
+        return items().getEncodedLength(encOpts, explicitVR, vr);
+    }
+
+}
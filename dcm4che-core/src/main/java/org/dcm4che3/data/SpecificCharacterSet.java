@@ -87,7 +87,9 @@ import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -97,6 +99,12 @@ public class SpecificCharacterSet {
     public static final SpecificCharacterSet DEFAULT =
             new SpecificCharacterSet(new Codec[]{Codec.ISO_646}, "ISO_IR 100");
 
+    private static final int MAX_CACHED = 64;
+
+    private static final ConcurrentHashMap<List<String>, SpecificCharacterSet>
+            cachedCharacterSets =
+                new ConcurrentHashMap<List<String>, SpecificCharacterSet>();
+
     private static ThreadLocal<SoftReference<Encoder>> cachedEncoder1 = 
             new ThreadLocal<SoftReference<Encoder>>();
 
@@ -221,7 +229,20 @@ public class SpecificCharacterSet {
             return (ch2 & 15) * 10 + (ch1 & 15);
         }
 
+        public boolean isASCIICompatible() {
+            switch (this) {
+            case JIS_X_201:
+            case JIS_X_208:
+            case JIS_X_212:
+                return false;
+            default:
+                return true;
+            }
+        }
+
         public byte[] encode(String val) {
+            if (isASCIICompatible() && isPureASCII(val))
+                return encodeASCII(val);
             try {
                 return val.getBytes(charsetName);
             } catch (UnsupportedEncodingException e) {
@@ -230,6 +251,8 @@ public class SpecificCharacterSet {
         }
 
         public String decode(byte[] b, int off, int len) {
+            if (isASCIICompatible() && isPureASCII(b, off, len))
+                return decodeASCII(b, off, len);
             try {
                 return new String(b, off, len, charsetName);
             } catch (UnsupportedEncodingException e) {
@@ -301,6 +324,10 @@ public class SpecificCharacterSet {
 
         @Override
         public byte[] encode(String val, String delimiters) {
+            // no need to switch character sets for pure ASCII values
+            if (codecs[0].isASCIICompatible() && isPureASCII(val))
+                return encodeASCII(val);
+
             int strlen = val.length();
             CharBuffer cb = CharBuffer.wrap(val.toCharArray());
             Encoder enc1 = encoder(cachedEncoder1, codecs[0]);
@@ -368,6 +395,9 @@ public class SpecificCharacterSet {
 
         @Override
         public String decode(byte[] b) {
+            if (!containsESC(b))
+                return super.decode(b);
+
             Codec codec = codecs[0];
             int off = 0;
             int cur = 0;
@@ -464,20 +494,72 @@ public class SpecificCharacterSet {
         }
     }
 
+    private static boolean containsESC(byte[] b) {
+        for (byte ch : b)
+            if (ch == 0x1b)
+                return true;
+        return false;
+    }
+
+    private static boolean isPureASCII(String s) {
+        for (int i = 0, n = s.length(); i < n; i++)
+            if (s.charAt(i) > 0x7f)
+                return false;
+        return true;
+    }
+
+    private static boolean isPureASCII(byte[] b, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++)
+            if (b[i] < 0)
+                return false;
+        return true;
+    }
+
+    private static byte[] encodeASCII(String s) {
+        int len = s.length();
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++)
+            b[i] = (byte) s.charAt(i);
+        return b;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String decodeASCII(byte[] b, int off, int len) {
+        return new String(b, 0, off, len);
+    }
+
+    /**
+     * Returns the Specific Character Set for the specified values of
+     * (0008,0005) Specific Character Set. Instances for previously requested
+     * values are cached and shared.
+     */
     public static SpecificCharacterSet valueOf(String... codes) {
         if (codes == null || codes.length == 0)
             return DEFAULT;
 
+        List<String> key = Arrays.asList(codes);
+        SpecificCharacterSet cs = cachedCharacterSets.get(key);
+        if (cs != null)
+            return cs;
+
+        codes = codes.clone();
         Codec[] infos = new Codec[codes.length];
         for (int i = 0; i < codes.length; i++)
             infos[i] = Codec.forCode(codes[i]);
-        return codes.length > 1 ? new ISO2022(infos,codes)
+        cs = codes.length > 1 ? new ISO2022(infos,codes)
                 : new SpecificCharacterSet(infos, codes);
+        if (cachedCharacterSets.size() < MAX_CACHED) {
+            SpecificCharacterSet prev =
+                    cachedCharacterSets.putIfAbsent(Arrays.asList(codes), cs);
+            if (prev != null)
+                cs = prev;
+        }
+        return cs;
     }
     
     public String[] toCodes () {
         
-        return dicomCodes;
+        return dicomCodes.clone();
     }
 
     private static Encoder encoder(ThreadLocal<SoftReference<Encoder>> tl,
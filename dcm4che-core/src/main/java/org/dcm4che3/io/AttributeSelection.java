@@ -0,0 +1,89 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2013
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.io;
+
+import java.util.Arrays;
+
+import org.dcm4che3.data.VR;
+
+/**
+ * Selects the attributes of a Data Set read by
+ * {@link DicomInputStream#readSelectedDataset(int, AttributeSelection)}.
+ * Only top level attributes are selected; items of a selected sequence
+ * are read completely.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public abstract class AttributeSelection {
+
+    public abstract boolean isSelected(int tag, VR vr);
+
+    /**
+     * Returns the greatest tag which may be selected. Reading of the Data
+     * Set stops after the attribute with this tag. The default
+     * implementation returns <code>0xFFFFFFFF</code>, so the whole Data Set
+     * is read.
+     *
+     * @return greatest tag which may be selected
+     */
+    public int getLastTag() {
+        return 0xffffffff;
+    }
+
+    public static AttributeSelection valueOf(int... tags) {
+        final int[] sorted = tags.clone();
+        Arrays.sort(sorted);
+        long last = 0L;
+        for (int tag : sorted)
+            last = Math.max(last, tag & 0xffffffffL);
+        final int lastTag = (int) last;
+        return new AttributeSelection() {
+
+            @Override
+            public boolean isSelected(int tag, VR vr) {
+                return Arrays.binarySearch(sorted, tag) >= 0;
+            }
+
+            @Override
+            public int getLastTag() {
+                return lastTag;
+            }
+        };
+    }
+}
@@ -47,6 +47,9 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -61,6 +64,8 @@ import org.dcm4che3.data.BulkData;
 import org.dcm4che3.data.ElementDictionary;
 import org.dcm4che3.data.Fragments;
 import org.dcm4che3.data.ItemPointer;
+import org.dcm4che3.data.LazySequence;
+import org.dcm4che3.data.MappedValue;
 import org.dcm4che3.data.Sequence;
 import org.dcm4che3.data.VR;
 import org.dcm4che3.util.ByteUtils;
@@ -97,6 +102,8 @@ public class DicomInputStream extends FilterInputStream
         "Deflated DICOM Stream with ZLIB Header";
 
     private static final int ZLIB_HEADER = 0x789c;
+
+    public static final int DEF_MAP_VALUES_THRESHOLD = 64 * 1024;
     private static final int DEF_ALLOCATE_LIMIT = 0x4000000; // 64MiB
 
     private int allocateLimit = DEF_ALLOCATE_LIMIT;
@@ -130,6 +137,14 @@ public class DicomInputStream extends FilterInputStream
     private FileOutputStream blkOut;
     private long blkOutPos;
 
+    private File file;
+    private long fileLastModified;
+    private long fileLength;
+    private boolean mapValues;
+    private int mapValuesThreshold = DEF_MAP_VALUES_THRESHOLD;
+    private MappedByteBuffer mappedFile;
+    private boolean lazySequences;
+
     public DicomInputStream(InputStream in, String tsuid) throws IOException {
         super(in);
         switchTransferSyntax(tsuid);
@@ -143,6 +158,9 @@ public class DicomInputStream extends FilterInputStream
     public DicomInputStream(File file) throws IOException {
         this(new FileInputStream(file));
         uri = file.toURI().toString();
+        this.file = file;
+        this.fileLastModified = file.lastModified();
+        this.fileLength = file.length();
     }
 
     public final String getTransferSyntax() {
@@ -241,6 +259,81 @@ public class DicomInputStream extends FilterInputStream
         this.catBlkFiles = catBlkFiles;
     }
 
+    public final boolean isMapValues() {
+        return mapValues;
+    }
+
+    /**
+     * Controls if values of primitive attributes with a length of at least
+     * {@link #getMapValuesThreshold()} bytes are kept in a memory-mapped
+     * view of the file instead of being read into byte arrays. Mapped values
+     * are copied on the heap on each access, without replacing the mapped
+     * value in the data set. Only effective for
+     * <code>DicomInputStream</code>s created from a {@link File}; values of
+     * deflated data sets or beyond the first 2 GiB of the file are still read
+     * into byte arrays.
+     * <p>
+     * The mapping is not released by {@link #close()}: it remains valid as
+     * long as the returned data set - or any other object - references one
+     * of its mapped values, and is only unmapped when the mapped values are
+     * garbage collected. Until then, the file must not be truncated or
+     * modified, and on some platforms (e.g. Windows) it cannot be deleted.
+     * 
+     * @param mapValues <code>true</code> to keep values memory-mapped
+     */
+    public final void setMapValues(boolean mapValues) {
+        this.mapValues = mapValues;
+    }
+
+    public final int getMapValuesThreshold() {
+        return mapValuesThreshold;
+    }
+
+    /**
+     * Sets the minimal length of values which are memory-mapped if
+     * {@link #setMapValues(boolean)} is enabled. Shorter values are read
+     * into byte arrays, because mapping them saves less heap than the
+     * {@link org.dcm4che3.data.MappedValue} costs. Defaults to
+     * {@link #DEF_MAP_VALUES_THRESHOLD}.
+     * 
+     * @param mapValuesThreshold minimal length of mapped values in bytes
+     */
+    public final void setMapValuesThreshold(int mapValuesThreshold) {
+        if (mapValuesThreshold < 0)
+            throw new IllegalArgumentException(
+                    "mapValuesThreshold: " + mapValuesThreshold);
+        this.mapValuesThreshold = mapValuesThreshold;
+    }
+
+    public final boolean isLazySequences() {
+        return lazySequences;
+    }
+
+    /**
+     * Controls if the items of Sequence attributes are parsed on first
+     * access of the attribute, instead of during reading of the Data Set.
+     * On reading the Data Set, only the position and the length of the
+     * Sequence value is recorded. On first access, the items are read from
+     * the file by a new <code>DicomInputStream</code> with equal settings.
+     * Only effective for <code>DicomInputStream</code>s created from a
+     * {@link File}, using the default {@link DicomInputHandler}; sequences
+     * of deflated data sets are always parsed immediately.
+     * <p>
+     * The file is not kept open between accesses, so the returned data set
+     * does not hold any file handle. Therefore the file must not be moved,
+     * deleted or modified until all Sequence attributes of the data set
+     * were accessed. A sequence of a missing file, or of a file which
+     * modification time or length differs from the time the data set was
+     * read, cannot be parsed: its access throws an
+     * {@link IllegalStateException}, which message and cause name the file.
+     * 
+     * @param lazySequences <code>true</code> to defer parsing of Sequence
+     *        items to first access
+     */
+    public final void setLazySequences(boolean lazySequences) {
+        this.lazySequences = lazySequences;
+    }
+
     public final List<File> getBulkDataFiles() {
         if (blkFiles != null)
             return blkFiles;
@@ -421,6 +514,76 @@ public class DicomInputStream extends FilterInputStream
         return attrs;
     }
 
+    /**
+     * Reads only selected attributes of the Data Set. Attributes which are
+     * not selected are skipped without allocation of memory for their
+     * values. Reading stops after the attribute with the greatest selected
+     * tag, so the stream is not read until its end, if the selection does
+     * not include attributes at the end of the Data Set - like Pixel Data.
+     * Specific Character Set (0008,0005) is always read, so the values of
+     * selected attributes are decoded as in the whole Data Set.
+     * 
+     * @param len length of the Data Set or -1 for undefined length
+     * @param selection tags of attributes to read
+     * @return Data Set with the selected attributes
+     * @throws IOException if an I/O error occurs
+     */
+    public Attributes readSelectedDataset(int len, int... selection)
+            throws IOException {
+        return readSelectedDataset(len, AttributeSelection.valueOf(selection));
+    }
+
+    /**
+     * Reads only the attributes of the Data Set accepted by the specified
+     * selection. Attributes which are not selected are skipped without
+     * allocation of memory for their values. Reading stops after the
+     * attribute with tag {@link AttributeSelection#getLastTag()}.
+     * Specific Character Set (0008,0005) is always read, so the values of
+     * selected attributes are decoded as in the whole Data Set.
+     * 
+     * @param len length of the Data Set or -1 for undefined length
+     * @param selection selects attributes to read
+     * @return Data Set with the selected attributes
+     * @throws IOException if an I/O error occurs
+     */
+    public Attributes readSelectedDataset(int len,
+            AttributeSelection selection) throws IOException {
+        handler.startDataset(this);
+        readFileMetaInformation();
+        Attributes attrs = new Attributes(bigEndian);
+        readSelectedAttributes(attrs, len, selection);
+        attrs.trimToSize();
+        handler.endDataset(this);
+        return attrs;
+    }
+
+    private void readSelectedAttributes(Attributes attrs, int len,
+            AttributeSelection selection) throws IOException {
+        long last = Math.max(selection.getLastTag() & 0xffffffffL,
+                Tag.SpecificCharacterSet);
+        boolean undeflen = len == -1;
+        long endPos =  pos + (len & 0xffffffffL);
+        while (undeflen || this.pos < endPos) {
+            try {
+                readHeader();
+            } catch (EOFException e) {
+                if (undeflen && pos == tagPos)
+                    break;
+                throw e;
+            }
+            long utag = tag & 0xffffffffL;
+            if (utag > last)
+                break;
+            if (vr != null && (tag == Tag.SpecificCharacterSet
+                    || selection.isSelected(tag, vr))) {
+                readAttribute(attrs);
+                if (utag == last)
+                    break;
+            } else
+                skipValue();
+        }
+    }
+
     public Attributes readFileMetaInformation() throws IOException {
         if (!hasfmi)
             return null;  // No File Meta Information
@@ -470,31 +633,35 @@ public class DicomInputStream extends FilterInputStream
             }
             if (hasStopTag && tag == stopTag)
                 break;
-            if (vr != null) {
-                boolean prevBigEndian = bigEndian;
-                boolean prevExplicitVR = explicitVR;
-                try {
-                    if (vr == VR.UN) {
-                        if (decodeUNWithIVRLE) {
-                            bigEndian = false;
-                            explicitVR = false;
-                        }
-                        vr = ElementDictionary.vrOf(tag,
-                                attrs.getPrivateCreator(tag));
-                        if (vr == VR.UN && length == -1)
-                            vr = VR.SQ; // assumes UN with undefined length are SQ,
-                                        // will fail on UN fragments!
-                    }
-                    handler.readValue(this, attrs);
-                } finally {
-                    bigEndian = prevBigEndian;
-                    explicitVR = prevExplicitVR;
-                }
-            } else
+            if (vr != null)
+                readAttribute(attrs);
+            else
                 skipAttribute(UNEXPECTED_ATTRIBUTE);
         }
     }
 
+    private void readAttribute(Attributes attrs) throws IOException {
+        boolean prevBigEndian = bigEndian;
+        boolean prevExplicitVR = explicitVR;
+        try {
+            if (vr == VR.UN) {
+                if (decodeUNWithIVRLE) {
+                    bigEndian = false;
+                    explicitVR = false;
+                }
+                vr = ElementDictionary.vrOf(tag,
+                        attrs.getPrivateCreator(tag));
+                if (vr == VR.UN && length == -1)
+                    vr = VR.SQ; // assumes UN with undefined length are SQ,
+                                // will fail on UN fragments!
+            }
+            handler.readValue(this, attrs);
+        } finally {
+            bigEndian = prevBigEndian;
+            explicitVR = prevExplicitVR;
+        }
+    }
+
     @Override
     public void readValue(DicomInputStream dis, Attributes attrs)
             throws IOException {
@@ -513,6 +680,10 @@ public class DicomInputStream extends FilterInputStream
                     (ObjectInputStream) super.in));
         } else if (includeBulkData == IncludeBulkData.URI && isBulkData(attrs)) {
             attrs.setValue(tag, vr, createBulkData());
+        } else if (isMappable()) {
+            attrs.setValue(tag, vr,
+                    new MappedValue(mappedFile, (int) pos, length, bigEndian));
+            skipFully(length);
         } else {
             byte[] b = readValue();
             if (!TagUtils.isGroupLength(tag)) {
@@ -524,6 +695,28 @@ public class DicomInputStream extends FilterInputStream
         }
     }
 
+    private boolean isMappable() throws IOException {
+        if (!mapValues || file == null || length < mapValuesThreshold
+                || TagUtils.isGroupLength(tag)
+                || super.in instanceof InflaterInputStream)
+            return false;
+
+        if (mappedFile == null)
+            mappedFile = map(file);
+        return pos + length <= mappedFile.limit();
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel fc = raf.getChannel();
+            return fc.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(fc.size(), Integer.MAX_VALUE));
+        } finally {
+            SafeClose.close(raf);
+        }
+    }
+
     public BulkData createBulkData() throws IOException {
             BulkData bulkData;
         if (uri != null && !(super.in instanceof InflaterInputStream)) {
@@ -629,6 +822,19 @@ public class DicomInputStream extends FilterInputStream
             attrs.setNull(sqtag, VR.SQ);
             return;
         }
+        if (isLazySequence()) {
+            attrs.setValue(sqtag, VR.SQ, new FileLazySequence(this, sqtag, pos, len));
+            if (len == -1)
+                skipSequence();
+            else
+                skipFully(len);
+            return;
+        }
+        readItems(len, attrs, sqtag);
+    }
+
+    private void readItems(int len, Attributes attrs, int sqtag)
+            throws IOException {
         Sequence seq = attrs.newSequence(sqtag, 10);
         String privateCreator = attrs.getPrivateCreator(sqtag);
         boolean undefLen = len == -1;
@@ -652,6 +858,146 @@ public class DicomInputStream extends FilterInputStream
             seq.trimToSize();
     }
 
+    private boolean isLazySequence() {
+        return lazySequences && file != null && uri != null
+                && handler == this
+                && !(super.in instanceof InflaterInputStream);
+    }
+
+    private void skipSequence() throws IOException {
+        for (;;) {
+            readHeader();
+            if (tag == Tag.SequenceDelimitationItem) {
+                if (length != 0)
+                    skipAttribute(UNEXPECTED_NON_ZERO_ITEM_LENGTH);
+                return;
+            }
+            if (tag == Tag.Item && length == -1)
+                skipItem();
+            else
+                skipFully(length);
+        }
+    }
+
+    private void skipItem() throws IOException {
+        for (;;) {
+            readHeader();
+            if (tag == Tag.ItemDelimitationItem) {
+                if (length != 0)
+                    skipAttribute(UNEXPECTED_NON_ZERO_ITEM_LENGTH);
+                return;
+            }
+            skipValue();
+        }
+    }
+
+    private void skipValue() throws IOException {
+        if (length != -1)
+            skipFully(length);
+        else if (vr == VR.UN && decodeUNWithIVRLE) {
+            boolean prevBigEndian = bigEndian;
+            boolean prevExplicitVR = explicitVR;
+            bigEndian = false;
+            explicitVR = false;
+            try {
+                skipSequence();
+            } finally {
+                bigEndian = prevBigEndian;
+                explicitVR = prevExplicitVR;
+            }
+        } else
+            skipSequence();
+    }
+
+    private static class FileLazySequence extends LazySequence {
+
+        private final File file;
+        private final long fileLastModified;
+        private final long fileLength;
+        private final String uri;
+        private final String tsuid;
+        private final boolean bigEndian;
+        private final boolean explicitVR;
+        private final IncludeBulkData includeBulkData;
+        private final BulkDataDescriptor bulkDataDescriptor;
+        private final ItemPointer[] itemPointers;
+        private final boolean decodeUNWithIVRLE;
+        private final int allocateLimit;
+        private final boolean mapValues;
+        private final int mapValuesThreshold;
+        private final MappedByteBuffer mappedFile;
+
+        FileLazySequence(DicomInputStream dis, int tag, long offset,
+                int length) {
+            super(tag, offset, length);
+            this.file = dis.file;
+            this.fileLastModified = dis.fileLastModified;
+            this.fileLength = dis.fileLength;
+            this.uri = dis.uri;
+            this.tsuid = dis.tsuid;
+            this.bigEndian = dis.bigEndian;
+            this.explicitVR = dis.explicitVR;
+            this.includeBulkData = dis.includeBulkData;
+            this.bulkDataDescriptor = dis.bulkDataDescriptor;
+            this.itemPointers = dis.itemPointers.toArray(
+                    new ItemPointer[dis.itemPointers.size()]);
+            this.decodeUNWithIVRLE = dis.decodeUNWithIVRLE;
+            this.allocateLimit = dis.allocateLimit;
+            this.mapValues = dis.mapValues;
+            this.mapValuesThreshold = dis.mapValuesThreshold;
+            this.mappedFile = dis.mappedFile;
+        }
+
+        @Override
+        public void readItemsInto(Attributes attrs, int sqtag)
+                throws IOException {
+            FileInputStream fin = new FileInputStream(file);
+            if (fin.getChannel().size() != fileLength
+                    || file.lastModified() != fileLastModified) {
+                SafeClose.close(fin);
+                throw new IOException(file + " modified after reading "
+                        + "of the data set");
+            }
+            try {
+                fin.getChannel().position(offset);
+                new DicomInputStream(new BufferedInputStream(fin), this)
+                        .readItems(length, attrs, sqtag);
+            } finally {
+                SafeClose.close(fin);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "LazySequence[tag=" + TagUtils.toString(tag)
+                    + ", file=" + file
+                    + ", offset=" + offset
+                    + ", length=" + length
+                    + "]";
+        }
+    }
+
+    private DicomInputStream(InputStream in, FileLazySequence lazy) {
+        super(in);
+        this.file = lazy.file;
+        this.fileLastModified = lazy.fileLastModified;
+        this.fileLength = lazy.fileLength;
+        this.uri = lazy.uri;
+        this.tsuid = lazy.tsuid;
+        this.bigEndian = lazy.bigEndian;
+        this.explicitVR = lazy.explicitVR;
+        this.includeBulkData = lazy.includeBulkData;
+        this.bulkDataDescriptor = lazy.bulkDataDescriptor;
+        this.itemPointers.addAll(Arrays.asList(lazy.itemPointers));
+        this.decodeUNWithIVRLE = lazy.decodeUNWithIVRLE;
+        this.allocateLimit = lazy.allocateLimit;
+        this.mapValues = lazy.mapValues;
+        this.mapValuesThreshold = lazy.mapValuesThreshold;
+        this.mappedFile = lazy.mappedFile;
+        this.lazySequences = true;
+        this.pos = lazy.offset;
+    }
+
     private void addItemPointer(int sqtag, String privateCreator, int itemIndex) {
         if (itemPointers == null)
             itemPointers = new ArrayList<ItemPointer>(8);
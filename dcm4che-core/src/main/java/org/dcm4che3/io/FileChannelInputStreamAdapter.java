@@ -0,0 +1,120 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads from a {@link FileChannel} starting at a given position, using
+ * positional reads which do not modify the position of the channel, so
+ * several streams may read concurrently from the same channel.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class FileChannelInputStreamAdapter extends InputStream {
+
+    private final FileChannel channel;
+    private long pos;
+    private long markedPos;
+
+    public FileChannelInputStreamAdapter(FileChannel channel, long pos) {
+        if (channel == null)
+            throw new NullPointerException();
+        if (pos < 0)
+            throw new IllegalArgumentException("pos: " + pos);
+        this.channel = channel;
+        this.pos = pos;
+        this.markedPos = pos;
+    }
+
+    public final long getPosition() {
+        return pos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+
+        int n = channel.read(ByteBuffer.wrap(b, off, len), pos);
+        if (n > 0)
+            pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+
+        long skip = Math.min(n, Math.max(0, channel.size() - pos));
+        pos += skip;
+        return skip;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE,
+                Math.max(0, channel.size() - pos));
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        markedPos = pos;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        pos = markedPos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+}
@@ -38,15 +38,24 @@
 
 package org.dcm4che3.media;
 
+import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.AttributesMatcher;
 import org.dcm4che3.data.VR;
 import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.io.FileChannelInputStreamAdapter;
 import org.dcm4che3.io.RAFInputStreamAdapter;
 import org.dcm4che3.util.IntHashMap;
 import org.dcm4che3.util.SafeClose;
@@ -57,13 +66,47 @@ import org.dcm4che3.util.StringUtils;
  */
 public class DicomDirReader implements Closeable {
 
+    public static final int DEFAULT_MAX_CACHE_SIZE = 10000;
+    private static final int RECORD_BUFFER_SIZE = 1024;
+
     protected final File file;
     protected final RandomAccessFile raf;
     protected final DicomInputStream in;
     protected final Attributes fmi;
     protected final Attributes fsInfo;
+
+    /**
+     * Read-only channel for positional reads of Directory Records by
+     * concurrent threads. It is separate from {@link #raf}, because the
+     * interrupt of a reading thread closes it; it is then reopened.
+     */
+    private volatile FileChannel recordChannel;
+    private volatile boolean closed;
+
+    /**
+     * @deprecated no longer used, Directory Records are held in a bounded
+     *             cache, which can be cleared by {@link #clearCache()}
+     */
+    @Deprecated
     protected final IntHashMap<Attributes> cache = new IntHashMap<Attributes>();
 
+    final DirectoryRecordCache recordCache =
+            new DirectoryRecordCache(DEFAULT_MAX_CACHE_SIZE);
+    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    /**
+     * Shared by concurrent readers of Directory Records.
+     */
+    protected final Lock readLock = rwLock.readLock();
+
+    /**
+     * Held exclusively by {@link DicomDirWriter} while it modifies the
+     * DICOMDIR, so readers never see partially written records.
+     */
+    protected final Lock writeLock = rwLock.writeLock();
+    private volatile boolean indexed;
+    private volatile DirectoryRecordIndex index;
+
     public DicomDirReader(File file) throws IOException {
         this(file, "r");
     }
@@ -77,6 +120,7 @@ public class DicomDirReader implements Closeable {
             this.fsInfo = in.readDataset(-1, Tag.DirectoryRecordSequence);
             if (in.tag() != Tag.DirectoryRecordSequence)
                 throw new IOException("Missing Directory Record Sequence");
+            this.recordChannel = new RandomAccessFile(file, "r").getChannel();
         } catch (IOException e) {
             SafeClose.close(raf);
             throw e;
@@ -96,7 +140,14 @@ public class DicomDirReader implements Closeable {
     }
 
     public void close() throws IOException {
-        raf.close();
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            raf.close();
+        } finally {
+            recordChannel.close();
+        }
     }
 
     public String getFileSetUID() {
@@ -167,7 +218,101 @@ public class DicomDirReader implements Closeable {
     }
 
     public void clearCache() {
-        cache.clear();
+        recordCache.clear();
+    }
+
+    /**
+     * Returns the maximal number of Directory Records held in the cache.
+     * 
+     * @return maximal number of cached records; 0 = unlimited
+     */
+    public int getMaxCacheSize() {
+        return recordCache.getMaxSize();
+    }
+
+    /**
+     * Sets the maximal number of Directory Records held in the cache. If
+     * it is exceeded, the least recently accessed records are evicted.
+     * 
+     * @param maxCacheSize maximal number of cached records; 0 = unlimited
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        recordCache.setMaxSize(maxCacheSize);
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Enables or disables the index of Directory Records by Patient ID,
+     * Study, Series and Referenced SOP Instance UID in File. If enabled,
+     * {@code find<Patient|Study|Series|Instance>Record} methods with a
+     * single key value - which does not contain wild card characters -
+     * look up matching records in the index instead of traversing the
+     * sibling list. The index is built on first use by reading all records
+     * and is held in memory.
+     * 
+     * @param indexed {@code true} to enable the index
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        if (!indexed)
+            index = null;
+    }
+
+    private DirectoryRecordIndex index() throws IOException {
+        if (!indexed)
+            return null;
+
+        DirectoryRecordIndex idx = index;
+        if (idx == null) {
+            writeLock.lock();
+            try {
+                idx = index;
+                if (idx == null)
+                    index = idx = buildIndex();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return idx;
+    }
+
+    private DirectoryRecordIndex requireIndex() throws IOException {
+        DirectoryRecordIndex idx = index();
+        if (idx == null)
+            throw new IllegalStateException("Index of " + file + " not enabled");
+        return idx;
+    }
+
+    private DirectoryRecordIndex buildIndex() throws IOException {
+        DirectoryRecordIndex idx = new DirectoryRecordIndex();
+        addToIndex(idx, 0, readFirstRootDirectoryRecord());
+        return idx;
+    }
+
+    private void addToIndex(DirectoryRecordIndex idx, int parent, Attributes rec)
+            throws IOException {
+        while (rec != null) {
+            idx.add(parent, rec);
+            addToIndex(idx, offsetOf(rec), readLowerDirectoryRecord(rec));
+            rec = readNextDirectoryRecord(rec);
+        }
+    }
+
+    void addToIndex(Attributes parentRec, Attributes rec) {
+        DirectoryRecordIndex idx = index;
+        if (idx != null)
+            idx.add(parentRec != null ? offsetOf(parentRec) : 0, rec);
+    }
+
+    void resetIndex() {
+        index = null;
+    }
+
+    private static int offsetOf(Attributes rec) {
+        return (int) rec.getItemPosition();
     }
 
     public Attributes readFirstRootDirectoryRecord() throws IOException {
@@ -218,6 +363,12 @@ public class DicomDirReader implements Closeable {
         return findRootDirectoryRecord(keys, ignorePrivate, ignoreCaseOfPN, matchNoValue);
     }
 
+    public Attributes findRootDirectoryRecord(boolean ignorePrivate,
+            AttributesMatcher matcher) throws IOException {
+        return findRecordInUse(getOffsetOfFirstRootDirectoryRecord(), ignorePrivate,
+                matcher);
+    }
+
     public Attributes findNextDirectoryRecordInUse(Attributes rec, boolean ignorePrivate)
             throws IOException {
         return findNextDirectoryRecord(rec, ignorePrivate, null, false, false);
@@ -230,6 +381,13 @@ public class DicomDirReader implements Closeable {
                 keys, ignoreCaseOfPN, matchNoValue);
     }
 
+    public Attributes findNextDirectoryRecord(Attributes rec, boolean ignorePrivate,
+            AttributesMatcher matcher) throws IOException {
+        return findRecordInUse(
+                rec.getInt(Tag.OffsetOfTheNextDirectoryRecord, 0), ignorePrivate,
+                matcher);
+    }
+
     public Attributes findLowerDirectoryRecordInUse(Attributes rec, boolean ignorePrivate)
             throws IOException {
         return findLowerDirectoryRecord(rec, ignorePrivate, null, false, false);
@@ -243,57 +401,145 @@ public class DicomDirReader implements Closeable {
                 keys, ignoreCaseOfPN, matchNoValue);
     }
 
+    public Attributes findLowerDirectoryRecord(Attributes rec, boolean ignorePrivate,
+            AttributesMatcher matcher) throws IOException {
+        return findRecordInUse(
+                rec.getInt(Tag.OffsetOfReferencedLowerLevelDirectoryEntity, 0), ignorePrivate,
+                matcher);
+    }
+
     public Attributes findPatientRecord(String... ids) throws IOException {
-        return findRootDirectoryRecord(false,
-                pk("PATIENT", Tag.PatientID, VR.LO, ids), false, false);
+        return findLowerRecord(null, false,
+                pk("PATIENT", Tag.PatientID, VR.LO, ids), Tag.PatientID, ids);
     }
 
     public Attributes findNextPatientRecord(Attributes patRec, String... ids) throws IOException {
-        return findNextDirectoryRecord(patRec, false,
-                pk("PATIENT", Tag.PatientID, VR.LO, ids), false, false);
+        return findNextRecord(patRec, false,
+                pk("PATIENT", Tag.PatientID, VR.LO, ids), Tag.PatientID, ids);
     }
 
     public Attributes findStudyRecord(Attributes patRec, String... iuids)
             throws IOException {
-        return findLowerDirectoryRecord(patRec, false,
+        return findLowerRecord(patRec, false,
                 pk("STUDY", Tag.StudyInstanceUID, VR.UI, iuids),
-                false, false);
+                Tag.StudyInstanceUID, iuids);
     }
 
     public Attributes findNextStudyRecord(Attributes studyRec, String... iuids)
             throws IOException {
-        return findNextDirectoryRecord(studyRec, false,
+        return findNextRecord(studyRec, false,
                 pk("STUDY", Tag.StudyInstanceUID, VR.UI, iuids),
-                false, false);
+                Tag.StudyInstanceUID, iuids);
     }
 
     public Attributes findSeriesRecord(Attributes studyRec, String... iuids)
             throws IOException {
-        return findLowerDirectoryRecord(studyRec, false, 
+        return findLowerRecord(studyRec, false, 
                 pk("SERIES", Tag.SeriesInstanceUID, VR.UI, iuids),
-                false, false);
+                Tag.SeriesInstanceUID, iuids);
     }
 
     public Attributes findNextSeriesRecord(Attributes seriesRec, String... iuids)
             throws IOException {
-        return findNextDirectoryRecord(seriesRec, false, 
+        return findNextRecord(seriesRec, false, 
                 pk("SERIES", Tag.SeriesInstanceUID, VR.UI, iuids),
-                false, false);
+                Tag.SeriesInstanceUID, iuids);
     }
 
     public Attributes findLowerInstanceRecord(Attributes seriesRec, boolean ignorePrivate,
             String... iuids) throws IOException {
-        return findLowerDirectoryRecord(seriesRec, ignorePrivate, pk(iuids), false, false);
+        return findLowerRecord(seriesRec, ignorePrivate, pk(iuids),
+                Tag.ReferencedSOPInstanceUIDInFile, iuids);
     }
 
     public Attributes findNextInstanceRecord(Attributes instRec, boolean ignorePrivate,
             String... iuids) throws IOException {
-        return findNextDirectoryRecord(instRec, ignorePrivate, pk(iuids), false, false);
+        return findNextRecord(instRec, ignorePrivate, pk(iuids),
+                Tag.ReferencedSOPInstanceUIDInFile, iuids);
     }
 
     public Attributes findRootInstanceRecord(boolean ignorePrivate, String... iuids)
             throws IOException {
-        return findRootDirectoryRecord(ignorePrivate, pk(iuids), false, false);
+        return findLowerRecord(null, ignorePrivate, pk(iuids),
+                Tag.ReferencedSOPInstanceUIDInFile, iuids);
+    }
+
+    /**
+     * Looks up the Instance Record with the specified Referenced SOP
+     * Instance UID in File in the index, regardless of its parent records.
+     * Use {@link #findParentRecord} to get its Series, Study and Patient
+     * Records.
+     * 
+     * @param ignorePrivate {@code true} to ignore PRIVATE records
+     * @param iuid Referenced SOP Instance UID in File
+     * @return the Instance Record or {@code null} if there is none in use
+     * @throws IllegalStateException if the index is not enabled
+     */
+    public Attributes findInstanceRecord(boolean ignorePrivate, String iuid)
+            throws IOException {
+        return findRecordInUse(
+                requireIndex().recordsOf(Tag.ReferencedSOPInstanceUIDInFile, iuid),
+                ignorePrivate, pk(iuid));
+    }
+
+    /**
+     * Looks up the parent record of the specified record in the index.
+     * 
+     * @param rec the record
+     * @return the parent record or {@code null} for root records
+     * @throws IllegalStateException if the index is not enabled
+     */
+    public Attributes findParentRecord(Attributes rec) throws IOException {
+        int parent = requireIndex().parentOf(rec);
+        return parent > 0 ? readRecord(parent) : null;
+    }
+
+    private Attributes findLowerRecord(Attributes parentRec, boolean ignorePrivate,
+            Attributes keys, int tag, String... values) throws IOException {
+        String value = indexableValue(values);
+        DirectoryRecordIndex idx = value != null ? index() : null;
+        if (idx != null)
+            return findRecordInUse(
+                    idx.childrenOf(tag, value, parentRec != null ? offsetOf(parentRec) : 0),
+                    ignorePrivate, keys);
+
+        return parentRec != null
+                ? findLowerDirectoryRecord(parentRec, ignorePrivate, keys, false, false)
+                : findRootDirectoryRecord(ignorePrivate, keys, false, false);
+    }
+
+    private Attributes findNextRecord(Attributes rec, boolean ignorePrivate,
+            Attributes keys, int tag, String... values) throws IOException {
+        String value = indexableValue(values);
+        DirectoryRecordIndex idx = value != null ? index() : null;
+        if (idx != null) {
+            int[] offsets = idx.nextSiblingsOf(tag, value, offsetOf(rec));
+            if (offsets != null)
+                return findRecordInUse(offsets, ignorePrivate, keys);
+        }
+        return findNextDirectoryRecord(rec, ignorePrivate, keys, false, false);
+    }
+
+    private static String indexableValue(String... values) {
+        if (values == null || values.length != 1)
+            return null;
+
+        String value = values[0];
+        return value != null && !value.isEmpty()
+                && value.indexOf('*') < 0 && value.indexOf('?') < 0
+                ? value : null;
+    }
+
+    private Attributes findRecordInUse(int[] offsets, boolean ignorePrivate,
+            Attributes keys) throws IOException {
+        AttributesMatcher matcher = new AttributesMatcher(keys, false, false);
+        for (int offset : offsets) {
+            Attributes item = readRecord(offset);
+            if (inUse(item) && !(ignorePrivate && isPrivate(item))
+                    && matcher.matches(item))
+                return item;
+        }
+        return null;
     }
 
     private Attributes pk(String type, int tag, VR vr, String... ids) {
@@ -316,29 +562,81 @@ public class DicomDirReader implements Closeable {
     private Attributes findRecordInUse(int offset, boolean ignorePrivate, Attributes keys,
             boolean ignoreCaseOfPN, boolean matchNoValue)
             throws IOException {
+        return findRecordInUse(offset, ignorePrivate, keys == null ? null
+                : new AttributesMatcher(keys, ignoreCaseOfPN, matchNoValue));
+    }
+
+    private Attributes findRecordInUse(int offset, boolean ignorePrivate,
+            AttributesMatcher matcher) throws IOException {
         while (offset != 0) {
             Attributes item = readRecord(offset);
             if (inUse(item) && !(ignorePrivate && isPrivate(item))
-                    && (keys == null || item.matches(keys, ignoreCaseOfPN, matchNoValue)))
+                    && (matcher == null || matcher.matches(item)))
                 return item;
             offset = item.getInt(Tag.OffsetOfTheNextDirectoryRecord, 0);
         }
         return null;
     }
 
-    private synchronized Attributes readRecord(int offset) throws IOException {
+    private Attributes readRecord(int offset) throws IOException {
         if (offset == 0)
             return null;
 
-        Attributes item = cache.get(offset);
-        if (item == null) {
-            long off = offset & 0xffffffffL;
-            raf.seek(off);
-            in.setPosition(off);
-            item = in.readItem();
-            cache.put(offset, item);
+        readLock.lock();
+        try {
+            Attributes item = recordCache.get(offset);
+            if (item != null)
+                return item;
+
+            ReentrantLock loadLock = recordCache.loadLock(offset);
+            loadLock.lock();
+            try {
+                item = recordCache.get(offset);
+                if (item == null) {
+                    item = parseRecord(offset & 0xffffffffL);
+                    // cached records are shared by concurrent readers
+                    item.resolveValues();
+                    recordCache.put(offset, item);
+                }
+                return item;
+            } finally {
+                loadLock.unlock();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private Attributes parseRecord(long off) throws IOException {
+        for (;;) {
+            FileChannel ch = recordChannel;
+            try {
+                // positional read, does not interfere with concurrent readers
+                DicomInputStream din = new DicomInputStream(
+                        new BufferedInputStream(
+                                new FileChannelInputStreamAdapter(ch, off),
+                                RECORD_BUFFER_SIZE),
+                        in.getTransferSyntax());
+                din.setPosition(off);
+                return din.readItem();
+            } catch (ClosedByInterruptException e) {
+                // closed by the interrupt of this thread
+                reopenRecordChannel(ch);
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (ClosedChannelException e) {
+                // closed by the interrupt of another reading thread
+                if (closed)
+                    throw e;
+                reopenRecordChannel(ch);
+            }
         }
-        return item;
+    }
+
+    private synchronized void reopenRecordChannel(FileChannel ch)
+            throws IOException {
+        if (!closed && recordChannel == ch)
+            recordChannel = new RandomAccessFile(file, "r").getChannel();
     }
 
     public static boolean inUse(Attributes rec) {
@@ -170,84 +170,122 @@ public class DicomDirWriter extends DicomDirReader {
         return fsInfo;
     }
 
-    public synchronized Attributes addRootDirectoryRecord(Attributes rec)
+    public Attributes addRootDirectoryRecord(Attributes rec)
             throws IOException {
-        Attributes lastRootRecord = readLastRootDirectoryRecord();
-        if (lastRootRecord == null) {
-            writeRecord(firstRecordPos, rec);
-            setOffsetOfFirstRootDirectoryRecord(firstRecordPos);
-        } else {
-            addRecord(Tag.OffsetOfTheNextDirectoryRecord, lastRootRecord, rec);
+        writeLock.lock();
+        try {
+            Attributes lastRootRecord = readLastRootDirectoryRecord();
+            if (lastRootRecord == null) {
+                writeRecord(firstRecordPos, rec);
+                setOffsetOfFirstRootDirectoryRecord(firstRecordPos);
+            } else {
+                addRecord(Tag.OffsetOfTheNextDirectoryRecord, lastRootRecord, rec);
+            }
+            addToIndex(null, rec);
+            setOffsetOfLastRootDirectoryRecord((int) rec.getItemPosition());
+            return rec;
+        } finally {
+            writeLock.unlock();
         }
-        setOffsetOfLastRootDirectoryRecord((int) rec.getItemPosition());
-        return rec;
     }
 
-    public synchronized Attributes addLowerDirectoryRecord(
+    public Attributes addLowerDirectoryRecord(
             Attributes parentRec, Attributes rec) throws IOException {
-        Attributes prevRec = lastChildRecords.get(parentRec);
-        if (prevRec == null)
-            prevRec = findLastLowerDirectoryRecord(parentRec);
-
-        if (prevRec != null)
-            addRecord(Tag.OffsetOfTheNextDirectoryRecord, prevRec, rec);
-        else
-            addRecord(Tag.OffsetOfReferencedLowerLevelDirectoryEntity,
-                    parentRec, rec);
-
-        lastChildRecords.put(parentRec, rec);
-        return rec;
+        writeLock.lock();
+        try {
+            Attributes prevRec = lastChildRecords.get(parentRec);
+            if (prevRec == null)
+                prevRec = findLastLowerDirectoryRecord(parentRec);
+
+            if (prevRec != null)
+                addRecord(Tag.OffsetOfTheNextDirectoryRecord, prevRec, rec);
+            else
+                addRecord(Tag.OffsetOfReferencedLowerLevelDirectoryEntity,
+                        parentRec, rec);
+
+            lastChildRecords.put(parentRec, rec);
+            addToIndex(parentRec, rec);
+            return rec;
+        } finally {
+            writeLock.unlock();
+        }
     }
  
-    public synchronized Attributes findOrAddPatientRecord(Attributes rec) throws IOException {
-        Attributes patRec = super.findPatientRecord(rec.getString(Tag.PatientID));
-        return patRec != null ? patRec : addRootDirectoryRecord(rec);
+    public Attributes findOrAddPatientRecord(Attributes rec) throws IOException {
+        writeLock.lock();
+        try {
+            Attributes patRec = super.findPatientRecord(rec.getString(Tag.PatientID));
+            return patRec != null ? patRec : addRootDirectoryRecord(rec);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public synchronized Attributes findOrAddStudyRecord(Attributes patRec, Attributes rec)
+    public Attributes findOrAddStudyRecord(Attributes patRec, Attributes rec)
             throws IOException {
-        Attributes studyRec = super.findStudyRecord(patRec, rec.getString(Tag.StudyInstanceUID));
-        return studyRec != null ? studyRec : addLowerDirectoryRecord(patRec, rec);
+        writeLock.lock();
+        try {
+            Attributes studyRec = super.findStudyRecord(patRec, rec.getString(Tag.StudyInstanceUID));
+            return studyRec != null ? studyRec : addLowerDirectoryRecord(patRec, rec);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public synchronized Attributes findOrAddSeriesRecord(Attributes studyRec, Attributes rec)
+    public Attributes findOrAddSeriesRecord(Attributes studyRec, Attributes rec)
             throws IOException {
-        Attributes seriesRec = super.findSeriesRecord(studyRec, rec.getString(Tag.SeriesInstanceUID));
-        return seriesRec != null ? seriesRec : addLowerDirectoryRecord(studyRec, rec);
+        writeLock.lock();
+        try {
+            Attributes seriesRec = super.findSeriesRecord(studyRec, rec.getString(Tag.SeriesInstanceUID));
+            return seriesRec != null ? seriesRec : addLowerDirectoryRecord(studyRec, rec);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-   public synchronized boolean deleteRecord(Attributes rec)
+    public boolean deleteRecord(Attributes rec)
             throws IOException {
-        if (rec.getInt(Tag.RecordInUseFlag, 0) == INACTIVE)
-            return false; // already disabled
+        writeLock.lock();
+        try {
+            if (rec.getInt(Tag.RecordInUseFlag, 0) == INACTIVE)
+                return false; // already disabled
 
-        for (Attributes lowerRec = readLowerDirectoryRecord(rec);
-                lowerRec != null; 
-                lowerRec = readNextDirectoryRecord(lowerRec))
-            deleteRecord(lowerRec);
+            for (Attributes lowerRec = readLowerDirectoryRecord(rec);
+                    lowerRec != null; 
+                    lowerRec = readNextDirectoryRecord(lowerRec))
+                deleteRecord(lowerRec);
 
-        rec.setInt(Tag.RecordInUseFlag, VR.US, INACTIVE);
-        markAsDirty(rec);
-        return true;
+            rec.setInt(Tag.RecordInUseFlag, VR.US, INACTIVE);
+            markAsDirty(rec);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public synchronized void rollback() throws IOException {
-        if (dirtyRecords.isEmpty())
-            return;
-
-        clearCache();
-        dirtyRecords.clear();
-        if (rollbackLen != -1) {
-            restoreDirInfo();
-            nextRecordPos = rollbackLen;
-            if (getEncodingOptions().undefSequenceLength) {
-                writeSequenceDelimitationItem();
-                raf.setLength(raf.getFilePointer());
-            } else {
-                raf.setLength(rollbackLen);
+    public void rollback() throws IOException {
+        writeLock.lock();
+        try {
+            if (dirtyRecords.isEmpty())
+                return;
+
+            clearCache();
+            resetIndex();
+            dirtyRecords.clear();
+            if (rollbackLen != -1) {
+                restoreDirInfo();
+                nextRecordPos = rollbackLen;
+                if (getEncodingOptions().undefSequenceLength) {
+                    writeSequenceDelimitationItem();
+                    raf.setLength(raf.getFilePointer());
+                } else {
+                    raf.setLength(rollbackLen);
+                }
+                writeFileSetConsistencyFlag(NO_KNOWN_INCONSISTENCIES);
+                rollbackLen = -1;
             }
-            writeFileSetConsistencyFlag(NO_KNOWN_INCONSISTENCIES);
-            rollbackLen = -1;
+        } finally {
+            writeLock.unlock();
         }
     }
 
@@ -256,24 +294,30 @@ public class DicomDirWriter extends DicomDirReader {
         super.clearCache();
     }
 
-    public synchronized void commit() throws IOException {
-        if (dirtyRecords.isEmpty())
-            return;
+    public void commit() throws IOException {
+        writeLock.lock();
+        try {
+            if (dirtyRecords.isEmpty())
+                return;
 
-        if (rollbackLen == -1)
-            writeFileSetConsistencyFlag(KNOWN_INCONSISTENCIES);
+            if (rollbackLen == -1)
+                writeFileSetConsistencyFlag(KNOWN_INCONSISTENCIES);
 
-        for (Attributes rec : dirtyRecords)
-            writeDirRecordHeader(rec);
+            for (Attributes rec : dirtyRecords)
+                writeDirRecordHeader(rec);
 
-        dirtyRecords.clear();
+            dirtyRecords.clear();
+            recordCache.unpinAll();
 
-        if (rollbackLen != -1 && getEncodingOptions().undefSequenceLength)
-            writeSequenceDelimitationItem();
+            if (rollbackLen != -1 && getEncodingOptions().undefSequenceLength)
+                writeSequenceDelimitationItem();
 
-        writeDirInfoHeader();
+            writeDirInfoHeader();
 
-        rollbackLen = -1;
+            rollbackLen = -1;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
@@ -365,7 +409,9 @@ public class DicomDirWriter extends DicomDirReader {
         rec.setInt(Tag.OffsetOfReferencedLowerLevelDirectoryEntity, VR.UL, 0);
         rec.writeItemTo(out);
         nextRecordPos = (int) raf.getFilePointer();
-        cache.put(offset, rec);
+        // encoding replaced text values by their encoded form
+        rec.resolveValues();
+        recordCache.put(offset, rec);
     }
 
     private void writeFileSetConsistencyFlag(int flag) throws IOException {
@@ -386,12 +432,19 @@ public class DicomDirWriter extends DicomDirReader {
         int index = Collections.binarySearch(dirtyRecords, rec, offsetComparator);
         if (index < 0)
             dirtyRecords.add(-(index + 1), rec);
+        // keep modified records in the cache until they are committed
+        recordCache.pin((int) rec.getItemPosition(), rec);
     }
 
-    public synchronized int purge() throws IOException {
-        int[] count = { 0 };
-        purge(findFirstRootDirectoryRecordInUse(false), count);
-        return count[0];
+    public int purge() throws IOException {
+        writeLock.lock();
+        try {
+            int[] count = { 0 };
+            purge(findFirstRootDirectoryRecordInUse(false), count);
+            return count[0];
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     private boolean purge(Attributes rec, int[] count) throws IOException {
@@ -0,0 +1,176 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.media;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dcm4che3.data.Attributes;
+
+/**
+ * Concurrent cache of Directory Records by their offset, bounded by the
+ * number of records. If the maximal size is exceeded, the least recently
+ * accessed records are evicted. Pinned records - modified by a
+ * {@link DicomDirWriter}, but not yet committed - are never evicted.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+class DirectoryRecordCache {
+
+    private static final int STRIPES = 16;
+
+    private static final class Entry {
+        final Attributes rec;
+        volatile long accessTime;
+
+        Entry(Attributes rec, long accessTime) {
+            this.rec = rec;
+            this.accessTime = accessTime;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Entry> entries =
+            new ConcurrentHashMap<Integer, Entry>();
+    private final ConcurrentHashMap<Integer, Attributes> pinned =
+            new ConcurrentHashMap<Integer, Attributes>();
+    private final ReentrantLock[] loadLocks = new ReentrantLock[STRIPES];
+    private final ReentrantLock evictLock = new ReentrantLock();
+    private final AtomicLong clock = new AtomicLong();
+    private volatile int maxSize;
+
+    DirectoryRecordCache(int maxSize) {
+        setMaxSize(maxSize);
+        for (int i = 0; i < loadLocks.length; i++)
+            loadLocks[i] = new ReentrantLock();
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        this.maxSize = maxSize;
+    }
+
+    int size() {
+        return entries.size() + pinned.size();
+    }
+
+    /**
+     * Returns the lock which serializes the loading of the record at the
+     * given offset, so a record is only parsed once if several threads
+     * request it concurrently.
+     */
+    ReentrantLock loadLock(int offset) {
+        return loadLocks[(offset >>> 2) & (STRIPES - 1)];
+    }
+
+    Attributes get(int offset) {
+        Attributes rec = pinned.get(offset);
+        if (rec != null)
+            return rec;
+
+        Entry entry = entries.get(offset);
+        if (entry == null)
+            return null;
+
+        entry.accessTime = clock.incrementAndGet();
+        return entry.rec;
+    }
+
+    void put(int offset, Attributes rec) {
+        entries.put(offset, new Entry(rec, clock.incrementAndGet()));
+        evictIfNecessary();
+    }
+
+    void pin(int offset, Attributes rec) {
+        pinned.put(offset, rec);
+        entries.remove(offset);
+    }
+
+    void unpinAll() {
+        for (Iterator<Map.Entry<Integer, Attributes>> iter =
+                pinned.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<Integer, Attributes> e = iter.next();
+            entries.put(e.getKey(), new Entry(e.getValue(), clock.incrementAndGet()));
+            iter.remove();
+        }
+        evictIfNecessary();
+    }
+
+    void clear() {
+        entries.clear();
+        pinned.clear();
+    }
+
+    private void evictIfNecessary() {
+        int maxSize = this.maxSize;
+        if (maxSize == 0 || entries.size() <= maxSize || !evictLock.tryLock())
+            return;
+
+        try {
+            // evict in batches of 1/8 of the maximal size to amortize
+            // the costs of sorting the access times
+            long[] accessTimes = new long[entries.size()];
+            int n = 0;
+            for (Entry entry : entries.values()) {
+                if (n == accessTimes.length)
+                    break;
+                accessTimes[n++] = entry.accessTime;
+            }
+            int evict = n - (maxSize - (maxSize >>> 3));
+            if (evict <= 0)
+                return;
+
+            Arrays.sort(accessTimes, 0, n);
+            long threshold = accessTimes[evict - 1];
+            for (Iterator<Entry> iter = entries.values().iterator(); iter.hasNext();)
+                if (iter.next().accessTime <= threshold)
+                    iter.remove();
+        } finally {
+            evictLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.media;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.util.TagUtils;
+
+/**
+ * Index of Directory Records by Patient ID, Study, Series and Referenced
+ * SOP Instance UID in File. For each value, the offsets of the records
+ * containing it are kept together with the offsets of their parent records
+ * in the order of the records in their sibling lists, so the first record
+ * of a sibling list with a particular value and its next sibling with the
+ * same value can be found without traversing the sibling list.
+ * 
+ * <p>Lookups are lock free; {@link #add} must be serialized by the
+ * caller.</p>
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+class DirectoryRecordIndex {
+
+    private static final int[] EMPTY = {};
+
+    private final ConcurrentHashMap<String, int[]> patientIDs =
+            new ConcurrentHashMap<String, int[]>();
+    private final ConcurrentHashMap<String, int[]> studyIUIDs =
+            new ConcurrentHashMap<String, int[]>();
+    private final ConcurrentHashMap<String, int[]> seriesIUIDs =
+            new ConcurrentHashMap<String, int[]>();
+    private final ConcurrentHashMap<String, int[]> sopIUIDs =
+            new ConcurrentHashMap<String, int[]>();
+
+    private ConcurrentHashMap<String, int[]> map(int tag) {
+        switch (tag) {
+        case Tag.PatientID:
+            return patientIDs;
+        case Tag.StudyInstanceUID:
+            return studyIUIDs;
+        case Tag.SeriesInstanceUID:
+            return seriesIUIDs;
+        case Tag.ReferencedSOPInstanceUIDInFile:
+            return sopIUIDs;
+        }
+        throw new IllegalArgumentException("tag: " + TagUtils.toString(tag));
+    }
+
+    /**
+     * Adds the record, which must be the last record in the sibling list
+     * of its parent record.
+     * 
+     * @param parent offset of the parent record; 0 for root records
+     * @param rec the record
+     */
+    void add(int parent, Attributes rec) {
+        int offset = (int) rec.getItemPosition();
+        String type = rec.getString(Tag.DirectoryRecordType);
+        if ("PATIENT".equals(type))
+            add(patientIDs, rec.getStrings(Tag.PatientID), offset, parent);
+        else if ("STUDY".equals(type))
+            add(studyIUIDs, rec.getStrings(Tag.StudyInstanceUID), offset, parent);
+        else if ("SERIES".equals(type))
+            add(seriesIUIDs, rec.getStrings(Tag.SeriesInstanceUID), offset, parent);
+        add(sopIUIDs, rec.getStrings(Tag.ReferencedSOPInstanceUIDInFile),
+                offset, parent);
+    }
+
+    private static void add(ConcurrentHashMap<String, int[]> map,
+            String[] values, int offset, int parent) {
+        if (values == null)
+            return;
+
+        for (String value : values) {
+            if (value == null)
+                continue;
+
+            int[] prev = map.get(value);
+            if (prev == null)
+                prev = EMPTY;
+            int[] entries = new int[prev.length + 2];
+            System.arraycopy(prev, 0, entries, 0, prev.length);
+            entries[prev.length] = offset;
+            entries[prev.length + 1] = parent;
+            map.put(value, entries);
+        }
+    }
+
+    /**
+     * Returns the offsets of the records with the specified value, which
+     * are children of the specified parent record, in sibling list order.
+     * 
+     * @param tag indexed attribute tag
+     * @param value attribute value
+     * @param parent offset of the parent record; 0 for root records
+     * @return offsets of the records; never {@code null}
+     */
+    int[] childrenOf(int tag, String value, int parent) {
+        return filter(map(tag).get(value), 0, parent);
+    }
+
+    /**
+     * Returns the offsets of the next siblings of the specified record with
+     * the specified value, in sibling list order, or {@code null} if the
+     * specified record itself does not contain the value.
+     * 
+     * @param tag indexed attribute tag
+     * @param value attribute value
+     * @param offset offset of the record
+     * @return offsets of the records or {@code null}
+     */
+    int[] nextSiblingsOf(int tag, String value, int offset) {
+        int[] entries = map(tag).get(value);
+        if (entries != null)
+            for (int i = 0; i < entries.length; i += 2)
+                if (entries[i] == offset)
+                    return filter(entries, i + 2, entries[i + 1]);
+        return null;
+    }
+
+    /**
+     * Returns the offsets of all records with the specified value, in the
+     * order they were added, regardless of their parent records.
+     * 
+     * @param tag indexed attribute tag
+     * @param value attribute value
+     * @return offsets of the records; never {@code null}
+     */
+    int[] recordsOf(int tag, String value) {
+        int[] entries = map(tag).get(value);
+        if (entries == null)
+            return EMPTY;
+
+        int[] offsets = new int[entries.length >> 1];
+        for (int i = 0; i < offsets.length; i++)
+            offsets[i] = entries[i << 1];
+        return offsets;
+    }
+
+    /**
+     * Returns the offset of the parent record of the specified record.
+     * 
+     * @param rec the record
+     * @return offset of the parent record; 0 for root records or -1 if the
+     *         record is not indexed
+     */
+    int parentOf(Attributes rec) {
+        String type = rec.getString(Tag.DirectoryRecordType);
+        int tag = "PATIENT".equals(type) ? Tag.PatientID
+                : "STUDY".equals(type) ? Tag.StudyInstanceUID
+                : "SERIES".equals(type) ? Tag.SeriesInstanceUID
+                : Tag.ReferencedSOPInstanceUIDInFile;
+        String value = rec.getString(tag);
+        int[] entries = value != null ? map(tag).get(value) : null;
+        if (entries != null) {
+            int offset = (int) rec.getItemPosition();
+            for (int i = 0; i < entries.length; i += 2)
+                if (entries[i] == offset)
+                    return entries[i + 1];
+        }
+        return -1;
+    }
+
+    private static int[] filter(int[] entries, int from, int parent) {
+        if (entries == null)
+            return EMPTY;
+
+        int[] offsets = new int[entries.length >> 1];
+        int n = 0;
+        for (int i = from; i < entries.length; i += 2)
+            if (entries[i + 1] == parent)
+                offsets[n++] = entries[i];
+        if (n == offsets.length)
+            return offsets;
+
+        int[] tmp = new int[n];
+        System.arraycopy(offsets, 0, tmp, 0, n);
+        return tmp;
+    }
+}
@@ -0,0 +1,203 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.data;
+
+import static org.junit.Assert.*;
+
+import org.dcm4che3.util.StringUtils;
+import org.junit.Test;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class AttributesMatcherTest {
+
+    private static Attributes patient(String name, String id, String birthDate) {
+        Attributes attrs = new Attributes();
+        attrs.setString(Tag.PatientName, VR.PN, name);
+        attrs.setString(Tag.PatientID, VR.LO, id);
+        if (birthDate != null)
+            attrs.setString(Tag.PatientBirthDate, VR.DA, birthDate);
+        return attrs;
+    }
+
+    @Test
+    public void testSingleValueMatching() {
+        Attributes keys = new Attributes();
+        keys.setString(Tag.PatientID, VR.LO, "P1");
+        keys.setNull(Tag.PatientName, VR.PN);
+        AttributesMatcher matcher = new AttributesMatcher(keys, false, false);
+        assertTrue(matcher.matches(patient("Doe^John", "P1", null)));
+        assertFalse(matcher.matches(patient("Doe^John", "P2", null)));
+        assertFalse(matcher.matches(new Attributes()));
+        assertTrue(new AttributesMatcher(keys, false, true)
+                .matches(new Attributes()));
+    }
+
+    @Test
+    public void testListOfUIDMatching() {
+        Attributes keys = new Attributes();
+        keys.setString(Tag.SOPInstanceUID, VR.UI, "1.2.3", "1.2.4");
+        AttributesMatcher matcher = new AttributesMatcher(keys, false, false);
+        Attributes attrs = new Attributes();
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, "1.2.4");
+        assertTrue(matcher.matches(attrs));
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, "1.2.5");
+        assertFalse(matcher.matches(attrs));
+    }
+
+    @Test
+    public void testWildCardMatching() {
+        Attributes keys = new Attributes();
+        keys.setString(Tag.PatientName, VR.PN, "doe*");
+        assertTrue(new AttributesMatcher(keys, true, false)
+                .matches(patient("DOE^JOHN", "P1", null)));
+        assertFalse(new AttributesMatcher(keys, false, false)
+                .matches(patient("DOE^JOHN", "P1", null)));
+        keys.setString(Tag.PatientName, VR.PN, "D?E^J*N");
+        assertTrue(new AttributesMatcher(keys, false, false)
+                .matches(patient("DOE^JOHN ", "P1", null)));
+    }
+
+    @Test
+    public void testPersonNameNormalization() {
+        Attributes keys = new Attributes();
+        keys.setString(Tag.PatientName, VR.PN, "Doe ^John^^^");
+        AttributesMatcher matcher = new AttributesMatcher(keys, false, false);
+        assertTrue(matcher.matches(patient("Doe^John", "P1", null)));
+        assertTrue(matcher.matches(patient("Doe^ John=", "P1", null)));
+        assertFalse(matcher.matches(patient("Doe^Jane", "P1", null)));
+    }
+
+    @Test
+    public void testRangeMatching() {
+        Attributes keys = new Attributes();
+        keys.setString(Tag.PatientBirthDate, VR.DA, "19600101-19691231");
+        AttributesMatcher matcher = new AttributesMatcher(keys, false, false);
+        assertTrue(matcher.matches(patient("Doe^John", "P1", "19650714")));
+        assertTrue(matcher.matches(patient("Doe^John", "P1", "19691231")));
+        assertFalse(matcher.matches(patient("Doe^John", "P1", "19700101")));
+        assertFalse(matcher.matches(patient("Doe^John", "P1", null)));
+        keys.setString(Tag.PatientBirthDate, VR.DA, "19700101-");
+        assertTrue(new AttributesMatcher(keys, false, false)
+                .matches(patient("Doe^John", "P1", "19700101")));
+    }
+
+    @Test
+    public void testDateTimeWithNegativeUTCOffset() {
+        Attributes keys = new Attributes();
+        keys.setString(Tag.AcquisitionDateTime, VR.DT, "20100101120000-0500");
+        AttributesMatcher matcher = new AttributesMatcher(keys, false, false);
+        assertTrue(matcher.matches(acquisition("20100101120000-0500")));
+        assertFalse(matcher.matches(acquisition("20100101120000-0600")));
+        keys.setString(Tag.AcquisitionDateTime, VR.DT,
+                "20100101000000-0500-20100101235959-0500");
+        matcher = new AttributesMatcher(keys, false, false);
+        assertTrue(matcher.matches(acquisition("20100101120000-0500")));
+        assertFalse(matcher.matches(acquisition("20100102120000-0500")));
+        keys.setString(Tag.AcquisitionDateTime, VR.DT, "2010-2011");
+        assertTrue(new AttributesMatcher(keys, false, false)
+                .matches(acquisition("20110615120000")));
+    }
+
+    private static Attributes acquisition(String dt) {
+        Attributes attrs = new Attributes();
+        attrs.setString(Tag.AcquisitionDateTime, VR.DT, dt);
+        return attrs;
+    }
+
+    @Test
+    public void testSequenceMatching() {
+        Attributes keys = new Attributes();
+        Attributes keyItem = new Attributes();
+        keyItem.setString(Tag.CodeValue, VR.SH, "CT");
+        keys.newSequence(Tag.ModalitiesInStudy, 1);
+        keys.newSequence(Tag.ProcedureCodeSequence, 1).add(keyItem);
+        AttributesMatcher matcher = new AttributesMatcher(keys, false, false);
+        Attributes attrs = new Attributes();
+        Sequence seq = attrs.newSequence(Tag.ProcedureCodeSequence, 2);
+        Attributes item1 = new Attributes();
+        item1.setString(Tag.CodeValue, VR.SH, "MR");
+        Attributes item2 = new Attributes();
+        item2.setString(Tag.CodeValue, VR.SH, "CT");
+        seq.add(item1);
+        assertFalse(matcher.matches(attrs));
+        seq.add(item2);
+        assertTrue(matcher.matches(attrs));
+    }
+
+    @Test
+    public void testIgnoreSpecificCharacterSetAndQueryRetrieveLevel() {
+        Attributes keys = new Attributes();
+        keys.setString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+        keys.setString(Tag.QueryRetrieveLevel, VR.CS, "PATIENT");
+        keys.setString(Tag.PatientID, VR.LO, "P1");
+        assertTrue(new AttributesMatcher(keys, false, false)
+                .matches(patient("Doe^John", "P1", null)));
+    }
+
+    @Test
+    public void testMatchesWildCard() {
+        String[] keys = { "*", "?", "a*", "*a", "a?c", "a*c*", "*b*b", "??*?" };
+        String[] vals = { "", "a", "ab", "abc", "abcbb", "acbab", "bab", "ABC" };
+        for (String key : keys)
+            for (String val : vals)
+                for (boolean ignoreCase : new boolean[] { false, true })
+                    assertEquals(key + " ~ " + val,
+                            StringUtils.compilePattern(key, ignoreCase)
+                                    .matcher(val).matches(),
+                            AttributesMatcher.matchesWildCard(key, val, ignoreCase));
+    }
+
+    @Test
+    public void testIsNormalizedPN() {
+        String[] pns = { "Doe^John", "Doe^John^^Dr", "^John", "Doe=Do=D",
+                "Doe==D", "Doe^", "Doe=", " Doe", "Doe ^John", "Doe^ John",
+                "Doe^John^A^B^C^D", "A=B=C=D", "Doe^^^^", "Doe^ ^John" };
+        for (String pn : pns) {
+            boolean normalized;
+            try {
+                normalized = new PersonName(pn).toString().equals(pn);
+            } catch (IllegalArgumentException e) {
+                normalized = false;
+            }
+            assertEquals(pn, normalized, AttributesMatcher.isNormalizedPN(pn));
+        }
+    }
+}
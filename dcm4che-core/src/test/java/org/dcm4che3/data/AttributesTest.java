@@ -248,6 +248,25 @@ public class AttributesTest {
         assertEquals("010000.000-130000.000", a.getString(Tag.StudyTime));
     }
 
+    @Test
+    public void testResolveValues() {
+        Attributes item = new Attributes();
+        item.setBytes(Tag.InstanceNumber, VR.IS, "12".getBytes());
+        Attributes attrs = new Attributes();
+        attrs.setBytes(Tag.PatientID, VR.LO, "PID1".getBytes());
+        attrs.setNull(Tag.ReferencedSeriesSequence, VR.SQ);
+        attrs.newSequence(Tag.OtherPatientIDsSequence, 1).add(item);
+        attrs.resolveValues();
+        assertEquals("PID1", attrs.getString(Tag.PatientID));
+        assertSame(attrs.getSequence(Tag.ReferencedSeriesSequence),
+                attrs.getSequence(Tag.ReferencedSeriesSequence));
+        int[] is = item.getInts(Tag.InstanceNumber);
+        assertArrayEquals(new int[] { 12 }, is);
+        assertNotSame("decoded value cached", is,
+                item.getInts(Tag.InstanceNumber));
+        assertEquals("12", item.getString(Tag.InstanceNumber));
+    }
+
     @Test
     public void testGetModified() {
         Attributes original = createOriginal();
@@ -195,4 +195,17 @@ public class ElementDictionaryTest {
                                  SIEMENS_CSA_NON_IMAGE_KEYWORDS[i],
                                  SIEMENS_CSA_NON_IMAGE));
     }
+
+    @Test
+    public void testGetElementDictionary() {
+        assertEquals(SIEMENS_CSA_HEADER,
+                ElementDictionary.getElementDictionary(SIEMENS_CSA_HEADER)
+                        .getPrivateCreator());
+        assertSame(ElementDictionary.getStandardElementDictionary(),
+                ElementDictionary.getElementDictionary("UNKNOWN CREATOR"));
+        ElementDictionary.reload();
+        assertEquals(SIEMENS_CSA_NON_IMAGE,
+                ElementDictionary.getElementDictionary(SIEMENS_CSA_NON_IMAGE)
+                        .getPrivateCreator());
+    }
 }
@@ -357,4 +357,23 @@ public class SpecificCharacterSetTest {
                 gb18030().decode(CHINESE_PERSON_NAME_GB18030_BYTES));
     }
 
+    @Test
+    public void testValueOfReturnsCachedInstance() {
+        assertSame(iso8859_1(), iso8859_1());
+        assertSame(jisX0208(), jisX0208());
+        assertNotSame(iso8859_1(), iso8859_5());
+    }
+
+    @Test
+    public void testEncodeDecodeASCII() {
+        String ascii = "Doe^John=Doe^John";
+        byte[] bytes = ascii.getBytes();
+        for (SpecificCharacterSet cs : new SpecificCharacterSet[] {
+                SpecificCharacterSet.DEFAULT, iso8859_1(), utf8(),
+                jisX0208(), ksx1001() }) {
+            assertArrayEquals(bytes, cs.encode(ascii, PN_DELIMS));
+            assertEquals(ascii, cs.decode(bytes));
+        }
+    }
+
 }
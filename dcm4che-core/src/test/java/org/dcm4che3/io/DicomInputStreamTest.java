@@ -1,14 +1,32 @@
 package org.dcm4che3.io;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.MappedValue;
 import org.dcm4che3.data.Sequence;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
 import org.dcm4che3.io.DicomInputStream;
 import org.dcm4che3.io.DicomInputStream.IncludeBulkData;
+import org.dcm4che3.util.StreamUtils;
 import org.junit.Test;
 
 /**
@@ -42,14 +60,377 @@ public class DicomInputStreamTest {
         assertEquals(1, attrs.getInt(Tag.SamplesPerPixel, 0));
     }
 
+    @Test
+    public void testMapValues() throws Exception {
+        Attributes expected = readFromResource("DICOMDIR", IncludeBulkData.YES);
+        Attributes attrs = readFromResource("DICOMDIR", IncludeBulkData.YES, true);
+        assertEquals(expected, attrs);
+        Sequence seq = attrs.getSequence(null, Tag.DirectoryRecordSequence);
+        assertEquals(44, seq.size());
+        assertEquals("PATIENT", seq.get(0).getString(Tag.DirectoryRecordType));
+    }
+
+    @Test
+    public void testMapValuesBigEndian() throws Exception {
+        Attributes expected = readFromResource("US-RGB-8-epicard", IncludeBulkData.YES);
+        Attributes attrs = readFromResource("US-RGB-8-epicard", IncludeBulkData.YES, true);
+        assertEquals(expected, attrs);
+        assertEquals(3, attrs.getInt(Tag.SamplesPerPixel, 0));
+        assertArrayEquals(expected.getBytes(Tag.PixelData),
+                attrs.getBytes(Tag.PixelData));
+    }
+
+    @Test
+    public void testMapValuesThreshold() throws Exception {
+        List<Integer> mapped = readMappedTags("US-RGB-8-epicard",
+                DicomInputStream.DEF_MAP_VALUES_THRESHOLD);
+        assertEquals(Arrays.asList(Tag.PixelData), mapped);
+        assertTrue(readMappedTags("US-RGB-8-epicard", 0).size() > 1);
+    }
+
+    @Test
+    public void testConcurrentReadOfMappedValues() throws Exception {
+        Attributes expected = readFromResource("DICOMDIR", IncludeBulkData.YES);
+        Attributes attrs = readFromResource("DICOMDIR", IncludeBulkData.YES,
+                true);
+        final Sequence expectedSeq =
+                expected.getSequence(Tag.DirectoryRecordSequence);
+        final Sequence seq = attrs.getSequence(Tag.DirectoryRecordSequence);
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 100; j++)
+                            for (int k = 0; k < seq.size(); k++)
+                                if (!expectedSeq.get(k).getString(
+                                        Tag.DirectoryRecordType).equals(
+                                        seq.get(k).getString(
+                                        Tag.DirectoryRecordType)))
+                                    failures.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, failures.get());
+        assertEquals(expected, attrs);
+    }
+
+    @Test
+    public void testLazySequences() throws Exception {
+        Attributes expected = readFromResource("DICOMDIR", IncludeBulkData.YES);
+        File file = copyResourceToTempFile("DICOMDIR");
+        File moved = new File(file.getPath() + ".moved");
+        try {
+            Attributes attrs = readFromFile(file, false, true);
+            // items are not parsed until the sequence is accessed
+            assertTrue(file.renameTo(moved));
+            try {
+                attrs.getValue(Tag.DirectoryRecordSequence);
+                fail("items of sequence already parsed");
+            } catch (IllegalStateException expectedException) {}
+            assertTrue(moved.renameTo(file));
+            assertTrue(attrs.getValue(Tag.DirectoryRecordSequence) instanceof Sequence);
+            Sequence seq = attrs.getSequence(Tag.DirectoryRecordSequence);
+            assertEquals(44, seq.size());
+            assertEquals("PATIENT", seq.get(0).getString(Tag.DirectoryRecordType));
+            assertEquals(expected, attrs);
+        } finally {
+            file.delete();
+            moved.delete();
+        }
+    }
+
+    @Test
+    public void testLazySequencesOfModifiedFile() throws Exception {
+        File file = copyResourceToTempFile("DICOMDIR");
+        try {
+            Attributes attrs = readFromFile(file, false, true);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(raf.length() + 2);
+            } finally {
+                raf.close();
+            }
+            try {
+                attrs.getSequence(Tag.DirectoryRecordSequence);
+                fail("items of sequence parsed from modified file");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(),
+                        e.getMessage().contains(file.toString()));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLazySequencesWriteTo() throws Exception {
+        Attributes expected = readFromResource("DICOMDIR", IncludeBulkData.YES);
+        Attributes attrs = readFromResource("DICOMDIR", IncludeBulkData.YES,
+                false, true);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DicomOutputStream out = new DicomOutputStream(bout,
+                UID.ExplicitVRLittleEndian);
+        try {
+            out.writeDataset(null, attrs);
+        } finally {
+            out.close();
+        }
+        DicomInputStream in = new DicomInputStream(
+                new ByteArrayInputStream(bout.toByteArray()),
+                UID.ExplicitVRLittleEndian);
+        try {
+            assertEquals(expected, in.readDataset(-1, -1));
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testLazySequencesSetSpecificCharacterSet() throws Exception {
+        Attributes item = new Attributes();
+        item.setString(Tag.PatientName, VR.PN, LATIN1_NAME);
+        Attributes ds = createLatin1Dataset();
+        ds.newSequence(Tag.OtherPatientIDsSequence, 1).add(item);
+        File file = writeTempFile(ds);
+        try {
+            Attributes attrs = readFromFile(file, false, true);
+            attrs.setSpecificCharacterSet("ISO_IR 192");
+            assertEquals(LATIN1_NAME, attrs.getNestedDataset(
+                    Tag.OtherPatientIDsSequence).getString(Tag.PatientName));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLazySequencesWithMappedValues() throws Exception {
+        Attributes expected = readFromResource("DICOMDIR", IncludeBulkData.YES);
+        Attributes attrs = readFromResource("DICOMDIR", IncludeBulkData.YES,
+                true, true);
+        assertEquals(expected, attrs);
+    }
+
+    @Test
+    public void testMapValuesSetSpecificCharacterSet() throws Exception {
+        File file = writeTempFile(createLatin1Dataset());
+        try {
+            Attributes attrs = readFromFile(file, true, false);
+            attrs.setSpecificCharacterSet("ISO_IR 192");
+            assertEquals(LATIN1_NAME, attrs.getString(Tag.PatientName));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReadSelectedDataset() throws Exception {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        File file = new File(cl.getResource("US-RGB-8-epicard").toURI());
+        DicomInputStream in = new DicomInputStream(file);
+        try {
+            Attributes attrs = in.readSelectedDataset(-1,
+                    Tag.Columns, Tag.SOPInstanceUID, Tag.Rows);
+            assertEquals(3, attrs.size());
+            assertEquals(480, attrs.getInt(Tag.Rows, 0));
+            assertEquals(640, attrs.getInt(Tag.Columns, 0));
+            assertTrue(in.getPosition() < file.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testReadSelectedDatasetWithNestedSequence() throws Exception {
+        Attributes nested = new Attributes();
+        nested.setString(Tag.CodeValue, VR.SH, "CODE");
+        Attributes item = new Attributes();
+        item.setString(Tag.PatientID, VR.LO, "PID");
+        item.newSequence(Tag.IssuerOfPatientIDQualifiersSequence, 1)
+                .add(nested);
+        Attributes ds = createLatin1Dataset();
+        ds.newSequence(Tag.OtherPatientIDsSequence, 1).add(item);
+        ds.setString(Tag.PatientID, VR.LO, "PID0");
+        File file = writeTempFile(ds);
+        try {
+            DicomInputStream in = new DicomInputStream(file);
+            try {
+                Attributes attrs = in.readSelectedDataset(-1,
+                        Tag.OtherPatientIDsSequence);
+                assertEquals(2, attrs.size());
+                Attributes readItem = attrs.getNestedDataset(
+                        Tag.OtherPatientIDsSequence);
+                assertEquals(item, readItem);
+                assertEquals("CODE", readItem.getNestedDataset(
+                        Tag.IssuerOfPatientIDQualifiersSequence)
+                        .getString(Tag.CodeValue));
+                assertFalse(attrs.contains(Tag.PatientName));
+            } finally {
+                in.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReadSelectedDatasetSpecificCharacterSet() throws Exception {
+        File file = writeTempFile(createLatin1Dataset());
+        try {
+            DicomInputStream in = new DicomInputStream(file);
+            try {
+                Attributes attrs = in.readSelectedDataset(-1, Tag.PatientName);
+                assertEquals(2, attrs.size());
+                assertEquals("ISO_IR 100",
+                        attrs.getString(Tag.SpecificCharacterSet));
+                assertEquals(LATIN1_NAME, attrs.getString(Tag.PatientName));
+            } finally {
+                in.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReadSelectedDatasetByPredicate() throws Exception {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        File file = new File(cl.getResource("US-RGB-8-epicard").toURI());
+        DicomInputStream in = new DicomInputStream(file);
+        try {
+            Attributes attrs = in.readSelectedDataset(-1,
+                    new AttributeSelection() {
+
+                @Override
+                public boolean isSelected(int tag, VR vr) {
+                    return vr == VR.US;
+                }
+
+                @Override
+                public int getLastTag() {
+                    return Tag.PixelRepresentation;
+                }
+            });
+            assertEquals(3, attrs.getInt(Tag.SamplesPerPixel, 0));
+            assertEquals(480, attrs.getInt(Tag.Rows, 0));
+            assertEquals(640, attrs.getInt(Tag.Columns, 0));
+            assertFalse(attrs.contains(Tag.SOPInstanceUID));
+            assertFalse(attrs.contains(Tag.PixelData));
+            assertTrue(in.getPosition() < file.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static final String LATIN1_NAME = "M\u00fcller^Hans";
+
+    private static Attributes createLatin1Dataset() {
+        Attributes attrs = new Attributes();
+        attrs.setString(Tag.SpecificCharacterSet, VR.CS, "ISO_IR 100");
+        attrs.setString(Tag.SOPClassUID, VR.UI, UID.SecondaryCaptureImageStorage);
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4");
+        attrs.setString(Tag.PatientName, VR.PN, LATIN1_NAME);
+        return attrs;
+    }
+
+    private static File copyResourceToTempFile(String name) throws Exception {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        File file = File.createTempFile("test", ".dcm");
+        InputStream in = cl.getResourceAsStream(name);
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                StreamUtils.copy(in, out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        return file;
+    }
+
+    private static File writeTempFile(Attributes attrs) throws Exception {
+        File file = File.createTempFile("test", ".dcm");
+        DicomOutputStream out = new DicomOutputStream(file);
+        try {
+            out.writeDataset(attrs.createFileMetaInformation(
+                    UID.ExplicitVRLittleEndian), attrs);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static Attributes readFromFile(File file, boolean mapValues,
+            boolean lazySequences) throws Exception {
+        DicomInputStream in = new DicomInputStream(file);
+        try {
+            in.setMapValues(mapValues);
+            in.setMapValuesThreshold(0);
+            in.setLazySequences(lazySequences);
+            return in.readDataset(-1, -1);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<Integer> readMappedTags(String name, int threshold)
+            throws Exception {
+        final List<Integer> mapped = new ArrayList<Integer>();
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        DicomInputStream in = new DicomInputStream(
+                new File(cl.getResource(name).toURI()));
+        try {
+            in.setIncludeBulkData(IncludeBulkData.YES);
+            in.setMapValues(true);
+            in.setMapValuesThreshold(threshold);
+            in.readFileMetaInformation();
+            in.readAttributes(new Attributes(in.bigEndian(), 64) {
+                @Override
+                public Object setValue(int tag, VR vr, Object value) {
+                    if (value instanceof MappedValue)
+                        mapped.add(tag);
+                    return super.setValue(tag, vr, value);
+                }
+            }, -1, -1);
+        } finally {
+            in.close();
+        }
+        return mapped;
+    }
+
     private static Attributes readFromResource(String name, 
             IncludeBulkData includeBulkData)
             throws Exception {
+        return readFromResource(name, includeBulkData, false);
+    }
+
+    private static Attributes readFromResource(String name, 
+            IncludeBulkData includeBulkData, boolean mapValues)
+            throws Exception {
+        return readFromResource(name, includeBulkData, mapValues, false);
+    }
+
+    private static Attributes readFromResource(String name, 
+            IncludeBulkData includeBulkData, boolean mapValues,
+            boolean lazySequences) throws Exception {
         ClassLoader cl = Thread.currentThread().getContextClassLoader();
         DicomInputStream in = new DicomInputStream(
                 new File(cl.getResource(name).toURI()));
         try {
             in.setIncludeBulkData(includeBulkData);
+            in.setMapValues(mapValues);
+            in.setMapValuesThreshold(0);
+            in.setLazySequences(lazySequences);
             return in.readDataset(-1, -1);
         } finally {
             in.close();
@@ -4,8 +4,18 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
 import org.dcm4che3.media.DicomDirReader;
 import org.junit.Test;
 
@@ -43,6 +53,158 @@ public class DicomDirReaderTest {
         }
     }
 
+    @Test
+    public void testReadAllWithBoundedCache() throws Exception {
+        DicomDirReader r = new DicomDirReader(toFile("DICOMDIR"));
+        try {
+            r.setMaxCacheSize(8);
+            assertEquals(44, readNext(r, r.readFirstRootDirectoryRecord()));
+            assertTrue(r.recordCache.size() <= 8);
+        } finally {
+            r.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentReadAll() throws Exception {
+        final DicomDirReader r = new DicomDirReader(toFile("DICOMDIR"));
+        try {
+            r.setMaxCacheSize(16);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 16; i++)
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return readNext(r, r.readFirstRootDirectoryRecord());
+                    }
+                }));
+            executor.shutdown();
+            for (Future<Integer> result : results)
+                assertEquals(44, result.get().intValue());
+        } finally {
+            r.close();
+        }
+    }
+
+    @Test
+    public void testReadBlockedByWriter() throws Exception {
+        final DicomDirReader r = new DicomDirReader(toFile("DICOMDIR"));
+        try {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<Integer> result;
+            r.writeLock.lock();
+            try {
+                result = executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return readNext(r, r.readFirstRootDirectoryRecord());
+                    }
+                });
+                try {
+                    result.get(200, TimeUnit.MILLISECONDS);
+                    fail("read not blocked by writer");
+                } catch (TimeoutException expected) {}
+            } finally {
+                r.writeLock.unlock();
+            }
+            executor.shutdown();
+            assertEquals(44, result.get().intValue());
+        } finally {
+            r.close();
+        }
+    }
+
+    @Test
+    public void testReadAllAfterInterruptedRead() throws Exception {
+        DicomDirReader r = new DicomDirReader(toFile("DICOMDIR"));
+        try {
+            Thread.currentThread().interrupt();
+            try {
+                r.readFirstRootDirectoryRecord();
+                fail("read not interrupted");
+            } catch (ClosedByInterruptException expected) {
+                assertTrue("interrupt status restored", Thread.interrupted());
+            }
+            assertEquals(44, readNext(r, r.readFirstRootDirectoryRecord()));
+        } finally {
+            Thread.interrupted();
+            r.close();
+        }
+    }
+
+    @Test
+    public void testIndexedFind() throws Exception {
+        DicomDirReader r = new DicomDirReader(toFile("DICOMDIR"));
+        DicomDirReader indexed = new DicomDirReader(toFile("DICOMDIR"));
+        try {
+            indexed.setIndexed(true);
+            assertEquals(44, assertIndexedFind(r, indexed));
+        } finally {
+            r.close();
+            indexed.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFindInstanceRecordNotIndexed() throws Exception {
+        DicomDirReader r = new DicomDirReader(toFile("DICOMDIR"));
+        try {
+            r.findInstanceRecord(false, "1.2.3");
+        } finally {
+            r.close();
+        }
+    }
+
+    private int assertIndexedFind(DicomDirReader r, DicomDirReader indexed)
+            throws IOException {
+        int count = 0;
+        for (Attributes pat = r.findPatientRecord(); pat != null;
+                pat = r.findNextPatientRecord(pat)) {
+            String pid = pat.getString(Tag.PatientID);
+            assertSameRecord(r.findPatientRecord(pid), indexed.findPatientRecord(pid));
+            assertSameRecord(r.findNextPatientRecord(pat, pid),
+                    indexed.findNextPatientRecord(pat, pid));
+            assertNull(indexed.findParentRecord(pat));
+            count++;
+            for (Attributes study = r.findStudyRecord(pat); study != null;
+                    study = r.findNextStudyRecord(study)) {
+                String suid = study.getString(Tag.StudyInstanceUID);
+                assertSameRecord(r.findStudyRecord(pat, suid),
+                        indexed.findStudyRecord(pat, suid));
+                assertSameRecord(pat, indexed.findParentRecord(study));
+                count++;
+                for (Attributes series = r.findSeriesRecord(study); series != null;
+                        series = r.findNextSeriesRecord(series)) {
+                    String seuid = series.getString(Tag.SeriesInstanceUID);
+                    assertSameRecord(r.findSeriesRecord(study, seuid),
+                            indexed.findSeriesRecord(study, seuid));
+                    assertSameRecord(study, indexed.findParentRecord(series));
+                    count++;
+                    for (Attributes inst = r.findLowerInstanceRecord(series, false);
+                            inst != null; inst = r.findNextInstanceRecord(inst, false)) {
+                        String iuid = inst.getString(Tag.ReferencedSOPInstanceUIDInFile);
+                        assertSameRecord(r.findLowerInstanceRecord(series, false, iuid),
+                                indexed.findLowerInstanceRecord(series, false, iuid));
+                        assertNull(indexed.findNextInstanceRecord(inst, false, iuid));
+                        assertNull(indexed.findRootInstanceRecord(false, iuid));
+                        assertSameRecord(inst, indexed.findInstanceRecord(false, iuid));
+                        assertSameRecord(series, indexed.findParentRecord(inst));
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void assertSameRecord(Attributes expected, Attributes actual) {
+        if (expected == null)
+            assertNull(actual);
+        else
+            assertEquals(expected.getItemPosition(), actual.getItemPosition());
+    }
+
     private int readNext(DicomDirReader r, Attributes rec) throws IOException {
         int count = 0;
         while (rec != null) {
@@ -4,6 +4,8 @@ public class ByteLookupTable extends LookupTable {
 
     private final byte[] lut;
 
+    private byte[] fused;
+
     ByteLookupTable(StoredValue inBits, int outBits, int offset, byte[] lut) {
         super(inBits, outBits, offset);
         this.lut = lut;
@@ -29,6 +31,13 @@ public class ByteLookupTable extends LookupTable {
 
     @Override
     public void lookup(byte[] src, int srcPos, byte[] dest, int destPos, int length) {
+        byte[] fused = this.fused;
+        if (fused != null) {
+            int mask = fused.length - 1;
+            for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
+                dest[j++] = fused[src[i++] & mask];
+            return;
+        }
         for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
             dest[j++] = lut[index(src[i++])];
     }
@@ -38,26 +47,59 @@ public class ByteLookupTable extends LookupTable {
         return Math.min(Math.max(0, index), lut.length-1);
     }
 
+    @Override
+    protected void fuse() {
+        if (fused != null)
+            return;
+
+        byte[] fused = new byte[fusedLength()];
+        for (int i = 0; i < fused.length; i++)
+            fused[i] = lut[index(i)];
+        this.fused = fused;
+    }
+
     @Override
     public void lookup(short[] src, int srcPos, byte[] dest, int destPos, int length) {
+        byte[] fused = this.fused;
+        if (fused != null) {
+            int mask = fused.length - 1;
+            for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
+                dest[j++] = fused[src[i++] & mask];
+            return;
+        }
         for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
             dest[j++] = lut[index(src[i++])];
     }
 
     @Override
     public void lookup(byte[] src, int srcPos, short[] dest, int destPos, int length) {
+        byte[] fused = this.fused;
+        if (fused != null) {
+            int mask = fused.length - 1;
+            for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
+                dest[j++] = (short) (fused[src[i++] & mask] & 0xff);
+            return;
+        }
         for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
             dest[j++] = (short) (lut[index(src[i++])] & 0xff);
     }
 
     @Override
     public void lookup(short[] src, int srcPos, short[] dest, int destPos, int length) {
+        byte[] fused = this.fused;
+        if (fused != null) {
+            int mask = fused.length - 1;
+            for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
+                dest[j++] = (short) (fused[src[i++] & mask] & 0xff);
+            return;
+        }
         for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
             dest[j++] = (short) (lut[index(src[i++])] & 0xff);
     }
 
     @Override
     public LookupTable adjustOutBits(int outBits) {
+        fused = null;
         int diff = outBits - this.outBits;
         if (diff != 0) {
             byte[] lut = this.lut;
@@ -81,6 +123,7 @@ public class ByteLookupTable extends LookupTable {
 
     @Override
     public void inverse() {
+        fused = null;
         byte[] lut = this.lut;
         int maxOut = (1<<outBits)-1;
         for (int i = 0; i < lut.length; i++)
@@ -90,6 +133,7 @@ public class ByteLookupTable extends LookupTable {
 
     @Override
     public LookupTable combine(LookupTable other) {
+        fused = null;
         byte[] lut = this.lut;
         if (other.outBits > 8) {
             short[] ss = new short[lut.length];
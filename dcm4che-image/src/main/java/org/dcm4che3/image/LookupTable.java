@@ -63,6 +63,23 @@ public abstract class LookupTable {
 
     public abstract int length();
 
+    /**
+     * Returns the length of the table built by {@link #fuse()}, covering all
+     * possible stored values.
+     */
+    protected int fusedLength() {
+        return inBits.maxValue() - inBits.minValue() + 1;
+    }
+
+    /**
+     * Builds a table directly indexed by the pixel value masked to the bits
+     * stored, which includes the sign extension of signed values, the
+     * offset and the clamping to the table bounds, so each pixel is looked
+     * up by a single array access. The table is discarded by any
+     * modification of this LUT.
+     */
+    protected abstract void fuse();
+
     public void lookup(Raster srcRaster, Raster destRaster) {
         ComponentSampleModel sm =
                 (ComponentSampleModel) srcRaster.getSampleModel();
@@ -70,6 +87,9 @@ public abstract class LookupTable {
                 (ComponentSampleModel) destRaster.getSampleModel();
         DataBuffer src = srcRaster.getDataBuffer();
         DataBuffer dest = destRaster.getDataBuffer();
+        int fusedLength = fusedLength();
+        if (fusedLength > 0 && fusedLength <= sm.getWidth() * sm.getHeight())
+            fuse();
         switch (src.getDataType()) {
         case DataBuffer.TYPE_BYTE:
             switch (dest.getDataType()) {
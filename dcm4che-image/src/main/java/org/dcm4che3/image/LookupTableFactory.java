@@ -65,6 +65,9 @@ public class LookupTableFactory {
     private LookupTable voiLUT;
     private LookupTable presentationLUT;
     private boolean inverse;
+    private Attributes modalityLUTAttrs;
+    private Attributes voiLUTAttrs;
+    private Attributes presentationLUTAttrs;
 
     public LookupTableFactory(StoredValue storedValue) {
         this.storedValue = storedValue;
@@ -73,8 +76,8 @@ public class LookupTableFactory {
     public void setModalityLUT(Attributes attrs) {
         rescaleIntercept = attrs.getFloat(Tag.RescaleIntercept, 0);
         rescaleSlope = attrs.getFloat(Tag.RescaleSlope, 1);
-        modalityLUT = createLUT(storedValue,
-                attrs.getNestedDataset(Tag.ModalityLUTSequence));
+        modalityLUTAttrs = attrs.getNestedDataset(Tag.ModalityLUTSequence);
+        modalityLUT = createLUT(storedValue, modalityLUTAttrs);
     }
 
     public void setPresentationLUT(Attributes attrs) {
@@ -86,6 +89,7 @@ public class LookupTableFactory {
                 presentationLUT = createLUT(new StoredValue.Unsigned(log2(len)), 
                         resetOffset(desc), 
                         pLUT.getSafeBytes(Tag.LUTData), pLUT.bigEndian());
+                presentationLUTAttrs = pLUT;
             }
         } else {
             String pShape = attrs.getString(Tag.PresentationLUTShape);
@@ -132,11 +136,13 @@ public class LookupTableFactory {
                 return;
             }
         }
-        if (vLUT != null)
+        if (vLUT != null) {
             voiLUT = createLUT(modalityLUT != null
                           ? new StoredValue.Unsigned(modalityLUT.outBits)
                           : storedValue,
                       vLUT);
+            voiLUTAttrs = vLUT;
+        }
     }
 
     private LookupTable createLUT(StoredValue inBits, Attributes attrs) {
@@ -208,6 +214,91 @@ public class LookupTableFactory {
         return lut;
     }
 
+    /**
+     * Returns a key identifying the LUT, which would be returned by
+     * {@link #createLUT(int)} with the current parameters, so created LUTs
+     * can be cached and reused for frames with equal parameters. LUTs
+     * specified by Modality, VOI or Presentation LUT Sequence Items are
+     * distinguished by the identity of the Items.
+     * 
+     * @param outBits number of output bits
+     * @return key identifying the LUT
+     */
+    public Object createLUTKey(int outBits) {
+        return new Key(storedValue, rescaleSlope, rescaleIntercept,
+                modalityLUTAttrs, windowCenter, windowWidth, voiLUTAttrs,
+                presentationLUTAttrs, inverse, outBits);
+    }
+
+    private static final class Key {
+        private final StoredValue storedValue;
+        private final float rescaleSlope;
+        private final float rescaleIntercept;
+        private final Attributes modalityLUT;
+        private final float windowCenter;
+        private final float windowWidth;
+        private final Attributes voiLUT;
+        private final Attributes presentationLUT;
+        private final boolean inverse;
+        private final int outBits;
+        private final int hash;
+
+        Key(StoredValue storedValue, float rescaleSlope,
+                float rescaleIntercept, Attributes modalityLUT,
+                float windowCenter, float windowWidth, Attributes voiLUT,
+                Attributes presentationLUT, boolean inverse, int outBits) {
+            this.storedValue = storedValue;
+            this.rescaleSlope = rescaleSlope;
+            this.rescaleIntercept = rescaleIntercept;
+            this.modalityLUT = modalityLUT;
+            this.windowCenter = windowCenter;
+            this.windowWidth = windowWidth;
+            this.voiLUT = voiLUT;
+            this.presentationLUT = presentationLUT;
+            this.inverse = inverse;
+            this.outBits = outBits;
+            int h = storedValue.hashCode();
+            h = 31 * h + Float.floatToIntBits(rescaleSlope);
+            h = 31 * h + Float.floatToIntBits(rescaleIntercept);
+            h = 31 * h + System.identityHashCode(modalityLUT);
+            h = 31 * h + Float.floatToIntBits(windowCenter);
+            h = 31 * h + Float.floatToIntBits(windowWidth);
+            h = 31 * h + System.identityHashCode(voiLUT);
+            h = 31 * h + System.identityHashCode(presentationLUT);
+            h = 31 * h + (inverse ? 1 : 0);
+            this.hash = 31 * h + outBits;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return hash == other.hash
+                    && storedValue.equals(other.storedValue)
+                    && Float.floatToIntBits(rescaleSlope)
+                        == Float.floatToIntBits(other.rescaleSlope)
+                    && Float.floatToIntBits(rescaleIntercept)
+                        == Float.floatToIntBits(other.rescaleIntercept)
+                    && modalityLUT == other.modalityLUT
+                    && Float.floatToIntBits(windowCenter)
+                        == Float.floatToIntBits(other.windowCenter)
+                    && Float.floatToIntBits(windowWidth)
+                        == Float.floatToIntBits(other.windowWidth)
+                    && voiLUT == other.voiLUT
+                    && presentationLUT == other.presentationLUT
+                    && inverse == other.inverse
+                    && outBits == other.outBits;
+        }
+    }
+
     private static int log2(int value) {
         int i = 0;
         while ((value>>>i) != 0)
@@ -290,13 +381,16 @@ public class LookupTableFactory {
         int w = sm.getWidth();
         int h = sm.getHeight();
         int stride = sm.getScanlineStride();
+        // flipping the sign bit of masked signed values preserves their order
+        int mask = storedValue.maxValue() - storedValue.minValue();
+        int signBit = -storedValue.minValue();
         for (int y = 0; y < h; y++)
             for (int i = y * stride, end = i + w; i < end;) {
-                int val = storedValue.valueOf(data[i++]);
+                int val = (data[i++] & mask) ^ signBit;
                 if (val < min) min = val;
                 if (val > max) max = val;
             }
-        return new int[] { min, max };
+        return new int[] { min - signBit, max - signBit };
     }
 
     private int[] calcMinMax(StoredValue storedValue, ComponentSampleModel sm,
@@ -306,13 +400,16 @@ public class LookupTableFactory {
         int w = sm.getWidth();
         int h = sm.getHeight();
         int stride = sm.getScanlineStride();
+        // flipping the sign bit of masked signed values preserves their order
+        int mask = storedValue.maxValue() - storedValue.minValue();
+        int signBit = -storedValue.minValue();
         for (int y = 0; y < h; y++)
             for (int i = y * stride, end = i + w; i < end;) {
-                int val = storedValue.valueOf(data[i++]);
+                int val = (data[i++] & mask) ^ signBit;
                 if (val < min) min = val;
                 if (val > max) max = val;
             }
-        return new int[] { min, max };
+        return new int[] { min - signBit, max - signBit };
     }
 
 }
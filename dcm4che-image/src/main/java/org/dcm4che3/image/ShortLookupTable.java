@@ -4,6 +4,8 @@ public class ShortLookupTable extends LookupTable {
 
     private final short[] lut;
 
+    private short[] fused;
+
     ShortLookupTable(StoredValue inBits, int outBits, int offset, short[] lut) {
         super(inBits, outBits, offset);
         this.lut = lut;
@@ -29,6 +31,13 @@ public class ShortLookupTable extends LookupTable {
 
     @Override
     public void lookup(byte[] src, int srcPos, byte[] dest, int destPos, int length) {
+        short[] fused = this.fused;
+        if (fused != null) {
+            int mask = fused.length - 1;
+            for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
+                dest[j++] = (byte) fused[src[i++] & mask];
+            return;
+        }
         for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
             dest[j++] = (byte) lut[index(src[i++] & 0xff)];
     }
@@ -38,26 +47,59 @@ public class ShortLookupTable extends LookupTable {
         return Math.min(Math.max(0, index), lut.length-1);
     }
 
+    @Override
+    protected void fuse() {
+        if (fused != null)
+            return;
+
+        short[] fused = new short[fusedLength()];
+        for (int i = 0; i < fused.length; i++)
+            fused[i] = lut[index(i)];
+        this.fused = fused;
+    }
+
     @Override
     public void lookup(short[] src, int srcPos, byte[] dest, int destPos, int length) {
+        short[] fused = this.fused;
+        if (fused != null) {
+            int mask = fused.length - 1;
+            for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
+                dest[j++] = (byte) fused[src[i++] & mask];
+            return;
+        }
         for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
             dest[j++] = (byte) lut[index(src[i++] & 0xffff)];
     }
 
     @Override
     public void lookup(byte[] src, int srcPos, short[] dest, int destPos, int length) {
+        short[] fused = this.fused;
+        if (fused != null) {
+            int mask = fused.length - 1;
+            for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
+                dest[j++] = fused[src[i++] & mask];
+            return;
+        }
         for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
             dest[j++] = lut[index(src[i++] & 0xff)];
     }
 
     @Override
     public void lookup(short[] src, int srcPos, short[] dest, int destPos, int length) {
+        short[] fused = this.fused;
+        if (fused != null) {
+            int mask = fused.length - 1;
+            for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
+                dest[j++] = fused[src[i++] & mask];
+            return;
+        }
         for (int i = srcPos, endPos = srcPos + length, j = destPos; i < endPos;)
             dest[j++] = lut[index(src[i++] & 0xffff)];
     }
 
     @Override
     public LookupTable adjustOutBits(int outBits) {
+        fused = null;
         int diff = outBits - this.outBits;
         if (diff != 0) {
             short[] lut = this.lut;
@@ -75,6 +117,7 @@ public class ShortLookupTable extends LookupTable {
 
     @Override
     public void inverse() {
+        fused = null;
         short[] lut = this.lut;
         int maxOut = (1<<outBits)-1;
         for (int i = 0; i < lut.length; i++)
@@ -83,6 +126,7 @@ public class ShortLookupTable extends LookupTable {
 
     @Override
     public LookupTable combine(LookupTable other) {
+        fused = null;
         short[] lut = this.lut;
         other.lookup(lut, 0, lut, 0, lut.length);
         this.outBits = other.outBits;
@@ -0,0 +1,248 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.image;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import javax.imageio.ImageTypeSpecifier;
+
+import org.dcm4che3.data.Attributes;
+import org.junit.Test;
+
+/**
+ * Compares the lookup by fused LUTs with the lookup by unfused LUTs, and
+ * the minimum and maximum pixel values of auto windowing with the stored
+ * values returned by {@link StoredValue#valueOf}.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class LookupTableTest {
+
+    private static final int OFFSET = -100;
+    private static final int SIZE = 1000;
+
+    @Test
+    public void testFusedUnsigned12() {
+        assertFusedEqualsUnfused(new StoredValue.Unsigned(12));
+    }
+
+    @Test
+    public void testFusedSigned12() {
+        assertFusedEqualsUnfused(new StoredValue.Signed(12));
+    }
+
+    @Test
+    public void testFusedUnsigned7() {
+        assertFusedEqualsUnfused(new StoredValue.Unsigned(7));
+    }
+
+    @Test
+    public void testFusedSigned7() {
+        assertFusedEqualsUnfused(new StoredValue.Signed(7));
+    }
+
+    @Test
+    public void testRasterLookupSigned12() {
+        StoredValue storedValue = new StoredValue.Signed(12);
+        WritableRaster src = ImageTypeSpecifier.createGrayscale(
+                16, DataBuffer.TYPE_SHORT, true)
+                .createBufferedImage(256, 256).getRaster();
+        short[] data = ((DataBufferShort) src.getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i++)
+            data[i] = (short) i;
+        LookupTable lut = new ByteLookupTable(storedValue, 8, OFFSET, SIZE,
+                false);
+        WritableRaster dest = new BufferedImage(256, 256,
+                BufferedImage.TYPE_BYTE_GRAY).getRaster();
+        lut.lookup(src, dest);
+        for (int i = 0; i < data.length; i++)
+            assertEquals("pixel value: " + i, expected(storedValue, i, 8),
+                    dest.getSample(i & 0xff, i >> 8, 0));
+    }
+
+    @Test
+    public void testAutoWindowingUnsigned12() {
+        assertAutoWindowing(new StoredValue.Unsigned(12),
+                DataBuffer.TYPE_USHORT);
+    }
+
+    @Test
+    public void testAutoWindowingSigned12() {
+        assertAutoWindowing(new StoredValue.Signed(12),
+                DataBuffer.TYPE_SHORT);
+    }
+
+    @Test
+    public void testAutoWindowingSigned12InUShort() {
+        assertAutoWindowing(new StoredValue.Signed(12),
+                DataBuffer.TYPE_USHORT);
+    }
+
+    @Test
+    public void testCreateLUTKey() {
+        LookupTableFactory f1 = new LookupTableFactory(
+                new StoredValue.Signed(12));
+        LookupTableFactory f2 = new LookupTableFactory(
+                new StoredValue.Signed(12));
+        f1.setWindowCenter(40);
+        f1.setWindowWidth(400);
+        f2.setWindowCenter(40);
+        f2.setWindowWidth(400);
+        assertEquals(f1.createLUTKey(8), f2.createLUTKey(8));
+        assertEquals(f1.createLUTKey(8).hashCode(),
+                f2.createLUTKey(8).hashCode());
+        assertFalse(f1.createLUTKey(8).equals(f1.createLUTKey(16)));
+        f2.setWindowWidth(401);
+        assertFalse(f1.createLUTKey(8).equals(f2.createLUTKey(8)));
+        assertFalse(f1.createLUTKey(8).equals(new LookupTableFactory(
+                new StoredValue.Unsigned(12)).createLUTKey(8)));
+    }
+
+    private static int expected(StoredValue storedValue, int pixel,
+            int outBits) {
+        int maxOut = (1 << outBits) - 1;
+        int index = Math.min(Math.max(0,
+                storedValue.valueOf(pixel) - OFFSET), SIZE - 1);
+        return (index * maxOut + (SIZE - 1) / 2) / (SIZE - 1);
+    }
+
+    /**
+     * Looks up all 16 bit pixel values - including values with bits set
+     * above Bits Stored - by unfused and fused Byte and Short LUTs.
+     */
+    private static void assertFusedEqualsUnfused(StoredValue storedValue) {
+        short[] src = new short[0x10000];
+        for (int i = 0; i < src.length; i++)
+            src[i] = (short) i;
+        byte[] bsrc = new byte[0x100];
+        for (int i = 0; i < bsrc.length; i++)
+            bsrc[i] = (byte) i;
+
+        LookupTable[] luts = {
+                new ByteLookupTable(storedValue, 8, OFFSET, SIZE, false),
+                new ShortLookupTable(storedValue, 12, OFFSET, SIZE, false) };
+        for (LookupTable lut : luts) {
+            int outBits = lut.outBits;
+            byte[] bb = new byte[bsrc.length];
+            short[] bs = new short[bsrc.length];
+            byte[] sb = new byte[src.length];
+            short[] ss = new short[src.length];
+            lut.lookup(bsrc, 0, bb, 0, bsrc.length);
+            lut.lookup(bsrc, 0, bs, 0, bsrc.length);
+            lut.lookup(src, 0, sb, 0, src.length);
+            lut.lookup(src, 0, ss, 0, src.length);
+            for (int i = 0; i < src.length; i++)
+                assertEquals("pixel value: " + i,
+                        expected(storedValue, i, outBits), ss[i] & 0xffff);
+
+            lut.fuse();
+            byte[] fbb = new byte[bsrc.length];
+            short[] fbs = new short[bsrc.length];
+            byte[] fsb = new byte[src.length];
+            short[] fss = new short[src.length];
+            lut.lookup(bsrc, 0, fbb, 0, bsrc.length);
+            lut.lookup(bsrc, 0, fbs, 0, bsrc.length);
+            lut.lookup(src, 0, fsb, 0, src.length);
+            lut.lookup(src, 0, fss, 0, src.length);
+            String name = lut.getClass().getSimpleName();
+            if (storedValue.maxValue() - storedValue.minValue() < 0x100) {
+                assertArrayEquals(name + " byte -> byte", bb, fbb);
+                assertArrayEquals(name + " byte -> short", bs, fbs);
+            }
+            assertArrayEquals(name + " short -> byte", sb, fsb);
+            assertArrayEquals(name + " short -> short", ss, fss);
+        }
+    }
+
+    /**
+     * Fills a raster with random values, including bits set above Bits
+     * Stored, and compares the LUT created after auto windowing with the
+     * LUT for the window given by the minimal and maximal stored value.
+     */
+    private static void assertAutoWindowing(StoredValue storedValue,
+            int dataType) {
+        WritableRaster raster = ImageTypeSpecifier.createGrayscale(16,
+                dataType, dataType == DataBuffer.TYPE_SHORT)
+                .createBufferedImage(64, 64).getRaster();
+        DataBuffer db = raster.getDataBuffer();
+        short[] data = dataType == DataBuffer.TYPE_SHORT
+                ? ((DataBufferShort) db).getData()
+                : ((DataBufferUShort) db).getData();
+        Random rnd = new Random(0);
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < data.length; i++) {
+            // restrict range to distinguish the window from the full range
+            int val = storedValue.valueOf(rnd.nextInt(3000) - 1000);
+            data[i] = (short) (val & 0xfff | 0xa000);
+            val = storedValue.valueOf(data[i]);
+            if (val < min) min = val;
+            if (val > max) max = val;
+        }
+
+        LookupTableFactory auto = new LookupTableFactory(storedValue);
+        assertTrue(auto.autoWindowing(new Attributes(), raster));
+        LookupTableFactory expected = new LookupTableFactory(storedValue);
+        expected.setWindowCenter((min + max + 1) / 2);
+        expected.setWindowWidth(max + 1 - min);
+        assertEquals(expected.createLUTKey(8), auto.createLUTKey(8));
+        assertLookupEquals(expected.createLUT(8), auto.createLUT(8), raster);
+    }
+
+    private static void assertLookupEquals(LookupTable expected,
+            LookupTable actual, Raster raster) {
+        WritableRaster expectedDest = new BufferedImage(raster.getWidth(),
+                raster.getHeight(), BufferedImage.TYPE_BYTE_GRAY).getRaster();
+        WritableRaster actualDest = new BufferedImage(raster.getWidth(),
+                raster.getHeight(), BufferedImage.TYPE_BYTE_GRAY).getRaster();
+        expected.lookup(raster, expectedDest);
+        actual.lookup(raster, actualDest);
+        for (int y = 0; y < raster.getHeight(); y++)
+            for (int x = 0; x < raster.getWidth(); x++)
+                assertEquals(expectedDest.getSample(x, y, 0),
+                        actualDest.getSample(x, y, 0));
+    }
+}
@@ -46,8 +46,8 @@ import java.awt.image.DataBufferUShort;
 import java.awt.image.Raster;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
-import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import javax.imageio.ImageReadParam;
@@ -80,15 +80,11 @@ public class RLEImageReader extends ImageReader {
 
     private final int[] header = new int[16];
 
-    private final byte[] buf = new byte[8192];
+    private final byte[] headerBytes = new byte[64];
 
-    private long headerPos;
-
-    private long bufOff;
+    private byte[] buf = {};
 
-    private int bufPos;
-
-    private int bufLen;
+    private long headerPos;
 
     private ImageInputStream iis;
 
@@ -242,134 +238,129 @@ public class RLEImageReader extends ImageReader {
 
     private void read(short[] data) throws IOException {
         readRLEHeader(2);
-        unrle(1, data);
-        unrle(2, data);
-    }
-
-    private void seekSegment(int seg) throws IOException {
-        long streamPos = headerPos + (header[seg] & 0xffffffffL);
-        int bufPos = (int) (streamPos - bufOff);
-        if (bufPos >= 0 && bufPos <= bufLen)
-            this.bufPos = bufPos;
-        else {
-            iis.seek(streamPos);
-            this.bufPos = bufLen; // force fillBuffer on nextByte()
-        }
+        unrle(1, data, 8);
+        unrle(2, data, 0);
     }
 
-
     private void readRLEHeader(int numSegments) throws IOException {
-        fillBuffer();
-        if (bufLen < 64)
-            throw new EOFException();
+        headerPos = iis.getStreamPosition();
+        iis.readFully(headerBytes);
         for (int i = 0, off = 0; i < header.length; i++, off += 4)
-            header[i] = ByteUtils.bytesToIntLE(buf, off);
-        bufPos = 64;
+            header[i] = ByteUtils.bytesToIntLE(headerBytes, off);
         if (header[0] != numSegments)
             throw new IOException(MISMATCH_NUM_RLE_SEGMENTS + header[0]);
     }
 
+    /**
+     * Reads the specified RLE Segment with one bulk read into {@code buf}.
+     * The segment length is given by the offset of the next segment, for
+     * the last segment by the stream length, if known. It is limited to
+     * the maximal encoded length of {@code decodedLength} bytes, which
+     * is twice the decoded length, if each byte is encoded as Literal Run.
+     * 
+     * @return number of bytes read
+     */
+    private int readSegment(int seg, int decodedLength) throws IOException {
+        long pos = headerPos + (header[seg] & 0xffffffffL);
+        long end = seg < header[0]
+                ? headerPos + (header[seg+1] & 0xffffffffL)
+                : iis.length();
+        int maxLength = decodedLength << 1;
+        int len = end > pos ? (int) Math.min(end - pos, maxLength) : maxLength;
+        if (buf.length < len)
+            buf = new byte[len];
+        iis.seek(pos);
+        int n = 0;
+        int read;
+        while (n < len && (read = iis.read(buf, n, len - n)) > 0)
+            n += read;
+        return n;
+    }
+
     private void unrle(int seg, byte[] data) throws IOException {
-        seekSegment(seg);
+        int len = readSegment(seg, data.length);
+        byte[] buf = this.buf;
+        int i = 0;
         int pos = 0;
-        try {
-            int n;
-            int end;
-            byte val;
-            while (pos < data.length) {
-                n = nextByte();
-                if (n >= 0) {
-                    read(data, pos, ++n);
-                    pos += n;
-                } else if (n != -128) {
-                    end = pos + 1 - n;
-                    val = nextByte();
-                    while (pos < end)
-                        data[pos++] = val;
+        int n;
+        while (pos < data.length && i < len) {
+            n = buf[i++];
+            if (n >= 0) {
+                n = Math.min(n + 1, len - i);
+                if (n > data.length - pos) {
+                    logTooLong(seg);
+                    n = data.length - pos;
+                }
+                System.arraycopy(buf, i, data, pos, n);
+                i += n;
+                pos += n;
+            } else if (n != -128 && i < len) {
+                n = 1 - n;
+                if (n > data.length - pos) {
+                    logTooLong(seg);
+                    n = data.length - pos;
                 }
+                Arrays.fill(data, pos, pos + n, buf[i++]);
+                pos += n;
             }
-        } catch (EOFException e) {
-            LOG.info("RLE Segment #{} too short, set missing {} bytes to 0",
-                    seg, data.length - pos);
-        } catch (IndexOutOfBoundsException e) {
-            LOG.info("RLE Segment #{} too long, truncate surplus bytes", seg);
         }
-    }
-
-    private void read(byte[] data, int pos, int len) throws IOException {
-        int remaining = len;
-        int n;
-        while (remaining > 0) {
-            n = bufLen - bufPos;
-            if (n <= 0) {
-                fillBuffer();
-                n = bufLen - bufPos;
-            }
-            if ((remaining -= n) < 0)
-                n += remaining;
-            System.arraycopy(buf, bufPos, data, pos, n);
-            bufPos += n;
-            pos += n;
+        if (pos < data.length) {
+            logTooShort(seg, data.length - pos);
+            Arrays.fill(data, pos, data.length, (byte) 0);
         }
     }
 
-    private void unrle(int seg, short[] data) throws IOException {
-        seekSegment(seg);
+    private void unrle(int seg, short[] data, int shift) throws IOException {
+        int len = readSegment(seg, data.length);
+        byte[] buf = this.buf;
+        int i = 0;
         int pos = 0;
-        try {
-            int shift = seg == 1 ? 8 : 0;
-            int n;
-            int end;
-            int val;
-            while (pos < data.length) {
-                n = nextByte();
-                if (n >= 0) {
-                    read(data, pos, ++n, shift);
-                    pos += n;
-                } else if (n != -128) {
-                    end = pos + 1 - n;
-                    val = (nextByte() & 0xff) << shift;
+        int n;
+        int end;
+        while (pos < data.length && i < len) {
+            n = buf[i++];
+            if (n >= 0) {
+                n = Math.min(n + 1, len - i);
+                if (n > data.length - pos) {
+                    logTooLong(seg);
+                    n = data.length - pos;
+                }
+                end = pos + n;
+                if (shift != 0)
                     while (pos < end)
-                        data[pos++] |= val;
+                        data[pos++] = (short) (buf[i++] << 8);
+                else
+                    while (pos < end)
+                        data[pos++] |= buf[i++] & 0xff;
+            } else if (n != -128 && i < len) {
+                n = 1 - n;
+                if (n > data.length - pos) {
+                    logTooLong(seg);
+                    n = data.length - pos;
                 }
+                end = pos + n;
+                if (shift != 0)
+                    Arrays.fill(data, pos, end, (short) (buf[i++] << 8));
+                else
+                    for (int val = buf[i++] & 0xff; pos < end;)
+                        data[pos++] |= val;
+                pos = end;
             }
-        } catch (EOFException e) {
-            LOG.info("RLE Segment #{} too short, set missing {} bytes to 0",
-                    seg, data.length - pos);
-        } catch (IndexOutOfBoundsException e) {
-            LOG.info("RLE Segment #{} to long, truncate surplus bytes", seg);
         }
-    }
-
-    private void read(short[] data, int pos, int len, int shift) throws IOException {
-        int remaining = len;
-        int n;
-        while (remaining > 0) {
-            n = bufLen - bufPos;
-            if (n <= 0) {
-                fillBuffer();
-                n = bufLen - bufPos;
-            }
-            if ((remaining -= n) < 0)
-                n += remaining;
-            while (n-- > 0)
-                data[pos++] |= (buf[bufPos++] & 0xff) << shift;
+        if (pos < data.length) {
+            logTooShort(seg, data.length - pos);
+            if (shift != 0)
+                Arrays.fill(data, pos, data.length, (short) 0);
         }
     }
 
-    private void fillBuffer() throws IOException {
-        bufOff = iis.getStreamPosition();
-        bufPos = 0;
-        bufLen = iis.read(buf);
-        if (bufLen <= 0)
-            throw new EOFException();
+    private static void logTooShort(int seg, int missing) {
+        LOG.info("RLE Segment #{} too short, set missing {} bytes to 0",
+                seg, missing);
     }
 
-    private byte nextByte() throws IOException {
-        if (bufPos >= bufLen)
-            fillBuffer();
-
-        return buf[bufPos++];
+    private static void logTooLong(int seg) {
+        LOG.info("RLE Segment #{} too long, truncate surplus bytes", seg);
     }
 
 }
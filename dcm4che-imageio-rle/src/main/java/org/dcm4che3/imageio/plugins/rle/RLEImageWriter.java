@@ -0,0 +1,266 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.imageio.plugins.rle;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.io.IOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.dcm4che3.util.ByteUtils;
+
+/**
+ * Encodes images as specified by the DICOM RLE Compression (PS 3.5, Annex
+ * G). Each byte of each sample is encoded into a separate RLE Segment,
+ * starting with the most significant byte, each row separately by the
+ * PackBits algorithm.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ *
+ */
+public class RLEImageWriter extends ImageWriter {
+
+    private static final String UNSUPPORTED_DATA_TYPE =
+            "Unsupported Data Type: ";
+    private static final String UNSUPPORTED_SAMPLE_MODEL =
+            "Unsupported Sample Model: ";
+    private static final String TOO_MANY_RLE_SEGMENTS =
+            "Number of RLE Segments exceeds 15: ";
+
+    private final byte[] header = new byte[64];
+
+    private byte[] row = {};
+
+    private byte[] buf = {};
+
+    protected RLEImageWriter(ImageWriterSpi originatingProvider) {
+        super(originatingProvider);
+    }
+
+    @Override
+    public IIOMetadata getDefaultStreamMetadata(ImageWriteParam param) {
+        return null;
+    }
+
+    @Override
+    public IIOMetadata getDefaultImageMetadata(ImageTypeSpecifier imageType,
+            ImageWriteParam param) {
+        return null;
+    }
+
+    @Override
+    public IIOMetadata convertStreamMetadata(IIOMetadata inData,
+            ImageWriteParam param) {
+        return null;
+    }
+
+    @Override
+    public IIOMetadata convertImageMetadata(IIOMetadata inData,
+            ImageTypeSpecifier imageType, ImageWriteParam param) {
+        return null;
+    }
+
+    @Override
+    public boolean canWriteRasters() {
+        return true;
+    }
+
+    @Override
+    public void write(IIOMetadata streamMetadata, IIOImage image,
+            ImageWriteParam param) throws IOException {
+        ImageOutputStream ios = (ImageOutputStream) output;
+        if (ios == null)
+            throw new IllegalStateException("Output not set");
+
+        Raster raster = getRaster(image);
+        SampleModel sm = raster.getSampleModel();
+        if (!(sm instanceof ComponentSampleModel))
+            throw new IllegalArgumentException(UNSUPPORTED_SAMPLE_MODEL + sm);
+
+        ComponentSampleModel csm = (ComponentSampleModel) sm;
+        DataBuffer db = raster.getDataBuffer();
+        int bytesPerSample = bytesPerSample(db.getDataType());
+        int numBands = csm.getNumBands();
+        int numSegments = numBands * bytesPerSample;
+        if (numSegments > 15)
+            throw new IllegalArgumentException(
+                    TOO_MANY_RLE_SEGMENTS + numSegments);
+
+        int w = raster.getWidth();
+        int h = raster.getHeight();
+        ensureCapacity(w, h, numSegments);
+        int[] bankIndices = csm.getBankIndices();
+        int[] bandOffsets = csm.getBandOffsets();
+        int pixelStride = csm.getPixelStride();
+        int scanlineStride = csm.getScanlineStride();
+        int off0 = -raster.getSampleModelTranslateY() * scanlineStride
+                 - raster.getSampleModelTranslateX() * pixelStride;
+        int pos = 0;
+        int seg = 0;
+        for (int b = 0; b < numBands; b++) {
+            int off = db.getOffsets()[bankIndices[b]] + bandOffsets[b] + off0;
+            for (int shift = (bytesPerSample - 1) << 3; shift >= 0; shift -= 8) {
+                ByteUtils.intToBytesLE(64 + pos, header, 4 + (seg++ << 2));
+                for (int y = 0; y < h; y++) {
+                    int rowOff = off + y * scanlineStride;
+                    switch (db.getDataType()) {
+                    case DataBuffer.TYPE_BYTE:
+                        copyRow(((DataBufferByte) db).getData(bankIndices[b]),
+                                rowOff, pixelStride, w);
+                        break;
+                    case DataBuffer.TYPE_USHORT:
+                        copyRow(((DataBufferUShort) db).getData(bankIndices[b]),
+                                rowOff, pixelStride, w, shift);
+                        break;
+                    default:
+                        copyRow(((DataBufferShort) db).getData(bankIndices[b]),
+                                rowOff, pixelStride, w, shift);
+                    }
+                    pos = encodeRow(row, w, buf, pos);
+                }
+                if ((pos & 1) != 0)
+                    buf[pos++] = 0;
+            }
+        }
+        ByteUtils.intToBytesLE(numSegments, header, 0);
+        for (int i = numSegments + 1; i < 16; i++)
+            ByteUtils.intToBytesLE(0, header, i << 2);
+        ios.write(header);
+        ios.write(buf, 0, pos);
+    }
+
+    private static Raster getRaster(IIOImage image) {
+        if (image.hasRaster())
+            return image.getRaster();
+
+        RenderedImage img = image.getRenderedImage();
+        return img instanceof BufferedImage
+                ? ((BufferedImage) img).getRaster()
+                : img.getData();
+    }
+
+    private static int bytesPerSample(int dataType) {
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            return 1;
+        case DataBuffer.TYPE_USHORT:
+        case DataBuffer.TYPE_SHORT:
+            return 2;
+        }
+        throw new IllegalArgumentException(UNSUPPORTED_DATA_TYPE + dataType);
+    }
+
+    /**
+     * Allocates the row and output buffer for the worst case, that each
+     * row is encoded as sequence of literal runs with maximal length, so
+     * the encoding loops need not to check for buffer overflow.
+     */
+    private void ensureCapacity(int w, int h, int numSegments) {
+        if (row.length < w)
+            row = new byte[w];
+        int maxLength = numSegments * (h * (w + (w + 127) / 128) + 1);
+        if (buf.length < maxLength)
+            buf = new byte[maxLength];
+    }
+
+    private void copyRow(byte[] data, int off, int pixelStride, int w) {
+        byte[] row = this.row;
+        if (pixelStride == 1)
+            System.arraycopy(data, off, row, 0, w);
+        else
+            for (int x = 0; x < w; x++, off += pixelStride)
+                row[x] = data[off];
+    }
+
+    private void copyRow(short[] data, int off, int pixelStride, int w,
+            int shift) {
+        byte[] row = this.row;
+        for (int x = 0; x < w; x++, off += pixelStride)
+            row[x] = (byte) (data[off] >> shift);
+    }
+
+    /**
+     * Encodes one row by the PackBits algorithm: runs of at least three
+     * equal bytes are encoded as Replicate Run, other bytes as Literal Run,
+     * each run covering at most 128 bytes.
+     * 
+     * @return position in {@code dst} after the encoded row
+     */
+    static int encodeRow(byte[] src, int len, byte[] dst, int pos) {
+        int i = 0;
+        while (i < len) {
+            byte val = src[i];
+            int end = Math.min(len, i + 128);
+            int run = i + 1;
+            while (run < end && src[run] == val)
+                run++;
+            if (run - i > 2) {
+                dst[pos++] = (byte) (i - run + 1);
+                dst[pos++] = val;
+                i = run;
+            } else {
+                int literal = run;
+                while (literal < end && !(literal + 2 < len
+                        && src[literal] == src[literal + 1]
+                        && src[literal] == src[literal + 2]))
+                    literal++;
+                int n = literal - i;
+                dst[pos++] = (byte) (n - 1);
+                System.arraycopy(src, i, dst, pos, n);
+                pos += n;
+                i = literal;
+            }
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,205 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.imageio.plugins.rle;
+
+import static org.junit.Assert.*;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.dcm4che3.util.ByteUtils;
+import org.junit.Test;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class RLEImageWriterTest {
+
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 4;
+
+    @Test
+    public void testEncodeReplicateRow() {
+        byte[] src = new byte[WIDTH];
+        Arrays.fill(src, (byte) 7);
+        byte[] dst = new byte[2 * WIDTH];
+        assertEquals(6, RLEImageWriter.encodeRow(src, WIDTH, dst, 0));
+        assertArrayEquals(new byte[] { -127, 7, -127, 7, -43, 7 },
+                Arrays.copyOf(dst, 6));
+    }
+
+    @Test
+    public void testEncodeLiteralRow() {
+        byte[] src = new byte[WIDTH];
+        for (int x = 0; x < WIDTH; x++)
+            src[x] = (byte) (x * 37);
+        byte[] dst = new byte[2 * WIDTH];
+        assertEquals(WIDTH + 3, RLEImageWriter.encodeRow(src, WIDTH, dst, 0));
+        assertEquals(127, dst[0]);
+        assertEquals(127, dst[129]);
+        assertEquals(43, dst[258]);
+    }
+
+    @Test
+    public void testByte() throws IOException {
+        BufferedImage src = new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_BYTE_GRAY);
+        fill(src.getRaster(), 0, 0xff);
+        assertRoundTrip(src, new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_BYTE_GRAY), 1);
+    }
+
+    @Test
+    public void testUShort() throws IOException {
+        BufferedImage src = new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_USHORT_GRAY);
+        fill(src.getRaster(), 0, 0xffff);
+        assertRoundTrip(src, new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_USHORT_GRAY), 2);
+    }
+
+    @Test
+    public void testShort() throws IOException {
+        ImageTypeSpecifier type = ImageTypeSpecifier.createGrayscale(
+                16, DataBuffer.TYPE_SHORT, true);
+        BufferedImage src = type.createBufferedImage(WIDTH, HEIGHT);
+        fill(src.getRaster(), -0x8000, 0xffff);
+        assertRoundTrip(src, type.createBufferedImage(WIDTH, HEIGHT), 2);
+    }
+
+    @Test
+    public void testRGB() throws IOException {
+        BufferedImage src = new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_3BYTE_BGR);
+        fill(src.getRaster(), 0, 0xff);
+        BufferedImage dst = ImageTypeSpecifier.createBanded(
+                ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                new int[] { 0, 1, 2 }, new int[] { 0, 0, 0 },
+                DataBuffer.TYPE_BYTE, false, false)
+                .createBufferedImage(WIDTH, HEIGHT);
+        assertRoundTrip(src, dst, 3);
+    }
+
+    /**
+     * Fills each row with a replicate run longer than 128 samples, followed
+     * by a literal run longer than 128 samples and by short runs of two
+     * equal samples. The high bytes of 16 bit samples are mostly constant.
+     */
+    private static void fill(WritableRaster raster, int min, int mask) {
+        for (int b = 0; b < raster.getNumBands(); b++)
+            for (int y = 0; y < raster.getHeight(); y++)
+                for (int x = 0; x < raster.getWidth(); x++) {
+                    int val;
+                    if (x < 150)
+                        val = y + b + 1;
+                    else if (x < 290)
+                        val = x * 37 + y + b;
+                    else
+                        val = x >> 1;
+                    if (mask > 0xff && x < 200)
+                        val = 0x1200 | (val & 0xff);
+                    raster.setSample(x, y, b, min + (val & mask));
+                }
+    }
+
+    private static void assertRoundTrip(BufferedImage src, BufferedImage dst,
+            int numSegments) throws IOException {
+        byte[] encoded = write(src);
+        assertEquals(numSegments, ByteUtils.bytesToIntLE(encoded, 0));
+        for (int seg = 1; seg <= numSegments; seg++)
+            assertEquals("even offset of RLE Segment #" + seg, 0,
+                    ByteUtils.bytesToIntLE(encoded, seg << 2) & 1);
+        assertTrue("compressed", encoded.length
+                < WIDTH * HEIGHT * numSegments);
+        assertSamples(src.getRaster(), read(encoded, dst).getRaster());
+    }
+
+    private static byte[] write(BufferedImage bi) throws IOException {
+        ImageWriter writer = new RLEImageWriterSpi().createWriterInstance();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageOutputStream ios = new MemoryCacheImageOutputStream(out);
+        try {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(bi, null, null), null);
+        } finally {
+            ios.close();
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static BufferedImage read(byte[] encoded, BufferedImage dst)
+            throws IOException {
+        ImageReader reader = new RLEImageReaderSpi().createReaderInstance();
+        try {
+            reader.setInput(new MemoryCacheImageInputStream(
+                    new ByteArrayInputStream(encoded)));
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setDestination(dst);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static void assertSamples(Raster expected, Raster actual) {
+        assertEquals(expected.getNumBands(), actual.getNumBands());
+        for (int b = 0; b < expected.getNumBands(); b++)
+            for (int y = 0; y < expected.getHeight(); y++)
+                for (int x = 0; x < expected.getWidth(); x++)
+                    assertEquals("sample[" + x + "," + y + "," + b + "]",
+                            expected.getSample(x, y, b),
+                            actual.getSample(x, y, b));
+    }
+}
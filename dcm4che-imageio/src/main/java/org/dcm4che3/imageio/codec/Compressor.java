@@ -98,6 +98,11 @@ public class Compressor extends Decompressor implements Closeable {
     private BufferedImage bi2;
 
     private ImageReadParam verifyParam;
+    private ImageWriterFactory.ImageWriterParam writerParam;
+    private ImageReaderFactory.ImageReaderParam verifierParam;
+    private Property[] writeParams;
+    private TransferSyntaxType compressTstype;
+    private ParallelFrameProcessor<FrameEncoder> parallel;
 
     public Compressor(Attributes dataset, String from) {
         super(dataset, from);
@@ -134,25 +139,20 @@ public class Compressor extends Decompressor implements Closeable {
             throw new UnsupportedOperationException(
                     "Unsupported Transfer Syntax: " + tsuid);
 
+        this.writerParam = param;
         this.compressor = ImageWriterFactory.getImageWriter(param);
         LOG.debug("Compressor: {}", compressor.getClass().getName());
         this.patchJPEGLS = param.patchJPEGLS;
 
-        this.compressParam = compressor.getDefaultWriteParam();
-        int count = 0;
-        for (Property property : cat(param.getImageWriteParams(), params)) {
+        this.writeParams = cat(param.getImageWriteParams(), params);
+        for (Property property : writeParams) {
             String name = property.getName();
             if (name.equals("maxPixelValueError"))
                 this.maxPixelValueError = ((Number) property.getValue()).intValue();
             else if (name.equals("avgPixelValueBlockSize"))
                 this.avgPixelValueBlockSize = ((Number) property.getValue()).intValue();
-            else {
-                if (count++ == 0)
-                    compressParam.setCompressionMode(
-                            ImageWriteParam.MODE_EXPLICIT);
-                property.setAt(compressParam);
-            }
         }
+        this.compressParam = createWriteParam(compressor);
 
         if (maxPixelValueError >= 0) {
             ImageReaderFactory.ImageReaderParam readerParam =
@@ -161,25 +161,51 @@ public class Compressor extends Decompressor implements Closeable {
                 throw new UnsupportedOperationException(
                         "Unsupported Transfer Syntax: " + tsuid);
 
+            this.verifierParam = readerParam;
             this.verifier = ImageReaderFactory.getImageReader(readerParam);
             this.verifyParam = verifier.getDefaultReadParam();
             LOG.debug("Verifier: {}", verifier.getClass().getName());
         }
 
         TransferSyntaxType tstype = TransferSyntaxType.forUID(tsuid);
+        this.compressTstype = tstype;
         if (decompressor == null || super.tstype == TransferSyntaxType.RLE)
-            bi = createBufferedImage(
-                    Math.min(bitsStored, tstype.getMaxBitsStored()),
-                    super.tstype == TransferSyntaxType.RLE || banded,
-                    signed && tstype.canEncodeSigned());
+            bi = createFrameImage();
+        if (verifier != null && tstype == TransferSyntaxType.RLE)
+            bi2 = createVerifyImage();
         Fragments compressedPixeldata = 
                 dataset.newFragments(Tag.PixelData, VR.OB, frames + 1);
         compressedPixeldata.add(Value.NULL);
-        for (int i = 0; i < frames; i++) {
-            CompressedFrame frame = new CompressedFrame(i);
-            if (embeddedOverlays.length != 0)
-                frame.compress();
-            compressedPixeldata.add(frame);
+        if (executor != null && frames > 1 && decompressor == null
+                && embeddedOverlays.length == 0) {
+            parallel = new ParallelFrameProcessor<FrameEncoder>(
+                    executor, frames, maxFramesInFlight) {
+
+                @Override
+                protected FrameEncoder createWorker() throws IOException {
+                    return new FrameEncoder();
+                }
+
+                @Override
+                protected byte[] process(FrameEncoder encoder, int frameIndex)
+                        throws IOException {
+                    return encoder.encode(frameIndex);
+                }
+
+                @Override
+                protected void dispose(FrameEncoder encoder) {
+                    encoder.dispose();
+                }
+            };
+            for (int i = 0; i < frames; i++)
+                compressedPixeldata.add(new ParallelCompressedFrame(i));
+        } else {
+            for (int i = 0; i < frames; i++) {
+                CompressedFrame frame = new CompressedFrame(i);
+                if (embeddedOverlays.length != 0)
+                    frame.compress();
+                compressedPixeldata.add(frame);
+            }
         }
         if (samples > 1) {
             dataset.setString(Tag.PhotometricInterpretation, VR.CS, 
@@ -195,6 +221,49 @@ public class Compressor extends Decompressor implements Closeable {
         return true;
     }
 
+    private BufferedImage createFrameImage() {
+        return createBufferedImage(
+                Math.min(bitsStored, compressTstype.getMaxBitsStored()),
+                super.tstype == TransferSyntaxType.RLE || banded,
+                signed && compressTstype.canEncodeSigned());
+    }
+
+    /**
+     * RLE Image Reader requires a destination image with banded layout.
+     */
+    private BufferedImage createVerifyImage() {
+        return createBufferedImage(
+                Math.min(bitsStored, compressTstype.getMaxBitsStored()),
+                true, signed && compressTstype.canEncodeSigned());
+    }
+
+    private ImageWriteParam createWriteParam(ImageWriter writer) {
+        ImageWriteParam writeParam = writer.getDefaultWriteParam();
+        int count = 0;
+        for (Property property : writeParams) {
+            String name = property.getName();
+            if (!name.equals("maxPixelValueError")
+                    && !name.equals("avgPixelValueBlockSize")) {
+                if (count++ == 0)
+                    writeParam.setCompressionMode(
+                            ImageWriteParam.MODE_EXPLICIT);
+                property.setAt(writeParam);
+            }
+        }
+        return writeParam;
+    }
+
+    private static MemoryCacheImageOutputStream createCache(OutputStream out) {
+        return new MemoryCacheImageOutputStream(out) {
+
+            @Override
+            public void flush() throws IOException {
+                // defer flush to writeTo()
+                LOG.debug("Ignore invoke of MemoryCacheImageOutputStream.flush()");
+            }
+        };
+    }
+
     private Property[] cat(Property[] a, Property[] b) {
         if (a.length == 0)
             return b;
@@ -207,6 +276,8 @@ public class Compressor extends Decompressor implements Closeable {
     }
 
     public void close() {
+        if (parallel != null)
+            parallel.dispose();
         if (iis != null)
             try { iis.close(); } catch (IOException ignore) {}
         dispose();
@@ -299,14 +370,7 @@ public class Compressor extends Decompressor implements Closeable {
                 Compressor.this.extractEmbeddedOverlays(frameIndex, bi);
                 if (bitsStored < bitsAllocated)
                     Compressor.this.nullifyUnusedBits(bitsStored, bi);
-                cache = new MemoryCacheImageOutputStream(cacheout) {
-
-                    @Override
-                    public void flush() throws IOException {
-                        // defer flush to writeTo()
-                        LOG.debug("Ignore invoke of MemoryCacheImageOutputStream.flush()");
-                    }
-                };
+                cache = createCache(cacheout);
                 compressor.setOutput(patchJPEGLS != null
                         ? new PatchJPEGLSImageOutputStream(cache, patchJPEGLS)
                         : cache);
@@ -319,7 +383,9 @@ public class Compressor extends Decompressor implements Closeable {
                             new Object[] {frameIndex + 1,
                             (float) sizeOf(bi) / streamLength,
                             end - start });
-                Compressor.this.verify(cache, frameIndex);
+                if (verifier != null)
+                    bi2 = Compressor.this.verify(verifier, verifyParam, cache,
+                            bi, bi2, frameIndex);
             } catch (IOException ex) {
                 cache = null;
                 Compressor.this.ex = ex;
@@ -329,6 +395,117 @@ public class Compressor extends Decompressor implements Closeable {
 
     }
 
+    private class ParallelCompressedFrame implements Value {
+
+        private final int frameIndex;
+
+        public ParallelCompressedFrame(int frameIndex) {
+            this.frameIndex = frameIndex;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return false;
+        }
+
+        @Override
+        public byte[] toBytes(VR vr, boolean bigEndian) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeTo(out);
+            return out.toByteArray();
+        }
+
+        @Override
+        public void writeTo(DicomOutputStream out, VR vr) throws IOException {
+            writeTo(out);
+        }
+
+        @Override
+        public int calcLength(DicomEncodingOptions encOpts, boolean explicitVR, VR vr) {
+            return getEncodedLength(encOpts, explicitVR, vr);
+        }
+
+        @Override
+        public int getEncodedLength(DicomEncodingOptions encOpts, boolean explicitVR, VR vr) {
+            try {
+                return (parallel.get(frameIndex).length + 1) & ~1;
+            } catch (IOException e) {
+                throw new IllegalStateException(
+                        "Failed to compress frame #" + (frameIndex + 1), e);
+            }
+        }
+
+        private void writeTo(OutputStream out) throws IOException {
+            byte[] b = parallel.get(frameIndex);
+            out.write(b);
+            if ((b.length & 1) != 0)
+                out.write(0);
+            parallel.release(frameIndex);
+        }
+    }
+
+    /**
+     * Holds the resources for the compression of frames by one worker.
+     */
+    private class FrameEncoder {
+
+        private final ImageWriter writer;
+        private final ImageWriteParam writeParam;
+        private final ImageReader verifier;
+        private final ImageReadParam verifyParam;
+        private final ImageInputStream iis;
+        private final BufferedImage bi;
+        private BufferedImage bi2;
+
+        FrameEncoder() throws IOException {
+            this.writer = ImageWriterFactory.getImageWriter(writerParam);
+            this.writeParam = createWriteParam(writer);
+            if (verifierParam != null) {
+                this.verifier = ImageReaderFactory.getImageReader(verifierParam);
+                this.verifyParam = verifier.getDefaultReadParam();
+                if (compressTstype == TransferSyntaxType.RLE)
+                    this.bi2 = createVerifyImage();
+            } else {
+                this.verifier = null;
+                this.verifyParam = null;
+            }
+            this.iis = new FileImageInputStream(file);
+            this.bi = createFrameImage();
+        }
+
+        byte[] encode(int frameIndex) throws IOException {
+            readFrame(iis, bi, frameIndex);
+            if (bitsStored < bitsAllocated)
+                nullifyUnusedBits(bitsStored, bi);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            MemoryCacheImageOutputStream cache = createCache(out);
+            writer.setOutput(patchJPEGLS != null
+                    ? new PatchJPEGLSImageOutputStream(cache, patchJPEGLS)
+                    : cache);
+            long start = System.currentTimeMillis();
+            writer.write(null, new IIOImage(bi, null, null), writeParam);
+            long end = System.currentTimeMillis();
+            long streamLength = cache.getStreamPosition();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Compressed frame #{} {}:1 in {} ms", 
+                        new Object[] {frameIndex + 1,
+                        (float) sizeOf(bi) / streamLength,
+                        end - start });
+            if (verifier != null)
+                bi2 = verify(verifier, verifyParam, cache, bi, bi2, frameIndex);
+            cache.seek(streamLength);
+            cache.close();
+            return out.toByteArray();
+        }
+
+        void dispose() {
+            writer.dispose();
+            if (verifier != null)
+                verifier.dispose();
+            try { iis.close(); } catch (IOException ignore) {}
+        }
+    }
+
     private static class CacheOutputStream extends FilterOutputStream {
 
         public CacheOutputStream() {
@@ -347,6 +524,11 @@ public class Compressor extends Decompressor implements Closeable {
         if (decompressor != null)
             return decompressFrame(iis, frameIndex);
 
+        return readFrame(iis, bi, frameIndex);
+    }
+
+    private BufferedImage readFrame(ImageInputStream iis, BufferedImage bi,
+            int frameIndex) throws IOException {
         iis.setByteOrder(pixeldata.bigEndian
                 ? ByteOrder.BIG_ENDIAN
                 : ByteOrder.LITTLE_ENDIAN);
@@ -361,10 +543,10 @@ public class Compressor extends Decompressor implements Closeable {
                 ByteUtils.swapShorts(data);
             break;
         case DataBuffer.TYPE_USHORT:
-            readFully(((DataBufferUShort) db).getData());
+            readFully(iis, ((DataBufferUShort) db).getData());
             break;
         case DataBuffer.TYPE_SHORT:
-            readFully(((DataBufferShort) db).getData());
+            readFully(iis, ((DataBufferShort) db).getData());
             break;
         default:
             throw new UnsupportedOperationException(
@@ -373,11 +555,10 @@ public class Compressor extends Decompressor implements Closeable {
         return bi;
     }
 
-    private void verify(MemoryCacheImageOutputStream cache, int index)
+    private BufferedImage verify(ImageReader verifier,
+            ImageReadParam verifyParam, MemoryCacheImageOutputStream cache,
+            BufferedImage bi, BufferedImage bi2, int index)
             throws IOException {
-        if (verifier == null)
-            return;
-
         cache.seek(0);
         verifier.setInput(cache);
         verifyParam.setDestination(bi2);
@@ -391,6 +572,7 @@ public class Compressor extends Decompressor implements Closeable {
         if (maxDiff > maxPixelValueError)
             throw new CompressionVerificationException(maxDiff);
 
+        return bi2;
     }
 
     private int maxDiff(WritableRaster raster, WritableRaster raster2) {
@@ -527,7 +709,8 @@ public class Compressor extends Decompressor implements Closeable {
         }
     }
 
-    private void readFully(short[] data) throws IOException {
+    private static void readFully(ImageInputStream iis, short[] data)
+            throws IOException {
         iis.readFully(data, 0, data.length);
     }
 
@@ -57,6 +57,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
 
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
@@ -72,6 +73,7 @@ import org.dcm4che3.data.Value;
 import org.dcm4che3.image.PhotometricInterpretation;
 import org.dcm4che3.imageio.codec.jpeg.PatchJPEGLS;
 import org.dcm4che3.imageio.codec.jpeg.PatchJPEGLSImageInputStream;
+import org.dcm4che3.imageio.stream.EncapsulatedFrames;
 import org.dcm4che3.imageio.stream.SegmentedInputImageStream;
 import org.dcm4che3.io.DicomEncodingOptions;
 import org.dcm4che3.io.DicomOutputStream;
@@ -106,6 +108,11 @@ public class Decompressor {
     protected ImageReader decompressor;
     protected ImageReadParam readParam;
     protected PatchJPEGLS patchJpegLS;
+    protected Executor executor;
+    protected int maxFramesInFlight =
+            Runtime.getRuntime().availableProcessors() * 2;
+    private ImageReaderFactory.ImageReaderParam decompressorParam;
+    private EncapsulatedFrames encapsulatedFrames;
 
     public Decompressor(Attributes dataset, String tsuid) {
         if (tsuid == null)
@@ -153,6 +160,7 @@ public class Decompressor {
                 throw new UnsupportedOperationException(
                         "Unsupported Transfer Syntax: " + tsuid);
 
+            this.decompressorParam = param;
             this.decompressor = ImageReaderFactory.getImageReader(param);
             LOG.debug("Decompressor: {}", decompressor.getClass().getName());
             this.readParam = decompressor.getDefaultReadParam();
@@ -162,6 +170,40 @@ public class Decompressor {
         }
     }
 
+    public final Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor used to process frames of multi-frame images in
+     * parallel. Each worker uses its own {@code ImageReader} - and its own
+     * {@code ImageWriter} on compression. Frames are processed sequentially
+     * if no executor is set.
+     * 
+     * @param executor executor for frame processing tasks or {@code null}
+     */
+    public final void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public final int getMaxFramesInFlight() {
+        return maxFramesInFlight;
+    }
+
+    /**
+     * Sets the maximal number of frames, processed in parallel ahead of
+     * the frame currently written, to limit the memory held by processed
+     * frames. Twice the number of available processors by default.
+     * 
+     * @param maxFramesInFlight maximal number of frames processed ahead
+     */
+    public final void setMaxFramesInFlight(int maxFramesInFlight) {
+        if (maxFramesInFlight <= 0)
+            throw new IllegalArgumentException(
+                    "maxFramesInFlight: " + maxFramesInFlight);
+        this.maxFramesInFlight = maxFramesInFlight;
+    }
+
     public void dispose() {
         if (decompressor != null)
             decompressor.dispose();
@@ -256,6 +298,11 @@ public class Decompressor {
     }
 
     public void writeTo(OutputStream out) throws IOException {
+        if (executor != null && frames > 1) {
+            writeParallelTo(out);
+            return;
+        }
+
         ImageInputStream iis = createImageInputStream();
         try {
             for (int i = 0; i < frames; ++i)
@@ -268,6 +315,40 @@ public class Decompressor {
         }
     }
 
+    private void writeParallelTo(OutputStream out) throws IOException {
+        ParallelFrameProcessor<FrameDecoder> parallel =
+                new ParallelFrameProcessor<FrameDecoder>(
+                        executor, frames, maxFramesInFlight) {
+
+            @Override
+            protected FrameDecoder createWorker() throws IOException {
+                return new FrameDecoder();
+            }
+
+            @Override
+            protected byte[] process(FrameDecoder decoder, int frameIndex)
+                    throws IOException {
+                return decoder.decode(frameIndex);
+            }
+
+            @Override
+            protected void dispose(FrameDecoder decoder) {
+                decoder.dispose();
+            }
+        };
+        try {
+            for (int i = 0; i < frames; ++i) {
+                out.write(parallel.get(i));
+                parallel.release(i);
+            }
+            if ((length & 1) != 0)
+                out.write(0);
+        } finally {
+            parallel.dispose();
+            decompressor.dispose();
+        }
+    }
+
     public FileImageInputStream createImageInputStream()
             throws IOException {
         return new FileImageInputStream(file);
@@ -282,7 +363,7 @@ public class Decompressor {
     protected BufferedImage decompressFrame(ImageInputStream iis, int index)
             throws IOException {
         SegmentedInputImageStream siis =
-                new SegmentedInputImageStream(iis, pixeldataFragments, index);
+                encapsulatedFrames(iis).openFrame(iis, index);
         decompressor.setInput(patchJpegLS != null
                 ? new PatchJPEGLSImageInputStream(siis, patchJpegLS)
                 : siis);
@@ -298,12 +379,65 @@ public class Decompressor {
         return bi;
     }
 
+    private synchronized EncapsulatedFrames encapsulatedFrames(
+            ImageInputStream iis) throws IOException {
+        if (encapsulatedFrames == null)
+            encapsulatedFrames = new EncapsulatedFrames(
+                    iis, pixeldataFragments, frames);
+        return encapsulatedFrames;
+    }
+
     static int sizeOf(BufferedImage bi) {
         DataBuffer db = bi.getData().getDataBuffer();
         return db.getSize() * db.getNumBanks()
                 * (DataBuffer.getDataTypeSize(db.getDataType()) >>> 3);
     }
 
+    /**
+     * Holds the resources for the decompression of frames by one worker.
+     */
+    private class FrameDecoder {
+
+        private final ImageReader reader;
+        private final ImageReadParam param;
+        private final ImageInputStream iis;
+        private BufferedImage bi;
+
+        FrameDecoder() throws IOException {
+            this.reader = ImageReaderFactory.getImageReader(decompressorParam);
+            this.param = reader.getDefaultReadParam();
+            this.iis = createImageInputStream();
+            if (tstype == TransferSyntaxType.RLE)
+                bi = createBufferedImage(bitsStored, true, signed);
+        }
+
+        @SuppressWarnings("resource")
+        byte[] decode(int frameIndex) throws IOException {
+            SegmentedInputImageStream siis =
+                    encapsulatedFrames(iis).openFrame(iis, frameIndex);
+            reader.setInput(patchJpegLS != null
+                    ? new PatchJPEGLSImageInputStream(siis, patchJpegLS)
+                    : siis);
+            param.setDestination(bi);
+            long start = System.currentTimeMillis();
+            bi = reader.read(0, param);
+            long end = System.currentTimeMillis();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Decompressed frame #{} 1:{} in {} ms", 
+                        new Object[] {frameIndex + 1,
+                        (float) sizeOf(bi) / siis.getStreamPosition(),
+                        end - start });
+            ByteArrayOutputStream out = new ByteArrayOutputStream(frameLength);
+            Decompressor.writeTo(bi.getRaster(), out);
+            return out.toByteArray();
+        }
+
+        void dispose() {
+            reader.dispose();
+            try { iis.close(); } catch (IOException ignore) {}
+        }
+    }
+
     private static void writeTo(Raster raster, OutputStream out) throws IOException {
         SampleModel sm = raster.getSampleModel();
         DataBuffer db = raster.getDataBuffer();
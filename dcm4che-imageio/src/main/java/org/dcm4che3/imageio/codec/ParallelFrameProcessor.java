@@ -0,0 +1,207 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.imageio.codec;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Processes frames by tasks executed by an {@link Executor}, ahead of the
+ * frame currently accessed. Each task borrows a worker - holding the
+ * resources for processing one frame, like an {@code ImageReader} or
+ * {@code ImageWriter} - from a pool, so the number of workers is limited by
+ * the number of concurrently executing tasks.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ *
+ */
+abstract class ParallelFrameProcessor<W> {
+
+    private final Executor executor;
+    private final int maxFramesInFlight;
+    private final List<Future<byte[]>> results;
+    private final ConcurrentLinkedQueue<W> idleWorkers =
+            new ConcurrentLinkedQueue<W>();
+    private int submitted;
+    private int running;
+    private boolean disposed;
+
+    public ParallelFrameProcessor(Executor executor, int frames,
+            int maxFramesInFlight) {
+        this.executor = executor;
+        this.maxFramesInFlight = maxFramesInFlight;
+        this.results = new ArrayList<Future<byte[]>>(
+                Collections.<Future<byte[]>>nCopies(frames, null));
+    }
+
+    protected abstract W createWorker() throws IOException;
+
+    protected abstract byte[] process(W worker, int frameIndex)
+            throws IOException;
+
+    protected abstract void dispose(W worker);
+
+    /**
+     * Returns the processed frame, waiting for its processing to complete,
+     * and submits the processing of up to {@code maxFramesInFlight}
+     * following frames.
+     * 
+     * @param frameIndex index of the frame
+     * @return processed frame
+     * @throws IOException if the processing of the frame failed
+     */
+    public byte[] get(int frameIndex) throws IOException {
+        try {
+            return submit(frameIndex).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private synchronized Future<byte[]> submit(int frameIndex) {
+        if (disposed)
+            throw new IllegalStateException("Already disposed");
+
+        if (submitted < frameIndex)
+            submitted = frameIndex;
+        int end = Math.min(results.size(), frameIndex + maxFramesInFlight);
+        while (submitted < end) {
+            if (results.get(submitted) == null)
+                results.set(submitted, submitTask(submitted));
+            submitted++;
+        }
+        Future<byte[]> future = results.get(frameIndex);
+        if (future == null)
+            results.set(frameIndex, future = submitTask(frameIndex));
+        return future;
+    }
+
+    private Future<byte[]> submitTask(final int frameIndex) {
+        FutureTask<byte[]> task = new FutureTask<byte[]>(
+                new Callable<byte[]>() {
+
+            @Override
+            public byte[] call() throws Exception {
+                if (!enter())
+                    throw new InterruptedIOException("Already disposed");
+                try {
+                    W worker = idleWorkers.poll();
+                    if (worker == null)
+                        worker = createWorker();
+                    try {
+                        return process(worker, frameIndex);
+                    } finally {
+                        idleWorkers.offer(worker);
+                    }
+                } finally {
+                    exit();
+                }
+            }
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    private synchronized boolean enter() {
+        if (disposed)
+            return false;
+        running++;
+        return true;
+    }
+
+    private synchronized void exit() {
+        if (--running == 0)
+            notifyAll();
+    }
+
+    /**
+     * Releases the processed frame, after it was consumed.
+     * 
+     * @param frameIndex index of the frame
+     */
+    public synchronized void release(int frameIndex) {
+        results.set(frameIndex, null);
+    }
+
+    /**
+     * Cancels the processing of pending frames, waits for the completion
+     * of running tasks and disposes all workers.
+     */
+    public void dispose() {
+        synchronized (this) {
+            if (disposed)
+                return;
+            disposed = true;
+            for (Future<byte[]> future : results)
+                if (future != null)
+                    future.cancel(false);
+            boolean interrupted = false;
+            while (running > 0)
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        W worker;
+        while ((worker = idleWorkers.poll()) != null)
+            dispose(worker);
+    }
+}
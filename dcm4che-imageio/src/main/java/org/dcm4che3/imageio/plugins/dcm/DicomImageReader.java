@@ -50,6 +50,8 @@ import java.io.IOException;
 import java.nio.ByteOrder;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
@@ -75,6 +77,7 @@ import org.dcm4che3.imageio.codec.ImageReaderFactory;
 import org.dcm4che3.imageio.codec.ImageReaderFactory.ImageReaderParam;
 import org.dcm4che3.imageio.codec.jpeg.PatchJPEGLS;
 import org.dcm4che3.imageio.codec.jpeg.PatchJPEGLSImageInputStream;
+import org.dcm4che3.imageio.stream.EncapsulatedFrames;
 import org.dcm4che3.imageio.stream.ImageInputStreamAdapter;
 import org.dcm4che3.imageio.stream.SegmentedInputImageStream;
 import org.dcm4che3.io.BulkDataDescriptor;
@@ -93,6 +96,8 @@ public class DicomImageReader extends ImageReader {
 
     private static final Logger LOG = LoggerFactory.getLogger(DicomImageReader.class);
 
+    private static final int MAX_CACHED_LUTS = 16;
+
     private ImageInputStream iis;
 
     private DicomMetaData metadata;
@@ -111,6 +116,8 @@ public class DicomImageReader extends ImageReader {
 
     private Fragments pixeldataFragments;
 
+    private EncapsulatedFrames encapsulatedFrames;
+
     private ImageReader decompressor;
 
     private PatchJPEGLS patchJpegLS;
@@ -129,15 +136,62 @@ public class DicomImageReader extends ImageReader {
 
     private PhotometricInterpretation pmi;
 
+    private final LinkedHashMap<Object, LookupTable> lutCache =
+            new LinkedHashMap<Object, LookupTable>(MAX_CACHED_LUTS, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Object, LookupTable> eldest) {
+                    return size() > MAX_CACHED_LUTS;
+                }
+            };
+
+    private RenderedFrameCache renderedFrameCache;
+
+    private String sopInstanceUID;
+
     public DicomImageReader(ImageReaderSpi originatingProvider) {
         super(originatingProvider);
     }
 
+    public final RenderedFrameCache getRenderedFrameCache() {
+        return renderedFrameCache;
+    }
+
+    /**
+     * Sets the cache of rendered frames, which is looked up by
+     * {@link #read(int, ImageReadParam)} before the frame is decompressed
+     * and rendered, unless a destination image or type is specified by the
+     * read parameters.
+     * 
+     * @param renderedFrameCache cache of rendered frames or {@code null}
+     */
+    public final void setRenderedFrameCache(
+            RenderedFrameCache renderedFrameCache) {
+        this.renderedFrameCache = renderedFrameCache;
+    }
+
+    /**
+     * Sets the SOP Instance UID of the image of the current input, if it is
+     * already known - e.g. from the parameters of a WADO request - so
+     * {@link #read(int, ImageReadParam)} looks up the cache of rendered
+     * frames before it reads the metadata of the image. Reset by
+     * {@link #setInput(Object, boolean, boolean)}.
+     * 
+     * @param iuid SOP Instance UID of the image or {@code null}
+     */
+    public void setSOPInstanceUID(String iuid) {
+        this.sopInstanceUID = iuid;
+    }
+
     @Override
     public void setInput(Object input, boolean seekForwardOnly,
             boolean ignoreMetadata) {
         super.setInput(input, seekForwardOnly, ignoreMetadata);
         resetInternalState();
+        sopInstanceUID = null;
         iis = (ImageInputStream) input;
     }
 
@@ -273,6 +327,55 @@ public class DicomImageReader extends ImageReader {
     @Override
     public BufferedImage read(int frameIndex, ImageReadParam param)
             throws IOException {
+        RenderedFrameCache cache = renderedFrameCache;
+        if (cache == null || param != null
+                && (param.getDestination() != null
+                    || param.getDestinationType() != null))
+            return render(frameIndex, param);
+
+        // only frames of valid index are cached, so a hit needs no metadata
+        RenderedFrameKey key = null;
+        if (sopInstanceUID != null) {
+            key = new RenderedFrameKey(sopInstanceUID, frameIndex, param);
+            BufferedImage bi = cache.getImage(key);
+            if (bi != null)
+                return copyOfCached(bi, frameIndex);
+        }
+        readMetadata();
+        checkIndex(frameIndex);
+        if (key == null) {
+            String iuid = metadata.getAttributes().getString(Tag.SOPInstanceUID);
+            if (iuid == null)
+                return render(frameIndex, param);
+
+            key = new RenderedFrameKey(iuid, frameIndex, param);
+            BufferedImage bi = cache.getImage(key);
+            if (bi != null)
+                return copyOfCached(bi, frameIndex);
+        }
+        BufferedImage bi = render(frameIndex, param);
+        cache.putImage(key, copyOf(bi));
+        return bi;
+    }
+
+    private static BufferedImage copyOfCached(BufferedImage bi, int frameIndex) {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Use cached rendered frame #" + (frameIndex + 1));
+        return copyOf(bi);
+    }
+
+    /**
+     * Images in the {@link RenderedFrameCache} are shared, so the cache
+     * only gets and returns copies.
+     */
+    private static BufferedImage copyOf(BufferedImage bi) {
+        ColorModel cm = bi.getColorModel();
+        return new BufferedImage(cm, bi.copyData(null),
+                cm.isAlphaPremultiplied(), null);
+    }
+
+    private BufferedImage render(int frameIndex, ImageReadParam param)
+            throws IOException {
         readMetadata();
         checkIndex(frameIndex);
 
@@ -332,8 +435,11 @@ public class DicomImageReader extends ImageReader {
     @SuppressWarnings("resource")
     private ImageInputStreamImpl iisOfFrame(int frameIndex)
             throws IOException {
-        SegmentedInputImageStream siis = new SegmentedInputImageStream(
-                iis, pixeldataFragments, frameIndex);
+        if (encapsulatedFrames == null)
+            encapsulatedFrames = new EncapsulatedFrames(
+                    iis, pixeldataFragments, frames);
+        SegmentedInputImageStream siis =
+                encapsulatedFrames.openFrame(iis, frameIndex);
         return patchJpegLS != null
                 ? new PatchJPEGLSImageInputStream(siis, patchJpegLS)
                 : siis;
@@ -417,7 +523,12 @@ public class DicomImageReader extends ImageReader {
                 lutParam.autoWindowing(imgAttrs, raster);
             lutParam.setPresentationLUT(imgAttrs);
         }
-        LookupTable lut = lutParam.createLUT(outBits);
+        Object lutKey = lutParam.createLUTKey(outBits);
+        LookupTable lut = lutCache.get(lutKey);
+        if (lut == null) {
+            lut = lutParam.createLUT(outBits);
+            lutCache.put(lutKey, lut);
+        }
         lut.lookup(raster, destRaster);
         return destRaster;
     }
@@ -526,12 +637,14 @@ public class DicomImageReader extends ImageReader {
         height = 0;
         pixeldata = null;
         pixeldataFragments = null;
+        encapsulatedFrames = null;
         if (decompressor != null) {
             decompressor.dispose();
             decompressor = null;
         }
         patchJpegLS = null;
         pmi = null;
+        lutCache.clear();
     }
 
     private void checkIndex(int frameIndex) {
@@ -0,0 +1,320 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.imageio.plugins.dcm;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link RenderedFrameCache} bounded by the size of the pixel data of the
+ * cached images and by the size of the cached encoded frames. If a limit
+ * is exceeded, the least recently accessed entries are evicted.
+ * 
+ * To allow concurrent access by several readers, entries are distributed
+ * by the hash code of their key over segments, each guarded by its own
+ * lock. The least recently accessed entries are evicted from the segment of
+ * the added entry first, so eviction only approximates a global LRU order.
+ * 
+ * Encoded frames may be kept in direct byte buffers outside of the Java
+ * heap, so large caches of JPEG or PNG encoded frames do not increase the
+ * garbage collection overhead. Their memory is limited by the JVM option
+ * {@code -XX:MaxDirectMemorySize}.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class LRURenderedFrameCache implements RenderedFrameCache {
+
+    public static final int DEF_SEGMENTS = 16;
+
+    private final Segments<RenderedFrameKey, BufferedImage> images;
+    private final Segments<EncodedKey, ByteBuffer> encoded;
+    private final boolean directBuffers;
+
+    public LRURenderedFrameCache(long maxImageBytes) {
+        this(maxImageBytes, 0, false);
+    }
+
+    /**
+     * @param maxImageBytes maximal size of the pixel data of cached images
+     * @param maxEncodedBytes maximal size of cached encoded frames
+     * @param directBuffers keep encoded frames in direct byte buffers
+     *        outside of the Java heap
+     */
+    public LRURenderedFrameCache(long maxImageBytes, long maxEncodedBytes,
+            boolean directBuffers) {
+        this(maxImageBytes, maxEncodedBytes, directBuffers, DEF_SEGMENTS);
+    }
+
+    /**
+     * @param maxImageBytes maximal size of the pixel data of cached images
+     * @param maxEncodedBytes maximal size of cached encoded frames
+     * @param directBuffers keep encoded frames in direct byte buffers
+     *        outside of the Java heap
+     * @param segments number of independently locked segments
+     */
+    public LRURenderedFrameCache(long maxImageBytes, long maxEncodedBytes,
+            boolean directBuffers, int segments) {
+        if (maxImageBytes < 0)
+            throw new IllegalArgumentException("maxImageBytes: " + maxImageBytes);
+        if (maxEncodedBytes < 0)
+            throw new IllegalArgumentException("maxEncodedBytes: " + maxEncodedBytes);
+        if (segments <= 0)
+            throw new IllegalArgumentException("segments: " + segments);
+        this.images = new Segments<RenderedFrameKey, BufferedImage>(
+                maxImageBytes, segments) {
+
+            @Override
+            long sizeOf(BufferedImage bi) {
+                DataBuffer db = bi.getRaster().getDataBuffer();
+                return (long) db.getSize() * db.getNumBanks()
+                        * DataBuffer.getDataTypeSize(db.getDataType()) / 8;
+            }
+        };
+        this.encoded = new Segments<EncodedKey, ByteBuffer>(
+                maxEncodedBytes, segments) {
+
+            @Override
+            long sizeOf(ByteBuffer bb) {
+                return bb.capacity();
+            }
+        };
+        this.directBuffers = directBuffers;
+    }
+
+    public final long getMaxImageBytes() {
+        return images.maxSize;
+    }
+
+    public final long getMaxEncodedBytes() {
+        return encoded.maxSize;
+    }
+
+    public final boolean isDirectBuffers() {
+        return directBuffers;
+    }
+
+    public long getImageBytes() {
+        return images.size.get();
+    }
+
+    public long getEncodedBytes() {
+        return encoded.size.get();
+    }
+
+    @Override
+    public BufferedImage getImage(RenderedFrameKey key) {
+        return images.get(key);
+    }
+
+    @Override
+    public void putImage(RenderedFrameKey key, BufferedImage bi) {
+        images.put(key, bi);
+    }
+
+    @Override
+    public ByteBuffer getEncoded(RenderedFrameKey key, String formatName) {
+        ByteBuffer bb = encoded.get(new EncodedKey(key, formatName));
+        return bb != null ? bb.asReadOnlyBuffer() : null;
+    }
+
+    @Override
+    public void putEncoded(RenderedFrameKey key, String formatName,
+            byte[] data) {
+        if (data.length > encoded.maxSize)
+            return;
+
+        ByteBuffer bb;
+        if (directBuffers) {
+            bb = ByteBuffer.allocateDirect(data.length);
+            bb.put(data);
+            bb.flip();
+        } else
+            bb = ByteBuffer.wrap(data.clone());
+        encoded.put(new EncodedKey(key, formatName), bb);
+    }
+
+    @Override
+    public void clear() {
+        images.clear();
+        encoded.clear();
+    }
+
+    private static abstract class Segments<K, V> {
+        final long maxSize;
+        final AtomicLong size = new AtomicLong();
+        private final Segment<K, V>[] segments;
+
+        @SuppressWarnings("unchecked")
+        Segments(long maxSize, int n) {
+            this.maxSize = maxSize;
+            this.segments = new Segment[n];
+            for (int i = 0; i < n; i++)
+                segments[i] = new Segment<K, V>();
+        }
+
+        abstract long sizeOf(V value);
+
+        private int indexOf(K key) {
+            int h = key.hashCode();
+            h ^= (h >>> 16);
+            return (h & 0x7fffffff) % segments.length;
+        }
+
+        V get(K key) {
+            return segments[indexOf(key)].get(key);
+        }
+
+        void put(K key, V value) {
+            long valueSize = sizeOf(value);
+            if (valueSize > maxSize)
+                return;
+
+            int i = indexOf(key);
+            V prev = segments[i].put(key, value);
+            size.addAndGet(prev != null ? valueSize - sizeOf(prev) : valueSize);
+            // evict from the segment of the added entry first
+            for (int n = 0; size.get() > maxSize && n < segments.length;) {
+                V evicted = segments[i].removeEldest(key);
+                if (evicted != null)
+                    size.addAndGet(-sizeOf(evicted));
+                else {
+                    n++;
+                    i = (i + 1) % segments.length;
+                }
+            }
+        }
+
+        void clear() {
+            for (Segment<K, V> segment : segments)
+                for (V value : segment.clear())
+                    size.addAndGet(-sizeOf(value));
+        }
+    }
+
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<K, V> map =
+                new LinkedHashMap<K, V>(16, 0.75f, true);
+
+        V get(K key) {
+            lock.lock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V put(K key, V value) {
+            lock.lock();
+            try {
+                return map.put(key, value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Removes the least recently accessed entry, unless it is the entry
+         * with the specified key.
+         *
+         * @return value of the removed entry or {@code null}
+         */
+        V removeEldest(K keep) {
+            lock.lock();
+            try {
+                Iterator<Map.Entry<K, V>> iter = map.entrySet().iterator();
+                if (!iter.hasNext())
+                    return null;
+                Map.Entry<K, V> eldest = iter.next();
+                if (eldest.getKey().equals(keep))
+                    return null;
+                iter.remove();
+                return eldest.getValue();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<V> clear() {
+            lock.lock();
+            try {
+                List<V> values = new ArrayList<V>(map.values());
+                map.clear();
+                return values;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class EncodedKey {
+        private final RenderedFrameKey key;
+        private final String formatName;
+
+        EncodedKey(RenderedFrameKey key, String formatName) {
+            if (formatName == null)
+                throw new NullPointerException("formatName");
+
+            this.key = key;
+            this.formatName = formatName;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + formatName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EncodedKey))
+                return false;
+            EncodedKey other = (EncodedKey) obj;
+            return key.equals(other.key) && formatName.equals(other.formatName);
+        }
+    }
+}
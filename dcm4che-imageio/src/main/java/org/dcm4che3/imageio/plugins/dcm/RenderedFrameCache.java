@@ -0,0 +1,78 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.imageio.plugins.dcm;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+/**
+ * Cache of frames rendered by {@link DicomImageReader} and of their
+ * encodings in formats like JPEG or PNG, as returned by WADO services.
+ * Implementations have to be thread-safe, so one cache can be shared by
+ * several readers.
+ * 
+ * Cached images and encoded frames are shared by all callers and must not
+ * be modified. {@link DicomImageReader} only passes copies of the images it
+ * renders to the cache and returns copies of cached images.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * 
+ * @see DicomImageReader#setRenderedFrameCache(RenderedFrameCache)
+ * @see LRURenderedFrameCache
+ */
+public interface RenderedFrameCache {
+
+    BufferedImage getImage(RenderedFrameKey key);
+
+    void putImage(RenderedFrameKey key, BufferedImage bi);
+
+    /**
+     * Returns the encoding of a rendered frame in the specified format.
+     * 
+     * @param key identifies the rendered frame
+     * @param formatName format name, e.g. {@code "jpeg"} or MIME type
+     * @return read-only view of the encoded frame or {@code null}, if not
+     *         cached
+     */
+    ByteBuffer getEncoded(RenderedFrameKey key, String formatName);
+
+    void putEncoded(RenderedFrameKey key, String formatName, byte[] data);
+
+    void clear();
+}
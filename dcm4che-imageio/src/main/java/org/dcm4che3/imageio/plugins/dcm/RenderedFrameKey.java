@@ -0,0 +1,231 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.imageio.plugins.dcm;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import javax.imageio.ImageReadParam;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+
+/**
+ * Identifies a frame rendered by {@link DicomImageReader} with particular
+ * {@link DicomImageReadParam} settings in a {@link RenderedFrameCache}.
+ * 
+ * As the key only depends on the SOP Instance UID of the image and the read
+ * parameters, it can be created from the parameters of a WADO request
+ * before the image is opened, so a cache hit avoids parsing the image
+ * at all. Presentation States are identified by their SOP Instance UID.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public final class RenderedFrameKey {
+
+    private final String iuid;
+    private final int frameIndex;
+    private final float windowCenter;
+    private final float windowWidth;
+    private final boolean autoWindowing;
+    private final boolean preferWindow;
+    private final int windowIndex;
+    private final int voiLUTIndex;
+    private final int overlayActivationMask;
+    private final int overlayGrayscaleValue;
+    private final Object presentationState;
+    private final Rectangle sourceRegion;
+    private final int sourceXSubsampling;
+    private final int sourceYSubsampling;
+    private final int subsamplingXOffset;
+    private final int subsamplingYOffset;
+    private final Point destinationOffset;
+    private final int hash;
+
+    public RenderedFrameKey(String iuid, int frameIndex, ImageReadParam param) {
+        if (iuid == null)
+            throw new NullPointerException("iuid");
+
+        this.iuid = iuid;
+        this.frameIndex = frameIndex;
+        if (param instanceof DicomImageReadParam) {
+            DicomImageReadParam dParam = (DicomImageReadParam) param;
+            this.windowCenter = dParam.getWindowCenter();
+            this.windowWidth = dParam.getWindowWidth();
+            this.autoWindowing = dParam.isAutoWindowing();
+            this.preferWindow = dParam.isPreferWindow();
+            this.windowIndex = dParam.getWindowIndex();
+            this.voiLUTIndex = dParam.getVOILUTIndex();
+            this.overlayActivationMask = dParam.getOverlayActivationMask();
+            this.overlayGrayscaleValue = dParam.getOverlayGrayscaleValue();
+            this.presentationState =
+                    presentationStateID(dParam.getPresentationState());
+        } else {
+            // defaults applied by DicomImageReader for other ImageReadParams
+            DicomImageReadParam dParam = new DicomImageReadParam();
+            this.windowCenter = dParam.getWindowCenter();
+            this.windowWidth = dParam.getWindowWidth();
+            this.autoWindowing = dParam.isAutoWindowing();
+            this.preferWindow = dParam.isPreferWindow();
+            this.windowIndex = dParam.getWindowIndex();
+            this.voiLUTIndex = dParam.getVOILUTIndex();
+            this.overlayActivationMask = 0xffff;
+            this.overlayGrayscaleValue = 0xffff;
+            this.presentationState = null;
+        }
+        if (param != null) {
+            this.sourceRegion = param.getSourceRegion();
+            this.sourceXSubsampling = param.getSourceXSubsampling();
+            this.sourceYSubsampling = param.getSourceYSubsampling();
+            this.subsamplingXOffset = param.getSubsamplingXOffset();
+            this.subsamplingYOffset = param.getSubsamplingYOffset();
+            this.destinationOffset = param.getDestinationOffset();
+        } else {
+            this.sourceRegion = null;
+            this.sourceXSubsampling = 1;
+            this.sourceYSubsampling = 1;
+            this.subsamplingXOffset = 0;
+            this.subsamplingYOffset = 0;
+            this.destinationOffset = new Point();
+        }
+        this.hash = calcHashCode();
+    }
+
+    private static Object presentationStateID(Attributes psAttrs) {
+        if (psAttrs == null)
+            return null;
+
+        String psuid = psAttrs.getString(Tag.SOPInstanceUID);
+        return psuid != null ? psuid : new Identity(psAttrs);
+    }
+
+    private static final class Identity {
+        private final Object obj;
+
+        Identity(Object obj) {
+            this.obj = obj;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identity && ((Identity) o).obj == obj;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(obj);
+        }
+    }
+
+    public String getSOPInstanceUID() {
+        return iuid;
+    }
+
+    public int getFrameIndex() {
+        return frameIndex;
+    }
+
+    private int calcHashCode() {
+        int h = iuid.hashCode();
+        h = 31 * h + frameIndex;
+        h = 31 * h + Float.floatToIntBits(windowCenter);
+        h = 31 * h + Float.floatToIntBits(windowWidth);
+        h = 31 * h + (autoWindowing ? 1 : 0);
+        h = 31 * h + (preferWindow ? 1 : 0);
+        h = 31 * h + windowIndex;
+        h = 31 * h + voiLUTIndex;
+        h = 31 * h + overlayActivationMask;
+        h = 31 * h + overlayGrayscaleValue;
+        h = 31 * h + hashCode(presentationState);
+        h = 31 * h + hashCode(sourceRegion);
+        h = 31 * h + sourceXSubsampling;
+        h = 31 * h + sourceYSubsampling;
+        h = 31 * h + subsamplingXOffset;
+        h = 31 * h + subsamplingYOffset;
+        return 31 * h + hashCode(destinationOffset);
+    }
+
+    private static int hashCode(Object o) {
+        return o != null ? o.hashCode() : 0;
+    }
+
+    private static boolean equals(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof RenderedFrameKey))
+            return false;
+        RenderedFrameKey other = (RenderedFrameKey) obj;
+        return hash == other.hash
+                && frameIndex == other.frameIndex
+                && iuid.equals(other.iuid)
+                && Float.floatToIntBits(windowCenter)
+                    == Float.floatToIntBits(other.windowCenter)
+                && Float.floatToIntBits(windowWidth)
+                    == Float.floatToIntBits(other.windowWidth)
+                && autoWindowing == other.autoWindowing
+                && preferWindow == other.preferWindow
+                && windowIndex == other.windowIndex
+                && voiLUTIndex == other.voiLUTIndex
+                && overlayActivationMask == other.overlayActivationMask
+                && overlayGrayscaleValue == other.overlayGrayscaleValue
+                && equals(presentationState, other.presentationState)
+                && equals(sourceRegion, other.sourceRegion)
+                && sourceXSubsampling == other.sourceXSubsampling
+                && sourceYSubsampling == other.sourceYSubsampling
+                && subsamplingXOffset == other.subsamplingXOffset
+                && subsamplingYOffset == other.subsamplingYOffset
+                && equals(destinationOffset, other.destinationOffset);
+    }
+
+    @Override
+    public String toString() {
+        return "RenderedFrameKey[iuid=" + iuid + ", frame=" + (frameIndex + 1)
+                + ", hash=" + hash + "]";
+    }
+}
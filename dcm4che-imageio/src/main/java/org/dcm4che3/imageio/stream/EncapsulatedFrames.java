@@ -0,0 +1,169 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.imageio.stream;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.imageio.stream.ImageInputStream;
+
+import org.dcm4che3.data.BulkData;
+import org.dcm4che3.data.Fragments;
+import org.dcm4che3.util.ByteUtils;
+
+/**
+ * Maps frames of encapsulated Pixel Data to the Pixel Data Fragments
+ * containing them, so the compressed bit stream of any frame can be
+ * accessed without scanning the preceding fragments.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ *
+ */
+public class EncapsulatedFrames {
+
+    private final long[] segmentPositions;
+    private final int[] segmentLengths;
+    private final int[] firstSegment;
+    private final int[] endSegment;
+
+    /**
+     * Creates the frame to fragment table. If the number of fragments does
+     * not match the number of frames, the frames are located by the Basic
+     * Offset Table, which is read from {@code iis}, if it was not included
+     * in {@code pixeldataFragments}. Without Basic Offset Table, each frame
+     * is assumed to start with the fragment following the fragment of the
+     * previous frame.
+     * 
+     * @param iis input stream the Pixel Data Fragments are read from
+     * @param pixeldataFragments Basic Offset Table and Pixel Data Fragments
+     * @param frames Number of Frames
+     * @throws IOException if the Basic Offset Table cannot be read or
+     *         does not match the Pixel Data Fragments
+     */
+    public EncapsulatedFrames(ImageInputStream iis,
+            Fragments pixeldataFragments, int frames) throws IOException {
+        int n = pixeldataFragments.size() - 1;
+        this.segmentPositions = new long[n];
+        this.segmentLengths = new int[n];
+        for (int i = 0; i < n; i++) {
+            BulkData bulkData = (BulkData) pixeldataFragments.get(i + 1);
+            segmentPositions[i] = bulkData.offset;
+            segmentLengths[i] = bulkData.length;
+        }
+        this.firstSegment = new int[frames];
+        this.endSegment = new int[frames];
+        if (frames == 1) {
+            endSegment[0] = n;
+        } else if (frames == n) {
+            for (int i = 0; i < frames; i++) {
+                firstSegment[i] = i;
+                endSegment[i] = i + 1;
+            }
+        } else {
+            int[] offsets = readBasicOffsetTable(iis, pixeldataFragments.get(0));
+            if (offsets.length == frames) {
+                for (int i = 0; i < frames; i++) {
+                    firstSegment[i] = segmentOfItemOffset(offsets[i]);
+                    if (i > 0)
+                        endSegment[i-1] = firstSegment[i];
+                }
+                endSegment[frames-1] = n;
+            } else {
+                for (int i = 0; i < frames; i++) {
+                    firstSegment[i] = i;
+                    endSegment[i] = n;
+                }
+            }
+        }
+    }
+
+    private int segmentOfItemOffset(int offset) throws IOException {
+        if (segmentPositions.length > 0) {
+            int index = Arrays.binarySearch(segmentPositions,
+                    segmentPositions[0] + (offset & 0xffffffffL));
+            if (index >= 0)
+                return index;
+        }
+        throw new IOException(
+                "Basic Offset Table does not match Pixel Data Fragments");
+    }
+
+    private static int[] readBasicOffsetTable(ImageInputStream iis,
+            Object bot) throws IOException {
+        byte[] b;
+        if (bot instanceof byte[]) {
+            b = (byte[]) bot;
+        } else if (bot instanceof BulkData && iis != null) {
+            BulkData bulkData = (BulkData) bot;
+            b = new byte[bulkData.length];
+            iis.seek(bulkData.offset);
+            iis.readFully(b);
+        } else
+            return new int[0];
+
+        int[] offsets = new int[b.length >> 2];
+        for (int i = 0; i < offsets.length; i++)
+            offsets[i] = ByteUtils.bytesToIntLE(b, i << 2);
+        return offsets;
+    }
+
+    public int getNumberOfFrames() {
+        return firstSegment.length;
+    }
+
+    public int getNumberOfFragments(int frameIndex) {
+        return endSegment[frameIndex] - firstSegment[frameIndex];
+    }
+
+    /**
+     * Returns a stream over the fragments of the specified frame. Multiple
+     * frames may be read concurrently by passing different underlying
+     * streams.
+     * 
+     * @param iis input stream the Pixel Data Fragments are read from
+     * @param frameIndex index of the frame
+     * @return stream over the compressed bit stream of the frame
+     * @throws IOException if an I/O error occurs
+     */
+    public SegmentedInputImageStream openFrame(ImageInputStream iis,
+            int frameIndex) throws IOException {
+        return new SegmentedInputImageStream(iis, segmentPositions,
+                segmentLengths, firstSegment[frameIndex], endSegment[frameIndex]);
+    }
+}
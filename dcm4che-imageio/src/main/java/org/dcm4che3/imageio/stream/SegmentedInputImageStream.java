@@ -39,6 +39,7 @@
 package org.dcm4che3.imageio.stream;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageInputStreamImpl;
@@ -82,6 +83,17 @@ public class SegmentedInputImageStream extends ImageInputStreamImpl {
         seek(0);
     }
 
+    SegmentedInputImageStream(ImageInputStream stream,
+            long[] segmentPositionsList, int[] segmentLengths,
+            int fromSegment, int toSegment) throws IOException {
+        this.stream = stream;
+        this.segmentPositionsList = Arrays.copyOfRange(
+                segmentPositionsList, fromSegment, toSegment);
+        this.segmentLengths = Arrays.copyOfRange(
+                segmentLengths, fromSegment, toSegment);
+        seek(0);
+    }
+
     private int offsetOf(int segment) {
         int pos = 0;
         for (int i = 0; i < segment; ++i)
@@ -89,6 +101,14 @@ public class SegmentedInputImageStream extends ImageInputStreamImpl {
         return pos;
     }
 
+    @Override
+    public long length() {
+        long length = 0;
+        for (int segmentLength : segmentLengths)
+            length += segmentLength;
+        return length;
+    }
+
     @Override
     public void seek(long pos) throws IOException {
         super.seek(pos);
@@ -129,7 +149,7 @@ public class SegmentedInputImageStream extends ImageInputStreamImpl {
             return false;
         
         seek(offsetOf(curSegment+1));
-        return true;
+        return curSegment >= 0;
     }
 
     @Override
@@ -0,0 +1,261 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.imageio.codec;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.BulkData;
+import org.dcm4che3.data.Fragments;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.data.Value;
+import org.dcm4che3.io.DicomEncodingOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the parallel compression and decompression of multi-frame
+ * images with the sequential one.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class CompressorTest {
+
+    private static final int ROWS = 32;
+    private static final int COLUMNS = 48;
+    private static final int FRAMES = 7;
+
+    private final List<File> files = new ArrayList<File>();
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        for (File file : files)
+            file.delete();
+    }
+
+    @Test
+    public void testGray16() throws IOException {
+        byte[] pixeldata = pixeldata(1, 16);
+        List<byte[]> frames = assertParallelCompress(
+                createNative(pixeldata, 1, 16, "MONOCHROME2"));
+        assertArrayEquals("lossless",
+                pixeldata, assertParallelDecompress(frames, 1, 16, "MONOCHROME2"));
+    }
+
+    @Test
+    public void testRGB8() throws IOException {
+        byte[] pixeldata = pixeldata(3, 8);
+        List<byte[]> frames = assertParallelCompress(
+                createNative(pixeldata, 3, 8, "RGB"));
+        assertEquals(FRAMES * ROWS * COLUMNS * 3,
+                assertParallelDecompress(frames, 3, 8, "RGB").length);
+    }
+
+    @Test
+    public void testParallelCompressFailure() throws IOException {
+        Attributes dataset = createNative(pixeldata(1, 16), 1, 16,
+                "MONOCHROME2");
+        files.get(0).delete();
+        Compressor compressor = new Compressor(dataset,
+                UID.ExplicitVRLittleEndian);
+        try {
+            compressor.setExecutor(executor);
+            compressor.setMaxFramesInFlight(3);
+            assertTrue(compressor.compress(UID.RLELossless));
+            Fragments fragments = (Fragments) dataset.getValue(Tag.PixelData);
+            try {
+                ((Value) fragments.get(1)).getEncodedLength(
+                        DicomEncodingOptions.DEFAULT, true, VR.OB);
+                fail("failed compression not reported");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        } finally {
+            compressor.close();
+        }
+    }
+
+    private List<byte[]> assertParallelCompress(Attributes dataset)
+            throws IOException {
+        List<byte[]> expected = compress(new Attributes(dataset), false);
+        List<byte[]> actual = compress(new Attributes(dataset), true);
+        assertEquals(FRAMES, expected.size());
+        assertEquals(FRAMES, actual.size());
+        for (int i = 0; i < FRAMES; i++)
+            assertArrayEquals("frame #" + (i + 1),
+                    expected.get(i), actual.get(i));
+        return expected;
+    }
+
+    private byte[] assertParallelDecompress(List<byte[]> frames,
+            int samples, int bitsAllocated, String pmi) throws IOException {
+        byte[] expected = decompress(
+                createRLE(frames, samples, bitsAllocated, pmi), false);
+        byte[] actual = decompress(
+                createRLE(frames, samples, bitsAllocated, pmi), true);
+        assertArrayEquals(expected, actual);
+        return expected;
+    }
+
+    private List<byte[]> compress(Attributes dataset, boolean parallel)
+            throws IOException {
+        Compressor compressor = new Compressor(dataset,
+                UID.ExplicitVRLittleEndian);
+        try {
+            if (parallel) {
+                compressor.setExecutor(executor);
+                compressor.setMaxFramesInFlight(3);
+            }
+            assertTrue(compressor.compress(UID.RLELossless));
+            Fragments fragments = (Fragments) dataset.getValue(Tag.PixelData);
+            assertEquals(FRAMES + 1, fragments.size());
+            List<byte[]> frames = new ArrayList<byte[]>(FRAMES);
+            for (int i = 1; i <= FRAMES; i++)
+                frames.add(((Value) fragments.get(i)).toBytes(VR.OB, false));
+            return frames;
+        } finally {
+            compressor.close();
+        }
+    }
+
+    private byte[] decompress(Attributes dataset, boolean parallel)
+            throws IOException {
+        Decompressor decompressor = new Decompressor(dataset,
+                UID.RLELossless);
+        if (parallel) {
+            decompressor.setExecutor(executor);
+            decompressor.setMaxFramesInFlight(3);
+        }
+        assertTrue(decompressor.decompress());
+        return ((Value) dataset.getValue(Tag.PixelData)).toBytes(VR.OW, false);
+    }
+
+    private static byte[] pixeldata(int samples, int bitsAllocated) {
+        byte[] b = new byte[FRAMES * ROWS * COLUMNS * samples
+                            * (bitsAllocated >> 3)];
+        if (bitsAllocated == 8) {
+            for (int i = 0; i < b.length; i++)
+                b[i] = (byte) (i % 200 < 150 ? i / 200 : i * 37);
+        } else {
+            // 12 bits stored, little endian
+            for (int i = 0, j = 0; j < b.length; i++) {
+                int val = (i % 100 < 60 ? i / 100 : i * 37) & 0xfff;
+                b[j++] = (byte) val;
+                b[j++] = (byte) (val >> 8);
+            }
+        }
+        return b;
+    }
+
+    private Attributes createImage(int samples, int bitsAllocated,
+            String pmi) {
+        Attributes dataset = new Attributes();
+        dataset.setInt(Tag.SamplesPerPixel, VR.US, samples);
+        dataset.setString(Tag.PhotometricInterpretation, VR.CS, pmi);
+        if (samples > 1)
+            dataset.setInt(Tag.PlanarConfiguration, VR.US, 0);
+        dataset.setInt(Tag.NumberOfFrames, VR.IS, FRAMES);
+        dataset.setInt(Tag.Rows, VR.US, ROWS);
+        dataset.setInt(Tag.Columns, VR.US, COLUMNS);
+        dataset.setInt(Tag.BitsAllocated, VR.US, bitsAllocated);
+        dataset.setInt(Tag.BitsStored, VR.US, bitsAllocated == 8 ? 8 : 12);
+        dataset.setInt(Tag.HighBit, VR.US, bitsAllocated == 8 ? 7 : 11);
+        dataset.setInt(Tag.PixelRepresentation, VR.US, 0);
+        return dataset;
+    }
+
+    private Attributes createNative(byte[] pixeldata, int samples,
+            int bitsAllocated, String pmi) throws IOException {
+        File file = write(pixeldata);
+        Attributes dataset = createImage(samples, bitsAllocated, pmi);
+        dataset.setValue(Tag.PixelData, bitsAllocated == 8 ? VR.OB : VR.OW,
+                new BulkData(file.toURI().toString(), 0, pixeldata.length,
+                        false));
+        return dataset;
+    }
+
+    private Attributes createRLE(List<byte[]> frames, int samples,
+            int bitsAllocated, String pmi) throws IOException {
+        File file = write(frames.toArray(new byte[frames.size()][]));
+        Attributes dataset = createImage(samples, bitsAllocated, pmi);
+        if (samples > 1)
+            dataset.setInt(Tag.PlanarConfiguration, VR.US, 1);
+        Fragments fragments = dataset.newFragments(Tag.PixelData, VR.OB,
+                frames.size() + 1);
+        fragments.add(Value.NULL);
+        long offset = 0;
+        for (byte[] frame : frames) {
+            fragments.add(new BulkData(file.toURI().toString(), offset,
+                    frame.length, false));
+            offset += frame.length;
+        }
+        return dataset;
+    }
+
+    private File write(byte[]... bs) throws IOException {
+        File file = File.createTempFile("pixeldata", ".raw");
+        files.add(file);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            for (byte[] b : bs)
+                out.write(b);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
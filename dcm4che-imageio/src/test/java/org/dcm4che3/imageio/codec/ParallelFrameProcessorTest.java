@@ -0,0 +1,199 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.imageio.codec;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class ParallelFrameProcessorTest {
+
+    private static final int FRAMES = 10;
+    private static final int MAX_FRAMES_IN_FLIGHT = 3;
+
+    private static class FrameIndexProcessor
+            extends ParallelFrameProcessor<Object> {
+
+        final List<Integer> processed = new ArrayList<Integer>();
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger disposed = new AtomicInteger();
+        final AtomicInteger maxAhead = new AtomicInteger();
+        volatile int accessed;
+
+        FrameIndexProcessor(Executor executor) {
+            super(executor, FRAMES, MAX_FRAMES_IN_FLIGHT);
+        }
+
+        @Override
+        protected Object createWorker() throws IOException {
+            created.incrementAndGet();
+            return new Object();
+        }
+
+        @Override
+        protected byte[] process(Object worker, int frameIndex)
+                throws IOException {
+            synchronized (processed) {
+                processed.add(frameIndex);
+            }
+            int ahead = frameIndex - accessed;
+            int prev;
+            while (ahead > (prev = maxAhead.get())
+                    && !maxAhead.compareAndSet(prev, ahead))
+                ;
+            return new byte[] { (byte) frameIndex };
+        }
+
+        @Override
+        protected void dispose(Object worker) {
+            disposed.incrementAndGet();
+        }
+
+        byte[] access(int frameIndex) throws IOException {
+            accessed = frameIndex;
+            return get(frameIndex);
+        }
+    }
+
+    @Test
+    public void testMaxFramesInFlight() throws IOException {
+        FrameIndexProcessor processor = new FrameIndexProcessor(
+                new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        for (int i = 0; i < FRAMES; i++) {
+            assertEquals(i, processor.access(i)[0]);
+            assertEquals("processed frames on access of frame #" + (i + 1),
+                    Math.min(FRAMES, i + MAX_FRAMES_IN_FLIGHT),
+                    processor.processed.size());
+            processor.release(i);
+        }
+        processor.dispose();
+        assertEquals(1, processor.created.get());
+        assertEquals(1, processor.disposed.get());
+    }
+
+    @Test
+    public void testMaxFramesInFlightParallel() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            FrameIndexProcessor processor = new FrameIndexProcessor(executor);
+            for (int i = 0; i < FRAMES; i++) {
+                assertEquals(i, processor.access(i)[0]);
+                processor.release(i);
+            }
+            processor.dispose();
+            assertEquals(FRAMES, processor.processed.size());
+            assertTrue("frames processed ahead: " + processor.maxAhead.get(),
+                    processor.maxAhead.get() < MAX_FRAMES_IN_FLIGHT);
+            assertEquals(processor.created.get(), processor.disposed.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailurePropagated() throws IOException {
+        final IOException ioe = new IOException("frame #3");
+        final IllegalStateException ise = new IllegalStateException("frame #4");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ParallelFrameProcessor<Object> processor =
+                new ParallelFrameProcessor<Object>(executor, FRAMES,
+                        MAX_FRAMES_IN_FLIGHT) {
+
+            @Override
+            protected Object createWorker() {
+                return new Object();
+            }
+
+            @Override
+            protected byte[] process(Object worker, int frameIndex)
+                    throws IOException {
+                if (frameIndex == 2)
+                    throw ioe;
+                if (frameIndex == 3)
+                    throw ise;
+                return new byte[] { (byte) frameIndex };
+            }
+
+            @Override
+            protected void dispose(Object worker) {
+            }
+        };
+        try {
+            assertEquals(0, processor.get(0)[0]);
+            assertEquals(1, processor.get(1)[0]);
+            try {
+                processor.get(2);
+                fail("IOException expected");
+            } catch (IOException e) {
+                assertSame(ioe, e);
+            }
+            try {
+                processor.get(3);
+                fail("IllegalStateException expected");
+            } catch (IllegalStateException e) {
+                assertSame(ise, e);
+            }
+            assertEquals(4, processor.get(4)[0]);
+        } finally {
+            processor.dispose();
+            executor.shutdown();
+        }
+        try {
+            processor.get(5);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.imageio.plugins.dcm;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+import org.junit.Test;
+
+/**
+ * Tests reading of rendered frames from a {@link RenderedFrameCache}.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class DicomImageReaderTest {
+
+    private static final String IUID = "1.2.3.4";
+    private static final int ROWS = 16;
+    private static final int COLUMNS = 16;
+
+    @Test
+    public void testCacheHit() throws IOException {
+        LRURenderedFrameCache cache = new LRURenderedFrameCache(1 << 20);
+        DicomImageReader reader = new DicomImageReader(null);
+        reader.setRenderedFrameCache(cache);
+        reader.setInput(input(createImage()));
+        BufferedImage rendered = reader.read(0, null);
+        int pixel = rendered.getRGB(3, 5);
+        assertEquals(ROWS * COLUMNS, cache.getImageBytes());
+
+        rendered.setRGB(3, 5, ~pixel);
+        BufferedImage cached = reader.read(0, null);
+        assertNotSame(rendered, cached);
+        assertEquals("cached copy not modified", pixel, cached.getRGB(3, 5));
+        cached.setRGB(3, 5, ~pixel);
+        assertEquals("cache returns copies", pixel,
+                reader.read(0, null).getRGB(3, 5));
+        reader.dispose();
+    }
+
+    @Test
+    public void testCacheHitBeforeReadMetadata() throws IOException {
+        LRURenderedFrameCache cache = new LRURenderedFrameCache(1 << 20);
+        DicomImageReader reader = new DicomImageReader(null);
+        reader.setRenderedFrameCache(cache);
+        reader.setInput(input(createImage()));
+        int pixel = reader.read(0, null).getRGB(3, 5);
+
+        // a hit must not read the - here invalid - input
+        reader.setInput(input(new byte[0]));
+        reader.setSOPInstanceUID(IUID);
+        assertEquals(pixel, reader.read(0, null).getRGB(3, 5));
+
+        reader.setSOPInstanceUID("1.2.3.5");
+        try {
+            reader.read(0, null);
+            fail("cache miss must read the input");
+        } catch (IOException expected) {
+        }
+        reader.dispose();
+    }
+
+    private static ImageInputStream input(byte[] b) {
+        return new MemoryCacheImageInputStream(
+                new ByteArrayInputStream(b));
+    }
+
+    private static byte[] createImage() throws IOException {
+        Attributes ds = new Attributes();
+        ds.setString(Tag.SOPClassUID, VR.UI, UID.SecondaryCaptureImageStorage);
+        ds.setString(Tag.SOPInstanceUID, VR.UI, IUID);
+        ds.setInt(Tag.SamplesPerPixel, VR.US, 1);
+        ds.setString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+        ds.setInt(Tag.Rows, VR.US, ROWS);
+        ds.setInt(Tag.Columns, VR.US, COLUMNS);
+        ds.setInt(Tag.BitsAllocated, VR.US, 8);
+        ds.setInt(Tag.BitsStored, VR.US, 8);
+        ds.setInt(Tag.HighBit, VR.US, 7);
+        ds.setInt(Tag.PixelRepresentation, VR.US, 0);
+        byte[] pixeldata = new byte[ROWS * COLUMNS];
+        for (int i = 0; i < pixeldata.length; i++)
+            pixeldata[i] = (byte) i;
+        ds.setBytes(Tag.PixelData, VR.OB, pixeldata);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DicomOutputStream out = new DicomOutputStream(bout,
+                UID.ExplicitVRLittleEndian);
+        out.writeDataset(
+                ds.createFileMetaInformation(UID.ExplicitVRLittleEndian), ds);
+        out.close();
+        return bout.toByteArray();
+    }
+}
@@ -0,0 +1,180 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.imageio.plugins.dcm;
+
+import static org.junit.Assert.*;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageReadParam;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.VR;
+import org.junit.Test;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class LRURenderedFrameCacheTest {
+
+    private static final int IMAGE_BYTES = 16 * 16;
+
+    @Test
+    public void testKeyEquals() {
+        assertEquals(new RenderedFrameKey("1.2.3", 0, null),
+                new RenderedFrameKey("1.2.3", 0, new ImageReadParam()));
+        DicomImageReadParam param = new DicomImageReadParam();
+        RenderedFrameKey key = new RenderedFrameKey("1.2.3", 0, param);
+        assertEquals(key,
+                new RenderedFrameKey("1.2.3", 0, new DicomImageReadParam()));
+        assertEquals(key.hashCode(),
+                new RenderedFrameKey("1.2.3", 0, new DicomImageReadParam())
+                        .hashCode());
+        assertFalse("other overlays rendered without DicomImageReadParam",
+                key.equals(new RenderedFrameKey("1.2.3", 0, null)));
+        assertFalse(key.equals(new RenderedFrameKey("1.2.4", 0, param)));
+        assertFalse(key.equals(new RenderedFrameKey("1.2.3", 1, param)));
+
+        DicomImageReadParam window = new DicomImageReadParam();
+        window.setWindowCenter(40);
+        window.setWindowWidth(400);
+        assertFalse(key.equals(new RenderedFrameKey("1.2.3", 0, window)));
+
+        DicomImageReadParam region = new DicomImageReadParam();
+        region.setSourceRegion(new Rectangle(0, 0, 8, 8));
+        assertFalse(key.equals(new RenderedFrameKey("1.2.3", 0, region)));
+
+        DicomImageReadParam ps1 = new DicomImageReadParam();
+        ps1.setPresentationState(presentationState("1.2.3.9"));
+        DicomImageReadParam ps2 = new DicomImageReadParam();
+        ps2.setPresentationState(presentationState("1.2.3.9"));
+        assertEquals("same Presentation State UID",
+                new RenderedFrameKey("1.2.3", 0, ps1),
+                new RenderedFrameKey("1.2.3", 0, ps2));
+        assertFalse(key.equals(new RenderedFrameKey("1.2.3", 0, ps1)));
+    }
+
+    private static Attributes presentationState(String iuid) {
+        Attributes attrs = new Attributes();
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, iuid);
+        return attrs;
+    }
+
+    private static RenderedFrameKey key(int frameIndex) {
+        return new RenderedFrameKey("1.2.3", frameIndex, null);
+    }
+
+    private static BufferedImage image() {
+        return new BufferedImage(16, 16, BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    @Test
+    public void testEvictImages() {
+        LRURenderedFrameCache cache =
+                new LRURenderedFrameCache(3 * IMAGE_BYTES, 0, false, 1);
+        BufferedImage bi0 = image();
+        cache.putImage(key(0), bi0);
+        cache.putImage(key(1), image());
+        cache.putImage(key(2), image());
+        assertSame(bi0, cache.getImage(key(0)));
+        cache.putImage(key(3), image());
+        assertEquals(3 * IMAGE_BYTES, cache.getImageBytes());
+        assertNotNull("recently accessed", cache.getImage(key(0)));
+        assertNull("least recently accessed", cache.getImage(key(1)));
+        assertNotNull(cache.getImage(key(2)));
+        assertNotNull(cache.getImage(key(3)));
+    }
+
+    @Test
+    public void testEvictOverSegments() {
+        LRURenderedFrameCache cache =
+                new LRURenderedFrameCache(3 * IMAGE_BYTES, 0, false, 4);
+        for (int i = 0; i < 10; i++) {
+            cache.putImage(key(i), image());
+            assertTrue(cache.getImageBytes() <= 3 * IMAGE_BYTES);
+            assertNotNull("added image", cache.getImage(key(i)));
+        }
+        int cached = 0;
+        for (int i = 0; i < 10; i++)
+            if (cache.getImage(key(i)) != null)
+                cached++;
+        assertEquals(3, cached);
+        cache.clear();
+        assertEquals(0, cache.getImageBytes());
+    }
+
+    @Test
+    public void testImageTooLarge() {
+        LRURenderedFrameCache cache =
+                new LRURenderedFrameCache(IMAGE_BYTES - 1);
+        cache.putImage(key(0), image());
+        assertNull(cache.getImage(key(0)));
+        assertEquals(0, cache.getImageBytes());
+    }
+
+    @Test
+    public void testEncoded() {
+        testEncoded(false);
+    }
+
+    @Test
+    public void testEncodedDirectBuffers() {
+        testEncoded(true);
+    }
+
+    private void testEncoded(boolean directBuffers) {
+        LRURenderedFrameCache cache =
+                new LRURenderedFrameCache(0, 10, directBuffers);
+        byte[] data = { 1, 2, 3, 4, 5, 6 };
+        cache.putEncoded(key(0), "jpeg", data);
+        data[0] = 0;
+        assertNull(cache.getEncoded(key(0), "png"));
+        ByteBuffer bb = cache.getEncoded(key(0), "jpeg");
+        assertTrue(bb.isReadOnly());
+        assertEquals(6, bb.remaining());
+        assertEquals(1, bb.get());
+        assertEquals("independent position", 6,
+                cache.getEncoded(key(0), "jpeg").remaining());
+        cache.putEncoded(key(1), "jpeg", new byte[6]);
+        assertNull("evicted", cache.getEncoded(key(0), "jpeg"));
+        assertEquals(6, cache.getEncodedBytes());
+    }
+}
@@ -0,0 +1,184 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.imageio.stream;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.dcm4che3.data.BulkData;
+import org.dcm4che3.data.Fragments;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.util.ByteUtils;
+import org.junit.Test;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class EncapsulatedFramesTest {
+
+    private static final String URI = "file:/pixeldata";
+
+    /**
+     * Fragment lengths of 3 frames, each Item preceded by an 8 byte
+     * Item Header.
+     */
+    private static final int[][] FRAGMENTS = { { 10 }, { 6, 4, 8 }, { 2, 12 } };
+
+    @Test
+    public void testOneFragmentPerFrame() throws IOException {
+        assertFrames(new int[][] { { 10 }, { 6 }, { 8 } }, false);
+    }
+
+    @Test
+    public void testBasicOffsetTable() throws IOException {
+        assertFrames(FRAGMENTS, true);
+    }
+
+    @Test
+    public void testBasicOffsetTableInStream() throws IOException {
+        byte[] bot = basicOffsetTable(FRAGMENTS);
+        byte[] data = fragmentData(FRAGMENTS, bot.length);
+        System.arraycopy(bot, 0, data, 0, bot.length);
+        Fragments fragments = fragments(FRAGMENTS, bot.length);
+        fragments.set(0, new BulkData(URI, 0, bot.length, false));
+        assertFrames(FRAGMENTS, fragments,
+                new MemoryCacheImageInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    public void testNoBasicOffsetTable() throws IOException {
+        int[][] frags = { { 10 }, { 6 }, { 4, 8 } };
+        EncapsulatedFrames frames = new EncapsulatedFrames(null,
+                fragments(frags, 0), frags.length);
+        assertEquals(frags.length, frames.getNumberOfFrames());
+        // each frame starts with the next fragment and may span up to the
+        // last fragment
+        assertEquals(4, frames.getNumberOfFragments(0));
+        assertEquals(2, frames.getNumberOfFragments(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMismatchingBasicOffsetTable() throws IOException {
+        Fragments fragments = fragments(FRAGMENTS, 0);
+        byte[] bot = basicOffsetTable(FRAGMENTS);
+        ByteUtils.intToBytesLE(7, bot, 4);
+        fragments.set(0, bot);
+        new EncapsulatedFrames(null, fragments, FRAGMENTS.length);
+    }
+
+    private static void assertFrames(int[][] frags, boolean bot)
+            throws IOException {
+        Fragments fragments = fragments(frags, 0);
+        if (bot)
+            fragments.set(0, basicOffsetTable(frags));
+        assertFrames(frags, fragments, new MemoryCacheImageInputStream(
+                new ByteArrayInputStream(fragmentData(frags, 0))));
+    }
+
+    private static void assertFrames(int[][] frags, Fragments fragments,
+            ImageInputStream iis) throws IOException {
+        EncapsulatedFrames frames = new EncapsulatedFrames(iis, fragments,
+                frags.length);
+        assertEquals(frags.length, frames.getNumberOfFrames());
+        // access frames in reverse order
+        for (int i = frags.length; --i >= 0;) {
+            assertEquals(frags[i].length, frames.getNumberOfFragments(i));
+            SegmentedInputImageStream siis = frames.openFrame(iis, i);
+            int len = 0;
+            for (int fragLen : frags[i])
+                len += fragLen;
+            byte[] b = new byte[len];
+            siis.readFully(b);
+            for (int j = 0; j < len; j++)
+                assertEquals("frame #" + (i + 1) + ", byte #" + j, i + 1, b[j]);
+            assertEquals(-1, siis.read());
+        }
+    }
+
+    /**
+     * Returns the Basic Offset Table, referencing the first Item of each
+     * frame relative to the first Item following the Basic Offset Table.
+     */
+    private static byte[] basicOffsetTable(int[][] frags) {
+        byte[] bot = new byte[frags.length * 4];
+        int offset = 0;
+        for (int i = 0; i < frags.length; i++) {
+            ByteUtils.intToBytesLE(offset, bot, i * 4);
+            for (int fragLen : frags[i])
+                offset += 8 + fragLen;
+        }
+        return bot;
+    }
+
+    /**
+     * Returns the Items of the frames, each byte set to the frame number,
+     * starting at {@code start}. Item Headers are left zero.
+     */
+    private static byte[] fragmentData(int[][] frags, int start) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < start; i++)
+            out.write(0);
+        for (int i = 0; i < frags.length; i++)
+            for (int fragLen : frags[i]) {
+                for (int j = 0; j < 8; j++)
+                    out.write(0);
+                for (int j = 0; j < fragLen; j++)
+                    out.write(i + 1);
+            }
+        return out.toByteArray();
+    }
+
+    private static Fragments fragments(int[][] frags, int start) {
+        Fragments fragments = new Fragments(VR.OB, false, 8);
+        fragments.add(new byte[0]);
+        long offset = start;
+        for (int[] frame : frags)
+            for (int fragLen : frame) {
+                offset += 8;
+                fragments.add(new BulkData(URI, offset, fragLen, false));
+                offset += fragLen;
+            }
+        return fragments;
+    }
+}
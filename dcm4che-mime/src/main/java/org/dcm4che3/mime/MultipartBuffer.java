@@ -0,0 +1,118 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.mime;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Read-ahead buffer of a multipart body, shared by the
+ * {@link MultipartInputStream}s of its body parts.
+ * 
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+final class MultipartBuffer {
+
+    static final int DEFAULT_BUFFER_SIZE = 0x10000;
+
+    private final InputStream in;
+    byte[] buf;
+    int pos;
+    int limit;
+    int end;
+    int mark = -1;
+    int markLimit;
+
+    MultipartBuffer(InputStream in, int size) {
+        if (in == null)
+            throw new NullPointerException();
+        if (size <= 0)
+            throw new IllegalArgumentException("size: " + size);
+        this.in = in;
+        this.buf = new byte[size];
+    }
+
+    int remaining() {
+        return limit - pos;
+    }
+
+    /**
+     * Reads from the underlying stream until at least {@code min} bytes
+     * are available in the buffer.
+     * 
+     * @return {@code false} if the end of the stream was reached before
+     */
+    boolean fill(int min) throws IOException {
+        while (limit - pos < min) {
+            if (limit == buf.length)
+                compact(min);
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0)
+                return false;
+            limit += n;
+        }
+        return true;
+    }
+
+    private void compact(int min) {
+        int start = pos;
+        if (mark >= 0) {
+            if (pos - mark <= markLimit)
+                start = mark;
+            else
+                mark = -1;
+        }
+        if (start == 0) {
+            byte[] tmp = new byte[Math.max(buf.length << 1, min)];
+            System.arraycopy(buf, 0, tmp, 0, limit);
+            buf = tmp;
+            return;
+        }
+        System.arraycopy(buf, start, buf, 0, limit - start);
+        pos -= start;
+        limit -= start;
+        end -= start;
+        if (mark >= 0)
+            mark -= start;
+    }
+
+    int read() throws IOException {
+        return fill(1) ? buf[pos++] & 0xff : -1;
+    }
+}
@@ -41,108 +41,185 @@ import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 /**
+ * Body part of a multipart body. The end of the body part is detected by a
+ * Boyer-Moore-Horspool search for the delimiter in a read-ahead buffer, which
+ * is shared with the following body parts. The content is read directly from
+ * that buffer; {@link #transferTo(OutputStream)} writes it without copying.
+ * 
+ * <p>Supports {@link #mark} and {@link #reset}, so it can be passed to
+ * {@code DicomInputStream} without additional buffering.</p>
+ * 
  * @author Gunter Zeilinger <gunterze@gmail.com>
  *
  */
 public class MultipartInputStream extends FilterInputStream {
 
-    private final byte[] boundary;
-    private final byte[] buffer;
-    private int rpos;
+    private final MultipartBuffer buffer;
+    private final byte[] delimiter;
+    private final int[] skip = new int[256];
     private boolean boundarySeen;
+    private boolean boundarySkipped;
 
     protected MultipartInputStream(InputStream in, String boundary) {
-        super(in);
-        this.boundary = boundary.getBytes();
-        this.buffer = new byte[this.boundary.length];
-        this.rpos = buffer.length;
-        
+        this(new MultipartBuffer(in,
+                Math.max(MultipartBuffer.DEFAULT_BUFFER_SIZE,
+                        boundary.length() << 1)),
+                boundary);
+    }
+
+    MultipartInputStream(MultipartBuffer buffer, String delimiter) {
+        super(null);
+        this.buffer = buffer;
+        this.delimiter = delimiter.getBytes();
+        Arrays.fill(skip, this.delimiter.length);
+        for (int i = 0, last = this.delimiter.length - 1; i < last; i++)
+            skip[this.delimiter[i] & 0xff] = last - i;
+        buffer.end = buffer.pos;
+        buffer.mark = -1;
     }
 
     @Override
     public int read() throws IOException {
-        return isBoundary() ? -1 : buffer[rpos++];
+        return isBoundary() ? -1 : buffer.buf[buffer.pos++] & 0xff;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length)
+            throw new IndexOutOfBoundsException();
+        if (len == 0)
+            return 0;
         if (isBoundary())
             return -1;
 
-        int l = Math.min(remaining(), len);
-        System.arraycopy(buffer, rpos, b, off, l);
-        rpos += l;
+        int l = Math.min(buffer.end - buffer.pos, len);
+        System.arraycopy(buffer.buf, buffer.pos, b, off, l);
+        buffer.pos += l;
         return l;
     }
 
     @Override
     public long skip(long n) throws IOException {
-        if (isBoundary())
+        if (n <= 0 || isBoundary())
             return 0L;
 
-        long l = Math.min(remaining(), n);
-        rpos += l;
+        int l = (int) Math.min(buffer.end - buffer.pos, n);
+        buffer.pos += l;
         return l;
     }
 
+    @Override
+    public int available() throws IOException {
+        return boundarySeen ? 0 : buffer.end - buffer.pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the underlying stream is shared with following body parts
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        buffer.mark = buffer.pos;
+        buffer.markLimit = readlimit;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (buffer.mark < 0 || boundarySkipped)
+            throw new IOException("Resetting to invalid mark");
+
+        buffer.pos = buffer.end = buffer.mark;
+        boundarySeen = false;
+    }
+
     public void skipAll() throws IOException {
         while (!isBoundary())
-            rpos += remaining();
+            buffer.pos = buffer.end;
+        if (!boundarySkipped) {
+            buffer.pos += delimiter.length;
+            buffer.end = buffer.pos;
+            buffer.mark = -1;
+            boundarySkipped = true;
+        }
+    }
+
+    /**
+     * Writes the remaining content of the body part to the specified
+     * output stream, directly from the read-ahead buffer.
+     * 
+     * @param out the output stream
+     * @return number of bytes written
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        long count = 0L;
+        while (!isBoundary()) {
+            int l = buffer.end - buffer.pos;
+            out.write(buffer.buf, buffer.pos, l);
+            buffer.pos += l;
+            count += l;
+        }
+        return count;
     }
 
     public boolean isZIP() throws IOException {
-        return !isBoundary() 
-                && buffer[rpos] == 'P'
-                && buffer[rpos+1] == 'K';
+        if (isBoundary())
+            return false;
+
+        if (buffer.end - buffer.pos < 2
+                && buffer.fill(delimiter.length + 2)) {
+            buffer.end = buffer.pos;
+            isBoundary();
+        }
+        return buffer.end - buffer.pos >= 2
+                && buffer.buf[buffer.pos] == 'P'
+                && buffer.buf[buffer.pos+1] == 'K';
     }
 
     private boolean isBoundary() throws IOException {
         if (boundarySeen)
             return true;
 
-        if (rpos < buffer.length) {
-            if (buffer[rpos] != boundary[0])
-                return false;
-
-            System.arraycopy(buffer, rpos, buffer, 0, buffer.length - rpos);
-        }
-        readFully(in, buffer, buffer.length - rpos, rpos);
-        rpos = 0;
-
-        for (int i = 0; i < buffer.length; i++)
-            if (buffer[i] != boundary[i])
-                return false;
+        if (buffer.pos < buffer.end)
+            return false;
 
-        boundarySeen = true;
-        return true;
-    }
+        if (!buffer.fill(delimiter.length))
+            throw new EOFException();
 
-    private static void readFully(InputStream in, byte b[], int off, int len)
-            throws IOException {
-        if (off < 0 || len < 0 || off + len > b.length)
-            throw new IndexOutOfBoundsException();
-        while (len > 0) {
-            int count = in.read(b, off, len);
-            if (count < 0)
-                throw new EOFException();
-            off += count;
-            len -= count;
+        int index = indexOfDelimiter(buffer.buf, buffer.pos, buffer.limit);
+        if (index == buffer.pos) {
+            boundarySeen = true;
+            return true;
         }
+        // the delimiter may start in the last delimiter.length - 1 bytes
+        buffer.end = index >= 0 ? index : buffer.limit - delimiter.length + 1;
+        return false;
     }
 
-    private int remaining() {
-        for (int i = rpos+1; i < buffer.length; i++)
-            if (buffer[i] == boundary[0])
-                return i - rpos;
-
-        return buffer.length - rpos;
+    private int indexOfDelimiter(byte[] b, int from, int to) {
+        int last = delimiter.length - 1;
+        for (int i = from; i + last < to; i += skip[b[i + last] & 0xff]) {
+            int j = last;
+            while (j >= 0 && b[i + j] == delimiter[j])
+                j--;
+            if (j < 0)
+                return i;
+        }
+        return -1;
     }
 
     public Map<String, List<String>> readHeaderParams() throws IOException {
@@ -190,9 +267,8 @@ public class MultipartInputStream extends FilterInputStream {
         field.reset();
         OUTER:
         while (!isBoundary()) {
-            field.growBuffer(buffer.length);
-            while (rpos < buffer.length)
-                if (!field.append(buffer[rpos++]))
+            while (buffer.pos < buffer.end)
+                if (!field.append(buffer.buf[buffer.pos++]))
                     break OUTER;
         }
         return !field.isEmpty();
@@ -210,20 +286,14 @@ public class MultipartInputStream extends FilterInputStream {
             return length == 0;
         }
 
-        void growBuffer(int grow) {
-            if (length + grow > buffer.length) {
-                byte[] copy = new byte[length + grow];
-                System.arraycopy(buffer, 0, copy, 0, length);
-                buffer = copy;
-            }
-        }
-
         boolean append(byte b) {
             if (b == '\n' && length > 0 && buffer[length-1] == '\r') {
                 length--;
                 return false;
             }
 
+            if (length == buffer.length)
+                buffer = Arrays.copyOf(buffer, length << 1);
             buffer[length++] = b;
             return true;
         }
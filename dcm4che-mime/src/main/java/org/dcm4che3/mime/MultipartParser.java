@@ -52,17 +52,24 @@ public class MultipartParser {
     };
 
     private final String boundary;
+    private final int bufferSize;
 
     public MultipartParser(String boundary) {
+        this(boundary, MultipartBuffer.DEFAULT_BUFFER_SIZE);
+    }
+
+    public MultipartParser(String boundary, int bufferSize) {
         this.boundary = boundary;
+        this.bufferSize = Math.max(bufferSize, (boundary.length() + 4) << 1);
     }
 
     @SuppressWarnings("resource")
     public void parse(InputStream in, Handler handler) throws IOException {
-        new MultipartInputStream(in, "--" + boundary).skipAll(); // skip preamble
+        MultipartBuffer buffer = new MultipartBuffer(in, bufferSize);
+        new MultipartInputStream(buffer, "--" + boundary).skipAll(); // skip preamble
         for (int i=1;;i++) {
-            int ch1 = in.read();
-            int ch2 = in.read();
+            int ch1 = buffer.read();
+            int ch2 = buffer.read();
             if ((ch1 | ch2) < 0)
                 throw new EOFException();
 
@@ -72,7 +79,7 @@ public class MultipartParser {
             if (ch1 != '\r' || ch2 != '\n')
                 throw new IOException("missing CR/LF after boundary");
 
-            MultipartInputStream mis = new MultipartInputStream(in, "\r\n--" + boundary);
+            MultipartInputStream mis = new MultipartInputStream(buffer, "\r\n--" + boundary);
             handler.bodyPart(i, mis);
             mis.skipAll();
         }
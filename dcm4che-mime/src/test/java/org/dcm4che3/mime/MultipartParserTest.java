@@ -0,0 +1,182 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.mime;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class MultipartParserTest {
+
+    private static final String BOUNDARY = "0123456789abcdef";
+
+    private static byte[][] createParts() {
+        Random rnd = new Random(0);
+        byte[][] parts = new byte[4][];
+        parts[0] = new byte[0];
+        parts[1] = "\r\n--0123456789abcde\r\n--".getBytes();
+        parts[2] = new byte[100000];
+        rnd.nextBytes(parts[2]);
+        parts[3] = new byte[] { 'P', 'K', (byte) 0xff, (byte) 0x80 };
+        return parts;
+    }
+
+    private static byte[] createMultipart(byte[][] parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("preamble\r\n".getBytes());
+        for (int i = 0; i < parts.length; i++) {
+            out.write(("--" + BOUNDARY + "\r\n").getBytes());
+            out.write(("Content-Type: application/dicom\r\n"
+                    + "Content-ID: \"part" + i + "\"\r\n\r\n").getBytes());
+            out.write(parts[i]);
+            out.write("\r\n".getBytes());
+        }
+        out.write(("--" + BOUNDARY + "--\r\nepilogue").getBytes());
+        return out.toByteArray();
+    }
+
+    private static List<byte[]> parse(InputStream in, int bufferSize,
+            final List<Map<String, List<String>>> headers) throws IOException {
+        final List<byte[]> parts = new ArrayList<byte[]>();
+        new MultipartParser(BOUNDARY, bufferSize).parse(in,
+                new MultipartParser.Handler() {
+
+                    @Override
+                    public void bodyPart(int partNumber, MultipartInputStream in)
+                            throws IOException {
+                        assertEquals(parts.size() + 1, partNumber);
+                        headers.add(in.readHeaderParams());
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        in.transferTo(out);
+                        parts.add(out.toByteArray());
+                    }
+                });
+        return parts;
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        byte[][] parts = createParts();
+        byte[] multipart = createMultipart(parts);
+        for (int bufferSize : new int[] { 1, 64, 8192, 0x10000 }) {
+            List<Map<String, List<String>>> headers =
+                    new ArrayList<Map<String, List<String>>>();
+            assertParts(parts, parse(new ByteArrayInputStream(multipart),
+                    bufferSize, headers));
+            assertEquals("application/dicom",
+                    headers.get(0).get("content-type").get(0));
+            assertEquals("part3", headers.get(3).get("content-id").get(0));
+        }
+    }
+
+    @Test
+    public void testParseFragmentedInput() throws Exception {
+        byte[][] parts = createParts();
+        byte[] multipart = createMultipart(parts);
+        InputStream in = new FilterInputStream(
+                new ByteArrayInputStream(multipart)) {
+            final Random rnd = new Random(1);
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1 + rnd.nextInt(7)));
+            }
+        };
+        assertParts(parts, parse(in, 64,
+                new ArrayList<Map<String, List<String>>>()));
+    }
+
+    @Test
+    public void testReadMarkReset() throws Exception {
+        byte[][] parts = createParts();
+        byte[] multipart = createMultipart(parts);
+        final List<Boolean> zip = new ArrayList<Boolean>();
+        new MultipartParser(BOUNDARY, 64).parse(
+                new ByteArrayInputStream(multipart),
+                new MultipartParser.Handler() {
+
+                    @Override
+                    public void bodyPart(int partNumber, MultipartInputStream in)
+                            throws IOException {
+                        in.readHeaderParams();
+                        zip.add(in.isZIP());
+                        assertTrue(in.markSupported());
+                        in.mark(1000);
+                        byte[] b = new byte[1000];
+                        int n = readFully(in, b);
+                        in.reset();
+                        for (int i = 0; i < n; i++)
+                            assertEquals(b[i] & 0xff, in.read());
+                        if (n < b.length)
+                            assertEquals(-1, in.read());
+                    }
+                });
+        assertEquals(4, zip.size());
+        assertFalse(zip.get(0));
+        assertFalse(zip.get(2));
+        assertTrue(zip.get(3));
+    }
+
+    private static int readFully(InputStream in, byte[] b) throws IOException {
+        int off = 0;
+        int n;
+        while (off < b.length && (n = in.read(b, off, b.length - off)) > 0)
+            off += n;
+        return off;
+    }
+
+    private static void assertParts(byte[][] expected, List<byte[]> actual) {
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++)
+            assertArrayEquals(expected[i], actual.get(i));
+    }
+}
@@ -42,11 +42,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
@@ -81,6 +84,7 @@ public class Association {
     private final Device device;
     private final Connection conn;
     private final Socket sock;
+    private final ChannelTransport transport;
     private final InputStream in;
     private final OutputStream out;
     private final PDUEncoder encoder;
@@ -95,8 +99,12 @@ public class Association {
     private int maxPDULength;
     private int performing;
     private Timeout timeout;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
     private final IntHashMap<DimseRSPHandler> rspHandlerForMsgId =
             new IntHashMap<DimseRSPHandler>();
+    private final ReentrantLock rspLock = new ReentrantLock();
+    private final Condition rspHandlerRemoved = rspLock.newCondition();
     private final IntHashMap<CancelRQHandler> cancelHandlerForMsgId =
             new IntHashMap<CancelRQHandler>();
     private final HashMap<String,HashMap<String,PresentationContext>> pcMap =
@@ -113,9 +121,26 @@ public class Association {
         this.conn = local;
         this.device = local.getDevice();
         this.sock = sock;
-        this.in = sock.getInputStream();
-        this.out = sock.getOutputStream();
-        this.encoder = new PDUEncoder(this, out);
+        SocketChannel ch = sock.getChannel();
+        if (ch != null && local.isNonBlockingIO()) {
+            this.transport = new ChannelTransport(ch,
+                    device.selectorPool().nextLoop(), device,
+                    new Runnable() {
+
+                        @Override
+                        public void run() {
+                            decodeAvailablePDUs();
+                        }
+                    },
+                    local.getReceivePDULength());
+            this.in = transport.getInputStream();
+            this.out = transport.getOutputStream();
+        } else {
+            this.transport = null;
+            this.in = sock.getInputStream();
+            this.out = sock.getOutputStream();
+        }
+        this.encoder = new PDUEncoder(this, out, transport);
         if (requestor) {
             enterState(State.Sta4);
         } else {
@@ -284,18 +309,30 @@ public class Association {
         }
     }
 
-    private synchronized void closeSocket() {
-        state.closeSocket(this);
+    private void closeSocket() {
+        lock.lock();
+        try {
+            state.closeSocket(this);
+        } finally {
+            lock.unlock();
+        }
     }
 
     void doCloseSocket() {
         LOG.info("{}: close {}", name, sock);
         SafeClose.close(sock);
+        if (transport != null)
+            transport.close();
         enterState(State.Sta1);
     }
 
-    synchronized private void closeSocketDelayed() {
-        state.closeSocketDelayed(this);
+    private void closeSocketDelayed() {
+        lock.lock();
+        try {
+            state.closeSocketDelayed(this);
+        } finally {
+            lock.unlock();
+        }
     }
 
     void doCloseSocketDelayed() {
@@ -313,14 +350,19 @@ public class Association {
             closeSocket();
     }
 
-    synchronized void onIOException(IOException e) {
-        if (ex != null)
-            return;
+    void onIOException(IOException e) {
+        lock.lock();
+        try {
+            if (ex != null)
+                return;
 
-        ex = e;
-        LOG.info("{}: i/o exception: {} in State: {}",
-                new Object[] { name, e, state });
-        closeSocket();
+            ex = e;
+            LOG.info("{}: i/o exception: {} in State: {}",
+                    new Object[] { name, e, state });
+            closeSocket();
+        } finally {
+            lock.unlock();
+        }
     }
 
     void write(AAbort aa) throws IOException  {
@@ -369,19 +411,23 @@ public class Association {
     private void startTimeout(String startMsg, String expiredMsg,
             String cancelMsg, int timeout, State state) {
         if (timeout > 0 && performing == 0 && rspHandlerForMsgId.isEmpty()) {
-            synchronized (this) {
+            lock.lock();
+            try {
                 if (this.state == state) {
                     stopTimeout();
                     this.timeout = Timeout.start(this, startMsg, expiredMsg,
                             cancelMsg, timeout);
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
 
     private void startTimeout(final int msgID, int timeout) {
         if (timeout > 0) {
-            synchronized (rspHandlerForMsgId) {
+            rspLock.lock();
+            try {
                 DimseRSPHandler rspHandler = rspHandlerForMsgId.get(msgID);
                 if (rspHandler != null) {
                     rspHandler.setTimeout(Timeout.start(this,
@@ -390,21 +436,31 @@ public class Association {
                         "{}: stop " + msgID + ":DIMSE-RSP timeout",
                         timeout));
                 }
+            } finally {
+                rspLock.unlock();
             }
         }
     }
 
-    private synchronized void stopTimeout() {
-        if (timeout != null) {
-            timeout.stop();
-            timeout = null;
+    private void stopTimeout() {
+        lock.lock();
+        try {
+            if (timeout != null) {
+                timeout.stop();
+                timeout = null;
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     public void waitForOutstandingRSP() throws InterruptedException {
-        synchronized (rspHandlerForMsgId) {
+        rspLock.lock();
+        try {
             while (!rspHandlerForMsgId.isEmpty())
-                rspHandlerForMsgId.wait();
+                rspHandlerRemoved.await();
+        } finally {
+            rspLock.unlock();
         }
     }
 
@@ -437,28 +493,43 @@ public class Association {
             throw ex;
     }
 
-    private synchronized void enterState(State newState) {
-        LOG.debug("{}: enter state: {}", name, newState);
-        this.state = newState;
-        notifyAll();
+    private void enterState(State newState) {
+        lock.lock();
+        try {
+            LOG.debug("{}: enter state: {}", name, newState);
+            this.state = newState;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public final State getState() {
         return state;
     }
 
-    synchronized void waitForLeaving(State state)
+    void waitForLeaving(State state)
             throws InterruptedException, IOException {
-        while (this.state == state)
-            wait();
-        checkException();
+        lock.lock();
+        try {
+            while (this.state == state)
+                stateChanged.await();
+            checkException();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    synchronized void waitForEntering(State state)
+    void waitForEntering(State state)
             throws InterruptedException, IOException {
-        while (this.state != state)
-            wait();
-        checkException();
+        lock.lock();
+        try {
+            while (this.state != state)
+                stateChanged.await();
+            checkException();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void waitForSocketClose()
@@ -467,6 +538,12 @@ public class Association {
     }
 
     private void activate() {
+        if (transport != null) {
+            decoder = new PDUDecoder(this, in);
+            device.incrementNumberOfOpenAssociations();
+            transport.register();
+            return;
+        }
         device.execute(new Runnable() {
 
             @Override
@@ -488,9 +565,32 @@ public class Association {
         });
     }
 
+    private void decodeAvailablePDUs() {
+        decoder.bindToCurrentThread();
+        boolean released = false;
+        try {
+            while (!(state == State.Sta1 || state == State.Sta13)) {
+                if (released = !transport.continueOrRelease())
+                    return;
+                decoder.nextPDU();
+            }
+        } catch (AAbort aa) {
+            abort(aa);
+        } catch (IOException e) {
+            onIOException(e);
+        } finally {
+            if (!released) {
+                transport.stopReading();
+                onClose();
+                device.decrementNumberOfOpenAssociations();
+            }
+        }
+    }
+
     private void onClose() {
         stopTimeout();
-        synchronized (rspHandlerForMsgId) {
+        rspLock.lock();
+        try {
             IntHashMap.Visitor<DimseRSPHandler> visitor =
                     new IntHashMap.Visitor<DimseRSPHandler>() {
 
@@ -502,7 +602,9 @@ public class Association {
             };
             rspHandlerForMsgId.accept(visitor);
             rspHandlerForMsgId.clear();
-            rspHandlerForMsgId.notifyAll();
+            rspHandlerRemoved.signalAll();
+        } finally {
+            rspLock.unlock();
         }
         if (ae != null)
             ae.getDevice().getAssociationHandler().onClose(this);
@@ -573,13 +675,18 @@ public class Association {
         closeSocketDelayed();
     }
 
-    private synchronized void waitForPerformingOps() {
-        while (performing > 0 && state == State.Sta8) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    private void waitForPerformingOps() {
+        lock.lock();
+        try {
+            while (performing > 0 && state == State.Sta8) {
+                try {
+                    stateChanged.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -648,13 +755,23 @@ public class Association {
         ae.onDimseRQ(this, pc, dimse, cmd, data);
     }
 
-    private synchronized void incPerforming() {
-        ++performing;
+    private void incPerforming() {
+        lock.lock();
+        try {
+            ++performing;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    private synchronized void decPerforming() {
-        --performing;
-        notifyAll();
+    private void decPerforming() {
+        lock.lock();
+        try {
+            --performing;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
     void onDimseRSP(Dimse dimse, Attributes cmd, Attributes data) throws AAbort {
@@ -679,34 +796,48 @@ public class Association {
         }
     }
 
-    private synchronized void startIdleOrReleaseTimeout() {
-        if (state == State.Sta6)
-            startIdleTimeout();
-        else if (state == State.Sta7)
-            startReleaseTimeout();
+    private void startIdleOrReleaseTimeout() {
+        lock.lock();
+        try {
+            if (state == State.Sta6)
+                startIdleTimeout();
+            else if (state == State.Sta7)
+                startReleaseTimeout();
+        } finally {
+            lock.unlock();
+        }
     }
 
     private void addDimseRSPHandler(DimseRSPHandler rspHandler)
             throws InterruptedException {
-        synchronized (rspHandlerForMsgId) {
+        rspLock.lock();
+        try {
             while (maxOpsInvoked > 0
                     && rspHandlerForMsgId.size() >= maxOpsInvoked)
-                rspHandlerForMsgId.wait();
+                rspHandlerRemoved.await();
             rspHandlerForMsgId.put(rspHandler.getMessageID(), rspHandler);
+        } finally {
+            rspLock.unlock();
         }
     }
 
     private DimseRSPHandler getDimseRSPHandler(int msgId) {
-        synchronized (rspHandlerForMsgId ) {
+        rspLock.lock();
+        try {
             return rspHandlerForMsgId.get(msgId);
+        } finally {
+            rspLock.unlock();
         }
     }
 
     private DimseRSPHandler removeDimseRSPHandler(int msgId) {
-        synchronized (rspHandlerForMsgId ) {
+        rspLock.lock();
+        try {
             DimseRSPHandler tmp = rspHandlerForMsgId.remove(msgId);
-            rspHandlerForMsgId.notifyAll();
+            rspHandlerRemoved.signalAll();
             return tmp;
+        } finally {
+            rspLock.unlock();
         }
     }
 
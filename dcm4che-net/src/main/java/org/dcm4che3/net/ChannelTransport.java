@@ -0,0 +1,410 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dcm4che3.util.ByteUtils;
+
+/**
+ * Non-blocking transport of an {@link Association} over a
+ * {@link SocketChannel}.
+ * <p/>
+ * Received bytes are buffered by the {@link SelectorLoop} thread. The
+ * {@code reader} task - which drives the {@link PDUDecoder} - is only
+ * dispatched to the {@link Device} executor, if at least one complete PDU is
+ * available, so idle associations do not occupy any thread. While decoding a
+ * DIMSE message spanning several P-DATA-TF PDUs, the reader task blocks on
+ * the {@link InputStream} returned by {@link #getInputStream()} until more
+ * data was received. If the receive buffer reaches its maximal size, reading
+ * from the channel is suspended until the reader task consumed at least half
+ * of the buffered data.
+ * <p/>
+ * Threads waiting for input or for the channel to become writable wait on
+ * {@link Condition}s of {@link ReentrantLock}s, so they do not pin the
+ * carrier thread if the {@link Device} executor runs virtual threads.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+class ChannelTransport {
+
+    private static final byte[] EMPTY = {};
+    private static final int INIT_BUFFER_SIZE = 0x1000;
+
+    private final SocketChannel ch;
+    private final SelectorLoop loop;
+    private final Device device;
+    private final Runnable reader;
+    private final int maxBufferSize;
+    private final InputStream in = new ChannelInputStream();
+    private final OutputStream out = new ChannelOutputStream();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition inputChanged = lock.newCondition();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition writableChanged = writeLock.newCondition();
+    private SelectionKey key;
+    private byte[] buf = EMPTY;
+    private int rpos;
+    private int wpos;
+    private IOException readException;
+    private boolean eof;
+    private boolean suspended;
+    private boolean dispatched;
+    private volatile boolean closed;
+    private boolean writable;
+
+    ChannelTransport(SocketChannel ch, SelectorLoop loop, Device device,
+            Runnable reader, int maxPDULength) throws IOException {
+        this.ch = ch;
+        this.loop = loop;
+        this.device = device;
+        this.reader = reader;
+        this.maxBufferSize = Math.max(INIT_BUFFER_SIZE, 2 * (maxPDULength + 6));
+        ch.configureBlocking(false);
+    }
+
+    SocketChannel getChannel() {
+        return ch;
+    }
+
+    InputStream getInputStream() {
+        return in;
+    }
+
+    OutputStream getOutputStream() {
+        return out;
+    }
+
+    void register() {
+        loop.register(this);
+    }
+
+    void setSelectionKey(SelectionKey key) {
+        lock.lock();
+        try {
+            this.key = key;
+            if (closed)
+                loop.deregister(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by the {@link SelectorLoop} thread on readiness of the channel.
+     */
+    void onSelect(SelectionKey key) {
+        if (key.isReadable())
+            read(key);
+        if (key.isValid() && key.isWritable()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            writeLock.lock();
+            try {
+                writable = true;
+                writableChanged.signalAll();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void read(SelectionKey key) {
+        lock.lock();
+        try {
+            if (wpos == buf.length)
+                ensureFree();
+            if (wpos == buf.length) {
+                suspended = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            } else {
+                try {
+                    int n = ch.read(ByteBuffer.wrap(buf, wpos, buf.length - wpos));
+                    if (n < 0) {
+                        eof = true;
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                    } else
+                        wpos += n;
+                } catch (IOException e) {
+                    readException = e;
+                    eof = true;
+                    key.interestOps(0);
+                }
+                inputChanged.signalAll();
+            }
+            dispatchIfInputAvailable();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onReadException(IOException e) {
+        lock.lock();
+        try {
+            readException = e;
+            eof = true;
+            inputChanged.signalAll();
+            dispatchIfInputAvailable();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureFree() {
+        if (rpos > 0) {
+            System.arraycopy(buf, rpos, buf, 0, wpos - rpos);
+            wpos -= rpos;
+            rpos = 0;
+        } else if (buf.length < maxBufferSize) {
+            byte[] tmp = new byte[Math.max(INIT_BUFFER_SIZE,
+                    Math.min(maxBufferSize, buf.length << 1))];
+            System.arraycopy(buf, 0, tmp, 0, wpos);
+            buf = tmp;
+        }
+    }
+
+    private void dispatchIfInputAvailable() {
+        if (!dispatched && isInputAvailable()) {
+            dispatched = true;
+            device.execute(reader);
+        }
+    }
+
+    /**
+     * Returns {@code true}, if the reader task shall continue to decode the
+     * next PDU, otherwise the reader task gets released and {@code false} is
+     * returned. In the latter case, the reader task will be dispatched again
+     * on receive of the next complete PDU.
+     */
+    boolean continueOrRelease() {
+        lock.lock();
+        try {
+            if (isInputAvailable())
+                return true;
+
+            dispatched = false;
+            if (rpos == wpos && buf.length > INIT_BUFFER_SIZE) {
+                buf = EMPTY;
+                rpos = wpos = 0;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isInputAvailable() {
+        if (eof || closed || suspended)
+            return true;
+
+        int available = wpos - rpos;
+        return available >= 6
+                && available - 6 >= (ByteUtils.bytesToIntBE(buf, rpos + 2)
+                        & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Stops reading from the channel after the reader task terminated.
+     * The channel itself will be closed by {@link #close()}.
+     */
+    void stopReading() {
+        lock.lock();
+        try {
+            dispatched = true;
+            if (key != null && !closed)
+                loop.invokeLater(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        if (key.isValid())
+                            key.interestOps(key.interestOps()
+                                    & ~SelectionKey.OP_READ);
+                    }
+                });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            if (closed)
+                return;
+
+            closed = true;
+            inputChanged.signalAll();
+            if (key != null)
+                loop.deregister(key);
+            dispatchIfInputAvailable();
+        } finally {
+            lock.unlock();
+        }
+        writeLock.lock();
+        try {
+            writableChanged.signalAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        lock.lock();
+        try {
+            while (rpos == wpos) {
+                if (readException != null)
+                    throw readException;
+                if (eof || closed)
+                    return -1;
+                try {
+                    inputChanged.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            int n = Math.min(len, wpos - rpos);
+            System.arraycopy(buf, rpos, b, off, n);
+            rpos += n;
+            if (rpos == wpos)
+                rpos = wpos = 0;
+            if (suspended && wpos - rpos <= buf.length >> 1)
+                resumeReading();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void resumeReading() {
+        suspended = false;
+        loop.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                if (key.isValid())
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            }
+        });
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+        while (bb.hasRemaining())
+            if (ch.write(bb) == 0)
+                waitForWritable();
+    }
+
+    void transferFrom(FileChannel fc, long position, long count)
+            throws IOException {
+        while (count > 0) {
+            long n = fc.transferTo(position, count, ch);
+            if (n == 0) {
+                if (position >= fc.size())
+                    throw new EOFException();
+                waitForWritable();
+            }
+            position += n;
+            count -= n;
+        }
+    }
+
+    private void waitForWritable() throws IOException {
+        writeLock.lock();
+        try {
+            writable = false;
+            loop.invokeLater(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (key.isValid())
+                        key.interestOps(key.interestOps()
+                                | SelectionKey.OP_WRITE);
+                }
+            });
+            while (!writable) {
+                if (closed)
+                    throw new ClosedChannelException();
+                try {
+                    writableChanged.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private class ChannelInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return ChannelTransport.this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return len == 0 ? 0 : ChannelTransport.this.read(b, off, len);
+        }
+    }
+
+    private class ChannelOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            ChannelTransport.this.write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ChannelTransport.this.write(b, off, len);
+        }
+    }
+}
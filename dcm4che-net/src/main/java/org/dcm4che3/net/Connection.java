@@ -52,6 +52,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -188,6 +189,9 @@ public class Connection implements Serializable {
     @ConfigurableProperty(name = "dcmTCPNoDelay", defaultValue = "true")
     private boolean tcpNoDelay = true;
 
+    @ConfigurableProperty(name = "dcmNonBlockingIO", defaultValue = "false")
+    private boolean nonBlockingIO;
+
     @ConfigurableProperty(name = "dcmTLSNeedClientAuth", defaultValue = "true")
     private boolean tlsNeedClientAuth = true;
 
@@ -726,6 +730,29 @@ public class Connection implements Serializable {
         this.tcpNoDelay = tcpNoDelay;
     }
 
+    /**
+     * Indicates if DICOM associations over this connection are driven by the
+     * shared selector threads of the Device, instead of occupying one reader
+     * thread per association. Not effective for TLS connections.
+     *
+     * @return {@code true} if non-blocking I/O is enabled
+     */
+    public final boolean isNonBlockingIO() {
+        return nonBlockingIO;
+    }
+
+    public final void setNonBlockingIO(boolean nonBlockingIO) {
+        if (this.nonBlockingIO == nonBlockingIO)
+            return;
+
+        this.nonBlockingIO = nonBlockingIO;
+        needRebind();
+    }
+
+    boolean useSocketChannel() {
+        return nonBlockingIO && !isTls();
+    }
+
     /**
      * True if the Network Connection is installed on the network. If not
      * present, information about the installed status of the Network Connection
@@ -974,7 +1001,7 @@ public class Connection implements Serializable {
         int remotePort = remoteConn.getPort();
         LOG.info("Initiate connection from {} to {}:{}",
                 bindPoint, remoteHostname, remotePort);
-        Socket s = new Socket();
+        Socket s = useSocketChannel() ? SocketChannel.open().socket() : new Socket();
         ConnectionMonitor monitor = device != null
                 ? device.getConnectionMonitor()
                 : null;
@@ -1194,6 +1221,7 @@ public class Connection implements Serializable {
         setMaxOpsPerformed(from.maxOpsInvoked);
         setPackPDV(from.packPDV);
         setTcpNoDelay(from.tcpNoDelay);
+        setNonBlockingIO(from.nonBlockingIO);
         setTlsNeedClientAuth(from.tlsNeedClientAuth);
         setTlsCipherSuites(from.tlsCipherSuites);
         setTlsProtocols(from.tlsProtocols);
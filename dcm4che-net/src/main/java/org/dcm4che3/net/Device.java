@@ -69,6 +69,8 @@ import org.dcm4che3.conf.core.api.LDAP;
 import org.dcm4che3.data.Code;
 import org.dcm4che3.data.Issuer;
 import org.dcm4che3.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * DICOM Part 15, Annex H compliant description of a DICOM enabled system or
@@ -88,6 +90,8 @@ public class Device implements Serializable {
 
     private static final long serialVersionUID = -5816872456184522866L;
 
+    private static final Logger LOG = LoggerFactory.getLogger(Device.class);
+
     @ConfigurableProperty(name = "dicomDeviceName")
     private String deviceName;
 
@@ -190,6 +194,12 @@ public class Device implements Serializable {
     @ConfigurableProperty(name = "dicomInstalled")
     private boolean installed = true;
 
+    @ConfigurableProperty(name = "dcmSelectorThreads", defaultValue = "0")
+    private int selectorThreads;
+
+    @ConfigurableProperty(name = "dcmVirtualThreads", defaultValue = "false")
+    private boolean virtualThreads;
+
     @ConfigurableProperty(name = "dcmTimeZoneOfDevice")
     private TimeZone timeZoneOfDevice;
 
@@ -222,6 +232,9 @@ public class Device implements Serializable {
 
     private transient Executor executor;
     private transient ScheduledExecutorService scheduledExecutor;
+    private transient volatile SelectorPool selectorPool;
+    private transient volatile VirtualThreadExecutor virtualThreadExecutor;
+    private transient volatile boolean virtualThreadsUnsupported;
     private transient volatile SSLContext sslContext;
     private transient volatile KeyManager km;
     private transient volatile TrustManager tm;
@@ -949,6 +962,88 @@ public class Device implements Serializable {
         return true;
     }
 
+    /**
+     * Get the number of selector threads shared by all associations over
+     * {@link Connection}s with enabled non-blocking I/O. {@code 0} indicates
+     * to use the number of available processors.
+     *
+     * @return number of selector threads or {@code 0}
+     */
+    public final int getSelectorThreads() {
+        return selectorThreads;
+    }
+
+    /**
+     * Set the number of selector threads shared by all associations over
+     * {@link Connection}s with enabled non-blocking I/O. Only effective
+     * before the first of such associations is established.
+     *
+     * @param selectorThreads
+     *                number of selector threads or {@code 0} to use the
+     *                number of available processors.
+     */
+    public final void setSelectorThreads(int selectorThreads) {
+        if (selectorThreads < 0)
+            throw new IllegalArgumentException("selectorThreads: " + selectorThreads);
+
+        this.selectorThreads = selectorThreads;
+    }
+
+    SelectorPool selectorPool() throws IOException {
+        SelectorPool pool = selectorPool;
+        if (pool == null)
+            synchronized (this) {
+                if ((pool = selectorPool) == null)
+                    selectorPool = pool = new SelectorPool(this,
+                            selectorThreads > 0 ? selectorThreads
+                                    : Runtime.getRuntime().availableProcessors());
+            }
+        return pool;
+    }
+
+    /**
+     * Indicates if tasks passed to {@link #execute} - in particular
+     * association readers, C-FIND, C-GET and C-MOVE tasks and the handling
+     * of incoming HL7 connections - are run on virtual threads, instead by
+     * the {@link Executor} set by {@link #setExecutor}.
+     *
+     * @return {@code true} if tasks are run on virtual threads
+     */
+    public final boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Specifies to run tasks passed to {@link #execute} on virtual threads,
+     * instead by the {@link Executor} set by {@link #setExecutor}. Requires
+     * Java 21 or newer; ignored on previous Java versions.
+     *
+     * @param virtualThreads
+     *                {@code true} to run tasks on virtual threads
+     */
+    public final void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    private Executor virtualThreadExecutor() {
+        VirtualThreadExecutor executor = virtualThreadExecutor;
+        if (executor == null && !virtualThreadsUnsupported)
+            synchronized (this) {
+                if ((executor = virtualThreadExecutor) == null
+                        && !virtualThreadsUnsupported) {
+                    executor = VirtualThreadExecutor.newInstance(
+                            deviceName + "-");
+                    if (executor == null) {
+                        LOG.warn("{}: virtual threads not supported by JVM"
+                                + " - use executor", deviceName);
+                        virtualThreadsUnsupported = true;
+                    } else
+                        virtualThreadExecutor = executor;
+                }
+            }
+        return executor;
+    }
+
     public final int getLimitOpenAssociations() {
         return limitOpenAssociations;
     }
@@ -1126,6 +1221,9 @@ public class Device implements Serializable {
     }
 
     public void execute(Runnable command) {
+        Executor executor = virtualThreads ? virtualThreadExecutor() : null;
+        if (executor == null)
+            executor = this.executor;
         if (executor == null)
             throw new IllegalStateException("executer not initalized");
 
@@ -1218,6 +1316,8 @@ public class Device implements Serializable {
         setThisNodeCertificates(from.thisNodeCertificates);
         setVendorData(from.vendorData);
         setLimitOpenAssociations(from.limitOpenAssociations);
+        setSelectorThreads(from.selectorThreads);
+        setVirtualThreads(from.virtualThreads);
         setInstalled(from.installed);
      }
 
@@ -39,6 +39,8 @@
 package org.dcm4che3.net;
 
 import java.io.IOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.Attributes;
@@ -60,46 +62,58 @@ public class FutureDimseRSP extends DimseRSPHandler implements DimseRSP {
         }
     }
 
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition received = lock.newCondition();
     private Entry entry = new Entry(null, null);
-    private boolean finished;
+    private volatile boolean finished;
     private int autoCancel;
-    private IOException ex;
+    private volatile IOException ex;
 
     public FutureDimseRSP(int msgID) {
         super(msgID);
     }
 
     @Override
-    public synchronized void onDimseRSP(Association as, Attributes cmd,
+    public void onDimseRSP(Association as, Attributes cmd,
             Attributes data) {
-        super.onDimseRSP(as, cmd, data);
-        Entry last = entry;
-        while (last.next != null)
-            last = last.next;
-
-        last.next = new Entry(cmd, data);
-        if (Status.isPending(cmd.getInt(Tag.Status, 0))) {
-            if (autoCancel > 0 && --autoCancel == 0)
-                try {
-                    super.cancel(as);
-                } catch (IOException e) {
-                    ex = e;
-                }
-        } else {
-            finished = true;
+        lock.lock();
+        try {
+            super.onDimseRSP(as, cmd, data);
+            Entry last = entry;
+            while (last.next != null)
+                last = last.next;
+
+            last.next = new Entry(cmd, data);
+            if (Status.isPending(cmd.getInt(Tag.Status, 0))) {
+                if (autoCancel > 0 && --autoCancel == 0)
+                    try {
+                        super.cancel(as);
+                    } catch (IOException e) {
+                        ex = e;
+                    }
+            } else {
+                finished = true;
+            }
+            received.signalAll();
+        } finally {
+            lock.unlock();
         }
-        notifyAll();
     }
 
     @Override
-    public synchronized void onClose(Association as) {
-        super.onClose(as);
-        if (!finished) {
-            ex = as.getException();
-            if (ex == null)
-                ex = new IOException("Association to " + as.getRemoteAET()
+    public void onClose(Association as) {
+        lock.lock();
+        try {
+            super.onClose(as);
+            if (!finished) {
+                IOException e = as.getException();
+                ex = e != null ? e
+                        : new IOException("Association to " + as.getRemoteAET()
                             + " released before receive of outstanding DIMSE RSP");
-            notifyAll();
+                received.signalAll();
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -123,18 +137,23 @@ public class FutureDimseRSP extends DimseRSPHandler implements DimseRSP {
         return entry.dataset;
     }
 
-    public synchronized boolean next() throws IOException, InterruptedException {
-        if (entry.next == null) {
-            if (finished)
-                return false;
-
-            while (entry.next == null && ex == null)
-                wait();
-
-            if (ex != null)
-                throw ex;
+    public boolean next() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            if (entry.next == null) {
+                if (finished)
+                    return false;
+
+                while (entry.next == null && ex == null)
+                    received.await();
+
+                if (ex != null)
+                    throw ex;
+            }
+            entry = entry.next;
+            return true;
+        } finally {
+            lock.unlock();
         }
-        entry = entry.next;
-        return true;
     }
 }
@@ -42,6 +42,8 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -89,7 +91,7 @@ class PDUDecoder extends PDVInputStream {
 
     private final Association as;
     private final InputStream in;
-    private final Thread th;
+    private Thread th;
     private byte[] buf = new byte[6 + Connection.DEF_MAX_PDU_LENGTH];
     private int pos;
     private int pdutype;
@@ -104,6 +106,10 @@ class PDUDecoder extends PDVInputStream {
         this.th = Thread.currentThread();
     }
 
+    void bindToCurrentThread() {
+        this.th = Thread.currentThread();
+    }
+
     private int remaining() {
         return pdulen + 6 - pos;
     }
@@ -623,4 +629,47 @@ class PDUDecoder extends PDVInputStream {
             pos = pdvend;
         }
     }
+
+    /**
+     * Writes the PDV fragments from the PDU receive buffer to the channel,
+     * without copying them into a further buffer.
+     */
+    @Override
+    public void transferTo(WritableByteChannel ch, int length)
+            throws IOException {
+        if (th != Thread.currentThread())
+            throw new IllegalStateException("Entered by wrong thread");
+        int remaining = length;
+        while (remaining > 0) {
+            if (isLastPDV())
+                throw new EOFException("remaining: " + remaining);
+            int read = Math.min(remaining, pdvend - pos);
+            writeFully(ch, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * Writes the PDV fragments from the PDU receive buffer to the channel,
+     * without copying them into a further buffer.
+     */
+    @Override
+    public long transferTo(WritableByteChannel ch) throws IOException {
+        if (th != Thread.currentThread())
+            throw new IllegalStateException("Entered by wrong thread");
+        long n = 0;
+        while (!isLastPDV()) {
+            n += pdvend - pos;
+            writeFully(ch, pdvend - pos);
+        }
+        return n;
+    }
+
+    private void writeFully(WritableByteChannel ch, int len)
+            throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buf, pos, len);
+        while (bb.hasRemaining())
+            ch.write(bb);
+        pos += len;
+    }
 }
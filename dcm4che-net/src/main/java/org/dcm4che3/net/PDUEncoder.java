@@ -42,6 +42,9 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
@@ -67,6 +70,10 @@ class PDUEncoder extends PDVOutputStream {
 
     private Association as;
     private OutputStream out;
+    private final ChannelTransport transport;
+    private FileChannel region;
+    private long regionPosition;
+    private int regionLength;
     private byte[] buf = new byte[Connection.DEF_MAX_PDU_LENGTH + 6];
     private int pos;
     private int pdvpcid;
@@ -74,11 +81,14 @@ class PDUEncoder extends PDVOutputStream {
     private int pdvpos;
     private int maxpdulen;
     private Thread th;
-    private Object dimseLock = new Object();
+    private final ReentrantLock dimseLock = new ReentrantLock();
+    private final ReentrantLock pduLock = new ReentrantLock();
 
-    public PDUEncoder(Association as, OutputStream out) {
+    public PDUEncoder(Association as, OutputStream out,
+            ChannelTransport transport) {
         this.as = as;
         this.out = out;
+        this.transport = transport;
     }
 
     public void write(AAssociateRQ rq) throws IOException {
@@ -108,7 +118,7 @@ class PDUEncoder extends PDVOutputStream {
         write(PDUType.A_ABORT, 0, aa.getSource(), aa.getReason());
     }
 
-    private synchronized void write(int pdutype, int result, int source,
+    private void write(int pdutype, int result, int source,
             int reason) throws IOException {
         byte[] b = {
                 (byte) pdutype,
@@ -119,17 +129,30 @@ class PDUEncoder extends PDVOutputStream {
                 (byte) source,
                 (byte) reason
         };
-        out.write(b);
-        out.flush();
+        pduLock.lock();
+        try {
+            out.write(b);
+            out.flush();
+        } finally {
+            pduLock.unlock();
+        }
     }
 
-    private synchronized void writePDU(int pdulen) throws IOException {
+    private void writePDU(int pdulen) throws IOException {
+        pduLock.lock();
         try {
-            out.write(buf, 0, 6 + pdulen);
+            out.write(buf, 0, 6 + pdulen - regionLength);
             out.flush();
+            if (regionLength > 0) {
+                transport.transferFrom(region, regionPosition, regionLength);
+                region = null;
+                regionLength = 0;
+            }
         } catch (IOException e) {
             as.onIOException(e);
             throw e;
+        } finally {
+            pduLock.unlock();
         }
         pdvpos = 6;
         pos = 12;
@@ -355,6 +378,41 @@ class PDUEncoder extends PDVOutputStream {
         }
     }
 
+    /**
+     * Transfers the region by {@link FileChannel#transferTo} to the socket
+     * channel if the association uses non-blocking I/O. Otherwise, or for the
+     * last fragment of the PDV, the region is read into the PDU buffer.
+     */
+    @Override
+    public void transferFrom(FileChannel fc, long position, long length)
+            throws IOException {
+        checkThread();
+        long remaining = length;
+        while (remaining > 0) {
+            flushPDataTF();
+            int n = (int) Math.min(remaining, free());
+            if (transport == null || n == remaining) {
+                // keep last fragment in buffer, so close() can mark the PDV
+                readFully(fc, position, n);
+            } else {
+                region = fc;
+                regionPosition = position;
+                regionLength = n;
+            }
+            pos += n;
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    private void readFully(FileChannel fc, long position, int len)
+            throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buf, pos, len);
+        while (bb.hasRemaining())
+            if (fc.read(bb, position + bb.position() - pos) < 0)
+                throw new EOFException();
+    }
+
     private void checkThread() {
         if (th != Thread.currentThread())
             throw new IllegalStateException("Entered by wrong thread");
@@ -396,7 +454,8 @@ class PDUEncoder extends PDVOutputStream {
 
     public void writeDIMSE(PresentationContext pc, Attributes cmd,
             DataWriter dataWriter) throws IOException {
-        synchronized (dimseLock) {
+        dimseLock.lock();
+        try {
             int pcid = pc.getPCID();
             String tsuid = pc.getTransferSyntax();
             if (Dimse.LOG.isInfoEnabled()) {
@@ -431,6 +490,8 @@ class PDUEncoder extends PDVOutputStream {
             }
             as.writePDataTF();
             this.th = null;
+        } finally {
+            dimseLock.unlock();
         }
     }
 }
@@ -38,9 +38,12 @@
 
 package org.dcm4che3.net;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 import org.dcm4che3.data.Attributes;
 
@@ -57,6 +60,57 @@ public abstract class PDVInputStream extends InputStream {
 
     public abstract void copyTo(OutputStream out) throws IOException;
 
+    /**
+     * Transfers the specified number of bytes of the data set to the
+     * specified channel. The default implementation copies the bytes through
+     * a buffer; implementations may write the received PDV fragments to the
+     * channel without that intermediate copy.
+     *
+     * @param ch the target channel
+     * @param length number of bytes to transfer
+     * @throws IOException
+     */
+    public void transferTo(WritableByteChannel ch, int length)
+            throws IOException {
+        byte[] b = new byte[Math.min(length, 8192)];
+        int remaining = length;
+        while (remaining > 0) {
+            int read = read(b, 0, Math.min(remaining, b.length));
+            if (read < 0)
+                throw new EOFException("remaining: " + remaining);
+            writeFully(ch, b, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * Transfers the remaining bytes of the data set to the specified channel.
+     * The default implementation copies the bytes through a buffer;
+     * implementations may write the received PDV fragments to the channel
+     * without that intermediate copy.
+     *
+     * @param ch the target channel
+     * @return number of transferred bytes
+     * @throws IOException
+     */
+    public long transferTo(WritableByteChannel ch) throws IOException {
+        byte[] b = new byte[8192];
+        long n = 0;
+        int read;
+        while ((read = read(b, 0, b.length)) >= 0) {
+            writeFully(ch, b, read);
+            n += read;
+        }
+        return n;
+    }
+
+    private static void writeFully(WritableByteChannel ch, byte[] b, int len)
+            throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(b, 0, len);
+        while (bb.hasRemaining())
+            ch.write(bb);
+    }
+
     public abstract long skipAll() throws IOException;
 
 }
@@ -38,9 +38,12 @@
 
 package org.dcm4che3.net;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -52,4 +55,31 @@ public abstract class PDVOutputStream extends OutputStream {
             throws IOException;
 
     public abstract void copyFrom(InputStream in) throws IOException;
+
+    /**
+     * Transfers the specified region of the file to the association. The
+     * default implementation copies the region through a buffer;
+     * implementations may transfer it directly to the socket channel of the
+     * association, bypassing the PDU buffer.
+     *
+     * @param fc the source file channel
+     * @param position position within the file of the first byte to transfer
+     * @param length number of bytes to transfer
+     * @throws IOException
+     */
+    public void transferFrom(FileChannel fc, long position, long length)
+            throws IOException {
+        byte[] b = new byte[(int) Math.min(length, 8192)];
+        long remaining = length;
+        while (remaining > 0) {
+            int n = (int) Math.min(remaining, b.length);
+            ByteBuffer bb = ByteBuffer.wrap(b, 0, n);
+            while (bb.hasRemaining())
+                if (fc.read(bb, position + bb.position()) < 0)
+                    throw new EOFException();
+            write(b, 0, n);
+            position += n;
+            remaining -= n;
+        }
+    }
 }
@@ -0,0 +1,183 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.net;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dcm4che3.util.SafeClose;
+
+/**
+ * Single selector thread driving the readiness events of the
+ * {@link ChannelTransport}s registered with it.
+ * <p/>
+ * The loop is started on the {@link Device} executor on first registration
+ * and terminates when the last channel is deregistered, so no thread is kept
+ * while there is no open association using non-blocking I/O.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+class SelectorLoop implements Runnable {
+
+    private final Device device;
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> pending =
+            new ConcurrentLinkedQueue<Runnable>();
+    private int channels;
+    private final AtomicInteger registered = new AtomicInteger();
+    private boolean running;
+
+    SelectorLoop(Device device) throws IOException {
+        this.device = device;
+        this.selector = Selector.open();
+    }
+
+    int getNumberOfRegisteredChannels() {
+        return registered.get();
+    }
+
+    void register(final ChannelTransport transport) {
+        registered.incrementAndGet();
+        invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    transport.setSelectionKey(transport.getChannel()
+                            .register(selector, SelectionKey.OP_READ, transport));
+                    channels++;
+                } catch (ClosedChannelException e) {
+                    registered.decrementAndGet();
+                    transport.onReadException(e);
+                }
+            }
+        });
+    }
+
+    void deregister(final SelectionKey key) {
+        invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                key.cancel();
+                channels--;
+                registered.decrementAndGet();
+            }
+        });
+    }
+
+    void invokeLater(Runnable task) {
+        synchronized (this) {
+            pending.add(task);
+            if (!running) {
+                running = true;
+                device.execute(this);
+                return;
+            }
+        }
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        Connection.LOG.debug("Start Selector Loop {}", selector);
+        try {
+            for (;;) {
+                Runnable task;
+                while ((task = pending.poll()) != null)
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        Connection.LOG.error("Exception in Selector Loop {}:",
+                                selector, e);
+                    }
+                synchronized (this) {
+                    if (channels == 0 && pending.isEmpty()) {
+                        running = false;
+                        break;
+                    }
+                }
+                selector.select();
+                Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+                while (iter.hasNext()) {
+                    SelectionKey key = iter.next();
+                    iter.remove();
+                    try {
+                        if (key.isValid())
+                            ((ChannelTransport) key.attachment()).onSelect(key);
+                    } catch (CancelledKeyException e) {
+                        // channel closed concurrently
+                    } catch (Throwable e) {
+                        onSelectFailed(key, e);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            Connection.LOG.error("Exception in Selector Loop {}:", selector, e);
+            synchronized (this) {
+                running = false;
+            }
+        }
+        Connection.LOG.debug("Stop Selector Loop {}", selector);
+    }
+
+    /**
+     * Closes the channel, whose handler threw an unexpected exception, so
+     * the other channels registered with this loop keep being served. The
+     * {@link Association} will notice the closed channel on its next read.
+     */
+    private void onSelectFailed(SelectionKey key, Throwable e) {
+        Connection.LOG.error("Exception in Selector Loop {} - close {}:",
+                selector, key.channel(), e);
+        SafeClose.close(key.channel());
+        try {
+            ((ChannelTransport) key.attachment()).onReadException(
+                    new IOException(e));
+        } catch (Throwable e2) {
+            Connection.LOG.error("Exception in Selector Loop {}:",
+                    selector, e2);
+        }
+    }
+}
@@ -43,6 +43,7 @@ import java.util.NoSuchElementException;
 
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.AttributesMatcher;
 import org.dcm4che3.data.VR;
 import org.dcm4che3.net.Association;
 import org.dcm4che3.net.Commands;
@@ -60,6 +61,7 @@ public class BasicQueryTask implements QueryTask {
     protected final Attributes keys;
     protected volatile boolean canceled;
     protected boolean optionalKeysNotSupported = false;
+    protected AttributesMatcher matcher;
 
     public BasicQueryTask(Association as, PresentationContext pc,
             Attributes rq, Attributes keys) {
@@ -77,6 +79,23 @@ public class BasicQueryTask implements QueryTask {
         this.optionalKeysNotSupported = optionalKeysNotSupported;
     }
 
+    public AttributesMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * Set matcher applied to each candidate returned by {@link #nextMatch()},
+     * before it is passed to {@link #adjust(Attributes)}. Candidates not
+     * matching are skipped. By default (<code>null</code>), all candidates are
+     * returned.
+     * 
+     * @param matcher compiled matcher, typically
+     *        <code>new AttributesMatcher(keys, ignorePNCase, matchNoValue)</code>
+     */
+    public void setMatcher(AttributesMatcher matcher) {
+        this.matcher = matcher;
+    }
+
     @Override
     public void onCancelRQ(Association as) {
         canceled = true;
@@ -89,7 +108,11 @@ public class BasicQueryTask implements QueryTask {
             as.addCancelRQHandler(msgId, this);
             try {
                 while (!canceled && hasMoreMatches()) {
-                    Attributes match = adjust(nextMatch());
+                    Attributes match = nextMatch();
+                    if (match != null && matcher != null
+                            && !matcher.matches(match))
+                        continue;
+                    match = adjust(match);
                     if (match != null) {
                         int status = optionalKeysNotSupported
                                 ? Status.PendingWarning
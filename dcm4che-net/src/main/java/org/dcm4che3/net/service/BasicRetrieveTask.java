@@ -38,12 +38,19 @@
 
 package org.dcm4che3.net.service;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
@@ -55,6 +62,7 @@ import org.dcm4che3.net.Commands;
 import org.dcm4che3.net.DataWriter;
 import org.dcm4che3.net.Dimse;
 import org.dcm4che3.net.DimseRSPHandler;
+import org.dcm4che3.net.FileRegionDataWriter;
 import org.dcm4che3.net.InputStreamDataWriter;
 import org.dcm4che3.net.Status;
 import org.dcm4che3.net.pdu.PresentationContext;
@@ -72,20 +80,31 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
     protected final Dimse rq;
     protected final Association rqas;
     protected final Association storeas;
+    protected final List<Association> storeAssociations;
     protected final PresentationContext pc;
     protected final Attributes rqCmd;
     protected final int msgId;
     protected final int priority;
-    protected int status = Status.Success;
+    protected volatile int status = Status.Success;
     protected boolean pendingRSP;
     protected int pendingRSPInterval;
-    protected boolean canceled;
+    protected volatile boolean canceled;
     protected final List<T> insts;
     protected final List<T> completed;
     protected final List<T> warning;
     protected final List<T> failed;
     protected int outstandingRSP = 0;
+    /**
+     * @deprecated no longer used; {@link #outstandingRSP} is guarded by an
+     *             internal {@link ReentrantLock}, so threads waiting for
+     *             outstanding C-STORE RSPs do not pin their carrier thread
+     *             if the Device runs virtual threads.
+     */
+    @Deprecated
     protected Object outstandingRSPLock = new Object();
+    private final ReentrantLock rspLock = new ReentrantLock();
+    private final Condition noOutstandingRSP = rspLock.newCondition();
+    private final Object statusLock = new Object();
 
     private ScheduledFuture<?> writePendingRSP;
 
@@ -96,17 +115,43 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
             Attributes rqCmd,
             List<T> insts,
             Association storeas) {
+        this(rq, rqas, pc, rqCmd, insts, Collections.singletonList(storeas));
+    }
+
+    /**
+     * Creates a retrieve task distributing the C-STORE sub-operations over
+     * several Associations to the Move Destination. Each Association takes
+     * the next not yet retrieved instance from the list of matches, as soon
+     * as it has sent the previous one.
+     */
+    public BasicRetrieveTask(Dimse rq, 
+            Association rqas,
+            PresentationContext pc, 
+            Attributes rqCmd,
+            List<T> insts,
+            List<Association> storeAssociations) {
+        if (storeAssociations.isEmpty())
+            throw new IllegalArgumentException("No Store Associations");
+
         this.rq = rq;
         this.rqas = rqas;
-        this.storeas = storeas;
+        this.storeas = storeAssociations.get(0);
+        this.storeAssociations = storeAssociations;
         this.pc = pc;
         this.rqCmd = rqCmd;
         this.insts = insts;
         this.msgId = rqCmd.getInt(Tag.MessageID, -1);
         this.priority = rqCmd.getInt(Tag.Priority, 0);
-        this.completed = new ArrayList<T>(insts.size());
-        this.warning = new ArrayList<T>(insts.size());
-        this.failed = new ArrayList<T>(insts.size());
+        this.completed = newList(insts.size());
+        this.warning = newList(insts.size());
+        this.failed = newList(insts.size());
+    }
+
+    private List<T> newList(int initialCapacity) {
+        List<T> list = new ArrayList<T>(initialCapacity);
+        return storeAssociations.size() > 1
+                ? Collections.synchronizedList(list)
+                : list;
     }
 
     public void setSendPendingRSP(boolean pendingRSP) {
@@ -129,6 +174,41 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
         return status;
     }
 
+    /**
+     * Sets the status of the final RSP, unless it is already set to a
+     * more or equally severe status. With several Store Associations, the
+     * status is updated concurrently by the threads performing the
+     * sub-operations and by the threads receiving their RSPs, so a less
+     * severe status must not replace e.g. {@link Status#Cancel}. Failures
+     * of the retrieve as a whole - e.g.
+     * {@link Status#UnableToPerformSubOperations} - rank above
+     * {@link Status#Cancel}, which ranks above
+     * {@link Status#OneOrMoreFailures}.
+     */
+    protected void setStatus(int status) {
+        synchronized (statusLock) {
+            if (severityOf(status) > severityOf(this.status))
+                this.status = status;
+        }
+    }
+
+    private static int severityOf(int status) {
+        switch (status) {
+            case Status.Success:
+                return 0;
+            case Status.OneOrMoreFailures:
+                return 1;
+            case Status.Cancel:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    private void onSubOperationFailed() {
+        setStatus(Status.OneOrMoreFailures);
+    }
+
     public Association getRequestAssociation() {
         return rqas;
     }
@@ -137,6 +217,10 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
         return storeas;
     }
 
+    public List<Association> getStoreAssociations() {
+        return storeAssociations;
+    }
+
     public List<T> getCompleted() {
         return completed;
     }
@@ -160,41 +244,18 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
         try {
             if (pendingRSPInterval > 0)
                 startWritePendingRSP();
-            for (Iterator<T> iter = insts.iterator(); iter.hasNext();) {
-                T inst = iter.next();
-                if (canceled) {
-                    status = Status.Cancel;
-                    break;
-                }
-                if (pendingRSP)
-                    writePendingRSP();
-                String tsuid;
-                DataWriter dataWriter;
-                try {
-                    tsuid = selectTransferSyntaxFor(storeas, inst);
-                    dataWriter = createDataWriter(inst, tsuid);
-                } catch (Exception e) {
-                    status = Status.OneOrMoreFailures;
-                    LOG.info("{}: Unable to retrieve {}/{} to {}", rqas,
-                            UID.nameOf(inst.cuid), UID.nameOf(inst.tsuid),
-                            storeas.getRemoteAET(), e);
-                    failed.add(inst);
-                    continue;
-                }
-                try {
-                    cstore(storeas, inst, tsuid, dataWriter);
-                } catch (Exception e) {
-                    status = Status.UnableToPerformSubOperations;
-                    LOG.warn("{}: Unable to perform sub-operation on association to {}",
-                            rqas, storeas.getRemoteAET(), e);
-                    failed.add(inst);
-                    while (iter.hasNext())
-                        failed.add(iter.next());
-                }
-            }
+            Iterator<T> iter = insts.iterator();
+            if (storeAssociations.size() > 1)
+                retrieveParallel(iter);
+            else if (!retrieve(storeas, iter))
+                setStatus(Status.UnableToPerformSubOperations);
+            if (!canceled)
+                while (iter.hasNext())
+                    failed.add(iter.next());
             waitForOutstandingCStoreRSP(storeas);
             if (isCMove())
-                releaseStoreAssociation(storeas);
+                for (Association as : storeAssociations)
+                    releaseStoreAssociation(as);
             stopWritePendingRSP();
             writeRSP(status);
         } finally {
@@ -208,6 +269,101 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
         }
     }
 
+    /**
+     * Performs the C-STORE sub-operations on one Association until there
+     * are no more instances or the retrieve was canceled.
+     *
+     * @return {@code false} if the sub-operations were aborted because the
+     *         Association failed
+     */
+    private boolean retrieve(Association storeas, Iterator<T> iter) {
+        T inst;
+        while ((inst = next(iter)) != null) {
+            if (canceled) {
+                setStatus(Status.Cancel);
+                break;
+            }
+            if (pendingRSP)
+                writePendingRSP();
+            String tsuid;
+            DataWriter dataWriter;
+            try {
+                tsuid = selectTransferSyntaxFor(storeas, inst);
+                dataWriter = createDataWriter(inst, tsuid);
+            } catch (Exception e) {
+                setStatus(Status.OneOrMoreFailures);
+                LOG.info("{}: Unable to retrieve {}/{} to {}", rqas,
+                        UID.nameOf(inst.cuid), UID.nameOf(inst.tsuid),
+                        storeas.getRemoteAET(), e);
+                failed.add(inst);
+                continue;
+            }
+            try {
+                cstore(storeas, inst, tsuid, dataWriter);
+            } catch (Exception e) {
+                LOG.warn("{}: Unable to perform sub-operation on association to {}",
+                        rqas, storeas.getRemoteAET(), e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distributes the sub-operations over all Store Associations. If some of
+     * them fail, the remaining instances are retrieved over the others and
+     * the retrieve completes with {@link Status#OneOrMoreFailures};
+     * {@link Status#UnableToPerformSubOperations} is only returned if none of
+     * the Associations could be used.
+     */
+    private void retrieveParallel(final Iterator<T> iter) {
+        final CountDownLatch finished =
+                new CountDownLatch(storeAssociations.size() - 1);
+        final AtomicInteger failedAssociations = new AtomicInteger();
+        for (final Association as : storeAssociations.subList(1,
+                storeAssociations.size())) {
+            try {
+                rqas.getApplicationEntity().getDevice().execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            if (!retrieve(as, iter))
+                                failedAssociations.incrementAndGet();
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                // the instances are retrieved over the other Associations
+                failedAssociations.incrementAndGet();
+                LOG.warn("{}: Unable to perform sub-operations on association to {}",
+                        rqas, as.getRemoteAET(), e);
+                finished.countDown();
+            }
+        }
+        if (!retrieve(storeas, iter))
+            failedAssociations.incrementAndGet();
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            LOG.warn("{}: failed to wait for completion of parallel retrieve",
+                    rqas, e);
+        }
+        int n = failedAssociations.get();
+        if (n == storeAssociations.size())
+            setStatus(Status.UnableToPerformSubOperations);
+        else if (n > 0)
+            setStatus(Status.OneOrMoreFailures);
+    }
+
+    private T next(Iterator<T> iter) {
+        synchronized (iter) {
+            return iter.hasNext() ? iter.next() : null;
+        }
+    }
+
     private void startWritePendingRSP() {
         writePendingRSP = rqas.getApplicationEntity().getDevice()
                 .scheduleAtFixedRate(
@@ -226,14 +382,15 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
     }
 
     private void waitForOutstandingCStoreRSP(Association storeas) {
+        rspLock.lock();
         try {
-            synchronized (outstandingRSPLock) {
-                while (outstandingRSP > 0)
-                    outstandingRSPLock.wait();
-            }
+            while (outstandingRSP > 0)
+                noOutstandingRSP.await();
         } catch (InterruptedException e) {
             LOG.warn("{}: failed to wait for outstanding RSP on association to {}",
                     rqas, storeas.getRemoteAET(), e);
+        } finally {
+            rspLock.unlock();
         }
     }
 
@@ -248,32 +405,73 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
 
     protected void cstore(Association storeas, T inst, String tsuid, 
             DataWriter dataWriter) throws IOException, InterruptedException {
-        DimseRSPHandler rspHandler =
+        CStoreRSPHandler rspHandler =
                 new CStoreRSPHandler(storeas.nextMessageID(), inst);
-        if (isCMove())
-            storeas.cstore(inst.cuid, inst.iuid, priority,
-                    rqas.getRemoteAET(), msgId,
-                    dataWriter, tsuid, rspHandler);
-        else
-            storeas.cstore(inst.cuid, inst.iuid, priority,
-                    dataWriter, tsuid, rspHandler);
-        synchronized (outstandingRSPLock) {
-            outstandingRSP++;
+        // count before sending, the RSP may be received before cstore returns
+        addOutstandingRSP(1);
+        boolean sent = false;
+        try {
+            if (isCMove())
+                storeas.cstore(inst.cuid, inst.iuid, priority,
+                        rqas.getRemoteAET(), msgId,
+                        dataWriter, tsuid, rspHandler);
+            else
+                storeas.cstore(inst.cuid, inst.iuid, priority,
+                        dataWriter, tsuid, rspHandler);
+            sent = true;
+        } finally {
+            if (!sent)
+                rspHandler.onFailed();
+        }
+    }
+
+    private void addOutstandingRSP(int delta) {
+        rspLock.lock();
+        try {
+            outstandingRSP += delta;
+            if (outstandingRSP <= 0)
+                noOutstandingRSP.signalAll();
+        } finally {
+            rspLock.unlock();
         }
     }
 
     private final class CStoreRSPHandler extends DimseRSPHandler {
 
         private final T inst;
+        private final AtomicBoolean outstanding = new AtomicBoolean(true);
 
         public CStoreRSPHandler(int msgId, T inst) {
             super(msgId);
             this.inst = inst;
         }
 
+        /**
+         * Accounts the sub-operation once, whichever of RSP receive,
+         * Association close or failed send happens first, before the number
+         * of outstanding RSPs is decremented.
+         */
+        private boolean account() {
+            return outstanding.compareAndSet(true, false);
+        }
+
+        /**
+         * Counts the sub-operation as failed, if the RQ could not be sent or
+         * the Association was closed before its RSP was received.
+         */
+        void onFailed() {
+            if (account()) {
+                failed.add(inst);
+                onSubOperationFailed();
+                addOutstandingRSP(-1);
+            }
+        }
+
         @Override
         public void onDimseRSP(Association as, Attributes cmd, Attributes data) {
             super.onDimseRSP(as, cmd, data);
+            if (!account())
+                return;
             int storeStatus = cmd.getInt(Tag.Status, -1);
             if (storeStatus == Status.Success)
                 completed.add(inst);
@@ -281,22 +479,15 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
                 warning.add(inst);
             else {
                 failed.add(inst);
-                if (status == Status.Success)
-                    status = Status.OneOrMoreFailures;
-            }
-            synchronized (outstandingRSPLock) {
-                if (--outstandingRSP == 0)
-                    outstandingRSPLock.notify();
+                onSubOperationFailed();
             }
+            addOutstandingRSP(-1);
         }
 
         @Override
         public void onClose(Association as) {
             super.onClose(as);
-            synchronized (outstandingRSPLock) {
-                outstandingRSP = 0;
-                outstandingRSPLock.notify();
-            }
+            onFailed();
         }
     }
 
@@ -306,9 +497,15 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
     }
 
     protected DataWriter createDataWriter(T inst, String tsuid) throws Exception {
-        DicomInputStream in = new DicomInputStream(inst.getFile());
+        File file = inst.getFile();
+        DicomInputStream in = new DicomInputStream(file);
         in.readFileMetaInformation();
-        return new InputStreamDataWriter(in);
+        if (!tsuid.equals(inst.tsuid))
+            return new InputStreamDataWriter(in);
+
+        long offset = in.getPosition();
+        in.close();
+        return new FileRegionDataWriter(file, offset, file.length() - offset);
     }
 
     public void writePendingRSP() {
@@ -327,7 +524,7 @@ public class BasicRetrieveTask<T extends InstanceLocator> implements RetrieveTas
             data = new Attributes(1);
             String[] iuids = new String[failed.size()];
             for (int i = 0; i < iuids.length; i++) {
-                iuids[i] = failed.get(0).iuid;
+                iuids[i] = failed.get(i).iuid;
             }
             data.setString(Tag.FailedSOPInstanceUIDList, VR.UI, iuids);
         }
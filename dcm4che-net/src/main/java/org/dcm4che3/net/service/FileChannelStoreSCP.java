@@ -0,0 +1,153 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.net.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.PDVInputStream;
+import org.dcm4che3.net.Status;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.util.SafeClose;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * C-STORE SCP storing received objects as DICOM Part 10 files. Only the File
+ * Meta Information is written through a {@link BufferedOutputStream}; the
+ * data set is written from the P-DATA-TF PDU receive buffer to the
+ * {@link java.nio.channels.FileChannel} of the file by
+ * {@link PDVInputStream#transferTo(java.nio.channels.WritableByteChannel)}.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class FileChannelStoreSCP extends BasicCStoreSCP {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(FileChannelStoreSCP.class);
+
+    private final File storageDir;
+
+    public FileChannelStoreSCP(File storageDir) {
+        this.storageDir = storageDir;
+    }
+
+    public FileChannelStoreSCP(File storageDir, String... sopClasses) {
+        super(sopClasses);
+        this.storageDir = storageDir;
+    }
+
+    /**
+     * Returns the directory in which received objects are stored by
+     * default. Returns the directory passed to the constructor by default.
+     */
+    public File getStorageDirectory() {
+        return storageDir;
+    }
+
+    @Override
+    protected void store(Association as, PresentationContext pc,
+            Attributes rq, PDVInputStream data, Attributes rsp)
+            throws IOException {
+        String cuid = rq.getString(Tag.AffectedSOPClassUID);
+        String iuid = rq.getString(Tag.AffectedSOPInstanceUID);
+        String tsuid = pc.getTransferSyntax();
+        File file = getFile(as, rq);
+        try {
+            storeTo(as, as.createFileMetaInformation(iuid, cuid, tsuid),
+                    data, file);
+            stored(as, pc, rq, file, rsp);
+        } catch (Exception e) {
+            deleteFile(as, file);
+            if (e instanceof DicomServiceException)
+                throw (DicomServiceException) e;
+            throw new DicomServiceException(Status.ProcessingFailure, e);
+        }
+    }
+
+    /**
+     * Returns the file to which the object received by the specified
+     * C-STORE RQ is stored. Returns file named by the SOP Instance UID in
+     * the storage directory by default.
+     */
+    protected File getFile(Association as, Attributes rq) {
+        return new File(getStorageDirectory(),
+                rq.getString(Tag.AffectedSOPInstanceUID));
+    }
+
+    /**
+     * Invoked after the received object was stored to the specified file.
+     * If it throws an exception, the file is deleted and the C-STORE fails.
+     * Does nothing by default.
+     */
+    protected void stored(Association as, PresentationContext pc,
+            Attributes rq, File file, Attributes rsp) throws IOException {
+    }
+
+    private static void storeTo(Association as, Attributes fmi,
+            PDVInputStream data, File file) throws IOException {
+        LOG.info("{}: M-WRITE {}", as, file);
+        file.getParentFile().mkdirs();
+        FileOutputStream fout = new FileOutputStream(file);
+        try {
+            DicomOutputStream out = new DicomOutputStream(
+                    new BufferedOutputStream(fout),
+                    UID.ExplicitVRLittleEndian);
+            out.writeFileMetaInformation(fmi);
+            out.flush();
+            data.transferTo(fout.getChannel());
+        } finally {
+            SafeClose.close(fout);
+        }
+    }
+
+    private static void deleteFile(Association as, File file) {
+        if (file.delete())
+            LOG.info("{}: M-DELETE {}", as, file);
+        else
+            LOG.warn("{}: M-DELETE {} failed!", as, file);
+    }
+}
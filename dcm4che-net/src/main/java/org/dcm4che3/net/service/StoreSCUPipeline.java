@@ -0,0 +1,333 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.net.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.io.DicomInputStream.IncludeBulkData;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.DataWriter;
+import org.dcm4che3.net.DataWriterAdapter;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.DimseRSPHandler;
+import org.dcm4che3.net.FileRegionDataWriter;
+import org.dcm4che3.net.Priority;
+import org.dcm4che3.util.SafeClose;
+
+/**
+ * Sends instances over an established association by asynchronous C-STORE
+ * operations. Files of subsequent instances are read and parsed by
+ * threads of the {@link Device} executor, while previous instances are
+ * still sent, so that up to {@code prefetch} instances are ready to be
+ * sent. The number of outstanding C-STORE operations is limited by the
+ * negotiated Asynchronous Operations Window.
+ * <p>
+ * The {@link Device} executor has to run the sending thread concurrently
+ * to the thread reading the association, so it must not be a single
+ * thread executor.
+ * <p>
+ * {@link #store} returns a {@link Future} providing the C-STORE-RSP
+ * command of the stored instance; a failure status is not reported as
+ * exception.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ */
+public class StoreSCUPipeline {
+
+    private final Association as;
+    private final Device device;
+    private final Semaphore prefetchPermits;
+    private final LinkedList<Entry> queue = new LinkedList<Entry>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition completed = lock.newCondition();
+    private int pending;
+    private boolean sending;
+    private int priority = Priority.NORMAL;
+    private String moveOriginatorAET;
+    private int moveOriginatorMsgId;
+
+    private final Runnable sender = new Runnable() {
+
+        @Override
+        public void run() {
+            Entry entry;
+            while ((entry = nextEntry()) != null)
+                send(entry);
+        }
+    };
+
+    public StoreSCUPipeline(Association as, int prefetch) {
+        if (prefetch <= 0)
+            throw new IllegalArgumentException("prefetch: " + prefetch);
+
+        this.as = as;
+        this.device = as.getApplicationEntity().getDevice();
+        this.prefetchPermits = new Semaphore(prefetch);
+    }
+
+    public final Association getAssociation() {
+        return as;
+    }
+
+    public final int getPriority() {
+        return priority;
+    }
+
+    public final void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Set Move Originator AE Title and Message ID included in C-STORE-RQs
+     * of C-MOVE sub-operations.
+     */
+    public final void setMoveOriginator(String aet, int msgId) {
+        this.moveOriginatorAET = aet;
+        this.moveOriginatorMsgId = msgId;
+    }
+
+    /**
+     * Schedules the specified instance for sending. Blocks if there are
+     * already {@code prefetch} instances waiting to be sent.
+     *
+     * @param inst instance to send
+     * @return future of the C-STORE-RSP command
+     * @throws InterruptedException
+     */
+    public Future<Attributes> store(InstanceLocator inst)
+            throws InterruptedException {
+        prefetchPermits.acquire();
+        boolean scheduled = false;
+        try {
+            Entry entry = new Entry(inst);
+            device.execute(entry.prepare);
+            schedule(entry);
+            scheduled = true;
+            return entry.result;
+        } finally {
+            if (!scheduled)
+                prefetchPermits.release();
+        }
+    }
+
+    private void schedule(Entry entry) {
+        lock.lock();
+        try {
+            queue.add(entry);
+            pending++;
+            if (!sending) {
+                device.execute(sender);
+                sending = true;
+            }
+        } catch (RuntimeException e) {
+            queue.remove(entry);
+            pending--;
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until responses for all scheduled instances are received or
+     * the association is closed.
+     *
+     * @throws InterruptedException
+     */
+    public void waitForCompletion() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pending > 0)
+                completed.await();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected String selectTransferSyntaxFor(InstanceLocator inst)
+            throws Exception {
+        return inst.tsuid;
+    }
+
+    /**
+     * Creates the writer of the data set of the specified instance. Invoked
+     * by a thread of the {@link Device} executor, while previous instances
+     * are still sent. The default implementation only parses the File Meta
+     * Information and sends the remaining file as it is, if it is already
+     * encoded in the selected Transfer Syntax. Otherwise, it reads the data
+     * set without bulk data, which is streamed from the file on sending, so
+     * large pixel data is never held in memory.
+     */
+    protected DataWriter createDataWriter(InstanceLocator inst, String tsuid)
+            throws Exception {
+        File file = inst.getFile();
+        DicomInputStream in = new DicomInputStream(file);
+        try {
+            if (tsuid.equals(inst.tsuid)) {
+                in.readFileMetaInformation();
+                long offset = in.getPosition();
+                return new FileRegionDataWriter(file, offset,
+                        file.length() - offset);
+            }
+            in.setIncludeBulkData(IncludeBulkData.URI);
+            return new DataWriterAdapter(in.readDataset(-1, -1));
+        } finally {
+            SafeClose.close(in);
+        }
+    }
+
+    private Entry nextEntry() {
+        lock.lock();
+        try {
+            Entry entry = queue.poll();
+            if (entry == null)
+                sending = false;
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send(final Entry entry) {
+        try {
+            if (entry.result.isCancelled()) {
+                entry.complete(null, null);
+                return;
+            }
+            // runs the prefetch task, if no executor thread started it yet
+            entry.prepare.run();
+            DataWriter dataWriter = entry.prepare.get();
+            DimseRSPHandler rspHandler =
+                    new DimseRSPHandler(as.nextMessageID()) {
+
+                @Override
+                public void onDimseRSP(Association as, Attributes cmd,
+                        Attributes data) {
+                    super.onDimseRSP(as, cmd, data);
+                    entry.complete(cmd, null);
+                }
+
+                @Override
+                public void onClose(Association as) {
+                    super.onClose(as);
+                    entry.complete(null, new IOException(
+                            "Association to " + as.getRemoteAET()
+                            + " closed before receive of C-STORE-RSP"));
+                }
+            };
+            InstanceLocator inst = entry.inst;
+            if (moveOriginatorAET != null)
+                as.cstore(inst.cuid, inst.iuid, priority,
+                        moveOriginatorAET, moveOriginatorMsgId,
+                        dataWriter, entry.tsuid, rspHandler);
+            else
+                as.cstore(inst.cuid, inst.iuid, priority,
+                        dataWriter, entry.tsuid, rspHandler);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            entry.complete(null, cause instanceof Exception
+                    ? (Exception) cause
+                    : new ExecutionException(cause));
+        } catch (Exception e) {
+            entry.complete(null, e);
+        } finally {
+            prefetchPermits.release();
+        }
+    }
+
+    private final class Entry implements Callable<Attributes> {
+
+        final InstanceLocator inst;
+        final FutureTask<DataWriter> prepare;
+        final FutureTask<Attributes> result =
+                new FutureTask<Attributes>(this);
+        String tsuid;
+        Attributes rsp;
+        Exception ex;
+        boolean done;
+
+        Entry(final InstanceLocator inst) {
+            this.inst = inst;
+            this.prepare = new FutureTask<DataWriter>(
+                    new Callable<DataWriter>() {
+
+                @Override
+                public DataWriter call() throws Exception {
+                    tsuid = selectTransferSyntaxFor(inst);
+                    return createDataWriter(inst, tsuid);
+                }
+            });
+        }
+
+        @Override
+        public Attributes call() throws Exception {
+            if (ex != null)
+                throw ex;
+            return rsp;
+        }
+
+        void complete(Attributes rsp, Exception ex) {
+            lock.lock();
+            try {
+                if (done)
+                    return;
+
+                done = true;
+                this.rsp = rsp;
+                this.ex = ex;
+                result.run();
+                if (--pending == 0)
+                    completed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
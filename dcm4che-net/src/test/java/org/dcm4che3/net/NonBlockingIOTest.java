@@ -0,0 +1,157 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.net;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.net.pdu.AAssociateRQ;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.service.BasicCEchoSCP;
+import org.dcm4che3.net.service.BasicCStoreSCP;
+import org.dcm4che3.net.service.DicomServiceRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ *
+ */
+public class NonBlockingIOTest {
+
+    private static final String CUID = UID.SecondaryCaptureImageStorage;
+    private static final int PIXEL_DATA_LENGTH = 0x100000;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private Device scp;
+    private Device scu;
+    private Connection remote;
+    private final AtomicInteger stored = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        scp = TestDevices.createDevice("scp", "STORESCP", true, executor,
+                scheduledExecutor);
+        DicomServiceRegistry serviceRegistry = new DicomServiceRegistry();
+        serviceRegistry.addDicomService(new BasicCEchoSCP());
+        serviceRegistry.addDicomService(new BasicCStoreSCP() {
+
+            @Override
+            protected void store(Association as, PresentationContext pc,
+                    Attributes rq, PDVInputStream data, Attributes rsp)
+                    throws IOException {
+                Attributes ds = data.readDataset(pc.getTransferSyntax());
+                if (ds.getSafeBytes(Tag.PixelData).length == PIXEL_DATA_LENGTH)
+                    stored.incrementAndGet();
+            }
+        });
+        scp.setDimseRQHandler(serviceRegistry);
+        ApplicationEntity ae = scp.getApplicationEntity("STORESCP");
+        ae.addTransferCapability(new TransferCapability(null, "*",
+                TransferCapability.Role.SCP, "*"));
+        remote = TestDevices.bind(scp);
+        scu = TestDevices.createDevice("scu", "STORESCU", true, executor,
+                scheduledExecutor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scp.unbindConnections();
+        executor.shutdown();
+        scheduledExecutor.shutdown();
+    }
+
+    private Association open() throws Exception {
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET("STORESCP");
+        rq.addPresentationContext(new PresentationContext(1,
+                UID.VerificationSOPClass, UID.ImplicitVRLittleEndian));
+        rq.addPresentationContext(new PresentationContext(3,
+                CUID, UID.ExplicitVRLittleEndian));
+        return scu.getApplicationEntity("STORESCU").connect(remote, rq);
+    }
+
+    @Test
+    public void testEcho() throws Exception {
+        Association as = open();
+        assertNotNull(as.getSocket().getChannel());
+        for (int i = 0; i < 10; i++) {
+            DimseRSP rsp = as.cecho();
+            rsp.next();
+            assertEquals(Status.Success,
+                    rsp.getCommand().getInt(Tag.Status, -1));
+        }
+        as.release();
+        as.waitForSocketClose();
+        scp.waitForNoOpenConnections();
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        Association as = open();
+        int n = 5;
+        for (int i = 0; i < n; i++) {
+            Attributes ds = new Attributes();
+            ds.setString(Tag.SOPClassUID, VR.UI, CUID);
+            ds.setString(Tag.SOPInstanceUID, VR.UI, "1.2.3." + i);
+            ds.setBytes(Tag.PixelData, VR.OB, new byte[PIXEL_DATA_LENGTH]);
+            as.cstore(CUID, "1.2.3." + i, Priority.NORMAL,
+                    new DataWriterAdapter(ds), UID.ExplicitVRLittleEndian,
+                    new DimseRSPHandler(as.nextMessageID()));
+        }
+        as.waitForOutstandingRSP();
+        as.release();
+        as.waitForSocketClose();
+        scp.waitForNoOpenConnections();
+        assertEquals(n, stored.get());
+    }
+}
@@ -0,0 +1,152 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.net;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.dcm4che3.util.SafeClose;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SelectorLoopTest {
+
+    private static final byte[] PDU = { 7, 0, 0, 0, 0, 4, 0, 0, 0, 0 };
+
+    private ExecutorService executor;
+    private Device device;
+    private ServerSocketChannel server;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        device = new Device("test");
+        device.setExecutor(executor);
+        server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("localhost", 0));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SafeClose.close(server);
+        executor.shutdown();
+    }
+
+    private Socket connect() throws IOException {
+        Socket sock = new Socket("localhost", server.socket().getLocalPort());
+        sock.setSoTimeout(5000);
+        return sock;
+    }
+
+    @Test
+    public void testHandlerExceptionClosesOnlyItsChannel() throws Exception {
+        SelectorLoop loop = new SelectorLoop(device);
+        Socket failing = connect();
+        SocketChannel failingCh = server.accept();
+        Socket working = connect();
+        SocketChannel workingCh = server.accept();
+        final CountDownLatch failingRead = new CountDownLatch(1);
+        final CountDownLatch workingRead = new CountDownLatch(1);
+        final ChannelTransport[] transports = new ChannelTransport[2];
+        transports[0] = new ChannelTransport(failingCh, loop, device,
+                new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            transports[0].getInputStream().read();
+                        } catch (IOException e) {
+                            failingRead.countDown();
+                        }
+                    }
+                }, 0x4000) {
+
+            @Override
+            void onSelect(SelectionKey key) {
+                throw new IllegalStateException("test");
+            }
+        };
+        transports[1] = new ChannelTransport(workingCh, loop, device,
+                new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            byte[] b = new byte[PDU.length];
+                            InputStream in = transports[1].getInputStream();
+                            int off = 0;
+                            while (off < b.length)
+                                off += in.read(b, off, b.length - off);
+                            workingRead.countDown();
+                        } catch (IOException e) {
+                        }
+                    }
+                }, 0x4000);
+        transports[0].register();
+        transports[1].register();
+
+        failing.getOutputStream().write(PDU);
+        assertEquals("channel of failed handler closed",
+                -1, failing.getInputStream().read());
+        assertTrue("read of failed channel throws IOException",
+                failingRead.await(5, TimeUnit.SECONDS));
+
+        working.getOutputStream().write(PDU);
+        assertTrue("other channel still served",
+                workingRead.await(5, TimeUnit.SECONDS));
+        assertEquals(2, loop.getNumberOfRegisteredChannels());
+
+        transports[0].close();
+        transports[1].close();
+        SafeClose.close(workingCh);
+        SafeClose.close(working);
+        SafeClose.close(failing);
+    }
+}
@@ -0,0 +1,115 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.net;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ServerSocket;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Creates devices talking to each other over the loopback interface.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ *
+ */
+public class TestDevices {
+
+    private static final int MAX_BIND_ATTEMPTS = 10;
+
+    private TestDevices() {}
+
+    public static Device createDevice(String name, String aet,
+            boolean nonBlockingIO, Executor executor,
+            ScheduledExecutorService scheduledExecutor) {
+        Device device = new Device(name);
+        Connection conn = new Connection("dicom", "localhost");
+        conn.setNonBlockingIO(nonBlockingIO);
+        conn.setMaxOpsInvoked(0);
+        conn.setMaxOpsPerformed(0);
+        device.addConnection(conn);
+        ApplicationEntity ae = new ApplicationEntity(aet);
+        device.addApplicationEntity(ae);
+        ae.addConnection(conn);
+        device.setExecutor(executor);
+        device.setScheduledExecutor(scheduledExecutor);
+        if (nonBlockingIO)
+            device.setSelectorThreads(1);
+        return device;
+    }
+
+    /**
+     * Binds the connection of the device to a free port. As port 0 denotes
+     * a connection which does not listen, a free port is probed and the
+     * bind is retried with another port if the probed port was taken in
+     * the meantime.
+     *
+     * @return connection to address the bound device
+     */
+    public static Connection bind(Device device)
+            throws IOException, GeneralSecurityException {
+        Connection conn = device.listConnections().get(0);
+        for (int attempt = 1;; attempt++) {
+            conn.setPort(freePort());
+            try {
+                device.bindConnections();
+                return new Connection("dicom", "localhost", conn.getPort());
+            } catch (IOException e) {
+                if (attempt == MAX_BIND_ATTEMPTS || !isBindException(e))
+                    throw e;
+            }
+        }
+    }
+
+    private static boolean isBindException(IOException e) {
+        return e instanceof BindException
+                || e.getCause() instanceof BindException;
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket ss = new ServerSocket(0);
+        try {
+            return ss.getLocalPort();
+        } finally {
+            ss.close();
+        }
+    }
+}
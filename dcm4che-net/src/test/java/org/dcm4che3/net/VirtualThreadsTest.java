@@ -0,0 +1,169 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2014
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+
+package org.dcm4che3.net;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.net.pdu.AAssociateRQ;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.service.BasicCEchoSCP;
+import org.dcm4che3.net.service.DicomServiceRegistry;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs associations on a Device with virtual threads enabled. Skipped on
+ * JVMs without virtual threads.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ *
+ */
+public class VirtualThreadsTest {
+
+    private static final Method IS_VIRTUAL = isVirtualMethod();
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private Device scp;
+    private final AtomicBoolean echoOnVirtualThread = new AtomicBoolean();
+    private final AtomicBoolean echoOnPlatformThread = new AtomicBoolean();
+
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(IS_VIRTUAL != null);
+        executor = Executors.newCachedThreadPool();
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (scp != null)
+            scp.unbindConnections();
+        if (executor != null) {
+            executor.shutdown();
+            scheduledExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testEcho() throws Exception {
+        assertEchoOnVirtualThreads(false);
+    }
+
+    @Test
+    public void testEchoNonBlockingIO() throws Exception {
+        assertEchoOnVirtualThreads(true);
+    }
+
+    private void assertEchoOnVirtualThreads(boolean nonBlockingIO)
+            throws Exception {
+        scp = TestDevices.createDevice("scp", "ECHOSCP", nonBlockingIO,
+                executor, scheduledExecutor);
+        scp.setVirtualThreads(true);
+        DicomServiceRegistry serviceRegistry = new DicomServiceRegistry();
+        serviceRegistry.addDicomService(new BasicCEchoSCP() {
+
+            @Override
+            public void onDimseRQ(Association as, PresentationContext pc,
+                    Dimse dimse, Attributes cmd, Attributes data)
+                    throws IOException {
+                (isVirtual(Thread.currentThread())
+                        ? echoOnVirtualThread
+                        : echoOnPlatformThread).set(true);
+                super.onDimseRQ(as, pc, dimse, cmd, data);
+            }
+        });
+        scp.setDimseRQHandler(serviceRegistry);
+        scp.getApplicationEntity("ECHOSCP").addTransferCapability(
+                new TransferCapability(null, UID.VerificationSOPClass,
+                        TransferCapability.Role.SCP, UID.ImplicitVRLittleEndian));
+        Connection remote = TestDevices.bind(scp);
+
+        Device scu = TestDevices.createDevice("scu", "ECHOSCU", nonBlockingIO,
+                executor, scheduledExecutor);
+        scu.setVirtualThreads(true);
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET("ECHOSCP");
+        rq.addPresentationContext(new PresentationContext(1,
+                UID.VerificationSOPClass, UID.ImplicitVRLittleEndian));
+        Association as = scu.getApplicationEntity("ECHOSCU").connect(remote, rq);
+        for (int i = 0; i < 10; i++) {
+            DimseRSP rsp = as.cecho();
+            assertTrue(rsp.next());
+            assertEquals(Status.Success,
+                    rsp.getCommand().getInt(Tag.Status, -1));
+        }
+        as.release();
+        as.waitForSocketClose();
+        scp.waitForNoOpenConnections();
+
+        assertTrue("C-ECHO RQ handled on virtual thread",
+                echoOnVirtualThread.get());
+        assertFalse("C-ECHO RQ handled on platform thread",
+                echoOnPlatformThread.get());
+    }
+}
@@ -0,0 +1,317 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.net.service;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.Connection;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.Dimse;
+import org.dcm4che3.net.DimseRSP;
+import org.dcm4che3.net.PDVInputStream;
+import org.dcm4che3.net.Status;
+import org.dcm4che3.net.TestDevices;
+import org.dcm4che3.net.TransferCapability;
+import org.dcm4che3.net.pdu.AAssociateRQ;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.util.SafeClose;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Performs C-MOVEs distributing the C-STORE sub-operations over several
+ * Associations to the Move Destination.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ *
+ */
+public class BasicRetrieveTaskTest {
+
+    private static final String CUID = UID.SecondaryCaptureImageStorage;
+    private static final String MOVE_CUID =
+            UID.StudyRootQueryRetrieveInformationModelMOVE;
+    private static final int INSTANCES = 20;
+    private static final int STORE_ASSOCIATIONS = 3;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private Device storescp;
+    private Device movescp;
+    private Device movescu;
+    private Connection storescpConn;
+    private Connection movescpConn;
+    private final List<File> files = new ArrayList<File>();
+    private final List<InstanceLocator> insts = new ArrayList<InstanceLocator>();
+    private volatile String abortOnIUID;
+    private final CountDownLatch storeStarted = new CountDownLatch(1);
+    private volatile CountDownLatch storeBlocked = new CountDownLatch(0);
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        storescp = TestDevices.createDevice("storescp", "STORESCP", false,
+                executor, scheduledExecutor);
+        DicomServiceRegistry storeServices = new DicomServiceRegistry();
+        storeServices.addDicomService(new BasicCStoreSCP() {
+
+            @Override
+            protected void store(Association as, PresentationContext pc,
+                    Attributes rq, PDVInputStream data, Attributes rsp)
+                    throws IOException {
+                storeStarted.countDown();
+                try {
+                    storeBlocked.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                if (rq.getString(Tag.AffectedSOPInstanceUID).equals(abortOnIUID))
+                    as.abort();
+            }
+        });
+        storescp.setDimseRQHandler(storeServices);
+        addSCPTransferCapability(storescp, "STORESCP");
+        storescpConn = TestDevices.bind(storescp);
+
+        movescp = TestDevices.createDevice("movescp", "MOVESCP", false,
+                executor, scheduledExecutor);
+        DicomServiceRegistry moveServices = new DicomServiceRegistry();
+        moveServices.addDicomService(new BasicCMoveSCP(MOVE_CUID) {
+
+            @Override
+            protected RetrieveTask calculateMatches(Association as,
+                    PresentationContext pc, Attributes rq, Attributes keys)
+                    throws DicomServiceException {
+                List<Association> storeAssociations =
+                        new ArrayList<Association>(STORE_ASSOCIATIONS);
+                try {
+                    for (int i = 0; i < STORE_ASSOCIATIONS; i++)
+                        storeAssociations.add(openStoreAssociation(as));
+                } catch (Exception e) {
+                    throw new DicomServiceException(
+                            Status.UnableToPerformSubOperations, e);
+                }
+                return new BasicRetrieveTask<InstanceLocator>(Dimse.C_MOVE_RQ,
+                        as, pc, rq, insts, storeAssociations);
+            }
+        });
+        movescp.setDimseRQHandler(moveServices);
+        // wait for each C-STORE RSP, so C-STORE RQs are not sent in advance
+        movescp.listConnections().get(0).setMaxOpsInvoked(1);
+        addSCPTransferCapability(movescp, "MOVESCP");
+        movescpConn = TestDevices.bind(movescp);
+
+        movescu = TestDevices.createDevice("movescu", "MOVESCU", false,
+                executor, scheduledExecutor);
+        for (int i = 0; i < INSTANCES; i++)
+            insts.add(createInstance(i));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        storeBlocked.countDown();
+        movescp.waitForNoOpenConnections();
+        storescp.waitForNoOpenConnections();
+        movescp.unbindConnections();
+        storescp.unbindConnections();
+        executor.shutdown();
+        scheduledExecutor.shutdown();
+        for (File file : files)
+            file.delete();
+    }
+
+    private static void addSCPTransferCapability(Device device, String aet) {
+        device.getApplicationEntity(aet).addTransferCapability(
+                new TransferCapability(null, "*",
+                        TransferCapability.Role.SCP, "*"));
+    }
+
+    private Association openStoreAssociation(Association as)
+            throws Exception {
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET("STORESCP");
+        rq.addPresentationContext(new PresentationContext(1,
+                CUID, UID.ExplicitVRLittleEndian));
+        return as.getApplicationEntity().connect(storescpConn, rq);
+    }
+
+    private InstanceLocator createInstance(int i) throws IOException {
+        String iuid = "1.2.3." + i;
+        Attributes ds = new Attributes();
+        ds.setString(Tag.SOPClassUID, VR.UI, CUID);
+        ds.setString(Tag.SOPInstanceUID, VR.UI, iuid);
+        ds.setBytes(Tag.PixelData, VR.OB, new byte[256]);
+        File file = File.createTempFile("retrieve", ".dcm");
+        files.add(file);
+        DicomOutputStream out = new DicomOutputStream(file);
+        try {
+            out.writeDataset(
+                    ds.createFileMetaInformation(UID.ExplicitVRLittleEndian),
+                    ds);
+        } finally {
+            SafeClose.close(out);
+        }
+        return new InstanceLocator(CUID, iuid, UID.ExplicitVRLittleEndian,
+                file.toURI().toString());
+    }
+
+    private Association openMoveAssociation() throws Exception {
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET("MOVESCP");
+        rq.addPresentationContext(new PresentationContext(1,
+                MOVE_CUID, UID.ImplicitVRLittleEndian));
+        return movescu.getApplicationEntity("MOVESCU").connect(movescpConn, rq);
+    }
+
+    private DimseRSP cmove(Association as) throws Exception {
+        Attributes keys = new Attributes();
+        keys.setString(Tag.QueryRetrieveLevel, VR.CS, "STUDY");
+        keys.setString(Tag.StudyInstanceUID, VR.UI, "1.2.3");
+        return as.cmove(MOVE_CUID, 0, keys, UID.ImplicitVRLittleEndian,
+                "STORESCP");
+    }
+
+    private static Attributes finalRSP(DimseRSP rsp) throws Exception {
+        while (rsp.next())
+            if (!Status.isPending(rsp.getCommand().getInt(Tag.Status, -1)))
+                return rsp.getCommand();
+        return rsp.getCommand();
+    }
+
+    private static int count(Attributes cmd, int tag) {
+        return cmd.getInt(tag, 0);
+    }
+
+    @Test(timeout = 20000)
+    public void testMove() throws Exception {
+        Association as = openMoveAssociation();
+        Attributes cmd = finalRSP(cmove(as));
+        as.release();
+        as.waitForSocketClose();
+
+        assertEquals(Status.Success, cmd.getInt(Tag.Status, -1));
+        assertEquals(INSTANCES,
+                count(cmd, Tag.NumberOfCompletedSuboperations));
+        assertEquals(0, count(cmd, Tag.NumberOfFailedSuboperations));
+    }
+
+    @Test(timeout = 20000)
+    public void testPartialFailure() throws Exception {
+        abortOnIUID = "1.2.3.5";
+        Association as = openMoveAssociation();
+        DimseRSP rsp = cmove(as);
+        Attributes cmd = finalRSP(rsp);
+        Attributes data = rsp.getDataset();
+        as.release();
+        as.waitForSocketClose();
+
+        assertEquals("failures of one of several Associations",
+                Status.OneOrMoreFailures, cmd.getInt(Tag.Status, -1));
+        int completed = count(cmd, Tag.NumberOfCompletedSuboperations);
+        int failed = count(cmd, Tag.NumberOfFailedSuboperations);
+        assertEquals(0, count(cmd, Tag.NumberOfWarningSuboperations));
+        assertEquals(INSTANCES, completed + failed);
+        assertTrue("failed: " + failed, failed > 0);
+        assertTrue("completed: " + completed,
+                completed >= INSTANCES - STORE_ASSOCIATIONS);
+        String[] iuids = data.getStrings(Tag.FailedSOPInstanceUIDList);
+        assertEquals(failed, iuids.length);
+        assertEquals("distinct Failed SOP Instance UIDs", failed,
+                new HashSet<String>(Arrays.asList(iuids)).size());
+        assertTrue(Arrays.asList(iuids).contains(abortOnIUID));
+    }
+
+    @Test(timeout = 20000)
+    public void testCancel() throws Exception {
+        storeBlocked = new CountDownLatch(1);
+        Association as = openMoveAssociation();
+        DimseRSP rsp = cmove(as);
+        assertTrue(storeStarted.await(10, TimeUnit.SECONDS));
+        rsp.cancel(as);
+        // let the C-CANCEL RQ arrive before the blocked C-STOREs complete
+        Thread.sleep(200);
+        storeBlocked.countDown();
+        Attributes cmd = finalRSP(rsp);
+        as.release();
+        as.waitForSocketClose();
+
+        assertEquals(Status.Cancel, cmd.getInt(Tag.Status, -1));
+        int completed = count(cmd, Tag.NumberOfCompletedSuboperations);
+        int remaining = count(cmd, Tag.NumberOfRemainingSuboperations);
+        assertTrue("remaining: " + remaining, remaining > 0);
+        assertEquals(0, count(cmd, Tag.NumberOfFailedSuboperations));
+        assertEquals(INSTANCES, completed + remaining);
+    }
+
+    @Test
+    public void testStatusSeverity() {
+        BasicRetrieveTask<InstanceLocator> task =
+                new BasicRetrieveTask<InstanceLocator>(Dimse.C_MOVE_RQ, null,
+                        null, new Attributes(),
+                        Collections.<InstanceLocator>emptyList(),
+                        Collections.<Association>singletonList(null));
+        task.setStatus(Status.OneOrMoreFailures);
+        task.setStatus(Status.Cancel);
+        assertEquals(Status.Cancel, task.getStatus());
+        task.setStatus(Status.UnableToPerformSubOperations);
+        task.setStatus(Status.Cancel);
+        task.setStatus(Status.OneOrMoreFailures);
+        assertEquals(Status.UnableToPerformSubOperations, task.getStatus());
+    }
+}
@@ -0,0 +1,170 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.net.service;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.Connection;
+import org.dcm4che3.net.DataWriterAdapter;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.DimseRSP;
+import org.dcm4che3.net.Status;
+import org.dcm4che3.net.TestDevices;
+import org.dcm4che3.net.TransferCapability;
+import org.dcm4che3.net.pdu.AAssociateRQ;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.util.SafeClose;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Stores objects received over blocking and non-blocking I/O by
+ * {@link FileChannelStoreSCP} and compares the stored files with the sent
+ * objects.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ *
+ */
+public class FileChannelStoreSCPTest {
+
+    private static final String CUID = UID.SecondaryCaptureImageStorage;
+    private static final String IUID = "1.2.3.4";
+    private static final int PIXEL_DATA_LENGTH = 100000;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private File storageDir;
+    private Device scp;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        storageDir = File.createTempFile("storescp", "");
+        storageDir.delete();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (scp != null) {
+            scp.waitForNoOpenConnections();
+            scp.unbindConnections();
+        }
+        executor.shutdown();
+        scheduledExecutor.shutdown();
+        File[] files = storageDir.listFiles();
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        storageDir.delete();
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        testStore(false);
+    }
+
+    @Test
+    public void testStoreNonBlockingIO() throws Exception {
+        testStore(true);
+    }
+
+    private void testStore(boolean nonBlockingIO) throws Exception {
+        scp = TestDevices.createDevice("storescp", "STORESCP", nonBlockingIO,
+                executor, scheduledExecutor);
+        DicomServiceRegistry serviceRegistry = new DicomServiceRegistry();
+        serviceRegistry.addDicomService(new FileChannelStoreSCP(storageDir));
+        scp.setDimseRQHandler(serviceRegistry);
+        scp.getApplicationEntity("STORESCP").addTransferCapability(
+                new TransferCapability(null, "*",
+                        TransferCapability.Role.SCP, "*"));
+        Connection remote = TestDevices.bind(scp);
+        Device scu = TestDevices.createDevice("storescu", "STORESCU",
+                nonBlockingIO, executor, scheduledExecutor);
+
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET("STORESCP");
+        rq.addPresentationContext(new PresentationContext(1,
+                CUID, UID.ExplicitVRLittleEndian));
+        Association as = scu.getApplicationEntity("STORESCU")
+                .connect(remote, rq);
+        Attributes ds = createDataset();
+        DimseRSP rsp = as.cstore(CUID, IUID, 0,
+                new DataWriterAdapter(ds), UID.ExplicitVRLittleEndian);
+        rsp.next();
+        as.release();
+        as.waitForSocketClose();
+
+        assertEquals(Status.Success, rsp.getCommand().getInt(Tag.Status, -1));
+        DicomInputStream in = new DicomInputStream(new File(storageDir, IUID));
+        try {
+            Attributes fmi = in.readFileMetaInformation();
+            assertEquals(CUID, fmi.getString(Tag.MediaStorageSOPClassUID));
+            assertEquals(IUID, fmi.getString(Tag.MediaStorageSOPInstanceUID));
+            assertEquals(UID.ExplicitVRLittleEndian,
+                    fmi.getString(Tag.TransferSyntaxUID));
+            assertEquals(ds, in.readDataset(-1, -1));
+        } finally {
+            SafeClose.close(in);
+        }
+    }
+
+    private static Attributes createDataset() {
+        Attributes ds = new Attributes();
+        ds.setString(Tag.SOPClassUID, VR.UI, CUID);
+        ds.setString(Tag.SOPInstanceUID, VR.UI, IUID);
+        ds.setString(Tag.PatientName, VR.PN, "Doe^John");
+        byte[] pixelData = new byte[PIXEL_DATA_LENGTH];
+        for (int i = 0; i < pixelData.length; i++)
+            pixelData[i] = (byte) (i * 31);
+        ds.setBytes(Tag.PixelData, VR.OB, pixelData);
+        return ds;
+    }
+}
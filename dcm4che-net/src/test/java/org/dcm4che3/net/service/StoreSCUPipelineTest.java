@@ -0,0 +1,345 @@
+/* ***** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * Agfa Healthcare.
+ * Portions created by the Initial Developer are Copyright (C) 2011
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * ***** END LICENSE BLOCK ***** */
+package org.dcm4che3.net.service;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.Connection;
+import org.dcm4che3.net.DataWriter;
+import org.dcm4che3.net.DataWriterAdapter;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.FileRegionDataWriter;
+import org.dcm4che3.net.PDVInputStream;
+import org.dcm4che3.net.PDVOutputStream;
+import org.dcm4che3.net.Status;
+import org.dcm4che3.net.TestDevices;
+import org.dcm4che3.net.TransferCapability;
+import org.dcm4che3.net.pdu.AAssociateRQ;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.util.SafeClose;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StoreSCUPipelineTest {
+
+    private static final String CUID = UID.SecondaryCaptureImageStorage;
+    private static final int PIXEL_DATA_LENGTH = 0x10000;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduledExecutor;
+    private Device scp;
+    private Device scu;
+    private Connection remote;
+    private final List<File> files = new ArrayList<File>();
+    private final AtomicInteger stored = new AtomicInteger();
+    private final AtomicInteger prefetched = new AtomicInteger();
+    private final AtomicInteger maxPrefetched = new AtomicInteger();
+    private final List<Class<?>> dataWriterTypes =
+            Collections.synchronizedList(new ArrayList<Class<?>>());
+    private volatile long storeDelay;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        scp = TestDevices.createDevice("scp", "STORESCP", false, executor,
+                scheduledExecutor);
+        DicomServiceRegistry serviceRegistry = new DicomServiceRegistry();
+        serviceRegistry.addDicomService(new BasicCStoreSCP() {
+
+            @Override
+            protected void store(Association as, PresentationContext pc,
+                    Attributes rq, PDVInputStream data, Attributes rsp)
+                    throws IOException {
+                Attributes ds = data.readDataset(pc.getTransferSyntax());
+                if (storeDelay > 0)
+                    try {
+                        Thread.sleep(storeDelay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                if (ds.getSafeBytes(Tag.PixelData).length == PIXEL_DATA_LENGTH
+                        && rq.getString(Tag.AffectedSOPInstanceUID).equals(
+                                ds.getString(Tag.SOPInstanceUID)))
+                    stored.incrementAndGet();
+            }
+        });
+        scp.setDimseRQHandler(serviceRegistry);
+        scp.getApplicationEntity("STORESCP").addTransferCapability(
+                new TransferCapability(null, "*",
+                        TransferCapability.Role.SCP, "*"));
+        remote = TestDevices.bind(scp);
+        scu = TestDevices.createDevice("scu", "STORESCU", false, executor,
+                scheduledExecutor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scp.unbindConnections();
+        scp.waitForNoOpenConnections();
+        executor.shutdown();
+        scheduledExecutor.shutdown();
+        for (File file : files)
+            file.delete();
+    }
+
+    private Association open() throws Exception {
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET("STORESCP");
+        rq.addPresentationContext(new PresentationContext(1,
+                CUID, UID.ImplicitVRLittleEndian));
+        rq.addPresentationContext(new PresentationContext(3,
+                CUID, UID.ExplicitVRLittleEndian));
+        return scu.getApplicationEntity("STORESCU").connect(remote, rq);
+    }
+
+    private InstanceLocator createInstance(int i) throws IOException {
+        String iuid = "1.2.3." + i;
+        Attributes ds = new Attributes();
+        ds.setString(Tag.SOPClassUID, VR.UI, CUID);
+        ds.setString(Tag.SOPInstanceUID, VR.UI, iuid);
+        ds.setBytes(Tag.PixelData, VR.OB, new byte[PIXEL_DATA_LENGTH]);
+        File file = File.createTempFile("storescu", ".dcm");
+        files.add(file);
+        DicomOutputStream out = new DicomOutputStream(file);
+        try {
+            out.writeDataset(
+                    ds.createFileMetaInformation(UID.ExplicitVRLittleEndian),
+                    ds);
+        } finally {
+            SafeClose.close(out);
+        }
+        return new InstanceLocator(CUID, iuid, UID.ExplicitVRLittleEndian,
+                file.toURI().toString());
+    }
+
+    private StoreSCUPipeline createPipeline(Association as, int prefetch) {
+        return createPipeline(as, prefetch, UID.ImplicitVRLittleEndian);
+    }
+
+    /**
+     * Creates a pipeline, which sends instances in the specified Transfer
+     * Syntax - or in the Transfer Syntax of the file, if <code>null</code> -
+     * and counts the instances, which are prefetched but not yet sent.
+     */
+    private StoreSCUPipeline createPipeline(Association as, int prefetch,
+            final String tsuid) {
+        return new StoreSCUPipeline(as, prefetch) {
+
+            @Override
+            protected String selectTransferSyntaxFor(InstanceLocator inst) {
+                return tsuid != null ? tsuid : inst.tsuid;
+            }
+
+            @Override
+            protected DataWriter createDataWriter(InstanceLocator inst,
+                    String tsuid) throws Exception {
+                final DataWriter writer = super.createDataWriter(inst, tsuid);
+                dataWriterTypes.add(writer.getClass());
+                int n = prefetched.incrementAndGet();
+                int max;
+                while ((max = maxPrefetched.get()) < n
+                        && !maxPrefetched.compareAndSet(max, n))
+                    ;
+                return new DataWriter() {
+
+                    @Override
+                    public void writeTo(PDVOutputStream out, String tsuid)
+                            throws IOException {
+                        try {
+                            writer.writeTo(out, tsuid);
+                        } finally {
+                            prefetched.decrementAndGet();
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private static void assertSuccess(Future<Attributes> rsp)
+            throws Exception {
+        assertTrue(rsp.isDone());
+        assertEquals(Status.Success, rsp.get().getInt(Tag.Status, -1));
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        int n = 10;
+        List<InstanceLocator> insts = new ArrayList<InstanceLocator>();
+        for (int i = 0; i < n; i++)
+            insts.add(createInstance(i));
+
+        Association as = open();
+        StoreSCUPipeline pipeline = createPipeline(as, 3);
+        List<Future<Attributes>> rsps = new ArrayList<Future<Attributes>>();
+        for (InstanceLocator inst : insts)
+            rsps.add(pipeline.store(inst));
+        pipeline.waitForCompletion();
+        as.release();
+        as.waitForSocketClose();
+
+        for (Future<Attributes> rsp : rsps)
+            assertSuccess(rsp);
+        assertEquals("stored in the negotiated Transfer Syntax", n, stored.get());
+        assertTrue("prefetched instances exceed window",
+                maxPrefetched.get() <= 3);
+        for (Class<?> type : dataWriterTypes)
+            assertEquals(DataWriterAdapter.class, type);
+    }
+
+    @Test
+    public void testStoreFileRegion() throws Exception {
+        int n = 5;
+        List<InstanceLocator> insts = new ArrayList<InstanceLocator>();
+        for (int i = 0; i < n; i++)
+            insts.add(createInstance(i));
+
+        Association as = open();
+        StoreSCUPipeline pipeline = createPipeline(as, 2, null);
+        List<Future<Attributes>> rsps = new ArrayList<Future<Attributes>>();
+        for (InstanceLocator inst : insts)
+            rsps.add(pipeline.store(inst));
+        pipeline.waitForCompletion();
+        as.release();
+        as.waitForSocketClose();
+
+        for (Future<Attributes> rsp : rsps)
+            assertSuccess(rsp);
+        assertEquals(n, stored.get());
+        assertEquals(n, dataWriterTypes.size());
+        for (Class<?> type : dataWriterTypes)
+            assertEquals(FileRegionDataWriter.class, type);
+    }
+
+    @Test
+    public void testPrefetchWindow() throws Exception {
+        int n = 8;
+        int prefetch = 3;
+        List<InstanceLocator> insts = new ArrayList<InstanceLocator>();
+        for (int i = 0; i < n; i++)
+            insts.add(createInstance(i));
+
+        storeDelay = 50;
+        Association as = open();
+        StoreSCUPipeline pipeline = createPipeline(as, prefetch);
+        List<Future<Attributes>> rsps = new ArrayList<Future<Attributes>>();
+        for (InstanceLocator inst : insts) {
+            rsps.add(pipeline.store(inst));
+            assertTrue("prefetched instances exceed window",
+                    prefetched.get() <= prefetch);
+        }
+        pipeline.waitForCompletion();
+        as.release();
+        as.waitForSocketClose();
+
+        for (Future<Attributes> rsp : rsps)
+            assertSuccess(rsp);
+        assertEquals(n, stored.get());
+        assertEquals("window filled by slow SCP",
+                prefetch, maxPrefetched.get());
+    }
+
+    @Test
+    public void testStoreMissingFile() throws Exception {
+        InstanceLocator inst = createInstance(0);
+        files.get(0).delete();
+
+        Association as = open();
+        StoreSCUPipeline pipeline = createPipeline(as, 1);
+        Future<Attributes> rsp = pipeline.store(inst);
+        Future<Attributes> rsp2 = pipeline.store(createInstance(1));
+        pipeline.waitForCompletion();
+        as.release();
+        as.waitForSocketClose();
+
+        try {
+            rsp.get();
+            fail("store of missing file must fail");
+        } catch (java.util.concurrent.ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+        assertSuccess(rsp2);
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectedExecutionReleasesPermit() throws Exception {
+        Association as = open();
+        StoreSCUPipeline pipeline = createPipeline(as, 1);
+        scu.setExecutor(new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        try {
+            pipeline.store(createInstance(0));
+            fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException expected) {
+        } finally {
+            scu.setExecutor(executor);
+        }
+
+        Future<Attributes> rsp = pipeline.store(createInstance(1));
+        pipeline.waitForCompletion();
+        as.release();
+        as.waitForSocketClose();
+        assertSuccess(rsp);
+    }
+}
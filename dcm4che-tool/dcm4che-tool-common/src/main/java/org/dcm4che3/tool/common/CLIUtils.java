@@ -225,6 +225,7 @@ public class CLIUtils {
                 .withLongOpt("sorcv-buffer")
                 .create(null));
         opts.addOption(null, "tcp-delay", false, rb.getString("tcp-delay"));
+        opts.addOption(null, "nio", false, rb.getString("nio"));
     }
 
     @SuppressWarnings("static-access")
@@ -472,6 +473,7 @@ public class CLIUtils {
         conn.setSendBufferSize(getIntOption(cl, "sosnd-buffer", 0));
         conn.setReceiveBufferSize(getIntOption(cl, "sorcv-buffer", 0));
         conn.setTcpNoDelay(!cl.hasOption("tcp-delay"));
+        conn.setNonBlockingIO(cl.hasOption("nio"));
         configureTLS(conn, cl);
     }
 
@@ -44,6 +44,9 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.OptionBuilder;
@@ -81,6 +84,7 @@ public class Dcm2Dcm {
     private boolean nofmi;
     private DicomEncodingOptions encOpts = DicomEncodingOptions.DEFAULT;
     private final List<Property> params = new ArrayList<Property>();
+    private Executor executor;
 
     public final void setTransferSyntax(String uid) {
         this.tsuid = uid;
@@ -103,6 +107,10 @@ public class Dcm2Dcm {
         this.encOpts = encOpts;
     }
 
+    public final void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
     public void addCompressionParam(String name, Object value) {
         params.add(new Property(name, value));
     }
@@ -193,11 +201,19 @@ public class Dcm2Dcm {
                 .withValueSeparator()
                 .withDescription(rb.getString("compression-param"))
                 .create("C"));
+        opts.addOption(OptionBuilder
+                .hasArg()
+                .withArgName("threads")
+                .withType(PatternOptionBuilder.NUMBER_VALUE)
+                .withDescription(rb.getString("parallel"))
+                .withLongOpt("parallel")
+                .create());
         CommandLine cl = CLIUtils.parseComandLine(args, opts, rb, Dcm2Dcm.class);
         return cl;
     }
 
      public static void main(String[] args) {
+        ExecutorService executorService = null;
         try {
             CommandLine cl = parseComandLine(args);
             Dcm2Dcm main = new Dcm2Dcm();
@@ -233,6 +249,12 @@ public class Dcm2Dcm {
                 for (int i = 0; i < cparams.length;)
                     main.addCompressionParam(cparams[i++], toValue(cparams[i++]));
 
+            if (cl.hasOption("parallel")) {
+                executorService = Executors.newFixedThreadPool(
+                        ((Number) cl.getParsedOptionValue("parallel")).intValue());
+                main.setExecutor(executorService);
+            }
+
             @SuppressWarnings("unchecked")
             final List<String> argList = cl.getArgList();
             int argc = argList.size();
@@ -253,6 +275,9 @@ public class Dcm2Dcm {
             System.err.println("dcm2dcm: " + e.getMessage());
             e.printStackTrace();
             System.exit(2);
+        } finally {
+            if (executorService != null)
+                executorService.shutdown();
         }
     }
 
@@ -311,10 +336,15 @@ public class Dcm2Dcm {
                     tsuid = adjustTransferSyntax(tsuid,
                             dataset.getInt(Tag.BitsStored, 8));
                     compressor = new Compressor(dataset, dis.getTransferSyntax());
+                    compressor.setExecutor(executor);
                     compressor.compress(tsuid,
                             params.toArray(new Property[params.size()]));
-                } else if (pixeldata instanceof Fragments)
-                    Decompressor.decompress(dataset, dis.getTransferSyntax());
+                } else if (pixeldata instanceof Fragments) {
+                    Decompressor decompressor =
+                            new Decompressor(dataset, dis.getTransferSyntax());
+                    decompressor.setExecutor(executor);
+                    decompressor.decompress();
+                }
             }
             if (nofmi)
                 fmi = null;
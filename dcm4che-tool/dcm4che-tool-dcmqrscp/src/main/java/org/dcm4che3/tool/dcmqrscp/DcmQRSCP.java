@@ -130,12 +130,14 @@ public class DcmQRSCP {
 
     private File storageDir;
     private File dicomDir;
+    private boolean dicomDirIndexed;
     private AttributesFormat filePathFormat;
     private RecordFactory recFact;
     private String availability;
     private boolean stgCmtOnSameAssoc;
     private boolean sendPendingCGet;
     private int sendPendingCMoveInterval;
+    private int moveAssociations = 1;
     private final FilesetInfo fsInfo = new FilesetInfo();
     private DicomDirReader ddReader;
     private DicomDirWriter ddWriter;
@@ -320,9 +322,18 @@ public class DcmQRSCP {
                 return null;
 
             AAssociateRQ aarq = makeAAssociateRQ(as.getLocalAET(), moveDest, matches);
-            Association storeas = openStoreAssociation(as, remote, aarq);
+            List<Association> storeAssociations = new ArrayList<Association>();
+            storeAssociations.add(openStoreAssociation(as, remote, aarq));
+            int n = Math.min(getMoveAssociations(), matches.size());
+            try {
+                while (storeAssociations.size() < n)
+                    storeAssociations.add(openStoreAssociation(as, remote, aarq));
+            } catch (DicomServiceException e) {
+                LOG.warn("{}: Failed to open additional Association to {}",
+                        as, moveDest, e);
+            }
             BasicRetrieveTask retrieveTask = new BasicRetrieveTask(
-                    Dimse.C_MOVE_RQ, as, pc, rq, matches, storeas);
+                    Dimse.C_MOVE_RQ, as, pc, rq, matches, storeAssociations);
             retrieveTask.setSendPendingRSPInterval(getSendPendingCMoveInterval());
             return retrieveTask;
         }
@@ -490,6 +501,14 @@ public class DcmQRSCP {
         return dicomDir;
     }
 
+    public final boolean isDicomDirectoryIndexed() {
+        return dicomDirIndexed;
+    }
+
+    public final void setDicomDirectoryIndexed(boolean dicomDirIndexed) {
+        this.dicomDirIndexed = dicomDirIndexed;
+    }
+
     public boolean isWriteable() {
         return storageDir.canWrite();
     }
@@ -526,6 +545,16 @@ public class DcmQRSCP {
         return sendPendingCMoveInterval;
     }
 
+    public final void setMoveAssociations(int moveAssociations) {
+        if (moveAssociations <= 0)
+            throw new IllegalArgumentException("moveAssociations: " + moveAssociations);
+        this.moveAssociations = moveAssociations;
+    }
+
+    public final int getMoveAssociations() {
+        return moveAssociations;
+    }
+
     public final void setRecordFactory(RecordFactory recFact) {
         this.recFact = recFact;
     }
@@ -576,6 +605,12 @@ public class DcmQRSCP {
                 .withDescription(rb.getString("pending-cmove"))
                 .withLongOpt("pending-cmove")
                 .create());
+        opts.addOption(OptionBuilder
+                .hasArg()
+                .withArgName("no")
+                .withDescription(rb.getString("move-assocs"))
+                .withLongOpt("move-assocs")
+                .create());
    }
 
     @SuppressWarnings("static-access")
@@ -592,6 +627,7 @@ public class DcmQRSCP {
                 .withDescription(rb.getString("filepath"))
                 .withLongOpt("filepath")
                 .create(null));
+        opts.addOption(null, "dicomdir-index", false, rb.getString("dicomdir-index"));
     }
 
     @SuppressWarnings("static-access")
@@ -666,6 +702,7 @@ public class DcmQRSCP {
         if (!cl.hasOption("dicomdir"))
             throw new MissingOptionException(rb.getString("missing-dicomdir"));
         main.setDicomDirectory(new File(cl.getOptionValue("dicomdir")));
+        main.setDicomDirectoryIndexed(cl.hasOption("dicomdir-index"));
         main.setFilePathFormat(cl.getOptionValue("filepath", 
                         "DICOM/{0020000D,hash}/{0020000E,hash}/{00080018,hash}"));
         main.setRecordFactory(new RecordFactory());
@@ -684,6 +721,9 @@ public class DcmQRSCP {
         if (cl.hasOption("pending-cmove"))
                 main.setSendPendingCMoveInterval(
                         Integer.parseInt(cl.getOptionValue("pending-cmove")));
+        if (cl.hasOption("move-assocs"))
+                main.setMoveAssociations(
+                        Integer.parseInt(cl.getOptionValue("move-assocs")));
     }
 
     private static void configureTransferCapability(DcmQRSCP main, CommandLine cl)
@@ -787,10 +827,12 @@ public class DcmQRSCP {
                     fsInfo.getDescriptorFile(), 
                     fsInfo.getDescriptorFileCharset());
         ddReader = ddWriter = DicomDirWriter.open(dicomDir);
+        ddWriter.setIndexed(dicomDirIndexed);
     }
 
     private void openDicomDirForReadOnly() throws IOException {
         ddReader = new DicomDirReader(dicomDir);
+        ddReader.setIndexed(dicomDirIndexed);
     }
 
     public void addRemoteConnection(String aet, Connection remote) {
@@ -810,6 +852,21 @@ public class DcmQRSCP {
             String[] seriesIUIDs = keys.getStrings(Tag.SeriesInstanceUID);
             String[] sopIUIDs = keys.getStrings(Tag.SOPInstanceUID);
             DicomDirReader ddr = ddReader;
+            if (ddr.isIndexed() && sopIUIDs != null && sopIUIDs.length == 1) {
+                Attributes instRec = ddr.findInstanceRecord(true, sopIUIDs[0]);
+                if (instRec != null) {
+                    Attributes seriesRec = ddr.findParentRecord(instRec);
+                    Attributes studyRec = seriesRec != null
+                            ? ddr.findParentRecord(seriesRec) : null;
+                    Attributes patRec = studyRec != null
+                            ? ddr.findParentRecord(studyRec) : null;
+                    if (matches(patRec, Tag.PatientID, patIDs)
+                            && matches(studyRec, Tag.StudyInstanceUID, studyIUIDs)
+                            && matches(seriesRec, Tag.SeriesInstanceUID, seriesIUIDs))
+                        list.add(toInstanceLocator(ddr, instRec));
+                }
+                return list;
+            }
             Attributes patRec = ddr.findPatientRecord(patIDs);
             while (patRec != null) {
                 Attributes studyRec = ddr.findStudyRecord(patRec, studyIUIDs);
@@ -818,12 +875,7 @@ public class DcmQRSCP {
                     while (seriesRec != null) {
                         Attributes instRec = ddr.findLowerInstanceRecord(seriesRec, true, sopIUIDs);
                         while (instRec != null) {
-                            String cuid = instRec.getString(Tag.ReferencedSOPClassUIDInFile);
-                            String iuid = instRec.getString(Tag.ReferencedSOPInstanceUIDInFile);
-                            String tsuid = instRec.getString(Tag.ReferencedTransferSyntaxUIDInFile);
-                            String[] fileIDs = instRec.getStrings(Tag.ReferencedFileID);
-                            String uri = ddr.toFile(fileIDs).toURI().toString();
-                            list.add(new InstanceLocator(cuid, iuid, tsuid, uri));
+                            list.add(toInstanceLocator(ddr, instRec));
                             if (sopIUIDs != null && sopIUIDs.length == 1)
                                 break;
     
@@ -850,6 +902,30 @@ public class DcmQRSCP {
         }
     }
 
+    private static InstanceLocator toInstanceLocator(DicomDirReader ddr,
+            Attributes instRec) {
+        String cuid = instRec.getString(Tag.ReferencedSOPClassUIDInFile);
+        String iuid = instRec.getString(Tag.ReferencedSOPInstanceUIDInFile);
+        String tsuid = instRec.getString(Tag.ReferencedTransferSyntaxUIDInFile);
+        String[] fileIDs = instRec.getStrings(Tag.ReferencedFileID);
+        String uri = ddr.toFile(fileIDs).toURI().toString();
+        return new InstanceLocator(cuid, iuid, tsuid, uri);
+    }
+
+    private static boolean matches(Attributes rec, int tag, String[] keys) {
+        if (rec == null || !DicomDirReader.inUse(rec))
+            return false;
+
+        if (keys == null || keys.length == 0)
+            return true;
+
+        String value = rec.getString(tag);
+        for (String key : keys)
+            if (StringUtils.matches(value, key, false, false))
+                return true;
+        return false;
+    }
+
     public Attributes calculateStorageCommitmentResult(String calledAET,
             Attributes actionInfo) throws DicomServiceException {
         Sequence requestSeq = actionInfo.getSequence(Tag.ReferencedSOPSequence);
@@ -54,20 +54,17 @@ import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.VR;
 import org.dcm4che3.io.DicomInputStream;
-import org.dcm4che3.io.DicomOutputStream;
 import org.dcm4che3.io.DicomInputStream.IncludeBulkData;
 import org.dcm4che3.net.ApplicationEntity;
 import org.dcm4che3.net.Association;
 import org.dcm4che3.net.Connection;
 import org.dcm4che3.net.Device;
 import org.dcm4che3.net.PDVInputStream;
-import org.dcm4che3.net.Status;
 import org.dcm4che3.net.TransferCapability;
 import org.dcm4che3.net.pdu.PresentationContext;
 import org.dcm4che3.net.service.BasicCEchoSCP;
-import org.dcm4che3.net.service.BasicCStoreSCP;
-import org.dcm4che3.net.service.DicomServiceException;
 import org.dcm4che3.net.service.DicomServiceRegistry;
+import org.dcm4che3.net.service.FileChannelStoreSCP;
 import org.dcm4che3.tool.common.CLIUtils;
 import org.dcm4che3.util.AttributesFormat;
 import org.dcm4che3.util.SafeClose;
@@ -92,31 +89,36 @@ public class StoreSCP {
     private File storageDir;
     private AttributesFormat filePathFormat;
     private int status;
-    private final BasicCStoreSCP cstoreSCP = new BasicCStoreSCP("*") {
+    private final FileChannelStoreSCP cstoreSCP =
+            new FileChannelStoreSCP(null, "*") {
 
         @Override
         protected void store(Association as, PresentationContext pc,
                 Attributes rq, PDVInputStream data, Attributes rsp)
                 throws IOException {
             rsp.setInt(Tag.Status, VR.US, status);
-            if (storageDir == null)
-                return;
+            if (storageDir != null)
+                super.store(as, pc, rq, data, rsp);
+        }
 
-            String cuid = rq.getString(Tag.AffectedSOPClassUID);
-            String iuid = rq.getString(Tag.AffectedSOPInstanceUID);
-            String tsuid = pc.getTransferSyntax();
-            File file = new File(storageDir, iuid + PART_EXT);
-            try {
-                storeTo(as, as.createFileMetaInformation(iuid, cuid, tsuid),
-                        data, file);
-                renameTo(as, file, new File(storageDir,
-                        filePathFormat == null
-                            ? iuid
-                            : filePathFormat.format(parse(file))));
-            } catch (Exception e) {
-                deleteFile(as, file);
-                throw new DicomServiceException(Status.ProcessingFailure, e);
-            }
+        @Override
+        public File getStorageDirectory() {
+            return storageDir;
+        }
+
+        @Override
+        protected File getFile(Association as, Attributes rq) {
+            return new File(storageDir,
+                    rq.getString(Tag.AffectedSOPInstanceUID) + PART_EXT);
+        }
+
+        @Override
+        protected void stored(Association as, PresentationContext pc,
+                Attributes rq, File file, Attributes rsp) throws IOException {
+            renameTo(as, file, new File(storageDir,
+                    filePathFormat == null
+                        ? rq.getString(Tag.AffectedSOPInstanceUID)
+                        : filePathFormat.format(parse(file))));
         }
 
     };
@@ -129,19 +131,6 @@ public class StoreSCP {
         ae.addConnection(conn);
     }
 
-    private void storeTo(Association as, Attributes fmi, 
-            PDVInputStream data, File file) throws IOException  {
-        LOG.info("{}: M-WRITE {}", as, file);
-        file.getParentFile().mkdirs();
-        DicomOutputStream out = new DicomOutputStream(file);
-        try {
-            out.writeFileMetaInformation(fmi);
-            data.copyTo(out);
-        } finally {
-            SafeClose.close(out);
-        }
-    }
-
     private static void renameTo(Association as, File from, File dest)
             throws IOException {
         LOG.info("{}: M-RENAME {}", new Object[]{ as, from, dest });
@@ -160,13 +149,6 @@ public class StoreSCP {
         }
     }
 
-    private static void deleteFile(Association as, File file) {
-        if (file.delete())
-            LOG.info("{}: M-DELETE {}", as, file);
-        else
-            LOG.warn("{}: M-DELETE {} failed!", as, file);
-    }
-
     private DicomServiceRegistry createServiceRegistry() {
         DicomServiceRegistry serviceRegistry = new DicomServiceRegistry();
         serviceRegistry.addDicomService(new BasicCEchoSCP());
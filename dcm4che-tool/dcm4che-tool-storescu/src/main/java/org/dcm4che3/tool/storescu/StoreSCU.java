@@ -48,12 +48,15 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.security.GeneralSecurityException;
 import java.text.MessageFormat;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -72,6 +75,7 @@ import org.dcm4che3.io.DicomInputStream.IncludeBulkData;
 import org.dcm4che3.net.ApplicationEntity;
 import org.dcm4che3.net.Association;
 import org.dcm4che3.net.Connection;
+import org.dcm4che3.net.DataWriter;
 import org.dcm4che3.net.DataWriterAdapter;
 import org.dcm4che3.net.Device;
 import org.dcm4che3.net.DimseRSPHandler;
@@ -80,6 +84,8 @@ import org.dcm4che3.net.InputStreamDataWriter;
 import org.dcm4che3.net.Status;
 import org.dcm4che3.net.pdu.AAssociateRQ;
 import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.service.InstanceLocator;
+import org.dcm4che3.net.service.StoreSCUPipeline;
 import org.dcm4che3.tool.common.CLIUtils;
 import org.dcm4che3.tool.common.DicomFiles;
 import org.dcm4che3.util.SafeClose;
@@ -109,6 +115,7 @@ public class StoreSCU {
     private String uidSuffix;
     private boolean relExtNeg;
     private int priority;
+    private int prefetch;
     private String tmpPrefix = "storescu-";
     private String tmpSuffix;
     private File tmpDir;
@@ -171,6 +178,15 @@ public class StoreSCU {
         this.priority = priority;
     }
 
+    /**
+     * Set the number of files, which are read ahead while previous files
+     * are sent. If {@code 0} (= default), files are read by the sending
+     * thread.
+     */
+    public final void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
     public final void setUIDSuffix(String uidSuffix) {
         this.uidSuffix = uidSuffix;
     }
@@ -200,6 +216,7 @@ public class StoreSCU {
         addRelatedSOPClassOptions(opts);
         addAttributesOption(opts);
         addUIDSuffixOption(opts);
+        addPrefetchOption(opts);
         return CLIUtils.parseComandLine(args, opts, rb, StoreSCU.class);
     }
 
@@ -217,6 +234,13 @@ public class StoreSCU {
                 .withLongOpt("uid-suffix").create(null));
     }
 
+    @SuppressWarnings("static-access")
+    private static void addPrefetchOption(Options opts) {
+        opts.addOption(OptionBuilder.hasArg().withArgName("no")
+                .withDescription(rb.getString("prefetch"))
+                .withLongOpt("prefetch").create(null));
+    }
+
     @SuppressWarnings("static-access")
     public static void addTmpFileOptions(Options opts) {
         opts.addOption(OptionBuilder.hasArg().withArgName("directory")
@@ -261,6 +285,8 @@ public class StoreSCU {
             CLIUtils.addAttributes(main.attrs, cl.getOptionValues("s"));
             main.setUIDSuffix(cl.getOptionValue("uid-suffix"));
             main.setPriority(CLIUtils.priorityOf(cl));
+            if (cl.hasOption("prefetch"))
+                main.setPrefetch(Integer.parseInt(cl.getOptionValue("prefetch")));
             List<String> argList = cl.getArgList();
             boolean echo = argList.isEmpty();
             if (!echo) {
@@ -276,8 +302,10 @@ public class StoreSCU {
                         rb.getString("scanned"), n, (t2 - t1) / 1000F,
                         (t2 - t1) / n));
             }
-            ExecutorService executorService = Executors
-                    .newSingleThreadExecutor();
+            // prefetching needs threads beside the one reading the association
+            ExecutorService executorService = main.prefetch > 0
+                    ? Executors.newCachedThreadPool()
+                    : Executors.newSingleThreadExecutor();
             ScheduledExecutorService scheduledExecutorService = Executors
                     .newSingleThreadScheduledExecutor();
             device.setExecutor(executorService);
@@ -380,6 +408,10 @@ public class StoreSCU {
         BufferedReader fileInfos = new BufferedReader(new InputStreamReader(
                 new FileInputStream(tmpFile)));
         try {
+            if (prefetch > 0) {
+                sendFilesPipelined(fileInfos);
+                return;
+            }
             String line;
             while (as.isReadyForDataTransfer()
                     && (line = fileInfos.readLine()) != null) {
@@ -401,6 +433,60 @@ public class StoreSCU {
         }
     }
 
+    private void sendFilesPipelined(BufferedReader fileInfos)
+            throws IOException {
+        StoreSCUPipeline pipeline = new StoreSCUPipeline(as, prefetch) {
+
+            @Override
+            protected String selectTransferSyntaxFor(InstanceLocator inst) {
+                return selectTransferSyntax(inst.cuid, inst.tsuid);
+            }
+
+            @Override
+            protected DataWriter createDataWriter(InstanceLocator inst,
+                    String tsuid) throws Exception {
+                File f = inst.getFile();
+                if (f.getName().endsWith(".xml") || uidSuffix != null
+                        || !attrs.isEmpty() || !tsuid.equals(inst.tsuid))
+                    return new DataWriterAdapter(readDataset(f,
+                            inst.tsuid, tsuid, IncludeBulkData.URI));
+                return super.createDataWriter(inst, tsuid);
+            }
+        };
+        pipeline.setPriority(priority);
+        LinkedList<Future<Attributes>> rsps =
+                new LinkedList<Future<Attributes>>();
+        LinkedList<File> files = new LinkedList<File>();
+        try {
+            String line;
+            while (as.isReadyForDataTransfer()
+                    && (line = fileInfos.readLine()) != null) {
+                String[] ss = StringUtils.split(line, '\t');
+                File f = new File(ss[4]);
+                rsps.add(pipeline.store(new InstanceLocator(ss[1],
+                        iuidOf(ss[0]), ss[2], f.toURI().toString())));
+                files.add(f);
+                while (!rsps.isEmpty() && rsps.getFirst().isDone())
+                    onCStoreRSP(rsps.removeFirst(), files.removeFirst());
+            }
+            pipeline.waitForCompletion();
+            while (!rsps.isEmpty())
+                onCStoreRSP(rsps.removeFirst(), files.removeFirst());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the SOP Instance UID of the sent object, after applying
+     * the UID suffix and the attributes specified by the user.
+     */
+    private String iuidOf(String iuid) {
+        if (uidSuffix != null)
+            iuid += uidSuffix;
+        return attrs.getString(Tag.SOPInstanceUID, iuid);
+    }
+
     public boolean addFile(BufferedWriter fileInfos, File f, long endFmi,
             Attributes fmi, Attributes ds) throws IOException {
         String cuid = fmi.getString(Tag.MediaStorageSOPClassUID);
@@ -450,45 +536,47 @@ public class StoreSCU {
             ParserConfigurationException, SAXException {
         String ts = selectTransferSyntax(cuid, filets);
 
-        if (f.getName().endsWith(".xml")) {
-            Attributes parsedDicomFile = SAXReader.parse(new FileInputStream(f));
-            if (CLIUtils.updateAttributes(parsedDicomFile, attrs, uidSuffix))
-                iuid = parsedDicomFile.getString(Tag.SOPInstanceUID);
-            if (!ts.equals(filets)) {
-                Decompressor.decompress(parsedDicomFile, filets);
-            }
+        if (f.getName().endsWith(".xml") || uidSuffix != null
+                || !attrs.isEmpty() || !ts.equals(filets)) {
+            Attributes data = readDataset(f, filets, ts, IncludeBulkData.URI);
+            if (uidSuffix != null || !attrs.isEmpty())
+                iuid = data.getString(Tag.SOPInstanceUID);
             as.cstore(cuid, iuid, priority,
-                    new DataWriterAdapter(parsedDicomFile), ts,
+                    new DataWriterAdapter(data), ts,
                     rspHandlerFactory.createDimseRSPHandler(f));
         } else {
-            if (uidSuffix == null && attrs.isEmpty() && ts.equals(filets)) {
-                FileInputStream in = new FileInputStream(f);
-                try {
-                    in.skip(fmiEndPos);
-                    InputStreamDataWriter data = new InputStreamDataWriter(in);
-                    as.cstore(cuid, iuid, priority, data, ts,
-                            rspHandlerFactory.createDimseRSPHandler(f));
-                } finally {
-                    SafeClose.close(in);
-                }
-            } else {
-                DicomInputStream in = new DicomInputStream(f);
-                try {
-                    in.setIncludeBulkData(IncludeBulkData.URI);
-                    Attributes data = in.readDataset(-1, -1);
-                    if (CLIUtils.updateAttributes(data, attrs, uidSuffix))
-                        iuid = data.getString(Tag.SOPInstanceUID);
-                    if (!ts.equals(filets)) {
-                        Decompressor.decompress(data, filets);
-                    }
-                    as.cstore(cuid, iuid, priority,
-                            new DataWriterAdapter(data), ts,
-                            rspHandlerFactory.createDimseRSPHandler(f));
-                } finally {
-                    SafeClose.close(in);
-                }
+            FileInputStream in = new FileInputStream(f);
+            try {
+                in.skip(fmiEndPos);
+                InputStreamDataWriter data = new InputStreamDataWriter(in);
+                as.cstore(cuid, iuid, priority, data, ts,
+                        rspHandlerFactory.createDimseRSPHandler(f));
+            } finally {
+                SafeClose.close(in);
+            }
+        }
+    }
+
+    private Attributes readDataset(File f, String filets, String ts,
+            IncludeBulkData includeBulkData) throws IOException,
+            ParserConfigurationException, SAXException {
+        Attributes data;
+        if (f.getName().endsWith(".xml")) {
+            data = SAXReader.parse(new FileInputStream(f));
+        } else {
+            DicomInputStream in = new DicomInputStream(f);
+            try {
+                in.setIncludeBulkData(includeBulkData);
+                data = in.readDataset(-1, -1);
+            } finally {
+                SafeClose.close(in);
             }
         }
+        CLIUtils.updateAttributes(data, attrs, uidSuffix);
+        if (!ts.equals(filets)) {
+            Decompressor.decompress(data, filets);
+        }
+        return data;
     }
 
     private String selectTransferSyntax(String cuid, String filets) {
@@ -515,6 +603,16 @@ public class StoreSCU {
         as = ae.connect(remote, rq);
     }
 
+    private void onCStoreRSP(Future<Attributes> rsp, File f)
+            throws InterruptedException {
+        try {
+            onCStoreRSP(rsp.get(), f);
+        } catch (ExecutionException e) {
+            System.out.print('E');
+            e.getCause().printStackTrace();
+        }
+    }
+
     private void onCStoreRSP(Attributes cmd, File f) {
         int status = cmd.getInt(Tag.Status, -1);
         switch (status) {